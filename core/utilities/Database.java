@@ -2,12 +2,34 @@ package core.utilities;
 
 import java.io.File;
 import java.sql.Connection;
-import java.sql.DriverManager;
+import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import core.utilities.database.BulkLoader;
+import core.utilities.database.ConnectionPool;
+import core.utilities.database.DatabaseTarget;
+import core.utilities.database.ResultDigest;
+import core.utilities.database.RowCallback;
+import core.utilities.database.RowMapper;
+import core.utilities.database.RowMappers;
+import core.utilities.database.SqlParameters;
+import core.utilities.database.SqlScriptRunner;
+import core.utilities.database.StatementCache;
+import core.utilities.exceptions.AutomationException;
 
 /**
  * The Database class contains general database related functions.
@@ -513,9 +535,26 @@ public class Database {
 	}
 
 	/**
-	 * JDBC connection
+	 * JDBC connection last opened by the current thread, the default for the
+	 * methods without a connection parameter
 	 */
-	private static Connection connection;
+	private static final ThreadLocal<Connection> connection = new ThreadLocal<>();
+
+	/**
+	 * JDBC connections opened by the current thread by connection pool
+	 */
+	private static final ThreadLocal<Map<ConnectionPool, Connection>> threadConnections =
+			new ThreadLocal<Map<ConnectionPool, Connection>>() {
+				@Override
+				protected Map<ConnectionPool, Connection> initialValue() {
+					return new HashMap<>();
+				}
+			};
+
+	/**
+	 * Connection pools by target name
+	 */
+	private static final Map<String, ConnectionPool> connectionPools = new ConcurrentHashMap<>();
 
 	/**
 	 * Get Connect to Database using JDBC driver Pre-requisite: The global
@@ -527,6 +566,12 @@ public class Database {
 	 * with appropriate values under Database Server Properties section in
 	 * automation.properties file by default. Alternatively these parameters can
 	 * be re-initialized to connect to multiple database.
+	 * <p>
+	 * The connection is borrowed from the connection pool of the database and
+	 * is returned to the pool by {@link #closeConnection(Connection)}. Each
+	 * thread has its own connections: while a connection is open, it is
+	 * returned again by the next call of the thread for the same database,
+	 * and the last connected database is the default of the thread.
 	 * 
 	 * @throws ClassNotFoundException
 	 *             error
@@ -535,66 +580,139 @@ public class Database {
 	 * @return database connection
 	 */
 	public static Connection connectToDatabase() throws ClassNotFoundException, SQLException {
+		return connectToDatabase(getConnectionPool());
+	}
 
-		String sDBDriver = null;
-		String sConnectionUrl = null;
-
-		// Add Database sytem type and initialize driver and connection url.
-		switch (Log.AUTOMATION_DATABASE_SERVER_SYSTEM.toUpperCase()) {
-
-		case "ORACLE":
-			sDBDriver = "oracle.jdbc.driver.OracleDriver";
-			sConnectionUrl = "jdbc:oracle:thin:@" + Log.AUTOMATION_DATABASE_SERVER_NAME + ":"
-					+ Log.AUTOMATION_DATABASE_SERVER_PORT + ":" + Log.AUTOMATION_DATABASE_SERVER_INSTANCE_NAME;
-			break;
-
-		case "MYSQL":
-			sDBDriver = "com.mysql.jdbc.Driver";
-			sConnectionUrl = "jdbc:mysql://" + Log.AUTOMATION_DATABASE_SERVER_NAME + ":"
-					+ Log.AUTOMATION_DATABASE_SERVER_PORT + "/" + Log.AUTOMATION_DATABASE_SERVER_INSTANCE_NAME;
-			break;
-
-		case "SQLSERVER":
-		case "MSSQL":
-			sDBDriver = "com.microsoft.sqlserver.jdbc.SQLServerDriver";
-			sConnectionUrl = "jdbc:sqlserver://" + Log.AUTOMATION_DATABASE_SERVER_NAME + ":"
-					+ Log.AUTOMATION_DATABASE_SERVER_PORT + ";databaseName="
-					+ Log.AUTOMATION_DATABASE_SERVER_INSTANCE_NAME;
-			break;
-
-		case "DB2":
-			sDBDriver = "COM.ibm.db2os390.sqlj.jdbc.DB2SQLJDriver";
-			sConnectionUrl = "jdbc:db2://" + Log.AUTOMATION_DATABASE_SERVER_NAME + ":"
-					+ Log.AUTOMATION_DATABASE_SERVER_PORT + "/" + Log.AUTOMATION_DATABASE_SERVER_INSTANCE_NAME;
-			break;
-
-		case "SYBASE":
-			sDBDriver = "com.sybase.jdbc3.jdbc.SybDriver";
-			sConnectionUrl = "jdbc:sybase:Tds:" + Log.AUTOMATION_DATABASE_SERVER_NAME + ":"
-					+ Log.AUTOMATION_DATABASE_SERVER_PORT + "/" + Log.AUTOMATION_DATABASE_SERVER_INSTANCE_NAME;
-			break;
-
-		default:
-			Log.errorHandler(
-					"Supported Database and values in Log.AUTOMATION_DATABASE_SERVER_SYSTEM variable in automation.properties/script are : ORACLE or MYSQL or MSSQL or SQLSERVER or DB2 or SYBASE");
-			break;
-		}
+	/**
+	 * Get Connect to the named database. The database is either registered
+	 * with {@link #addDatabaseTarget(DatabaseTarget)} or set up as profile in
+	 * automation.properties file with the AUTOMATION_DATABASE_SERVER_*
+	 * properties followed by a dot and the profile name, f.ex.
+	 * AUTOMATION_DATABASE_SERVER_NAME.REPORTING=10.0.0.1
+	 * 
+	 * @param sTargetName
+	 *            name of the database target or profile
+	 * @throws SQLException
+	 *             sql error
+	 * @return database connection
+	 */
+	public static Connection connectToDatabase(String sTargetName) throws SQLException {
+		return connectToDatabase(getConnectionPool(sTargetName));
+	}
 
+	private static Connection connectToDatabase(ConnectionPool pool) {
 		// Get connection to database
 		try {
-			Class.forName(sDBDriver);
-			setConnection(DriverManager.getConnection(sConnectionUrl, Log.AUTOMATION_DATABASE_SERVER_USERNAME,
-					Encrypt.decryptPassword(Log.AUTOMATION_DATABASE_SERVER_PASSWORD)));
-			Log.logScriptInfo("Database connection established with " + Log.AUTOMATION_DATABASE_SERVER_INSTANCE_NAME
-					+ " Instance on " + Log.AUTOMATION_DATABASE_SERVER_NAME);
-		} catch (ClassNotFoundException e) {
-			Log.errorHandler("Error Class Not Found in Database.connectToDatabase()", e);
+			Map<ConnectionPool, Connection> connections = threadConnections.get();
+			Iterator<Connection> opened = connections.values().iterator();
+			while (opened.hasNext()) {
+				if (opened.next().isClosed()) {
+					opened.remove();
+				}
+			}
+			Connection current = connections.get(pool);
+			if (current != null) {
+				return setConnection(current);
+			}
+			connections.put(pool, setConnection(pool.getConnection()));
+			Log.logScriptInfo("Database connection established with " + pool.getTarget().getInstanceName()
+					+ " Instance on " + pool.getTarget().getServerName());
 		} catch (SQLException e) {
 			Log.errorHandler("Error SQL Exception in Database.connectToDatabase()", e);
 		}
 		return getConnection();
 	}
 
+	/**
+	 * Registers a database target. Connections to the target are opened with
+	 * {@link #connectToDatabase(String)} using the target name. A target
+	 * registered before with the same name is replaced and its connections
+	 * are closed.
+	 * 
+	 * @param target
+	 *            database target to register
+	 * @return connection pool of the target
+	 */
+	public static ConnectionPool addDatabaseTarget(DatabaseTarget target) {
+		return addConnectionPool(new ConnectionPool(target));
+	}
+
+	/**
+	 * Registers a connection pool under the name of its database target. A
+	 * pool registered before with the same name is closed.
+	 * 
+	 * @param pool
+	 *            connection pool to register
+	 * @return registered connection pool
+	 */
+	public static ConnectionPool addConnectionPool(ConnectionPool pool) {
+		ConnectionPool previous = connectionPools.put(pool.getTarget().getName(), pool);
+		if (previous != null && previous != pool) {
+			previous.close();
+		}
+		return pool;
+	}
+
+	/**
+	 * Gets the connection pool of the database specified by the global
+	 * AUTOMATION_DATABASE_SERVER_* parameters
+	 * 
+	 * @return connection pool
+	 */
+	public static ConnectionPool getConnectionPool() {
+		DatabaseTarget target = DatabaseTarget.fromAutomationProperties();
+		synchronized (connectionPools) {
+			ConnectionPool pool = connectionPools.get(target.getName());
+			if (pool == null) {
+				pool = addConnectionPool(new ConnectionPool(target));
+			}
+			return pool;
+		}
+	}
+
+	/**
+	 * Gets the connection pool of the named database target or profile
+	 * 
+	 * @param sTargetName
+	 *            name of the database target or profile
+	 * @return connection pool
+	 */
+	public static ConnectionPool getConnectionPool(String sTargetName) {
+		synchronized (connectionPools) {
+			ConnectionPool pool = connectionPools.get(sTargetName);
+			if (pool == null) {
+				pool = addConnectionPool(new ConnectionPool(DatabaseTarget.fromAutomationProperties(sTargetName)));
+			}
+			return pool;
+		}
+	}
+
+	/**
+	 * Closes the connection pools of all databases. Connections still in use
+	 * are closed when they are returned.
+	 */
+	public static void closeAllConnections() {
+		synchronized (connectionPools) {
+			for (ConnectionPool pool : connectionPools.values()) {
+				pool.close();
+			}
+			connectionPools.clear();
+		}
+		// Connections of the current thread, the ones of other threads are
+		// closed by their owners
+		for (Connection opened : threadConnections.get().values()) {
+			try {
+				opened.close();
+			} catch (SQLException e) {
+				Log.logDebugInfo("Error closing a database connection: " + e.getMessage());
+			}
+		}
+		threadConnections.remove();
+		setConnection(null);
+		Log.logDebugInfo(String.format("Prepared statement cache: %d hit(s), %d miss(es)",
+				StatementCache.getTotalHits(), StatementCache.getTotalMisses()));
+	}
+
 	/**
 	 * Getter Connection method to connect database using JDBC
 	 * 
@@ -602,28 +720,34 @@ public class Database {
 	 */
 
 	private static Connection getConnection() {
-		return connection;
+		return connection.get();
 	}
 
 	/**
-	 * Setter Connection method to connect database using JDBC
+	 * Setter Connection method to connect database using JDBC. Sets the
+	 * default connection of the current thread, the previous one stays open.
 	 * 
 	 * @return connection
 	 */
 
 	private static Connection setConnection(Connection connection) {
-		Database.connection = connection;
+		if (connection == null) {
+			Database.connection.remove();
+		} else {
+			Database.connection.set(connection);
+		}
 		return connection;
 	}
 
 	/**
-	 * Close Connection to the default database
+	 * Close Connection to the default database of the current thread. A
+	 * pooled connection is returned to its connection pool.
 	 * 
 	 * @throws SQLException
 	 *             error
 	 */
 	public static void closeConnection() throws SQLException {
-		connection.close();
+		getConnection().close();
 		Log.logScriptInfo("Database connection closed successfully");
 	}
 
@@ -652,7 +776,8 @@ public class Database {
 	// }
 
 	/**
-	 * Close Connection to the specified database
+	 * Close Connection to the specified database. A pooled connection is
+	 * returned to its connection pool.
 	 * 
 	 * @param conn
 	 *            - Connection string value returned from connectToDatabase
@@ -679,6 +804,12 @@ public class Database {
 	 * script/library eg: Connection connName = Database.connectToDatabase();
 	 * where value can be ORACLE or MYSQL or MSSQL or SQLSERVER or DB2 or
 	 * SYBASE.
+	 * <p>
+	 * Statements end with a semicolon or a line containing only / or GO and
+	 * may span multiple lines. PL/SQL blocks end with a line containing only
+	 * /. The statements are executed in one transaction which is rolled back
+	 * if a statement fails; INSERT, UPDATE, DELETE and MERGE statements are
+	 * sent in batches of AUTOMATION_DATABASE_BATCH_SIZE statements.
 	 * 
 	 * @param sSQLFilePath
 	 *            - SQL script file name with absolute path eg:
@@ -690,28 +821,32 @@ public class Database {
 	 *             error
 	 */
 	public static void executeSqlFromFile(String sSQLFilePath, Connection conn) throws SQLException {
+		executeSqlFromFile(sSQLFilePath, conn, Log.AUTOMATION_DATABASE_BATCH_SIZE);
+	}
 
+	/**
+	 * Execute sql statements from a file in one transaction, sending the
+	 * INSERT, UPDATE, DELETE and MERGE statements in batches of the given
+	 * size. The transaction is rolled back if a statement fails.
+	 * 
+	 * @param sSQLFilePath
+	 *            - SQL script file name with absolute path eg:
+	 *            "D:\\Temp\\TestSql.sql"
+	 * @param conn
+	 *            - Connection string returned while connecting DB
+	 * @param iBatchSize
+	 *            - number of statements sent to the database at once
+	 * @throws SQLException
+	 *             error
+	 */
+	public static void executeSqlFromFile(String sSQLFilePath, Connection conn, int iBatchSize)
+			throws SQLException {
+		SqlScriptRunner runner = new SqlScriptRunner(conn, iBatchSize);
 		try {
-			// Set auto-commit to false
-			conn.setAutoCommit(false);
-
-			// Get sql statements from sqlFilePath
-			String[] sqlToExec = FileIO.getFileContentsAsList(sSQLFilePath);
-
-			// Get sql statements from file and execute
-			for (int element = 0; element < sqlToExec.length; element++) {
-				sqlToExec[element] = Strings.replace(sqlToExec[element], ";", "");
-				if (sqlToExec[element].toUpperCase().startsWith("SELECT")) {
-					executeDatabaseQuery(sqlToExec[element], conn);
-				} else {
-					executeDatabaseUpdate(sqlToExec[element], conn);
-				}
-			}
-		} catch (Exception e) {
-			Log.errorHandler("Error SQL Exception in Database.executeSql()", e);
-		} finally {
-			// Explicitly commit statements to apply changes
-			conn.commit();
+			runner.runScript(FileIO.getFileContents(sSQLFilePath));
+			Log.logScriptInfo("Executed: SQL file " + sSQLFilePath + " in DB " + conn.getCatalog() + ": " + runner);
+		} catch (SQLException e) {
+			Log.errorHandler("Error SQL Exception in Database.executeSqlFromFile()", e);
 		}
 	}
 
@@ -739,7 +874,15 @@ public class Database {
 	 */
 
 	public static int executeDatabaseUpdate(String sQuery) throws SQLException {
-		return executeDatabaseUpdate(sQuery, connection);
+		Connection conn = getConnection();
+		if (conn != null && !conn.isClosed()) {
+			return executeDatabaseUpdate(sQuery, conn);
+		}
+
+		// No open default connection, use a pooled connection for this update
+		try (Connection pooled = getConnectionPool().getConnection()) {
+			return executeDatabaseUpdate(sQuery, pooled);
+		}
 	}
 
 	/**
@@ -794,7 +937,15 @@ public class Database {
 	 */
 
 	public static String executeDatabaseQuery(String sQuery) throws SQLException {
-		return executeDatabaseQuery(sQuery, connection);
+		Connection conn = getConnection();
+		if (conn != null && !conn.isClosed()) {
+			return executeDatabaseQuery(sQuery, conn);
+		}
+
+		// No open default connection, use a pooled connection for this query
+		try (Connection pooled = getConnectionPool().getConnection()) {
+			return executeDatabaseQuery(sQuery, pooled);
+		}
 	}
 
 	/**
@@ -825,8 +976,9 @@ public class Database {
 		String sQueryResult = null;
 		try (Statement statement = conn.createStatement(); ResultSet rSet = statement.executeQuery(sQuery)) {
 			Log.logScriptInfo("Executed: " + sQuery + " in DB " + Log.AUTOMATION_DATABASE_SERVER_INSTANCE_NAME);
-			sQueryResult = Database.convertResultSetAsString(rSet);
-			Log.logScriptInfo("ResultSet: " + sQueryResult);
+			ResultDigest digest = new ResultDigest(Log.AUTOMATION_DATABASE_LOG_MAX_ROWS);
+			sQueryResult = Database.convertResultSetAsString(rSet, digest);
+			Log.logScriptInfo("ResultSet: " + digest);
 		} catch (SQLException e) {
 			Log.errorHandler("Error SQL Exception Database.executeDatabaseQuery()", e);
 		}
@@ -838,19 +990,19 @@ public class Database {
 	 * 
 	 * @param ResultSet
 	 *            This variable will have the output of the executed query
+	 * @param digest
+	 *            summary of the rows for the log
 	 * @throws SQLException
 	 *             error
 	 */
 
-	private static String convertResultSetAsString(ResultSet ResultSet) throws SQLException {
+	private static String convertResultSetAsString(ResultSet ResultSet, ResultDigest digest) throws SQLException {
 		StringBuilder builder = new StringBuilder();
-		int columnCount = ResultSet.getMetaData().getColumnCount();
+		int rowNumber = 0;
 		while (ResultSet.next()) {
-			for (int i = 0; i < columnCount;) {
-				builder.append(ResultSet.getString(i + 1));
-				if (++i < columnCount)
-					builder.append(",");
-			}
+			String[] row = RowMappers.STRING_ARRAY.mapRow(ResultSet, ++rowNumber);
+			digest.update(row);
+			builder.append(String.join(",", row));
 			builder.append("\r\n");
 		}
 		return builder.toString();
@@ -913,7 +1065,8 @@ public class Database {
 	 * SYBASE.
 	 * 
 	 * @param sQuery
-	 *            - Array of queries to be executed
+	 *            - Array of queries to be executed. The queries are committed
+	 *            together or rolled back if one of them fails.
 	 * 
 	 * @param conn
 	 *            - Connection string returned while connecting DB. ie. connName
@@ -922,33 +1075,532 @@ public class Database {
 	 *             error
 	 */
 	public static void executeDatabaseQueryBatch(String[] sQuery, Connection conn) throws SQLException {
-		try (Statement statement = conn.createStatement()) {
-			// Set auto-commit to false
-			conn.setAutoCommit(false);
+		SqlScriptRunner runner = new SqlScriptRunner(conn);
+		try {
+			runner.run(Arrays.asList(sQuery));
+			Log.logScriptInfo("Executed: An array of SQL statements in batch " + " in DB "
+					+ Log.AUTOMATION_DATABASE_SERVER_INSTANCE_NAME + ": " + runner);
+		} catch (SQLException e) {
+			Log.errorHandler("Error SQL Exception in Database.executeDatabaseQueryBatch()", e);
+		}
+	}
 
-			// Get sql statements from sQuery
-			String[] sqlToExec = sQuery;
+	/**
+	 * Loads the rows of a spreadsheet into a table of the default database
+	 * specified in Database Server Properties section of
+	 * Automation.properties file. The header row names the table columns and
+	 * the cell values are converted to the column types. The rows are sent in
+	 * batches of AUTOMATION_DATABASE_BATCH_SIZE rows in one transaction.
+	 * Column mapping and parallel loading are available with
+	 * {@link BulkLoader}.
+	 * 
+	 * @param sFileName
+	 *            - spreadsheet file to load, can be an .xls, .xlsx, .xml or
+	 *            .csv spreadsheet type
+	 * @param sSheetName
+	 *            - sheet name within the spreadsheet file
+	 * @param sTableName
+	 *            - table to load the rows into
+	 * @return number of rows loaded
+	 * @throws SQLException
+	 *             error
+	 */
+	public static long loadTableFromFile(String sFileName, String sSheetName, String sTableName)
+			throws SQLException {
+		Connection conn = getConnection();
+		if (conn != null && !conn.isClosed()) {
+			return loadTableFromFile(sFileName, sSheetName, sTableName, conn);
+		}
 
-			// Add to batch
-			for (String i : sqlToExec) {
-				statement.addBatch(i);
+		try (Connection pooled = getConnectionPool().getConnection()) {
+			return loadTableFromFile(sFileName, sSheetName, sTableName, pooled);
+		}
+	}
+
+	/**
+	 * Loads the rows of a spreadsheet into a table of the specified database
+	 * 
+	 * @param sFileName
+	 *            - spreadsheet file to load, can be an .xls, .xlsx, .xml or
+	 *            .csv spreadsheet type
+	 * @param sSheetName
+	 *            - sheet name within the spreadsheet file
+	 * @param sTableName
+	 *            - table to load the rows into
+	 * @param conn
+	 *            - connection string returned while connecting DB
+	 * @return number of rows loaded
+	 * @throws SQLException
+	 *             error
+	 */
+	public static long loadTableFromFile(String sFileName, String sSheetName, String sTableName, Connection conn)
+			throws SQLException {
+		long lRows = 0;
+		try {
+			lRows = new BulkLoader(sTableName).load(Excel.getRowIterator(sFileName, sSheetName), conn);
+		} catch (SQLException e) {
+			Log.errorHandler("Error SQL Exception in Database.loadTableFromFile()", e);
+		}
+		return lRows;
+	}
+
+	/**
+	 * Executes a parameterized SQL query in default database specified in
+	 * Database Server Properties section of Automation.properties file. The
+	 * values of the parameters are bound to the ? placeholders of the query in
+	 * the given order, f.ex. query("select * from users where name = ?",
+	 * "admin"). The prepared statement is cached per connection, so executing
+	 * the same query again does not need to parse it again.
+	 * 
+	 * @param sQuery
+	 *            - sql query with ? placeholders
+	 * @param params
+	 *            - values of the placeholders
+	 * @return rows of the result set as string values of the columns
+	 * @throws SQLException
+	 *             error
+	 */
+	public static List<String[]> query(String sQuery, Object... params) throws SQLException {
+		return query(sQuery, RowMappers.STRING_ARRAY, params);
+	}
+
+	/**
+	 * Executes a parameterized SQL query in specified database
+	 * 
+	 * @param conn
+	 *            connection string returned while connecting DB
+	 * @param sQuery
+	 *            - sql query with ? placeholders
+	 * @param params
+	 *            - values of the placeholders
+	 * @return rows of the result set as string values of the columns
+	 * @throws SQLException
+	 *             error
+	 */
+	public static List<String[]> query(Connection conn, String sQuery, Object... params) throws SQLException {
+		return query(conn, sQuery, RowMappers.STRING_ARRAY, params);
+	}
+
+	/**
+	 * Executes a parameterized SQL query in default database and maps every
+	 * row of the result set with the row mapper, f.ex. query("select count(*)
+	 * from orders where status = ?", RowMappers.firstColumn(Long.class),
+	 * "OPEN")
+	 * 
+	 * @param sQuery
+	 *            - sql query with ? placeholders
+	 * @param mapper
+	 *            - mapper of the rows
+	 * @param params
+	 *            - values of the placeholders
+	 * @param <T>
+	 *            type of the mapped rows
+	 * @return mapped rows
+	 * @throws SQLException
+	 *             error
+	 */
+	public static <T> List<T> query(String sQuery, RowMapper<T> mapper, Object... params) throws SQLException {
+		Connection conn = getConnection();
+		if (conn != null && !conn.isClosed()) {
+			return query(conn, sQuery, mapper, params);
+		}
+
+		// No open default connection, use a pooled connection for this query
+		try (Connection pooled = getConnectionPool().getConnection()) {
+			return query(pooled, sQuery, mapper, params);
+		}
+	}
+
+	/**
+	 * Executes a parameterized SQL query in specified database and maps every
+	 * row of the result set with the row mapper
+	 * 
+	 * @param conn
+	 *            connection string returned while connecting DB
+	 * @param sQuery
+	 *            - sql query with ? placeholders
+	 * @param mapper
+	 *            - mapper of the rows
+	 * @param params
+	 *            - values of the placeholders
+	 * @param <T>
+	 *            type of the mapped rows
+	 * @return mapped rows
+	 * @throws SQLException
+	 *             error
+	 */
+	public static <T> List<T> query(Connection conn, String sQuery, RowMapper<T> mapper, Object... params)
+			throws SQLException {
+		List<T> rows = new ArrayList<>();
+		StatementCache cache = StatementCache.of(conn);
+		PreparedStatement statement = null;
+		try {
+			statement = prepareStatement(conn, cache, sQuery);
+			SqlParameters.bind(statement, params);
+			statement.setFetchSize(Log.AUTOMATION_DATABASE_FETCH_SIZE);
+			try (ResultSet rSet = statement.executeQuery()) {
+				while (rSet.next()) {
+					rows.add(mapper.mapRow(rSet, rows.size() + 1));
+				}
 			}
+			Log.logScriptInfo("Executed: " + sQuery + formatParameters(params) + " in DB " + conn.getCatalog());
+			Log.logScriptInfo("ResultSet: " + rows.size() + " row(s) returned.");
+		} catch (SQLException e) {
+			Log.errorHandler("Error SQL Exception in Database.query()", e);
+		} finally {
+			releaseStatement(cache, sQuery, statement);
+		}
+		return rows;
+	}
 
-			// Execute the batch
-			statement.executeBatch();
-			Log.logScriptInfo("Executed: An array of SQL statements in batch " + " in DB "
-					+ Log.AUTOMATION_DATABASE_SERVER_INSTANCE_NAME);
+	/**
+	 * Executes a parameterized SQL query in default database and hands the
+	 * rows of the result one at a time to the callback. Only the rows of one
+	 * fetch are kept in memory, so results of any size can be processed. The
+	 * callback stops reading the result by returning false. The log shows the
+	 * number of rows, a hash of the rows and the first
+	 * AUTOMATION_DATABASE_LOG_MAX_ROWS rows.
+	 * 
+	 * @param sQuery
+	 *            - sql query with ? placeholders
+	 * @param callback
+	 *            - processor of the rows
+	 * @param params
+	 *            - values of the placeholders
+	 * @return number of rows processed
+	 * @throws SQLException
+	 *             error
+	 */
+	public static int forEachRow(String sQuery, RowCallback callback, Object... params) throws SQLException {
+		Connection conn = getConnection();
+		if (conn != null && !conn.isClosed()) {
+			return forEachRow(conn, sQuery, Log.AUTOMATION_DATABASE_FETCH_SIZE, callback, params);
+		}
 
-			// Clear the batch
-			statement.clearBatch();
+		// No open default connection, use a pooled connection for this query
+		try (Connection pooled = getConnectionPool().getConnection()) {
+			return forEachRow(pooled, sQuery, Log.AUTOMATION_DATABASE_FETCH_SIZE, callback, params);
+		}
+	}
 
-		} catch (Exception e) {
-			Log.errorHandler("Error SQL Exception in Database.executeDatabaseQueryBatch()", e);
+	/**
+	 * Executes a parameterized SQL query in specified database and hands the
+	 * rows of the result one at a time to the callback. The callback stops
+	 * reading the result by returning false.
+	 * 
+	 * @param conn
+	 *            connection string returned while connecting DB
+	 * @param sQuery
+	 *            - sql query with ? placeholders
+	 * @param iFetchSize
+	 *            - number of rows to fetch from the database at once, 0 to use
+	 *            the driver default
+	 * @param callback
+	 *            - processor of the rows
+	 * @param params
+	 *            - values of the placeholders
+	 * @return number of rows processed
+	 * @throws SQLException
+	 *             error
+	 */
+	public static int forEachRow(Connection conn, String sQuery, int iFetchSize, RowCallback callback,
+			Object... params) throws SQLException {
+		int rowNumber = 0;
+		StatementCache cache = StatementCache.of(conn);
+		PreparedStatement statement = null;
+		try {
+			statement = prepareStatement(conn, cache, sQuery);
+			SqlParameters.bind(statement, params);
+			statement.setFetchSize(iFetchSize);
+			ResultDigest digest = new ResultDigest(Log.AUTOMATION_DATABASE_LOG_MAX_ROWS);
+			boolean stopped = false;
+			try (ResultSet rSet = statement.executeQuery()) {
+				while (rSet.next()) {
+					digest.update(rSet);
+					if (!callback.processRow(rSet, ++rowNumber)) {
+						stopped = true;
+						break;
+					}
+				}
+			}
+			Log.logScriptInfo("Executed: " + sQuery + formatParameters(params) + " in DB " + conn.getCatalog());
+			Log.logScriptInfo("ResultSet: " + digest + (stopped ? "\r\nReading stopped by the callback." : ""));
+		} catch (SQLException e) {
+			Log.errorHandler("Error SQL Exception in Database.forEachRow()", e);
 		} finally {
-			// Explicitly commit statements to apply changes
-			conn.commit();
+			releaseStatement(cache, sQuery, statement);
 		}
+		return rowNumber;
+	}
 
+	/**
+	 * Executes a parameterized SQL query in default database and returns the
+	 * rows of the result as lazy stream. The rows are read from the database
+	 * while the stream is consumed, so operations like findFirst() or limit()
+	 * stop reading early. The stream must be closed, f.ex. with
+	 * try-with-resources, unless it is consumed to the end:
+	 * 
+	 * <pre>
+	 * try (Stream&lt;String&gt; names = Database.stream("select name from users", RowMappers.firstColumn(String.class))) {
+	 * 	found = names.anyMatch(name -&gt; name.startsWith("admin"));
+	 * }
+	 * </pre>
+	 * 
+	 * @param sQuery
+	 *            - sql query with ? placeholders
+	 * @param mapper
+	 *            - mapper of the rows
+	 * @param params
+	 *            - values of the placeholders
+	 * @param <T>
+	 *            type of the mapped rows
+	 * @return stream of mapped rows
+	 * @throws SQLException
+	 *             error
+	 */
+	public static <T> Stream<T> stream(String sQuery, RowMapper<T> mapper, Object... params) throws SQLException {
+		Connection conn = getConnection();
+		if (conn != null && !conn.isClosed()) {
+			return stream(conn, null, sQuery, Log.AUTOMATION_DATABASE_FETCH_SIZE, mapper, params);
+		}
+
+		// No open default connection, the pooled connection is returned when
+		// the stream is closed
+		Connection pooled = getConnectionPool().getConnection();
+		try {
+			return stream(pooled, pooled, sQuery, Log.AUTOMATION_DATABASE_FETCH_SIZE, mapper, params);
+		} catch (SQLException | RuntimeException | Error e) {
+			pooled.close();
+			throw e;
+		}
+	}
+
+	/**
+	 * Executes a parameterized SQL query in specified database and returns the
+	 * rows of the result as lazy stream. The stream must be closed unless it
+	 * is consumed to the end.
+	 * 
+	 * @param conn
+	 *            connection string returned while connecting DB
+	 * @param sQuery
+	 *            - sql query with ? placeholders
+	 * @param iFetchSize
+	 *            - number of rows to fetch from the database at once, 0 to use
+	 *            the driver default
+	 * @param mapper
+	 *            - mapper of the rows
+	 * @param params
+	 *            - values of the placeholders
+	 * @param <T>
+	 *            type of the mapped rows
+	 * @return stream of mapped rows
+	 * @throws SQLException
+	 *             error
+	 */
+	public static <T> Stream<T> stream(Connection conn, String sQuery, int iFetchSize, RowMapper<T> mapper,
+			Object... params) throws SQLException {
+		return stream(conn, null, sQuery, iFetchSize, mapper, params);
+	}
+
+	private static <T> Stream<T> stream(Connection conn, Connection borrowed, String sQuery, int iFetchSize,
+			RowMapper<T> mapper, Object... params) throws SQLException {
+		StatementCache cache = StatementCache.of(conn);
+		PreparedStatement statement = null;
+		ResultSet rSet = null;
+		try {
+			statement = prepareStatement(conn, cache, sQuery);
+			SqlParameters.bind(statement, params);
+			statement.setFetchSize(iFetchSize);
+			rSet = statement.executeQuery();
+			Log.logScriptInfo("Executed: " + sQuery + formatParameters(params) + " in DB " + conn.getCatalog());
+		} catch (SQLException e) {
+			if (rSet != null) {
+				rSet.close();
+			}
+			releaseStatement(cache, sQuery, statement);
+			Log.errorHandler("Error SQL Exception in Database.stream()", e);
+			return Stream.empty();
+		}
+
+		ResultSetSpliterator<T> rows = new ResultSetSpliterator<>(sQuery, cache, statement, rSet, borrowed, mapper);
+		return StreamSupport.stream(rows, false).onClose(rows);
+	}
+
+	/**
+	 * Reads the rows of a result set for a stream. The result set, statement
+	 * and borrowed connection are released when the last row is read or the
+	 * stream is closed.
+	 */
+	private static class ResultSetSpliterator<T> extends Spliterators.AbstractSpliterator<T> implements Runnable {
+		private final String sQuery;
+		private final StatementCache cache;
+		private final PreparedStatement statement;
+		private final ResultSet rSet;
+		private final Connection borrowed;
+		private final RowMapper<T> mapper;
+		private final ResultDigest digest = new ResultDigest(Log.AUTOMATION_DATABASE_LOG_MAX_ROWS);
+		private int rowNumber = 0;
+		private boolean closed = false;
+
+		private ResultSetSpliterator(String sQuery, StatementCache cache, PreparedStatement statement,
+				ResultSet rSet, Connection borrowed, RowMapper<T> mapper) {
+			super(Long.MAX_VALUE, Spliterator.ORDERED | Spliterator.NONNULL);
+			this.sQuery = sQuery;
+			this.cache = cache;
+			this.statement = statement;
+			this.rSet = rSet;
+			this.borrowed = borrowed;
+			this.mapper = mapper;
+		}
+
+		@Override
+		public boolean tryAdvance(Consumer<? super T> action) {
+			if (closed) {
+				return false;
+			}
+			try {
+				if (!rSet.next()) {
+					run();
+					return false;
+				}
+				digest.update(rSet);
+				action.accept(mapper.mapRow(rSet, ++rowNumber));
+				return true;
+			} catch (SQLException e) {
+				run();
+				throw new AutomationException("Error reading result of query: " + sQuery, e);
+			}
+		}
+
+		/**
+		 * Releases the result set, statement and borrowed connection
+		 */
+		@Override
+		public void run() {
+			if (closed) {
+				return;
+			}
+			closed = true;
+			try {
+				try {
+					rSet.close();
+					releaseStatement(cache, sQuery, statement);
+				} finally {
+					if (borrowed != null) {
+						borrowed.close();
+					}
+				}
+			} catch (SQLException e) {
+				throw new AutomationException("Error closing result of query: " + sQuery, e);
+			}
+			Log.logScriptInfo("ResultSet: " + digest);
+		}
+	}
+
+	/**
+	 * Executes a parameterized SQL query in default database and maps the
+	 * first row of the result set with the row mapper
+	 * 
+	 * @param sQuery
+	 *            - sql query with ? placeholders
+	 * @param mapper
+	 *            - mapper of the row
+	 * @param params
+	 *            - values of the placeholders
+	 * @param <T>
+	 *            type of the mapped row
+	 * @return mapped first row or null if the query returns no rows
+	 * @throws SQLException
+	 *             error
+	 */
+	public static <T> T queryForObject(String sQuery, RowMapper<T> mapper, Object... params) throws SQLException {
+		List<T> rows = query(sQuery, mapper, params);
+		return rows.isEmpty() ? null : rows.get(0);
+	}
+
+	/**
+	 * Executes a parameterized SQL insert, update or delete statement in
+	 * default database. The statement is committed by the database unless
+	 * auto-commit is turned off for the connection.
+	 * 
+	 * @param sQuery
+	 *            - sql statement with ? placeholders
+	 * @param params
+	 *            - values of the placeholders
+	 * @return updated row(s) count
+	 * @throws SQLException
+	 *             error
+	 */
+	public static int update(String sQuery, Object... params) throws SQLException {
+		Connection conn = getConnection();
+		if (conn != null && !conn.isClosed()) {
+			return update(conn, sQuery, params);
+		}
+
+		// No open default connection, use a pooled connection for this update
+		try (Connection pooled = getConnectionPool().getConnection()) {
+			return update(pooled, sQuery, params);
+		}
+	}
+
+	/**
+	 * Executes a parameterized SQL insert, update or delete statement in
+	 * specified database. The statement is committed by the database unless
+	 * auto-commit is turned off for the connection.
+	 * 
+	 * @param conn
+	 *            connection string returned while connecting DB
+	 * @param sQuery
+	 *            - sql statement with ? placeholders
+	 * @param params
+	 *            - values of the placeholders
+	 * @return updated row(s) count
+	 * @throws SQLException
+	 *             error
+	 */
+	public static int update(Connection conn, String sQuery, Object... params) throws SQLException {
+		int iUpdCount = 0;
+		StatementCache cache = StatementCache.of(conn);
+		PreparedStatement statement = null;
+		try {
+			statement = prepareStatement(conn, cache, sQuery);
+			SqlParameters.bind(statement, params);
+			iUpdCount = statement.executeUpdate();
+			Log.logScriptInfo("Executed: " + sQuery + formatParameters(params) + " in DB " + conn.getCatalog());
+			Log.logScriptInfo("ResultSet: " + iUpdCount + " rows affected.");
+		} catch (SQLException e) {
+			Log.errorHandler("Error SQL Exception in Database.update()", e);
+		} finally {
+			releaseStatement(cache, sQuery, statement);
+		}
+		return iUpdCount;
+	}
+
+	private static PreparedStatement prepareStatement(Connection conn, StatementCache cache, String sQuery)
+			throws SQLException {
+		if (cache != null) {
+			return cache.prepare(sQuery);
+		}
+		return conn.prepareStatement(sQuery);
+	}
+
+	private static void releaseStatement(StatementCache cache, String sQuery, PreparedStatement statement)
+			throws SQLException {
+		if (statement == null) {
+			return;
+		}
+		if (cache != null) {
+			cache.release(sQuery, statement);
+		} else {
+			statement.close();
+		}
+	}
+
+	private static String formatParameters(Object... params) {
+		if (params == null || params.length == 0) {
+			return "";
+		}
+		return " with parameters " + Arrays.toString(params);
 	}
 
 }
@@ -11,10 +11,16 @@ import org.apache.poi.xssf.usermodel.XSSFWorkbook;
 import org.w3c.dom.NodeList;
 
 import core.utilities.data.CSV;
+import core.utilities.data.CSVRowIterator;
 import core.utilities.data.DataXML;
 import core.utilities.data.MicrosoftXML;
+import core.utilities.data.RowIterator;
+import core.utilities.data.SheetWriter;
+import core.utilities.data.TableRowIterator;
 import core.utilities.data.XLS;
+import core.utilities.data.XLSXRowIterator;
 import core.utilities.exceptions.AutomationException;
+import core.utilities.exceptions.SetupException;
 import core.utilities.scripting.dataproviders.FindFile;
 
 /**
@@ -151,6 +157,50 @@ public class Excel {
 		}
 	}
 
+	/**
+	 * Opens a write session for the given spreadsheet file and sheet. The file
+	 * is read once, the cell and row changes made through the session are kept
+	 * in memory and written to the file at once on commit of the session;
+	 * closing the session without commit discards them. Use it instead of {@link #setCellValue}, {@link #updateRowData}
+	 * and {@link #insertRowDataAfter} when many changes are made to the same
+	 * file.
+	 *
+	 * @param fileName
+	 *            name of the spreadsheet file to change. The spreadsheet can be
+	 *            of the .xlsx, .xls, .xml or .csv file types
+	 * @param sheetName
+	 *            name of the sheet within the given spreadsheet file to change
+	 * @return the {@link SheetWriter} session
+	 * @throws AutomationException
+	 *             if the file type is not supported or the file can't be read
+	 */
+	public static SheetWriter openForWrite(String fileName, String sheetName) {
+		try {
+			fileName = getCompletePathToExcelFile(fileName);
+
+			Log.logDebugInfo("Open for write file: " + fileName);
+
+			if (isCSV(fileName)) { // if .csv format
+				return new SheetWriter(fileName, new CSV(fileName));
+			} else if (isXLS(fileName) || isXLSX(fileName)) { // if .xlsx or
+																// .xls format
+				return new SheetWriter(fileName, new XLS(fileName, sheetName));
+			} else if (isMicrosoftXML(fileName)) { // if .xml format
+				return new SheetWriter(fileName, new MicrosoftXML(fileName, sheetName));
+			} else if (isDataXML(fileName)) { // if .xml format
+				return new SheetWriter(fileName, new DataXML(fileName));
+			} else {
+				throw new AutomationException(String.format("Error opening file for write: wrong file extension - %s",
+						FileIO.getFileExtension(fileName)));
+			}
+		} catch (AutomationException exception) {
+			throw exception;
+		} catch (Exception exception) {
+			throw new AutomationException(String.format("Error open file for write: %s", exception.getMessage()),
+					exception);
+		}
+	}
+
 	/**
 	 * Returns the cell content of the given spreadsheet file, sheet, column and
 	 * row.
@@ -589,6 +639,61 @@ public class Excel {
 		}
 	}
 
+	/**
+	 * Opens the given spreadsheet file for reading one row at a time. The .csv
+	 * and .xlsx files are streamed, so the memory used does not depend on the
+	 * size of the file. The .xls and .xml files are loaded into memory and
+	 * iterated over. The header row is available from
+	 * {@link RowIterator#getHeaders()} and is not returned by the iterator.
+	 *
+	 * @param fileName
+	 *            The spreadsheet filename to read rows from. Can be an .xls,
+	 *            .xlsx, .xml or .csv spreadsheet type
+	 * @param sheetName
+	 *            The sheet name within the spreadsheet file to read rows from
+	 * @return the {@link RowIterator} which should be closed if it is not
+	 *         iterated to the end
+	 */
+	public static RowIterator getRowIterator(String fileName, String sheetName) {
+		try {
+			fileName = getCompletePathToExcelFile(fileName);
+
+			Log.logDebugInfo("Test data read from: " + fileName);
+
+			if (isCSV(fileName)) { // if .csv format
+				return new CSVRowIterator(fileName);
+			} else if (isXLSX(fileName)) { // if .xlsx format
+				return new XLSXRowIterator(fileName, sheetName);
+			} else if (isXLS(fileName)) { // if .xls format
+				XLS xls = new XLS(fileName, sheetName);
+
+				if (!xls.isSheetExists()) {
+					throw new SetupException(
+							String.format("Error: Sheet [%s] does not exist in file [%s]", sheetName, fileName));
+				}
+
+				return new TableRowIterator(xls.getTableData(true));
+			} else if (isMicrosoftXML(fileName)) { // if .xml format
+				MicrosoftXML microsoftXML = new MicrosoftXML(fileName, sheetName);
+
+				if (!microsoftXML.isSheetExists()) {
+					throw new SetupException(
+							String.format("Error: Sheet [%s] does not exist in file [%s]", sheetName, fileName));
+				}
+
+				return new TableRowIterator(microsoftXML.getTableData(true));
+			} else if (isDataXML(fileName)) { // if .xml format
+				return new TableRowIterator(new DataXML(fileName).getTableData(true));
+			} else {
+				throw new SetupException(String.format("Error reading rows: wrong file extension - %s",
+						FileIO.getFileExtension(fileName)));
+			}
+		} catch (Exception exception) {
+			throw new AutomationException(String.format("Error open row iterator: %s", exception.getMessage()),
+					exception);
+		}
+	}
+
 	/**
 	 * Checks whether the specified sheet exists in .xlsx, .xls or .xml Excel
 	 * file.
@@ -1,64 +1,163 @@
 package core.utilities;
 
 import java.io.File;
-import java.io.FileInputStream;
-import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.PrintWriter;
 import java.text.DecimalFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
-import org.apache.commons.net.PrintCommandListener;
-import org.apache.commons.net.ftp.FTP;
 import org.apache.commons.net.ftp.FTPClient;
 import org.apache.commons.net.ftp.FTPFile;
-import org.apache.commons.net.ftp.FTPReply;
+
+import core.utilities.ftp.FtpCallback;
+import core.utilities.ftp.FtpDirectoryTransfer;
+import core.utilities.ftp.FtpFileMetrics;
+import core.utilities.ftp.FtpFileTransfer;
+import core.utilities.ftp.FtpSession;
+import core.utilities.ftp.FtpSessionPool;
+import core.utilities.ftp.FtpTransferResult;
 
 /**
  * The FTPUtil class contains FTP functions to connect to and upload and download files form FTP servers.
+ * <p>
+ * Every function borrows a logged in session from the session pool of the
+ * FTP server set in FTP Remote Server Properties section of
+ * automation.properties and returns it to the pool when it is done, so the
+ * functions can be called from parallel tests and only the first function
+ * pays for connecting and logging in. Use {@link #execute(FtpCallback)} to
+ * run many operations on one session.
  */
 public class FTPUtil {
 
-	// Creating FTP Client instance
-	static FTPClient ftp = null;
+	private static final Map<String, FtpSessionPool> sessionPools = new ConcurrentHashMap<>();
 
-	static boolean bFTPConnect = false, bFTPDisconnect = true;
-	static boolean bResponse = false, bRecursive = false;
-	static int iReply = -1, iProcessCntr = 0;
-	static long[] dirInfo = null;
+	/**
+	 * Gets the session pool of the FTP server set in FTP Remote Server
+	 * Properties section of automation.properties. The pool is created on
+	 * first use.
+	 *
+	 * @return session pool of the FTP server
+	 */
+	public static FtpSessionPool getSessionPool() {
+		String sKey = Log.AUTOMATION_FTP_SERVER_USERNAME + "@" + Log.AUTOMATION_FTP_SERVER_NAME + ":"
+				+ Log.AUTOMATION_FTP_SERVER_PORTAL;
+		FtpSessionPool pool = sessionPools.get(sKey);
+		if (pool == null) {
+			synchronized (sessionPools) {
+				pool = sessionPools.get(sKey);
+				if (pool == null) {
+					pool = FtpSessionPool.fromAutomationProperties();
+					sessionPools.put(sKey, pool);
+				}
+			}
+		}
+		return pool;
+	}
 
 	/**
-	 * This method will establish the connection to the FTP Server
-	 * 
-	 * @throws Exception
+	 * Disconnects the idle sessions of all FTP servers and closes their
+	 * session pools
+	 */
+	public static void closeAllSessions() {
+		synchronized (sessionPools) {
+			for (FtpSessionPool pool : sessionPools.values()) {
+				pool.close();
+			}
+			sessionPools.clear();
+		}
+	}
+
+	/**
+	 * Executes FTP operations on one session to the FTP Server set in FTP
+	 * Remote Server Properties section of automation.properties, f.ex. many
+	 * transfers without logging in again for every file
 	 *
+	 * @param callback
+	 *            operations to execute with the logged in client
+	 * @param <T>
+	 *            type of the result
+	 * @return result of the callback
 	 */
-	private static void ftpConnect() throws Exception {
+	public static <T> T execute(FtpCallback<T> callback) {
 		try {
-			if (!bFTPConnect) {
-				ftp = new FTPClient();
-				ftp.addProtocolCommandListener(new PrintCommandListener(new PrintWriter(System.out)));
-				ftp.connect(Log.AUTOMATION_FTP_SERVER_NAME, Integer.valueOf(Log.AUTOMATION_FTP_SERVER_PORTAL));
-				iReply = ftp.getReplyCode();
-				if (!FTPReply.isPositiveCompletion(iReply)) {
-					ftp.disconnect();
-					throw new Exception("Exception in connecting to FTP Server");
+			return getSessionPool().execute(callback);
+		} catch (IOException e) {
+			Log.errorHandler("Exception occured in execute()", e);
+		}
+		return null;
+	}
+
+	/**
+	 * Uploads files over one session to the FTP Server set in FTP Remote
+	 * Server Properties section of automation.properties
+	 *
+	 * @param hmFiles
+	 *            Local file paths mapped to the remote file paths including
+	 *            filename eg: "C:\\upload\\a.txt" to "/FTPTest/a.txt"
+	 * @return Number of files uploaded
+	 * @see "uploadFile(), downloadFiles()"
+	 */
+	public static int uploadFiles(Map<String, String> hmFiles) {
+		int iUploaded = 0;
+		FtpSession session = null;
+		try {
+			session = ftpConnect();
+			for (Map.Entry<String, String> file : hmFiles.entrySet()) {
+				if (uploadFile(session.getClient(), file.getKey(), "", file.getValue())) {
+					iUploaded++;
 				}
-				ftp.login(Log.AUTOMATION_FTP_SERVER_USERNAME,
-						Encrypt.decryptPassword(Log.AUTOMATION_FTP_SERVER_PASSWORD));
-				ftp.setFileType(FTP.BINARY_FILE_TYPE);
-				ftp.enterLocalPassiveMode();
-				if (ftp.isConnected()) {
-					bFTPConnect = true;
-					Log.logScriptInfo("Connection to ftp server: " + Log.AUTOMATION_FTP_SERVER_NAME + " successful.");
-				} else {
-					Log.errorHandler("Connection to ftp server: " + Log.AUTOMATION_FTP_SERVER_NAME + " failed.");
+			}
+		} catch (Exception e) {
+			handleException(session, "Exception occured in uploadFiles()", e);
+		} finally {
+			ftpDisconnect(session);
+		}
+		return iUploaded;
+	}
+
+	/**
+	 * Downloads files over one session from the FTP Server set in FTP Remote
+	 * Server Properties section of automation.properties
+	 *
+	 * @param hmFiles
+	 *            Remote file paths mapped to the local file paths including
+	 *            filename eg: "/FTPTest/a.txt" to "C:/download/a.txt"
+	 * @return Number of files downloaded
+	 * @see "downloadFile(), uploadFiles()"
+	 */
+	public static int downloadFiles(Map<String, String> hmFiles) {
+		int iDownloaded = 0;
+		FtpSession session = null;
+		try {
+			session = ftpConnect();
+			for (Map.Entry<String, String> file : hmFiles.entrySet()) {
+				if (downloadFile(session.getClient(), file.getKey(), file.getValue())) {
+					iDownloaded++;
 				}
 			}
+		} catch (Exception e) {
+			handleException(session, "Exception occured in downloadFiles()", e);
+		} finally {
+			ftpDisconnect(session);
+		}
+		return iDownloaded;
+	}
+
+	/**
+	 * This method will borrow a logged in session to the FTP Server from the
+	 * session pool
+	 * 
+	 * @return FTP session, to be returned with ftpDisconnect()
+	 */
+	private static FtpSession ftpConnect() {
+		try {
+			return getSessionPool().getSession();
 		} catch (Exception e) {
 			Log.errorHandler("Exception occured in ftpConnect()", e);
-			Log.verifyFatal(true, bFTPConnect, "Connection to FTP Server failed");
 		}
+		return null;
 	}
 
 	/**
@@ -77,21 +176,28 @@ public class FTPUtil {
 	 * @see "checkDirectoryExists()"
 	 */
 	public static boolean checkFileExists(String sFilePath) throws Exception {
-		bResponse = false;
-		ftpConnect();
-		try (InputStream inputStream = ftp.retrieveFileStream(sFilePath)) {
-			iReply = ftp.getReplyCode();
+		boolean bResponse = false;
+		FtpSession session = null;
+		try {
+			session = ftpConnect();
+			FTPClient ftp = session.getClient();
+			InputStream inputStream = ftp.retrieveFileStream(sFilePath);
+			int iReply = ftp.getReplyCode();
+			if (inputStream != null) {
+				// Abort the transfer, the session is reused afterwards
+				inputStream.close();
+				ftp.completePendingCommand();
+			}
 			if (inputStream == null || iReply == 550) {
 				Log.errorHandler("Check and found file: " + sFilePath + " does not exists.");
-				bResponse = false;
 			} else {
 				Log.logScriptInfo("Check and found file: " + sFilePath + " exists.");
 				bResponse = true;
 			}
 		} catch (Exception e) {
-			Log.errorHandler("Exception occured in checkFileExists()", e);
+			handleException(session, "Exception occured in checkFileExists()", e);
 		} finally {
-			ftpDisconnect();
+			ftpDisconnect(session);
 		}
 		return bResponse;
 	}
@@ -109,18 +215,20 @@ public class FTPUtil {
 	 * @see "checkFileExists()"
 	 */
 	public static boolean checkDirectoryExists(String sDirPath) {
+		boolean bResponse = false;
+		FtpSession session = null;
 		try {
-			ftpConnect();
-			bResponse = ftp.changeWorkingDirectory(sDirPath);
+			session = ftpConnect();
+			bResponse = session.getClient().changeWorkingDirectory(sDirPath);
 			if (bResponse) {
 				Log.logScriptInfo("Check and found directory: " + sDirPath + " exists.");
 			} else {
 				Log.logScriptInfo("Check and found directory: " + sDirPath + " does not exists.");
 			}
 		} catch (Exception e) {
-			Log.errorHandler("Exception occured in checkDirectoryExists()", e);
+			handleException(session, "Exception occured in checkDirectoryExists()", e);
 		} finally {
-			ftpDisconnect();
+			ftpDisconnect(session);
 		}
 		return bResponse;
 	}
@@ -138,18 +246,19 @@ public class FTPUtil {
 	 */
 	public static String printWorkingDirectory() {
 		String sResponse = null;
+		FtpSession session = null;
 		try {
-			ftpConnect();
-			sResponse = ftp.printWorkingDirectory();
+			session = ftpConnect();
+			sResponse = session.getClient().printWorkingDirectory();
 			if (!sResponse.isEmpty()) {
 				Log.logScriptInfo("Present working directory: " + sResponse);
 			} else {
 				Log.errorHandler("Present working directory: " + sResponse);
 			}
 		} catch (Exception e) {
-			Log.errorHandler("Exception occured in printWorkingDirectory()", e);
+			handleException(session, "Exception occured in printWorkingDirectory()", e);
 		} finally {
-			ftpDisconnect();
+			ftpDisconnect(session);
 		}
 		return sResponse;
 	}
@@ -167,18 +276,20 @@ public class FTPUtil {
 	 * @see "printWorkingDirectory()"
 	 */
 	public static boolean changeDirectory(String sDirPath) {
+		boolean bResponse = false;
+		FtpSession session = null;
 		try {
-			ftpConnect();
-			bResponse = ftp.changeWorkingDirectory(sDirPath);
+			session = ftpConnect();
+			bResponse = session.getClient().changeWorkingDirectory(sDirPath);
 			if (bResponse) {
 				Log.logScriptInfo("Change directory to: " + sDirPath + " successful.");
 			} else {
 				Log.errorHandler("Change directory to: " + sDirPath + " failed.");
 			}
 		} catch (Exception e) {
-			Log.errorHandler("Exception occured in changeDirectory()", e);
+			handleException(session, "Exception occured in changeDirectory()", e);
 		} finally {
-			ftpDisconnect();
+			ftpDisconnect(session);
 		}
 		return bResponse;
 	}
@@ -196,38 +307,45 @@ public class FTPUtil {
 	 * @return True if success, else false
 	 */
 	public static boolean createDirectories(String sDirPath) {
+		boolean bResponse = false;
+		FtpSession session = null;
 		try {
-			bResponse = false;
-			ftpConnect();
-			String[] pathElements = sDirPath.split("/");
-			if (pathElements != null && pathElements.length > 0) {
-				for (String sSingleDir : pathElements) {
-					// Change working directory to root if sSingleDir is null
-					// for root(/) due to delimeter usage
-					if (sSingleDir.equals("")) {
-						ftp.changeWorkingDirectory("/");
-						continue;
-					}
-					// Create directory
-					if (!ftp.changeWorkingDirectory(sSingleDir)) {
-						bResponse = ftp.makeDirectory(sSingleDir);
-						if (bResponse) {
-							Log.logScriptInfo("Create directory: " + sDirPath + " successful.");
-							// Change present working directory to current
-							// created directory
-							ftp.changeWorkingDirectory(sSingleDir);
-						} else {
-							Log.errorHandler("Create directory: " + sDirPath + " failed.");
-						}
+			session = ftpConnect();
+			bResponse = createDirectories(session.getClient(), sDirPath);
+		} catch (Exception e) {
+			handleException(session, "Exception occurred in createDirectories()", e);
+		} finally {
+			ftpDisconnect(session);
+		}
+		return bResponse;
+	}
+
+	private static boolean createDirectories(FTPClient ftp, String sDirPath) throws IOException {
+		boolean bResponse = false;
+		String[] pathElements = sDirPath.split("/");
+		if (pathElements != null && pathElements.length > 0) {
+			for (String sSingleDir : pathElements) {
+				// Change working directory to root if sSingleDir is null
+				// for root(/) due to delimeter usage
+				if (sSingleDir.equals("")) {
+					ftp.changeWorkingDirectory("/");
+					continue;
+				}
+				// Create directory
+				if (!ftp.changeWorkingDirectory(sSingleDir)) {
+					bResponse = ftp.makeDirectory(sSingleDir);
+					if (bResponse) {
+						Log.logScriptInfo("Create directory: " + sDirPath + " successful.");
+						// Change present working directory to current
+						// created directory
+						ftp.changeWorkingDirectory(sSingleDir);
 					} else {
-						bResponse = true;
+						Log.errorHandler("Create directory: " + sDirPath + " failed.");
 					}
+				} else {
+					bResponse = true;
 				}
 			}
-		} catch (Exception e) {
-			Log.errorHandler("Exception occurred in createDirectories()", e);
-		} finally {
-			ftpDisconnect();
 		}
 		return bResponse;
 	}
@@ -250,41 +368,47 @@ public class FTPUtil {
 	 * @see "uploadDirectory(), uploadOnlyDirectoryStructure()"
 	 */
 	public static boolean uploadFile(String sLocalFilePath, String sFilename, String sRemoteFilePath) {
+		boolean bResponse = false;
+		FtpSession session = null;
 		try {
-			bResponse = false;
 			// Check if source file path exists
 			if (!FileIO.fileExists(sLocalFilePath)) {
 				Log.errorHandler("Local Source File: " + sLocalFilePath + " does not exists to upload.");
 			} else {
-				ftpConnect();
-				InputStream input = new FileInputStream(new File(sLocalFilePath));
-				if (sFilename.isEmpty()) {
-					bResponse = ftp.storeFile(sRemoteFilePath, input);
-				} else {
-					bResponse = ftp.storeFile(sRemoteFilePath + "/" + sFilename, input);
-				}
-				input.close();
-				if (bResponse) {
-					Log.logScriptInfo(
-							"Upload file: " + sLocalFilePath + " to " + sRemoteFilePath + sFilename + " successful.");
-				} else {
-					Log.errorHandler(
-							"Upload file: " + sLocalFilePath + " to " + sRemoteFilePath + sFilename + " failed.");
-				}
+				session = ftpConnect();
+				bResponse = uploadFile(session.getClient(), sLocalFilePath, sFilename, sRemoteFilePath);
 			}
 		} catch (Exception e) {
-			Log.errorHandler("Exception occured in uploadFile()", e);
+			handleException(session, "Exception occured in uploadFile()", e);
 		} finally {
-			ftpDisconnect();
+			ftpDisconnect(session);
 		}
 		return bResponse;
 	}
 
+	private static boolean uploadFile(FTPClient ftp, String sLocalFilePath, String sFilename, String sRemoteFilePath)
+			throws IOException {
+		String sRemotePath = sFilename.isEmpty() ? sRemoteFilePath : sRemoteFilePath + "/" + sFilename;
+		FtpFileMetrics metrics = new FtpFileTransfer().upload(ftp, new File(sLocalFilePath), sRemotePath, 0);
+		if (metrics == null) {
+			Log.errorHandler("Upload file: " + sLocalFilePath + " to " + sRemoteFilePath + sFilename + " failed. "
+					+ ftp.getReplyString().trim());
+			return false;
+		}
+		Log.logScriptInfo("Upload file: " + sLocalFilePath + " to " + sRemoteFilePath + sFilename + " successful. "
+				+ metrics);
+		return true;
+	}
+
 	/**
 	 * Uploads entire directory including nested sub directories and files to a
 	 * destination folder in FTP server after automatically connecting to a FTP
 	 * Server using credentials set in FTP Remote Server Properties section of
 	 * automation.properties and performs disconnection from FTP server finally.
+	 * <p>
+	 * The files are uploaded in parallel over the pooled sessions, files which
+	 * are already on the server with the same size are skipped and partially
+	 * uploaded files are completed, see {@link FtpDirectoryTransfer}.
 	 *
 	 * @param sLocalParentDir
 	 *            Path of the local directory being uploaded eg:
@@ -300,59 +424,14 @@ public class FTPUtil {
 	 * @see "uploadFile(), uploadOnlyDirectoryStructure()"
 	 */
 	public static boolean uploadDirectory(String sLocalParentDir, String sRemoteDirPath, String sRemoteParentDir) {
-		try {
-			bResponse = false;
-			if (!FileIO.dirExists(sLocalParentDir)) {
-				Log.errorHandler("Local Source Directory: " + sLocalParentDir + " does not exists to upload.");
-			}
-			ftpConnect();
-			File fLocalDir = new File(sLocalParentDir);
-			File[] faSubFiles = fLocalDir.listFiles();
-			if (faSubFiles != null && faSubFiles.length > 0) {
-				for (File item : faSubFiles) {
-					String sRemoteFilePath = sRemoteDirPath + "/" + sRemoteParentDir + "/" + item.getName();
-					if (sRemoteParentDir.equals("")) {
-						sRemoteFilePath = sRemoteDirPath + "/" + item.getName();
-					}
-
-					if (item.isFile()) {
-						// upload the file
-						String sLocalFilePath = item.getAbsolutePath();
-						bFTPDisconnect = false;
-						bResponse = uploadFile(sLocalFilePath, "", sRemoteFilePath);
-					} else {
-						// Create directory if does not exists
-						if (!ftp.changeWorkingDirectory(sRemoteFilePath)) {
-							bResponse = ftp.makeDirectory(sRemoteFilePath);
-							if (bResponse) {
-								Log.logScriptInfo("Create directory: " + sRemoteFilePath + " successful.");
-							} else {
-								Log.errorHandler("Create directory: " + sRemoteFilePath + " failed.");
-							}
-						} else {
-							Log.logScriptInfo("Create directory: " + sRemoteFilePath + " already exists.");
-							bResponse = true;
-						}
-
-						// upload the sub directory
-						String sParent = sRemoteParentDir + "/" + item.getName();
-						if (sRemoteParentDir.equals("")) {
-							sParent = item.getName();
-						}
-
-						sLocalParentDir = item.getAbsolutePath();
-						bFTPDisconnect = false;
-						bResponse = uploadDirectory(sLocalParentDir, sRemoteDirPath, sParent);
-					}
-				}
-			}
-		} catch (Exception e) {
-			Log.errorHandler("Exception occurred in uploadDirectory()", e);
-		} finally {
-			bFTPDisconnect = true;
-			ftpDisconnect();
+		if (!FileIO.dirExists(sLocalParentDir)) {
+			Log.errorHandler("Local Source Directory: " + sLocalParentDir + " does not exists to upload.");
 		}
-		return bResponse;
+		String sRemoteDir = sRemoteDirPath;
+		if (!sRemoteParentDir.equals("")) {
+			sRemoteDir = sRemoteDirPath + "/" + sRemoteParentDir;
+		}
+		return transferDirectory(true, sLocalParentDir, sRemoteDir);
 	}
 
 	/**
@@ -377,57 +456,60 @@ public class FTPUtil {
 	 */
 	public static boolean uploadOnlyDirectoryStructure(String sLocalParentDir, String sRemoteDirPath,
 			String sRemoteParentDir) {
+		boolean bResponse = false;
+		FtpSession session = null;
 		try {
-			bResponse = false;
 			if (!FileIO.dirExists(sLocalParentDir)) {
 				Log.errorHandler("Local Source Directory: " + sLocalParentDir + " does not exists to upload.");
 			}
-			ftpConnect();
+			session = ftpConnect();
 			// Verify and create destination parent directory if does not exists
-			bFTPDisconnect = false;
-			createDirectories(sRemoteDirPath);
-
-			// Create directories structure only
-			File fLocalDir = new File(sLocalParentDir);
-			File[] faSubFiles = fLocalDir.listFiles();
-			if (faSubFiles != null && faSubFiles.length > 0) {
-				for (File item : faSubFiles) {
-					String sRemoteFilePath = sRemoteDirPath + "/" + sRemoteParentDir + "/" + item.getName();
-					if (sRemoteParentDir.equals("")) {
-						sRemoteFilePath = sRemoteDirPath + "/" + item.getName();
-					}
+			createDirectories(session.getClient(), sRemoteDirPath);
+			bResponse = uploadOnlyDirectoryStructure(session.getClient(), sLocalParentDir, sRemoteDirPath,
+					sRemoteParentDir);
+		} catch (Exception e) {
+			handleException(session, "Exception occurred in uploadOnlyDirectory()", e);
+		} finally {
+			ftpDisconnect(session);
+		}
+		return bResponse;
+	}
 
-					if (item.isDirectory()) {
-						// Create directory if does not exists
-						if (!ftp.changeWorkingDirectory(sRemoteFilePath)) {
-							bResponse = ftp.makeDirectory(sRemoteFilePath);
-							if (bResponse) {
-								Log.logScriptInfo("Create directory structure: " + sRemoteFilePath + " successful.");
-							} else {
-								Log.logScriptInfo("Create directory structure: " + sRemoteFilePath + " failed.");
-							}
-						} else {
-							Log.logScriptInfo("Create directory: " + sRemoteFilePath + " already exists.");
-							bResponse = true;
-						}
+	private static boolean uploadOnlyDirectoryStructure(FTPClient ftp, String sLocalParentDir, String sRemoteDirPath,
+			String sRemoteParentDir) throws IOException {
+		boolean bResponse = false;
+		// Create directories structure only
+		File fLocalDir = new File(sLocalParentDir);
+		File[] faSubFiles = fLocalDir.listFiles();
+		if (faSubFiles != null && faSubFiles.length > 0) {
+			for (File item : faSubFiles) {
+				String sRemoteFilePath = sRemoteDirPath + "/" + sRemoteParentDir + "/" + item.getName();
+				if (sRemoteParentDir.equals("")) {
+					sRemoteFilePath = sRemoteDirPath + "/" + item.getName();
+				}
 
-						// upload the sub directory
-						String sParent = sRemoteParentDir + "/" + item.getName();
-						if (sRemoteParentDir.equals("")) {
-							sParent = item.getName();
+				if (item.isDirectory()) {
+					// Create directory if does not exists
+					if (!ftp.changeWorkingDirectory(sRemoteFilePath)) {
+						bResponse = ftp.makeDirectory(sRemoteFilePath);
+						if (bResponse) {
+							Log.logScriptInfo("Create directory structure: " + sRemoteFilePath + " successful.");
+						} else {
+							Log.logScriptInfo("Create directory structure: " + sRemoteFilePath + " failed.");
 						}
+					} else {
+						Log.logScriptInfo("Create directory: " + sRemoteFilePath + " already exists.");
+						bResponse = true;
+					}
 
-						sLocalParentDir = item.getAbsolutePath();
-						bFTPDisconnect = false;
-						bResponse = uploadOnlyDirectoryStructure(sLocalParentDir, sRemoteDirPath, sParent);
+					// upload the sub directory
+					String sParent = sRemoteParentDir + "/" + item.getName();
+					if (sRemoteParentDir.equals("")) {
+						sParent = item.getName();
 					}
+					bResponse = uploadOnlyDirectoryStructure(ftp, item.getAbsolutePath(), sRemoteDirPath, sParent);
 				}
 			}
-		} catch (Exception e) {
-			Log.errorHandler("Exception occurred in uploadOnlyDirectory()", e);
-		} finally {
-			bFTPDisconnect = true;
-			ftpDisconnect();
 		}
 		return bResponse;
 	}
@@ -449,39 +531,78 @@ public class FTPUtil {
 	 */
 
 	public static boolean downloadFile(String sRemoteFileFullName, String sDestination) {
+		return downloadFile(sRemoteFileFullName, sDestination, null, null);
+	}
+
+	/**
+	 * Downloads file from FTP Server path to local destination folder and
+	 * verifies its checksum, computed while the file is downloaded, after
+	 * automatically connecting to a FTP Server using credentials set in FTP
+	 * Remote Server Properties section of automation.properties and performs
+	 * disconnection from FTP server finally.
+	 *
+	 * @param sRemoteFileFullName
+	 *            Absolute source directory path from remote server including
+	 *            filename with extension eg: /FTPTest/downloadtest.txt
+	 * @param sDestination
+	 *            Absolute destination path in local system including filename
+	 *            with extension eg: C:/download/downloadtest.txt
+	 * @param sChecksumAlgorithm
+	 *            Checksum algorithm eg: CRC32 or SHA-256, null for none
+	 * @param sExpectedChecksum
+	 *            Expected hex checksum of the file, null to only log the
+	 *            checksum
+	 * @return True if success, else false.
+	 * @see "downloadFile()"
+	 */
+	public static boolean downloadFile(String sRemoteFileFullName, String sDestination, String sChecksumAlgorithm,
+			String sExpectedChecksum) {
+		boolean bResponse = false;
+		FtpSession session = null;
 		try {
-			bResponse = false;
-
-			ftpConnect();
-			File fLocalFile = new File(sDestination);
-			File parentDir = fLocalFile.getParentFile();
-			if (!parentDir.exists()) {
-				// boolean
-				// bCreated=FileIO.makeDirs(FileUtils.readFileToString(parentDir));
-				boolean bCreated = parentDir.mkdirs();
-				if (bCreated)
-					Log.logScriptInfo("Create directory: " + parentDir + " successful.");
-				else
-					Log.logScriptInfo("Create directory: " + parentDir + " failed.");
-			}
-			FileOutputStream fos = new FileOutputStream(sDestination);
-			bResponse = ftp.retrieveFile(sRemoteFileFullName, fos);
-			if (bResponse) {
-				Log.logScriptInfo("Download file: " + sRemoteFileFullName + " to " + sDestination + " successful.");
-			} else {
-				Log.errorHandler("Download file: " + sRemoteFileFullName + " to " + sDestination + " failed.");
-			}
-			fos.close();
+			session = ftpConnect();
+			bResponse = downloadFile(session.getClient(), sRemoteFileFullName, sDestination, sChecksumAlgorithm,
+					sExpectedChecksum);
 		} catch (Exception e) {
-			bFTPDisconnect = true;
-			Log.errorHandler("Exception occured in downloadFile()", e);
+			handleException(session, "Exception occured in downloadFile()", e);
 		} finally {
-			ftpDisconnect();
-
+			ftpDisconnect(session);
 		}
 		return bResponse;
 	}
 
+	private static boolean downloadFile(FTPClient ftp, String sRemoteFileFullName, String sDestination)
+			throws IOException {
+		return downloadFile(ftp, sRemoteFileFullName, sDestination, null, null);
+	}
+
+	private static boolean downloadFile(FTPClient ftp, String sRemoteFileFullName, String sDestination,
+			String sChecksumAlgorithm, String sExpectedChecksum) throws IOException {
+		File fLocalFile = new File(sDestination);
+		File parentDir = fLocalFile.getAbsoluteFile().getParentFile();
+		if (!parentDir.exists()) {
+			boolean bCreated = parentDir.mkdirs();
+			if (bCreated)
+				Log.logScriptInfo("Create directory: " + parentDir + " successful.");
+			else
+				Log.logScriptInfo("Create directory: " + parentDir + " failed.");
+		}
+		FtpFileMetrics metrics = new FtpFileTransfer().setChecksumAlgorithm(sChecksumAlgorithm).download(ftp,
+				sRemoteFileFullName, fLocalFile, 0);
+		if (metrics == null) {
+			Log.errorHandler("Download file: " + sRemoteFileFullName + " to " + sDestination + " failed. "
+					+ ftp.getReplyString().trim());
+			return false;
+		}
+		if (sExpectedChecksum != null && !sExpectedChecksum.equalsIgnoreCase(metrics.getChecksum())) {
+			Log.errorHandler(String.format("Download file: %s to %s failed. %s Expected: \"%s\" Actual: \"%s\"",
+					sRemoteFileFullName, sDestination, sChecksumAlgorithm, sExpectedChecksum, metrics.getChecksum()));
+			return false;
+		}
+		Log.logScriptInfo("Download file: " + sRemoteFileFullName + " to " + sDestination + " successful. " + metrics);
+		return true;
+	}
+
 	/**
 	 * Calculates and returns total number of sub directories, files and size of
 	 * specified remote directory from FTP server after automatically connecting
@@ -504,75 +625,70 @@ public class FTPUtil {
 	 * @see "getFileSize()"
 	 */
 	public static long[] getDirectoryInfo(String sRemoteParentPath, String sRemoteSubDir) {
+		long[] info = new long[3];
+		FtpSession session = null;
+		try {
+			session = ftpConnect();
+			info = getDirectoryInfo(session.getClient(), sRemoteParentPath, sRemoteSubDir);
+		} catch (Exception e) {
+			handleException(session, "Exception occurred in calculateDirectoryInfo()", e);
+		} finally {
+			ftpDisconnect(session);
+		}
+		return info;
+	}
+
+	private static long[] getDirectoryInfo(FTPClient ftp, String sRemoteParentPath, String sRemoteSubDir)
+			throws IOException {
 		String sParentDir;
 		long[] info = new long[3];
 		long totalSize = 0;
 		int totalDirs = 0;
 		int totalFiles = 0;
 
-		try {
-			FTPFile[] subFiles = null;
-			String[] sDnldFiles = Strings.split(sRemoteParentPath, ",");
-			ftpConnect();
-			for (String sDnldFile : sDnldFiles) {
-				File fLocalFile = new File(sDnldFile);
-				int iSlashCount = Strings.count(sDnldFile, "/");
-				if (iSlashCount > 1) {
-					sParentDir = Strings.replace(fLocalFile.getParent(), "\\", "/");
-				} else {
-					sParentDir = Strings.replace(fLocalFile.getPath(), "\\", "/");
-				}
+		FTPFile[] subFiles = null;
+		String[] sDnldFiles = Strings.split(sRemoteParentPath, ",");
+		for (String sDnldFile : sDnldFiles) {
+			File fLocalFile = new File(sDnldFile);
+			int iSlashCount = Strings.count(sDnldFile, "/");
+			if (iSlashCount > 1) {
+				sParentDir = Strings.replace(fLocalFile.getParent(), "\\", "/");
+			} else {
+				sParentDir = Strings.replace(fLocalFile.getPath(), "\\", "/");
+			}
 
-				// sDirToList = fParentDir;
-				if (!sRemoteSubDir.equals("")) {
-					sParentDir += "/" + sRemoteSubDir;
-				}
+			if (!sRemoteSubDir.equals("")) {
+				sParentDir += "/" + sRemoteSubDir;
+			}
 
-				if (iSlashCount > 1) {
-					subFiles = ftp.listFiles(sDnldFile);
-				} else {
-					subFiles = ftp.listFiles(sParentDir);
-				}
-				// Get initial processing count of folders and files from remote
-				// parent path
-				if (!bRecursive) {
-					iReply = subFiles.length;
-					bRecursive = true;
-				}
+			if (iSlashCount > 1) {
+				subFiles = ftp.listFiles(sDnldFile);
+			} else {
+				subFiles = ftp.listFiles(sParentDir);
+			}
 
-				if (subFiles != null && subFiles.length > 0) {
-					for (FTPFile aFile : subFiles) {
-						String currentFileName = aFile.getName();
-						if (currentFileName.equals(".") || currentFileName.equals("..")) {
-							// skip parent directory and the directory itself
-							continue;
-						}
-						iReply--;
-						if (aFile.isDirectory()) {
-							totalDirs++;
-							bFTPDisconnect = false;
-							long[] subDirInfo = getDirectoryInfo(sParentDir, currentFileName);
-							// bFTPDisconnect = true;
-							totalDirs += subDirInfo[0];
-							totalFiles += subDirInfo[1];
-							totalSize += subDirInfo[2];
-						} else {
-							totalSize += aFile.getSize();
-							totalFiles++;
-						}
+			if (subFiles != null && subFiles.length > 0) {
+				for (FTPFile aFile : subFiles) {
+					String currentFileName = aFile.getName();
+					if (currentFileName.equals(".") || currentFileName.equals("..")) {
+						// skip parent directory and the directory itself
+						continue;
+					}
+					if (aFile.isDirectory()) {
+						totalDirs++;
+						long[] subDirInfo = getDirectoryInfo(ftp, sParentDir, currentFileName);
+						totalDirs += subDirInfo[0];
+						totalFiles += subDirInfo[1];
+						totalSize += subDirInfo[2];
+					} else {
+						totalSize += aFile.getSize();
+						totalFiles++;
 					}
 				}
-				info[0] = totalDirs;
-				info[1] = totalFiles;
-				info[2] = totalSize;
-			}
-			if (iReply <= 0) {
-				bFTPDisconnect = true;
 			}
-		} catch (Exception e) {
-			Log.errorHandler("Exception occurred in calculateDirectoryInfo()", e);
-		} finally {
-			ftpDisconnect();
+			info[0] = totalDirs;
+			info[1] = totalFiles;
+			info[2] = totalSize;
 		}
 		return info;
 	}
@@ -598,79 +714,68 @@ public class FTPUtil {
 	 */
 	public static void downloadOnlyDirectoryStructure(String sRemoteParentPath, String sRemoteSubDir,
 			String sLocalDir) {
-		// Get directory information of sRemoteParentPath to set the
-		// bFTPDisconnect flag to true for initiation of disconnecting from
-		// server
-		if (dirInfo == null) {
-			bFTPDisconnect = false;
-			iProcessCntr = 0;
-			dirInfo = getDirectoryInfo(sRemoteParentPath, sRemoteSubDir);
+		FtpSession session = null;
+		try {
+			session = ftpConnect();
+			downloadOnlyDirectoryStructure(session.getClient(), sRemoteParentPath, sRemoteSubDir, sLocalDir);
+		} catch (Exception e) {
+			handleException(session, "Exception occurred in downloadOnlyDirectoryStructure()", e);
+		} finally {
+			ftpDisconnect(session);
 		}
+	}
 
+	private static void downloadOnlyDirectoryStructure(FTPClient ftp, String sRemoteParentPath, String sRemoteSubDir,
+			String sLocalDir) throws IOException {
 		String fParentDir = sRemoteParentPath;
 		FTPFile[] subFiles = null;
 
 		String[] sDnldFiles = Strings.split(sRemoteParentPath, ",");
-		try {
-			ftpConnect();
+		for (String sDnldFile : sDnldFiles) {
+			File fLocalFile = new File(sDnldFile);
+			int iSlashCount = Strings.count(sDnldFile, "/");
+			if (iSlashCount > 1) {
+				fParentDir = Strings.replace(fLocalFile.getParent(), "\\", "/");
+			} else {
+				fParentDir = Strings.replace(fLocalFile.getPath(), "\\", "/");
+			}
 
-			for (String sDnldFile : sDnldFiles) {
-				File fLocalFile = new File(sDnldFile);
-				int iSlashCount = Strings.count(sDnldFile, "/");
-				if (iSlashCount > 1) {
-					fParentDir = Strings.replace(fLocalFile.getParent(), "\\", "/");
-				} else {
-					fParentDir = Strings.replace(fLocalFile.getPath(), "\\", "/");
-				}
+			if (!sRemoteSubDir.equals("")) {
+				fParentDir += "/" + sRemoteSubDir;
+			}
 
-				// sDirToList = fParentDir;
-				if (!sRemoteSubDir.equals("")) {
-					fParentDir += "/" + sRemoteSubDir;
-				}
+			if (iSlashCount > 1) {
+				subFiles = ftp.listDirectories(sDnldFile);
+			} else {
+				subFiles = ftp.listDirectories(fParentDir);
+			}
 
-				if (iSlashCount > 1) {
-					subFiles = ftp.listDirectories(sDnldFile);
-				} else {
-					subFiles = ftp.listDirectories(fParentDir);
-				}
+			if (subFiles != null && subFiles.length > 0) {
+				for (FTPFile aFile : subFiles) {
+					String currentFileName = aFile.getName();
+					if (currentFileName.equals(".") || currentFileName.equals("..")) {
+						// skip parent directory and the directory itself
+						continue;
+					}
 
-				if (subFiles != null && subFiles.length > 0) {
-					for (FTPFile aFile : subFiles) {
-						String currentFileName = aFile.getName();
-						if (currentFileName.equals(".") || currentFileName.equals("..")) {
-							// skip parent directory and the directory itself
-							continue;
-						}
+					String newDirPath = sLocalDir + fParentDir + File.separator + currentFileName;
 
-						String newDirPath = sLocalDir + fParentDir + File.separator + currentFileName;
-
-						if (aFile.isDirectory()) {
-							// create the directory in local directory path
-							File newDir = new File(newDirPath);
-							if (!newDir.exists()) {
-								boolean bCreated = newDir.mkdirs();
-								if (bCreated) {
-									Log.logScriptInfo("Create directory: " + newDir + " successful.");
-								} else {
-									Log.errorHandler("Create directory: " + newDir + " failed.");
-								}
+					if (aFile.isDirectory()) {
+						// create the directory in local directory path
+						File newDir = new File(newDirPath);
+						if (!newDir.exists()) {
+							boolean bCreated = newDir.mkdirs();
+							if (bCreated) {
+								Log.logScriptInfo("Create directory: " + newDir + " successful.");
+							} else {
+								Log.errorHandler("Create directory: " + newDir + " failed.");
 							}
-							iProcessCntr++;
-							// download the sub directory
-							downloadOnlyDirectoryStructure(fParentDir, currentFileName, sLocalDir);
 						}
+						// download the sub directory
+						downloadOnlyDirectoryStructure(ftp, fParentDir, currentFileName, sLocalDir);
 					}
 				}
 			}
-			// Set the FTP Server Disconnection
-			if (iProcessCntr == dirInfo[0]) {
-				bFTPDisconnect = true;
-				iProcessCntr = 0;
-			}
-		} catch (Exception e) {
-			Log.errorHandler("Exception occurred in downloadOnlyDirectoryStructure()", e);
-		} finally {
-			ftpDisconnect();
 		}
 	}
 
@@ -693,90 +798,135 @@ public class FTPUtil {
 	 *            Path of directory where the whole remote directory will be
 	 *            downloaded and saved in local client system eg:
 	 *            C:/download/FTPTest
-	 * @see "downloadFile(), downloadOnlyDirectoryStructure()"
+	 * @see "downloadFile(), downloadOnlyDirectoryStructure(), downloadDirectory()"
 	 */
 
 	public static void downloadFiles_Directories(String sRemoteParentPath, String sRemoteSubDir, String sLocalDir) {
+		FtpSession session = null;
 		try {
-			ftpConnect();
-			// Get directory information of sRemoteParentPath to set the
-			// bFTPDisconnect flag to true for initiation of disconnecting from
-			// server
-			if (bFTPDisconnect) {
-				bFTPDisconnect = false;
-				iProcessCntr = 0;
-				dirInfo = getDirectoryInfo(sRemoteParentPath, sRemoteSubDir);
+			session = ftpConnect();
+			String sRemoteDir = sRemoteParentPath;
+			if (!sRemoteSubDir.equals("")) {
+				sRemoteDir = sRemoteParentPath + "/" + sRemoteSubDir;
+			}
+			// A single directory is downloaded in parallel, patterns and lists
+			// file by file
+			if (!sRemoteDir.matches(".*[,*?].*") && session.getClient().changeWorkingDirectory(sRemoteDir)) {
+				ftpDisconnect(session);
+				session = null;
+				transferDirectory(false, sLocalDir + sRemoteDir, sRemoteDir);
+			} else {
+				downloadFiles_Directories(session.getClient(), sRemoteParentPath, sRemoteSubDir, sLocalDir);
 			}
+		} catch (Exception e) {
+			handleException(session, "Exception occurred in downloadDirectory()", e);
+		} finally {
+			ftpDisconnect(session);
+		}
+	}
 
-			String fParentDir;
-			FTPFile[] subFiles = null;
+	/**
+	 * Downloads entire directory including nested sub directories and files
+	 * from FTP server after automatically connecting to a FTP Server using
+	 * credentials set in FTP Remote Server Properties section of
+	 * automation.properties and performs disconnection from FTP server finally.
+	 * <p>
+	 * The files are downloaded in parallel over the pooled sessions, files
+	 * which were downloaded before and did not change on the server are
+	 * skipped and partially downloaded files are completed, see
+	 * {@link FtpDirectoryTransfer}.
+	 *
+	 * @param sRemoteDir
+	 *            Path of the directory to download eg: /FTPTest
+	 * @param sLocalDir
+	 *            Path of the local directory the content of the remote
+	 *            directory is saved to eg: C:/download/FTPTest
+	 * @return True if all files were downloaded, else false
+	 * @see "downloadFiles_Directories()"
+	 */
+	public static boolean downloadDirectory(String sRemoteDir, String sLocalDir) {
+		return transferDirectory(false, sLocalDir, sRemoteDir);
+	}
 
-			String[] sDnldFiles = Strings.split(sRemoteParentPath, ",");
+	private static boolean transferDirectory(boolean bUpload, String sLocalDir, String sRemoteDir) {
+		String sTransfer = bUpload ? "Upload directory: " + sLocalDir + " to " + sRemoteDir
+				: "Download directory: " + sRemoteDir + " to " + sLocalDir;
+		FtpTransferResult result = null;
+		try {
+			FtpDirectoryTransfer transfer = new FtpDirectoryTransfer(getSessionPool());
+			if (bUpload) {
+				result = transfer.upload(new File(sLocalDir), sRemoteDir);
+			} else {
+				result = transfer.download(sRemoteDir, new File(sLocalDir));
+			}
+		} catch (Exception e) {
+			Log.errorHandler(sTransfer + " failed.", e);
+		}
 
-			for (String sDnldFile : sDnldFiles) {
-				File fLocalFile = new File(sDnldFile);
-				int iSlashCount = Strings.count(sDnldFile, "/");
-				if (iSlashCount > 1) {
-					fParentDir = Strings.replace(fLocalFile.getParent(), "\\", "/");
-				} else {
-					fParentDir = Strings.replace(fLocalFile.getPath(), "\\", "/");
-				}
+		List<String> failures = result.getFailures();
+		if (!failures.isEmpty()) {
+			Log.errorHandler(sTransfer + " failed. " + result + System.lineSeparator()
+					+ String.join(System.lineSeparator(), failures));
+			return false;
+		}
+		Log.logScriptInfo(sTransfer + " successful. " + result);
+		return true;
+	}
 
-				// sDirToList = fParentDir;
-				if (!sRemoteSubDir.equals("")) {
-					fParentDir += "/" + sRemoteSubDir;
-				}
+	private static void downloadFiles_Directories(FTPClient ftp, String sRemoteParentPath, String sRemoteSubDir,
+			String sLocalDir) throws IOException {
+		String fParentDir;
+		FTPFile[] subFiles = null;
 
-				if (iSlashCount > 1) {
-					subFiles = ftp.listFiles(sDnldFile);
-				} else {
-					subFiles = ftp.listFiles(fParentDir);
-				}
+		String[] sDnldFiles = Strings.split(sRemoteParentPath, ",");
+		for (String sDnldFile : sDnldFiles) {
+			File fLocalFile = new File(sDnldFile);
+			int iSlashCount = Strings.count(sDnldFile, "/");
+			if (iSlashCount > 1) {
+				fParentDir = Strings.replace(fLocalFile.getParent(), "\\", "/");
+			} else {
+				fParentDir = Strings.replace(fLocalFile.getPath(), "\\", "/");
+			}
 
-				if (subFiles != null && subFiles.length > 0) {
-					for (FTPFile aFile : subFiles) {
-						String currentFileName = aFile.getName();
-						if (currentFileName.equals(".") || currentFileName.equals("..")) {
-							// skip parent directory and the directory itself
-							continue;
-						}
-						String filePath = fParentDir + "/" + currentFileName;
+			if (!sRemoteSubDir.equals("")) {
+				fParentDir += "/" + sRemoteSubDir;
+			}
 
-						String newDirPath = sLocalDir + fParentDir + File.separator + currentFileName;
-						File newDir = new File(newDirPath);
-						if (aFile.isDirectory()) {
-							// create the directory in local directory path
-							// File newDir = new File(newDirPath);
-							if (!newDir.exists()) {
-								boolean bCreated = newDir.mkdirs();
-								if (bCreated) {
-									Log.logScriptInfo("Create directory: " + newDir + " successful.");
-								} else {
-									Log.errorHandler("Create directory: " + newDir + " failed.");
-								}
+			if (iSlashCount > 1) {
+				subFiles = ftp.listFiles(sDnldFile);
+			} else {
+				subFiles = ftp.listFiles(fParentDir);
+			}
+
+			if (subFiles != null && subFiles.length > 0) {
+				for (FTPFile aFile : subFiles) {
+					String currentFileName = aFile.getName();
+					if (currentFileName.equals(".") || currentFileName.equals("..")) {
+						// skip parent directory and the directory itself
+						continue;
+					}
+					String filePath = fParentDir + "/" + currentFileName;
+
+					String newDirPath = sLocalDir + fParentDir + File.separator + currentFileName;
+					File newDir = new File(newDirPath);
+					if (aFile.isDirectory()) {
+						// create the directory in local directory path
+						if (!newDir.exists()) {
+							boolean bCreated = newDir.mkdirs();
+							if (bCreated) {
+								Log.logScriptInfo("Create directory: " + newDir + " successful.");
+							} else {
+								Log.errorHandler("Create directory: " + newDir + " failed.");
 							}
-							// download the sub directory
-							downloadFiles_Directories(fParentDir, currentFileName, sLocalDir);
-						} else {
-							// download the file
-							bFTPDisconnect = false;
-							iProcessCntr++;
-							downloadFile(filePath, newDir.toString());
 						}
+						// download the sub directory
+						downloadFiles_Directories(ftp, fParentDir, currentFileName, sLocalDir);
+					} else {
+						// download the file
+						downloadFile(ftp, filePath, newDir.toString());
 					}
 				}
-				// Set the FTP Server Disconnection
-				if (iProcessCntr == dirInfo[1]) {
-					bFTPDisconnect = true;
-					iProcessCntr = 0;
-					dirInfo = null;
-				}
 			}
-
-		} catch (Exception e) {
-			Log.errorHandler("Exception occurred in downloadDirectory()", e);
-		} finally {
-			ftpDisconnect();
 		}
 	}
 
@@ -795,15 +945,16 @@ public class FTPUtil {
 	 * @see "listFile_Dir_Recursive()"
 	 */
 	public static boolean listFile_Directory(String sDirectory, String sFilename) {
+		boolean bResponse = false;
+		FtpSession session = null;
 		try {
-			bResponse = false;
-			ftpConnect();
+			session = ftpConnect();
 			String sDirToList = sDirectory;
 			if (!sFilename.equals("")) {
 				sDirToList += "/" + sFilename;
 			}
 
-			FTPFile[] subFiles = ftp.listFiles(sDirToList);
+			FTPFile[] subFiles = session.getClient().listFiles(sDirToList);
 
 			if (subFiles != null && subFiles.length > 0) {
 				for (FTPFile aFile : subFiles) {
@@ -832,9 +983,9 @@ public class FTPUtil {
 				Log.errorHandler("List dir/file: " + sDirectory + "/" + sFilename + " not present in source path.");
 			}
 		} catch (Exception e) {
-			Log.errorHandler("Exception occured in listFile_Directory()", e);
+			handleException(session, "Exception occured in listFile_Directory()", e);
 		} finally {
-			ftpDisconnect();
+			ftpDisconnect(session);
 		}
 		return bResponse;
 	}
@@ -853,44 +1004,47 @@ public class FTPUtil {
 	 * @see "listFile_Directory()"
 	 */
 	public static void listFile_Dir_Recursive(String sParentDir, String sCurrentDir) {
+		FtpSession session = null;
 		try {
-			ftpConnect();
-			String sDirToList = sParentDir;
-			if (!sCurrentDir.equals("")) {
-				sDirToList += "/" + sCurrentDir;
-			}
+			session = ftpConnect();
+			listFile_Dir_Recursive(session.getClient(), sParentDir, sCurrentDir);
+		} catch (Exception e) {
+			handleException(session, "Exception occured in listFile_Dir_Recursives()", e);
+		} finally {
+			ftpDisconnect(session);
+		}
+	}
 
-			FTPFile[] subFiles = ftp.listFiles(sDirToList);
+	private static void listFile_Dir_Recursive(FTPClient ftp, String sParentDir, String sCurrentDir)
+			throws IOException {
+		String sDirToList = sParentDir;
+		if (!sCurrentDir.equals("")) {
+			sDirToList += "/" + sCurrentDir;
+		}
 
-			if (subFiles != null && subFiles.length > 0) {
-				for (FTPFile aFile : subFiles) {
-					String sCurrentFileName = aFile.getName();
-					if (sCurrentFileName.equals(".") || sCurrentFileName.equals("..")) {
-						// skip parent directory and the directory itself
-						continue;
-					}
-					String sFilePath = sParentDir + "/" + sCurrentDir + "/" + sCurrentFileName;
-					if (sCurrentDir.equals("")) {
-						sFilePath = sParentDir + "/" + sCurrentFileName;
-					}
+		FTPFile[] subFiles = ftp.listFiles(sDirToList);
 
-					if (aFile.isDirectory()) {
-						// list the sub directory
-						bFTPDisconnect = false;
-						Log.logScriptInfo("List dir: " + sFilePath + " successful.");
-						listFile_Dir_Recursive(sDirToList, sCurrentFileName);
-						bFTPDisconnect = true;
-					} else {
-						// list the file
-						Log.logScriptInfo("List file: " + sFilePath + " successful.");
-					}
+		if (subFiles != null && subFiles.length > 0) {
+			for (FTPFile aFile : subFiles) {
+				String sCurrentFileName = aFile.getName();
+				if (sCurrentFileName.equals(".") || sCurrentFileName.equals("..")) {
+					// skip parent directory and the directory itself
+					continue;
+				}
+				String sFilePath = sParentDir + "/" + sCurrentDir + "/" + sCurrentFileName;
+				if (sCurrentDir.equals("")) {
+					sFilePath = sParentDir + "/" + sCurrentFileName;
+				}
+
+				if (aFile.isDirectory()) {
+					// list the sub directory
+					Log.logScriptInfo("List dir: " + sFilePath + " successful.");
+					listFile_Dir_Recursive(ftp, sDirToList, sCurrentFileName);
+				} else {
+					// list the file
+					Log.logScriptInfo("List file: " + sFilePath + " successful.");
 				}
 			}
-		} catch (Exception e) {
-			bFTPDisconnect = true;
-			Log.errorHandler("Exception occured in listFile_Dir_Recursives()", e);
-		} finally {
-			ftpDisconnect();
 		}
 	}
 
@@ -907,18 +1061,25 @@ public class FTPUtil {
 	 * @see "deleteMultipleFiles()"
 	 */
 	public static boolean deleteSingleFile(String sFilename) {
+		boolean bResponse = false;
+		FtpSession session = null;
 		try {
-			ftpConnect();
-			bResponse = ftp.deleteFile(sFilename);
-			if (bResponse) {
-				Log.logScriptInfo("Delete file: " + sFilename + " successful.");
-			} else {
-				Log.errorHandler("Delete file: " + sFilename + " failed.");
-			}
+			session = ftpConnect();
+			bResponse = deleteSingleFile(session.getClient(), sFilename);
 		} catch (Exception e) {
-			Log.errorHandler("Exception occured in deleteSingleFile()", e);
+			handleException(session, "Exception occured in deleteSingleFile()", e);
 		} finally {
-			ftpDisconnect();
+			ftpDisconnect(session);
+		}
+		return bResponse;
+	}
+
+	private static boolean deleteSingleFile(FTPClient ftp, String sFilename) throws IOException {
+		boolean bResponse = ftp.deleteFile(sFilename);
+		if (bResponse) {
+			Log.logScriptInfo("Delete file: " + sFilename + " successful.");
+		} else {
+			Log.errorHandler("Delete file: " + sFilename + " failed.");
 		}
 		return bResponse;
 	}
@@ -938,24 +1099,24 @@ public class FTPUtil {
 	 * @see "deleteSingleFile()"
 	 */
 	public static boolean deleteMultipleFiles(String sRemoteDirPath, String sFilename) {
+		boolean bResponse = false;
+		FtpSession session = null;
 		try {
-			bResponse = false;
-			ftpConnect();
+			session = ftpConnect();
+			FTPClient ftp = session.getClient();
 			FTPFile[] files = ftp.listFiles(sRemoteDirPath + "/" + sFilename);
 			if (files != null && files.length > 0) {
 				for (FTPFile file : files) {
 					String sRemoteFilePath = sRemoteDirPath + "/" + file.getName();
-					bFTPDisconnect = false;
-					bResponse = deleteSingleFile(sRemoteFilePath);
+					bResponse = deleteSingleFile(ftp, sRemoteFilePath);
 				}
 			} else {
 				Log.errorHandler("File: " + sRemoteDirPath + "/" + sFilename + " does not exists to delete.");
 			}
 		} catch (Exception e) {
-			Log.errorHandler("Exception occured in deleteMultipleFiles()", e);
+			handleException(session, "Exception occured in deleteMultipleFiles()", e);
 		} finally {
-			bFTPDisconnect = true; // Allow to disconnect
-			ftpDisconnect();
+			ftpDisconnect(session);
 		}
 		return bResponse;
 	}
@@ -971,19 +1132,25 @@ public class FTPUtil {
 	 * @see "removeDirectory()"
 	 */
 	public static boolean removeEmptyDirectory(String sRemoveDirPath) {
+		boolean bResponse = false;
+		FtpSession session = null;
 		try {
-			bResponse = false;
-			ftpConnect();
-			bResponse = ftp.removeDirectory(sRemoveDirPath);
-			if (bResponse) {
-				Log.logScriptInfo("Remove directory: " + sRemoveDirPath + " successful.");
-			} else {
-				Log.errorHandler("Remove directory: " + sRemoveDirPath + " failed.");
-			}
+			session = ftpConnect();
+			bResponse = removeEmptyDirectory(session.getClient(), sRemoveDirPath);
 		} catch (Exception e) {
-			Log.errorHandler("Exception occured in removeEmptyDirectory()", e);
+			handleException(session, "Exception occured in removeEmptyDirectory()", e);
 		} finally {
-			ftpDisconnect();
+			ftpDisconnect(session);
+		}
+		return bResponse;
+	}
+
+	private static boolean removeEmptyDirectory(FTPClient ftp, String sRemoveDirPath) throws IOException {
+		boolean bResponse = ftp.removeDirectory(sRemoveDirPath);
+		if (bResponse) {
+			Log.logScriptInfo("Remove directory: " + sRemoveDirPath + " successful.");
+		} else {
+			Log.errorHandler("Remove directory: " + sRemoveDirPath + " failed.");
 		}
 		return bResponse;
 	}
@@ -1003,47 +1170,49 @@ public class FTPUtil {
 	 * @see "removeEmptyDirectory()"
 	 */
 	public static void removeDirectory(String sRemoteParentDir, String sRemoteSubDir) {
+		FtpSession session = null;
 		try {
-			ftpConnect();
-			String sDirToList = sRemoteParentDir;
-			if (!sRemoteSubDir.equals("")) {
-				sDirToList += "/" + sRemoteSubDir;
-			}
+			session = ftpConnect();
+			removeDirectory(session.getClient(), sRemoteParentDir, sRemoteSubDir);
+		} catch (Exception e) {
+			handleException(session, "Exception occured in removeDirectory()", e);
+		} finally {
+			ftpDisconnect(session);
+		}
+	}
 
-			FTPFile[] subFiles = ftp.listFiles(sDirToList);
+	private static void removeDirectory(FTPClient ftp, String sRemoteParentDir, String sRemoteSubDir)
+			throws IOException {
+		String sDirToList = sRemoteParentDir;
+		if (!sRemoteSubDir.equals("")) {
+			sDirToList += "/" + sRemoteSubDir;
+		}
 
-			if (subFiles != null && subFiles.length > 0) {
-				for (FTPFile aFile : subFiles) {
-					String sCurrentFileName = aFile.getName();
-					if (sCurrentFileName.equals(".") || sCurrentFileName.equals("..")) {
-						// skip parent directory and the directory itself
-						continue;
-					}
-					String sFilePath = sRemoteParentDir + "/" + sRemoteSubDir + "/" + sCurrentFileName;
-					if (sRemoteSubDir.equals("")) {
-						sFilePath = sRemoteParentDir + "/" + sCurrentFileName;
-					}
+		FTPFile[] subFiles = ftp.listFiles(sDirToList);
 
-					if (aFile.isDirectory()) {
-						// remove the sub directory
-						removeDirectory(sDirToList, sCurrentFileName);
-					} else {
-						// delete the file
-						bFTPDisconnect = false;
-						deleteSingleFile(sFilePath);
-					}
+		if (subFiles != null && subFiles.length > 0) {
+			for (FTPFile aFile : subFiles) {
+				String sCurrentFileName = aFile.getName();
+				if (sCurrentFileName.equals(".") || sCurrentFileName.equals("..")) {
+					// skip parent directory and the directory itself
+					continue;
+				}
+				String sFilePath = sRemoteParentDir + "/" + sRemoteSubDir + "/" + sCurrentFileName;
+				if (sRemoteSubDir.equals("")) {
+					sFilePath = sRemoteParentDir + "/" + sCurrentFileName;
+				}
+
+				if (aFile.isDirectory()) {
+					// remove the sub directory
+					removeDirectory(ftp, sDirToList, sCurrentFileName);
+				} else {
+					// delete the file
+					deleteSingleFile(ftp, sFilePath);
 				}
 			}
-			// finally, remove the directory itself
-			bFTPDisconnect = false;
-			removeEmptyDirectory(sDirToList);
-			if (sRemoteParentDir.equals(sDirToList))
-				bFTPDisconnect = true;
-		} catch (Exception e) {
-			Log.errorHandler("Exception occured in removeDirectory()", e);
-		} finally {
-			ftpDisconnect();
 		}
+		// finally, remove the directory itself
+		removeEmptyDirectory(ftp, sDirToList);
 	}
 
 	/**
@@ -1062,19 +1231,20 @@ public class FTPUtil {
 	 * @return True if success, else false
 	 */
 	public static boolean renameFile_Directory(String sSource, String sDestination) {
-		bResponse = false;
+		boolean bResponse = false;
+		FtpSession session = null;
 		try {
-			ftpConnect();
-			bResponse = ftp.rename(sSource, sDestination);
+			session = ftpConnect();
+			bResponse = session.getClient().rename(sSource, sDestination);
 			if (bResponse) {
 				Log.logScriptInfo("Rename: " + sSource + " to " + sDestination + " successful.");
 			} else {
 				Log.errorHandler("Rename: " + sSource + " to " + sDestination + " failed.");
 			}
 		} catch (Exception e) {
-			Log.errorHandler("Exception occured in renameFile_Directory()", e);
+			handleException(session, "Exception occured in renameFile_Directory()", e);
 		} finally {
-			ftpDisconnect();
+			ftpDisconnect(session);
 		}
 		return bResponse;
 	}
@@ -1097,13 +1267,13 @@ public class FTPUtil {
 	 * @see "getDirectoryInfo(), getFile_DateTimeStamp()"
 	 */
 	public static double getFileSize(String sSourceFile, String sUnitType) {
-		bResponse = false;
 		long lSize = 0;
 		double fFileSize = 0;
 		sUnitType = sUnitType.isEmpty() ? "BYTES" : sUnitType;
+		FtpSession session = null;
 		try {
-			ftpConnect();
-			FTPFile[] files = ftp.listFiles(sSourceFile);
+			session = ftpConnect();
+			FTPFile[] files = session.getClient().listFiles(sSourceFile);
 			for (FTPFile aFile : files) {
 				lSize = aFile.getSize();
 			}
@@ -1135,9 +1305,9 @@ public class FTPUtil {
 				}
 			}
 		} catch (Exception e) {
-			Log.errorHandler("Exception occured in getFileSize()", e);
+			handleException(session, "Exception occured in getFileSize()", e);
 		} finally {
-			ftpDisconnect();
+			ftpDisconnect(session);
 		}
 		return fFileSize;
 	}
@@ -1154,39 +1324,49 @@ public class FTPUtil {
 	 * @see "getDirectoryInfo(), getFileSize()"
 	 */
 	public static String getFile_DateTimeStamp(String sSourceFile) {
-		bResponse = false;
 		String lSize = null;
+		FtpSession session = null;
 		try {
-			ftpConnect();
-			FTPFile files = ftp.mdtmFile(sSourceFile);
+			session = ftpConnect();
+			FTPFile files = session.getClient().mdtmFile(sSourceFile);
 			String[] reply = Strings.split(files.toString(), " ");
 			lSize = reply[0];
 		} catch (Exception e) {
-			Log.errorHandler("Exception occured in getFile_DateTimeStamp()", e);
+			handleException(session, "Exception occured in getFile_DateTimeStamp()", e);
 		} finally {
-			ftpDisconnect();
+			ftpDisconnect(session);
 		}
 		return lSize;
 	}
 
 	/**
-	 * Disconnect from FTP Server
+	 * Marks the session to be disconnected if the exception may have left
+	 * its control connection out of sync and reports the exception
 	 * 
+	 * @param session
+	 *            FTP session the exception occurred in, null if no session
+	 *            was borrowed
+	 * @param sMessage
+	 *            error message
+	 * @param e
+	 *            exception
 	 */
-	private static void ftpDisconnect() {
-		if (bFTPConnect && bFTPDisconnect) {
-			try {
-				bResponse = ftp.logout();
-				ftp.disconnect();
-				bFTPConnect = false;
-				if (bResponse)
-					Log.logScriptInfo(
-							"Disconnection from ftp server: " + Log.AUTOMATION_FTP_SERVER_NAME + " successful.");
-				else
-					Log.errorHandler("Disconnection from ftp server: " + Log.AUTOMATION_FTP_SERVER_NAME + " failed.");
-			} catch (IOException e) {
-				Log.errorHandler("IOException occured in ftpDisconnect()", e);
-			}
+	private static void handleException(FtpSession session, String sMessage, Exception e) {
+		if (session != null && e instanceof IOException) {
+			session.invalidate();
+		}
+		Log.errorHandler(sMessage, e);
+	}
+
+	/**
+	 * Returns the session to the session pool
+	 * 
+	 * @param session
+	 *            FTP session, null if no session was borrowed
+	 */
+	private static void ftpDisconnect(FtpSession session) {
+		if (session != null) {
+			session.close();
 		}
 	}
 }
@@ -1,6 +1,6 @@
 package core.utilities;
 
-import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.BufferedReader;
 import java.io.File;
 import java.io.FileInputStream;
@@ -15,29 +15,43 @@ import java.io.OutputStream;
 import java.io.OutputStreamWriter;
 import java.io.PrintWriter;
 import java.io.UnsupportedEncodingException;
+import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.DirectoryStream;
-import java.nio.file.FileVisitResult;
 import java.nio.file.Files;
 import java.nio.file.LinkOption;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.nio.file.SimpleFileVisitor;
 import java.nio.file.StandardCopyOption;
-import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.AclFileAttributeView;
+import java.nio.file.attribute.DosFileAttributeView;
+import java.nio.file.attribute.DosFileAttributes;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.nio.file.attribute.PosixFileAttributes;
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Enumeration;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Properties;
 import java.util.concurrent.Callable;
 import java.util.regex.Pattern;
-import java.util.zip.ZipEntry;
-import java.util.zip.ZipFile;
+import java.util.stream.Stream;
 
 import core.utilities.exceptions.AutomationException;
 import core.utilities.exceptions.ExceptionHandler;
 import core.utilities.exceptions.SetupException;
+import core.utilities.io.CopyResult;
+import core.utilities.io.DirectoryCleaner;
+import core.utilities.io.DirectoryCopy;
+import core.utilities.io.DownloadWatcher;
+import core.utilities.io.FileCompare;
+import core.utilities.io.FileDiff;
+import core.utilities.io.PropertiesStore;
+import core.utilities.io.TextFile;
+import core.utilities.io.UnzipResult;
+import core.utilities.io.ZipExtractor;
+import core.utilities.text.PatternCache;
 
 /**
  * The FileIO class contains general File IO functions.
@@ -47,6 +61,9 @@ public class FileIO {
 	/** Buffer size (32KB) for file manipulation methods. */
 	public final static int FILE_BUFFER_SIZE = 32 * 1024;
 
+	/** Cache of parsed property files, updated atomically */
+	private static final PropertiesStore propertiesStore = new PropertiesStore();
+
 	/**
 	 * Deletes specified file or directory (if directory is specified the method
 	 * will recursively delete all files and or subdirectories within the
@@ -151,7 +168,8 @@ public class FileIO {
 
 	/**
 	 * Copies all files under source folder to destination folder. If
-	 * destination folder does not exist, it will be created.
+	 * destination folder does not exist, it will be created. The files are
+	 * copied by AUTOMATION_COPY_THREADS threads, see {@link DirectoryCopy}.
 	 * <p>
 	 *
 	 * @param srcDir
@@ -172,15 +190,13 @@ public class FileIO {
 				}
 			}
 
-			final String[] files = srcDir.list();
-			if (files != null) {
-				for (final String file : files) {
-					if (copyDir(new File(srcDir, file), new File(dstDir, file)) == false) {
-						return false;
-					}
-				}
+			try {
+				final CopyResult result = new DirectoryCopy().copy(srcDir.toPath(), dstDir.toPath());
+				Log.logDebugInfo(String.format("Copied folder %s to %s: %s", srcDir, dstDir, result));
+				return result.getFailures().isEmpty();
+			} catch (final IOException e) {
+				return false;
 			}
-			return true;
 		}
 		return copyFile(srcDir, dstDir);
 	}
@@ -323,7 +339,8 @@ public class FileIO {
 	}
 
 	/**
-	 * Unpacks a zip file to the target directory.
+	 * Unpacks a zip file to the target directory. The files are extracted by
+	 * AUTOMATION_COPY_THREADS threads, see {@link ZipExtractor}.
 	 *
 	 * @param zipFile
 	 *            zip file
@@ -333,40 +350,62 @@ public class FileIO {
 	 *             error
 	 */
 	public static void unzip(final File zipFile, final File destDir) throws IOException {
-		try (ZipFile zip = new ZipFile(zipFile);) {
-			final Enumeration<?> en = zip.entries();
-			final int bufSize = 8196;
-
-			while (en.hasMoreElements()) {
-				final ZipEntry entry = (ZipEntry) en.nextElement();
-				final File file = destDir != null ? new File(destDir, entry.getName()) : new File(entry.getName());
-				if (entry.isDirectory()) {
-					if (!file.mkdirs()) {
-						if (!file.isDirectory()) {
-							throw new IOException("Error creating directory: " + file);
-						}
-					}
-				} else {
-					final File parent = file.getParentFile();
-					if (parent != null && !parent.exists()) {
-						if (!parent.mkdirs()) {
-							if (!file.isDirectory()) {
-								throw new IOException("Error creating directory: " + parent);
-							}
-						}
-					}
-
-					try (InputStream in = zip.getInputStream(entry);
-							OutputStream out = new BufferedOutputStream(new FileOutputStream(file), bufSize);) {
-						copyPipe(in, out, bufSize);
-					} catch (final Exception e) {
-						throw new AutomationException("Error unpacking zip file: " + zipFile, e);
-					}
-				}
-			}
+		final UnzipResult result;
+		try {
+			result = new ZipExtractor(zipFile.toPath()).extract(destDir != null ? destDir.toPath() : Paths.get(""));
 		} catch (final Exception e) {
 			throw new AutomationException("Error unpacking zip file: " + zipFile, e);
 		}
+		if (!result.getFailures().isEmpty()) {
+			throw new AutomationException("Error unpacking zip file: " + zipFile + ": " + result.getFailures().get(0));
+		}
+	}
+
+	/**
+	 * Unpacks the entries of a zip file matching a glob to the target
+	 * directory, f.ex. unzip("export.zip", "c:\\temp\\", "reports/**.xml").
+	 * * matches within a directory, ** across directories.
+	 *
+	 * @param zipFile
+	 *            zip file
+	 * @param destDir
+	 *            destination directory
+	 * @param glob
+	 *            pattern for the names of the entries to unpack
+	 * @return totals of the extraction with the bytes written
+	 */
+	public static UnzipResult unzip(final String zipFile, final String destDir, final String glob) {
+		try {
+			final UnzipResult result = new ZipExtractor(Paths.get(zipFile)).setFilter(glob)
+					.extract(Paths.get(destDir));
+			if (!result.getFailures().isEmpty()) {
+				Log.errorHandler("Error unpacking zip file: " + zipFile + ": " + result.getFailures().get(0));
+			}
+			return result;
+		} catch (final IOException e) {
+			Log.errorHandler("Error unpacking zip file: " + zipFile, e);
+			return null;
+		}
+	}
+
+	/**
+	 * Gets the contents of a file in a zip file without unpacking it
+	 *
+	 * @param zipFile
+	 *            zip file
+	 * @param entryName
+	 *            name of the file in the zip file, f.ex. "reports/result.xml"
+	 * @return contents of the file decoded as UTF-8
+	 */
+	public static String getZipEntryContents(final String zipFile, final String entryName) {
+		try {
+			final ByteArrayOutputStream out = new ByteArrayOutputStream();
+			new ZipExtractor(Paths.get(zipFile)).read(entryName, out);
+			return new String(out.toByteArray(), StandardCharsets.UTF_8);
+		} catch (final IOException e) {
+			Log.errorHandler("Error reading " + entryName + " from zip file: " + zipFile, e);
+			return null;
+		}
 	}
 
 	/**
@@ -384,13 +423,9 @@ public class FileIO {
 	 *            file
 	 */
 	public static void setTempVarToDisk(final String fileName, final String key, final String value) {
-		try (FileOutputStream out = new FileOutputStream(fileName)) {
-			final Properties settings = new Properties();
-
-			settings.put(key, value);
-
-			// Close out properties file
-			settings.store(out, "");
+		try {
+			// other keys in the file are kept
+			propertiesStore.set(Paths.get(fileName), key, value);
 		} catch (final IOException ioe) {
 			Log.errorHandler("Error saving temporary variable from disk: " + fileName, ioe);
 		}
@@ -423,11 +458,8 @@ public class FileIO {
 	 * @return the value of the key parameter@param bIgnoreError
 	 */
 	public static String getTempVarToDisk(final String fileName, final String key, final boolean ignoreError) {
-		try (FileInputStream in = new FileInputStream(fileName)) {
-			final Properties settings = new Properties();
-			settings.load(in);
-
-			return settings.getProperty(key);
+		try {
+			return propertiesStore.get(Paths.get(fileName), key);
 		} catch (final IOException ioe) {
 			if (!ignoreError) {
 				Log.errorHandler("Error getting temporary variable from disk: " + fileName, ioe);
@@ -552,46 +584,51 @@ public class FileIO {
 	 *            the new value for the search key property
 	 */
 	public static void updatePropertyFile(final String propFile, final String searchKey, final String newVal) {
+		final Map<String, String> updates = new LinkedHashMap<>();
+		updates.put(searchKey, newVal);
+		updatePropertyFile(propFile, updates);
+	}
+
+	/**
+	 * Updates several existing properties of a property file with one write.
+	 * Comments and the order of the lines are kept.
+	 *
+	 * @param propFile
+	 *            path and name of the property file to update
+	 * @param updates
+	 *            property keys and their new values
+	 */
+	public static void updatePropertyFile(final String propFile, final Map<String, String> updates) {
 		// display error if specified prop file does not exist
-		final File f = new File(propFile);
-		if (!f.exists()) {
+		final Path path = Paths.get(propFile);
+		if (!Files.exists(path)) {
 			Log.errorHandler("Could not find property file: " + propFile);
 			return;
 		}
 
-		String line = "";
-
-		// cycle through property file contents line by line
-		for (final String element : getFileContentsAsList(propFile)) {
-			// ignore empty or null lines
-			if (element == null || element.equals("")) {
-				continue;
-			}
-
-			// ignore comment lines
-			if (element.indexOf("#") == 0) {
-				continue;
+		try {
+			final Properties properties = propertiesStore.load(path);
+			for (final String key : updates.keySet()) {
+				if (!properties.containsKey(key)) {
+					Log.errorHandler("Could not find property key: " + key + " in property file " + propFile);
+					return;
+				}
 			}
 
-			if (Pattern.compile(searchKey + "\\s*=").matcher(element).find()) {
-				line = element;
-				break;
-			}
-		}
-
-		if (line.equals("")) {
-			Log.errorHandler("Could not find property key: " + searchKey + " in property file " + propFile);
-			return;
+			propertiesStore.update(path, updates);
+		} catch (final IOException e) {
+			Log.errorHandler("Error updating property file: " + propFile, e);
 		}
+	}
 
-		// get property file content as string
-		String out = getFileContents(propFile);
-
-		// replace original property key and value with new value
-		out = Strings.replace(out, line, String.format("%s=%s", searchKey, newVal));
-
-		// write out updated property file
-		writeFileContents(propFile, out);
+	/**
+	 * Gets the store which caches parsed property files and writes them
+	 * atomically
+	 *
+	 * @return properties store shared by all tests
+	 */
+	public static PropertiesStore getPropertiesStore() {
+		return propertiesStore;
 	}
 
 	/**
@@ -674,6 +711,7 @@ public class FileIO {
 	 */
 	public static String[][] getFileContentsAsArray(final String fileName, final String delimeter, final int rows,
 			final int cols) {
+		final Pattern pattern = PatternCache.getShared().compile(delimeter);
 		String colsArray[] = new String[cols];
 		final String[][] data = new String[rows][cols];
 
@@ -683,7 +721,7 @@ public class FileIO {
 				line = in.readLine();
 				if (line != null) {
 					// Get line values
-					colsArray = line.split(delimeter);
+					colsArray = pattern.split(line);
 					for (int j = 0; j < colsArray.length; j++) {
 						// Put in Matrix
 						try {
@@ -728,6 +766,7 @@ public class FileIO {
 
 		final int r = returnHeader ? rows : rows - 1;
 
+		final Pattern pattern = PatternCache.getShared().compile(delimeter);
 		String colsArray[] = new String[cols];
 		final String[][] data = new String[r][cols];
 
@@ -741,7 +780,7 @@ public class FileIO {
 				line = in.readLine();
 				if (line != null) {
 					// Get line values
-					colsArray = line.split(delimeter);
+					colsArray = pattern.split(line);
 					for (int j = 0; j < colsArray.length; j++) {
 						// Put in Matrix
 						try {
@@ -776,6 +815,7 @@ public class FileIO {
 		final int r = getNumberOfRowsInFile(fileName);
 		final int c = getNumberOfColumnsInFile(fileName, delimiter);
 
+		final Pattern pattern = PatternCache.getShared().compile(delimiter);
 		String cols[] = new String[c];
 		final String[][] data = new String[r][c];
 
@@ -785,7 +825,7 @@ public class FileIO {
 				line = in.readLine();
 				if (line != null) {
 					// Get line values
-					cols = line.split(delimiter);
+					cols = pattern.split(line);
 					for (int j = 0; j < cols.length; j++) {
 						// Put in Matrix
 						try {
@@ -819,56 +859,67 @@ public class FileIO {
 	 *         occurred
 	 */
 	public static String getFileContents(final String fileName, final String charset) {
-		// create reader - if charset is not specified or not supported, use
-		// default charset;
-		InputStreamReader reader = null;
-		if (charset == null) {
-			try {
-				reader = new InputStreamReader(new FileInputStream(fileName));
-			} catch (final FileNotFoundException e) {
-				Log.errorHandler("Error in FileIO.getFileContents(String filename, String charset): ", e);
-				return "";
-			}
-		} else {
-			try {
-				try {
-					reader = new InputStreamReader(new FileInputStream(fileName), charset);
-				} catch (final FileNotFoundException e) {
-					Log.errorHandler("Error in FileIO.getFileContents(String filename, String charset): ", e);
-					return "";
-				}
-			} catch (final UnsupportedEncodingException e) {
-				try {
-					reader = new InputStreamReader(new FileInputStream(fileName));
-				} catch (final FileNotFoundException ee) {
-					Log.errorHandler(
-							"Error in FileIO.getFileContents(String filename, String charset): " + ee.getMessage());
-					return "";
-				}
-			}
-		}
-
-		// read content
-		final char[] c = new char[1024];
-		int count = 0;
-		final StringBuilder buffer = new StringBuilder();
 		try {
-			while ((count = reader.read(c)) != -1) {
-				buffer.append(c, 0, count);
-			}
+			return new String(Files.readAllBytes(Paths.get(fileName)), toCharset(charset));
 		} catch (final IOException e) {
 			Log.errorHandler("Error in FileIO.getFileContents(String filename, String charset): ", e);
 			return "";
 		}
+	}
 
-		// return
+	/**
+	 * Gets the lines of specified file as lazy stream, the file is read while
+	 * the stream is consumed, so large files are not loaded into memory. The
+	 * stream must be closed, f.ex. with try-with-resources:
+	 * 
+	 * <pre>
+	 * try (Stream&lt;String&gt; lines = FileIO.getFileLines(exportFile, "UTF-8")) {
+	 * 	found = lines.anyMatch(line -&gt; line.startsWith("TOTAL"));
+	 * }
+	 * </pre>
+	 *
+	 * @param fileName
+	 *            - absolute path of target file
+	 * @param charset
+	 *            - charset such as "UTF-8", null for the default charset
+	 * @return stream of lines without line breaks, empty if the file can't be
+	 *         opened
+	 */
+	public static Stream<String> getFileLines(final String fileName, final String charset) {
 		try {
-			reader.close();
-		} catch (final Exception e2) {
-			Log.errorHandler("Error in FileIO.getFileContents(String filename, String charset): ", e2);
+			return TextFile.lines(Paths.get(fileName), toCharset(charset));
+		} catch (final IOException e) {
+			Log.errorHandler("Error in FileIO.getFileLines: ", e);
+			return Stream.empty();
 		}
+	}
 
-		return buffer.toString();
+	/**
+	 * Gets the lines of specified file in the default charset as lazy stream.
+	 * The stream must be closed.
+	 *
+	 * @param fileName
+	 *            - absolute path of target file
+	 * @return stream of lines without line breaks, empty if the file can't be
+	 *         opened
+	 */
+	public static Stream<String> getFileLines(final String fileName) {
+		return getFileLines(fileName, null);
+	}
+
+	/**
+	 * Gets the charset by name, the default charset if the name is null or
+	 * the charset is not supported
+	 */
+	private static Charset toCharset(final String charset) {
+		if (charset != null) {
+			try {
+				return Charset.forName(charset);
+			} catch (final IllegalArgumentException e) {
+				// unsupported charset, use default charset
+			}
+		}
+		return Charset.defaultCharset();
 	}
 
 	/**
@@ -908,25 +959,8 @@ public class FileIO {
 	 * @return file content as a String Array
 	 */
 	public static String[] getFileContentsAsList(final String fileName) {
-		int z = 0;
-		final int n = getNumberOfLinesInFile(fileName);
-		final String lines[] = new String[n];
-
-		try (BufferedReader in = new BufferedReader(new FileReader(fileName))) {
-			String line;
-			while ((line = in.readLine()) != null) {
-				if (z >= n) {
-					break;
-				}
-
-				lines[z] = line;
-				z++;
-			}
-		} catch (final IOException e) {
-			Log.errorHandler("Error in FileIO.getFileContentsAsList: ", e);
-		}
-
-		return lines;
+		final List<String> lines = getFileContentsAsListArray(fileName);
+		return lines.toArray(new String[lines.size()]);
 	}
 
 	/**
@@ -937,19 +971,12 @@ public class FileIO {
 	 * @return file content as a List
 	 */
 	public static List<String> getFileContentsAsListArray(final String fileName) {
-		int z = 0;
-		final int n = getNumberOfLinesInFile(fileName);
 		final List<String> lines = new ArrayList<>();
 
 		try (BufferedReader in = new BufferedReader(new FileReader(fileName))) {
 			String line;
 			while ((line = in.readLine()) != null) {
-				if (z >= n) {
-					break;
-				}
-
 				lines.add(line);
-				z++;
 			}
 		} catch (final IOException e) {
 			Log.errorHandler("Error in FileIO.getFileContentsAsList: ", e);
@@ -969,56 +996,19 @@ public class FileIO {
 	 *         element
 	 */
 	public static String[] getFileContentsAsList(final String fileName, final String charset) {
-		int z = 0;
-		final int n = getNumberOfLinesInFile(fileName);
-		final String lines[] = new String[n];
-
-		// create reader - if charset is not specified or not supported, use
-		// default charset;
-		BufferedReader reader = null;
-		if (charset == null) {
-			try {
-				reader = new BufferedReader(new InputStreamReader(new FileInputStream(fileName)));
-			} catch (final FileNotFoundException e) {
-				Log.errorHandler("Error in FileIO.getFileContents(String filename, String charset): ", e);
-				return lines;
-			}
-		} else {
-			try {
-				try {
-					reader = new BufferedReader(new InputStreamReader(new FileInputStream(fileName), charset));
-				} catch (final FileNotFoundException e) {
-					Log.errorHandler("Error in FileIO.getFileContents(String filename, String charset): ", e);
-					return lines;
-				}
-			} catch (final UnsupportedEncodingException e) {
-				try {
-					reader = new BufferedReader(new InputStreamReader(new FileInputStream(fileName)));
-				} catch (final FileNotFoundException ee) {
-					Log.errorHandler(
-							"Error in FileIO.getFileContents(String filename, String charset): " + ee.getMessage());
-					return lines;
-				}
-			}
-		}
+		final List<String> lines = new ArrayList<>();
 
-		// read content
-		String line = null;
-		try {
+		try (BufferedReader reader = new BufferedReader(
+				new InputStreamReader(new FileInputStream(fileName), toCharset(charset)))) {
+			String line;
 			while ((line = reader.readLine()) != null) {
-				if (z >= n) {
-					break;
-				}
-				lines[z] = line;
-				z++;
+				lines.add(line);
 			}
-			reader.close();
 		} catch (final IOException e) {
 			Log.errorHandler("Error in FileIO.getFileContents(String filename, String charset): ", e);
-			return lines;
 		}
 
-		return lines;
+		return lines.toArray(new String[lines.size()]);
 	}
 
 	/**
@@ -1041,16 +1031,13 @@ public class FileIO {
 	 * @return int number of lines in a specified file
 	 */
 	public static int getNumberOfLinesInFile(final String fileName) {
-		int i = 0;
-		try (BufferedReader in = new BufferedReader(new FileReader(fileName))) {
-			while (in.readLine() != null) {
-				i++;
-			}
+		try {
+			return (int) Math.min(Integer.MAX_VALUE,
+					TextFile.countLines(Paths.get(fileName), Charset.defaultCharset()));
 		} catch (final IOException e) {
 			Log.errorHandler("Error in FileIO.getNumberOfLinesInFile: ", e);
+			return 0;
 		}
-
-		return i;
 	}
 
 	/**
@@ -1079,21 +1066,12 @@ public class FileIO {
 	 * @return int number of columns in a specified file
 	 */
 	public static int getNumberOfColumnsInFile(final String fileName, final String delim) {
-		int i = 0;
-		int maxCol = 0;
-		try (BufferedReader in = new BufferedReader(new FileReader(fileName))) {
-			String s;
-			while ((s = in.readLine()) != null) {
-				i = Strings.count(s, delim);
-				if (i > maxCol) {
-					maxCol = i;
-				}
-			}
+		try {
+			return TextFile.countColumns(Paths.get(fileName), delim, Charset.defaultCharset());
 		} catch (final IOException e) {
 			Log.errorHandler("Error in FileIO.getNumberOfColumnsInFile: ", e);
+			return 1;
 		}
-
-		return maxCol + 1;
 	}
 
 	/**
@@ -1554,7 +1532,17 @@ public class FileIO {
 	 *            directory and everything in it.
 	 */
 	public static void deleteDirs(final String dirName) {
-		deleteFile(dirName);
+		final Path path = Paths.get(dirName);
+		if (!Files.isDirectory(path, LinkOption.NOFOLLOW_LINKS) || !Files.isWritable(path)) {
+			deleteFile(dirName);
+			return;
+		}
+		try {
+			// like deleteFile(), write protected files are left
+			new DirectoryCleaner().setSkipReadOnly(true).delete(path);
+		} catch (final IOException e) {
+			Log.logDebugInfo("deleteDirs: " + e.getMessage());
+		}
 	}
 
 	/**
@@ -1598,6 +1586,33 @@ public class FileIO {
 		return fileToCheck.exists();
 	}
 
+	/**
+	 * Waits for a browser download to complete: the file exists, the browser
+	 * removed its partial file and the file is no longer written. Unlike
+	 * fileExists(fileName, maxWait) the download folder is watched, so the
+	 * wait ends as soon as the download completes. See {@link DownloadWatcher}.
+	 * <p>
+	 *
+	 * @param fileName
+	 *            the path and filename of the downloaded file
+	 * @param maxWait
+	 *            the maximum time to wait in seconds
+	 * @return true if the download completed, false if it did not complete
+	 *         within the time
+	 */
+	public static boolean waitForDownload(final String fileName, final int maxWait) {
+		final Path file = Paths.get(fileName).toAbsolutePath();
+		try (DownloadWatcher watcher = new DownloadWatcher(file.getParent())) {
+			return watcher.await(file.getFileName().toString(), maxWait * 1000L) != null;
+		} catch (final IOException e) {
+			Log.errorHandler("Error occurred in waitForDownload()", e);
+			return false;
+		} catch (final InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return false;
+		}
+	}
+
 	/**
 	 * Checks to see if a given file or directory exists. Returns true if it
 	 * exists, false if it does not exist
@@ -1693,29 +1708,50 @@ public class FileIO {
 	 * @return boolean true if files compare , false if files do not compare
 	 */
 	public static boolean compareFiles(final String fileName1, final String fileName2) {
-		String[] array1 = null;
-		String[] array2 = null;
 		try {
-			array1 = getFileContentsAsList(fileName1);
-			array2 = getFileContentsAsList(fileName2);
-		} catch (final Exception e) {
+			final Path path1 = Paths.get(fileName1);
+			final Path path2 = Paths.get(fileName2);
+			if (FileCompare.contentEquals(path1, path2)) {
+				return true;
+			}
+
+			// files with different line breaks have the same lines
+			return FileCompare.diff(path1, path2, Charset.defaultCharset(), 0, 0).isIdentical();
+		} catch (final IOException e) {
 			Log.errorHandler("Error in FileIO.compareFile: " + e.getMessage());
+			return false;
 		}
+	}
 
-		// Log.logDebugInfo("Comparing int array i1: " + Arrays.toString(array1)
-		// + " and i2: " + Arrays.toString(array2));
+	/**
+	 * Compares two files line by line and logs a unified diff of the first
+	 * differences if they are different
+	 *
+	 * @param fileName1
+	 *            Path and filename of file1 to read ex: "D:\\1.TXT"
+	 * @param fileName2
+	 *            Path and filename of file2 to read ex: "D:\\2.TXT"
+	 * @param maxChangedLines
+	 *            maximum number of removed and added lines logged in the diff
+	 * @return boolean true if files compare , false if files do not compare
+	 */
+	public static boolean compareFiles(final String fileName1, final String fileName2, final int maxChangedLines) {
+		try {
+			final Path path1 = Paths.get(fileName1);
+			final Path path2 = Paths.get(fileName2);
+			if (FileCompare.contentEquals(path1, path2)) {
+				return true;
+			}
 
-		if (Arrays.deepEquals(array1, array2)) {
-			// Log.logScriptInfo("Contents of both files are the same: " +
-			// Strings.sDQ + filename1 + Strings.sDQ + " to " + Strings.sDQ +
-			// filename2 + Strings.sDQ);
-			return true;
+			final FileDiff diff = FileCompare.diff(path1, path2, Charset.defaultCharset(), maxChangedLines, 3);
+			if (!diff.isIdentical()) {
+				Log.logScriptInfo("Contents of files are NOT the same: " + diff);
+			}
+			return diff.isIdentical();
+		} catch (final IOException e) {
+			Log.errorHandler("Error in FileIO.compareFile: " + e.getMessage());
+			return false;
 		}
-
-		// Log.logScriptInfo("Contents of files are NOT the same: " +
-		// Strings.sDQ + filename1 + Strings.sDQ + " to " + Strings.sDQ +
-		// filename2 + Strings.sDQ);
-		return false;
 	}
 
 	/**
@@ -1806,7 +1842,8 @@ public class FileIO {
 
 	/**
 	 * Empties a directory in the given path by deleting all files, folders and
-	 * nested folders within the parent folder.
+	 * nested folders within the parent folder. The files are deleted by
+	 * AUTOMATION_CLEANUP_THREADS threads, see {@link DirectoryCleaner}.
 	 *
 	 * @param path
 	 *            path of directory
@@ -1814,32 +1851,32 @@ public class FileIO {
 	public static void clearDirectory(final Path path) {
 		if (Files.exists(path)) {
 			try {
-				Files.walkFileTree(path, new SimpleFileVisitor<Path>() {
-
-					@Override
-					public FileVisitResult visitFile(final Path file, final BasicFileAttributes attrs)
-							throws IOException {
-						Files.delete(file);
-						return FileVisitResult.CONTINUE;
-					}
-
-					@Override
-					public FileVisitResult postVisitDirectory(final Path dir, final IOException exception)
-							throws IOException {
-						if (exception == null) {
-							Files.delete(dir);
-							return FileVisitResult.CONTINUE;
-						}
-
-						throw new SetupException(exception);
-					}
-				});
+				new DirectoryCleaner().delete(path);
 			} catch (final IOException exception) {
 				throw new SetupException(exception);
 			}
 		}
 	}
 
+	/**
+	 * Empties a results directory without waiting for the files to be deleted:
+	 * the directory is moved next to itself into a folder of previous results
+	 * and created again. The previous results beyond
+	 * AUTOMATION_CLEAR_RESULTS_KEEP_RUNS runs and
+	 * AUTOMATION_CLEAR_RESULTS_KEEP_GB are deleted in the background.
+	 *
+	 * @param path
+	 *            path of results directory
+	 */
+	public static void clearResultsDirectory(final Path path) {
+		try {
+			new DirectoryCleaner().setKeepRuns(Log.AUTOMATION_CLEAR_RESULTS_KEEP_RUNS)
+					.setKeepBytes(Log.AUTOMATION_CLEAR_RESULTS_KEEP_GB * 1024L * 1024L * 1024L).clear(path);
+		} catch (final IOException exception) {
+			throw new SetupException(exception);
+		}
+	}
+
 	/**
 	 * Writes lines with specified content to file.
 	 *
@@ -1965,6 +2002,69 @@ public class FileIO {
 		});
 	}
 
+	/**
+	 * Creates an empty temporary file in the directory of the specified file.
+	 * The temporary file is on the same file store as the specified file, so
+	 * it can replace that file with {@link #move(Path, Path)} in one atomic
+	 * step once it is completely written. The temporary file gets the
+	 * permissions, group and file attributes of the existing file, so the
+	 * replaced file keeps them.
+	 *
+	 * @param filePath
+	 *            full path of the file that is going to be replaced
+	 * @return the path to the temporary file
+	 */
+	public static Path createSiblingTempFile(final Path filePath) {
+		return ExceptionHandler.execute(new Callable<Path>() {
+			@Override
+			public Path call() throws Exception {
+				final Path absolutePath = filePath.toAbsolutePath();
+
+				Path tempFile = Files.createTempFile(absolutePath.getParent(), "." + absolutePath.getFileName() + ".",
+						".tmp");
+				if (Files.exists(absolutePath)) {
+					copyAttributes(absolutePath, tempFile);
+				}
+				return tempFile;
+			}
+		});
+	}
+
+	/**
+	 * Copies the permissions, owner, group, ACL and DOS attributes of a file
+	 * to another one, as far as the file system supports them. The owner can
+	 * usually only be changed by an administrator, so it is kept if changing
+	 * it fails. The read-only attribute is not copied.
+	 */
+	private static void copyAttributes(Path from, Path to) throws IOException {
+		PosixFileAttributeView posix = Files.getFileAttributeView(from, PosixFileAttributeView.class);
+		if (posix != null) {
+			PosixFileAttributes attributes = posix.readAttributes();
+			PosixFileAttributeView target = Files.getFileAttributeView(to, PosixFileAttributeView.class);
+			target.setPermissions(attributes.permissions());
+			try {
+				target.setGroup(attributes.group());
+				target.setOwner(attributes.owner());
+			} catch (IOException e) {
+				Log.logDebugInfo("Owner of " + from + " not copied: " + e.getMessage());
+			}
+		}
+
+		AclFileAttributeView acl = Files.getFileAttributeView(from, AclFileAttributeView.class);
+		if (acl != null) {
+			Files.getFileAttributeView(to, AclFileAttributeView.class).setAcl(acl.getAcl());
+		}
+
+		DosFileAttributeView dos = Files.getFileAttributeView(from, DosFileAttributeView.class);
+		if (dos != null && posix == null) {
+			DosFileAttributes attributes = dos.readAttributes();
+			DosFileAttributeView target = Files.getFileAttributeView(to, DosFileAttributeView.class);
+			target.setHidden(attributes.isHidden());
+			target.setSystem(attributes.isSystem());
+			target.setArchive(attributes.isArchive());
+		}
+	}
+
 	/**
 	 * Writes properties to file.
 	 *
@@ -24,8 +24,11 @@ import javax.swing.JOptionPane;
 
 import org.testng.Assert;
 
+import core.utilities.database.DatabaseVerification;
 import core.utilities.exceptions.AutomationException;
 import core.utilities.exceptions.SetupException;
+import core.utilities.io.PackageResult;
+import core.utilities.io.ResultsPackager;
 import core.utilities.report.AutomationReport;
 import core.utilities.tools.Engine;
 
@@ -112,6 +115,12 @@ public class Log {
 	/** Global strings for Browser Profile file */
 	public static String AUTOMATION_BROWSER_PROFILE;
 
+	/**
+	 * Global string for the browser download folder, the default folder of the
+	 * browser is used if not set
+	 */
+	public static String AUTOMATION_DOWNLOAD_PATH;
+
 	/** Global string for additional Chrome command line arguments */
 	public static String AUTOMATION_CHROME_COMMANDLINE;
 
@@ -130,6 +139,18 @@ public class Log {
 	/** Global string for remote server port */
 	public static String AUTOMATION_SCM_REMOTE_SERVER_PORT;
 
+	/** Maximum number of channels open at the same time per SSH session */
+	public static int AUTOMATION_SCM_SESSION_MAX_CHANNELS = 8;
+
+	/** Seconds between keep-alive messages on cached SSH sessions */
+	public static int AUTOMATION_SCM_SESSION_KEEPALIVE = 30;
+
+	/** Seconds an unused SSH session is kept open */
+	public static int AUTOMATION_SCM_SESSION_IDLE_TIMEOUT = 300;
+
+	/** Maximum number of servers a command is executed on at the same time */
+	public static int AUTOMATION_SCM_FANOUT_THREADS = 8;
+
 	// Global script FTP server info
 
 	/** Global string for FTP server name or IP address */
@@ -144,6 +165,24 @@ public class Log {
 	/** Global string for FTP server port */
 	public static String AUTOMATION_FTP_SERVER_PORTAL;
 
+	/** Maximum number of sessions opened to the FTP server at the same time */
+	public static int AUTOMATION_FTP_POOL_MAX_SIZE = 4;
+
+	/**
+	 * Seconds between NOOP commands keeping idle FTP sessions and the control
+	 * connection of long transfers alive
+	 */
+	public static int AUTOMATION_FTP_POOL_KEEPALIVE = 60;
+
+	/** Seconds an unused FTP session is kept open */
+	public static int AUTOMATION_FTP_POOL_IDLE_TIMEOUT = 300;
+
+	/** Seconds to wait for a free FTP session when all sessions are in use */
+	public static int AUTOMATION_FTP_POOL_CONNECTION_TIMEOUT = 60;
+
+	/** Size in bytes of the buffer used to transfer FTP files */
+	public static int AUTOMATION_FTP_BUFFER_SIZE = 65536;
+
 	// Global script Database server info
 
 	/** Global string for database system */
@@ -164,6 +203,60 @@ public class Log {
 	/** Global string for database server port */
 	public static String AUTOMATION_DATABASE_SERVER_PORT;
 
+	/** Minimum number of idle connections kept in each database pool */
+	public static int AUTOMATION_DATABASE_POOL_MIN_SIZE = 1;
+
+	/** Maximum number of connections opened by each database pool */
+	public static int AUTOMATION_DATABASE_POOL_MAX_SIZE = 10;
+
+	/**
+	 * Query used to validate pooled database connections, empty to use the
+	 * JDBC driver validation
+	 */
+	public static String AUTOMATION_DATABASE_POOL_VALIDATION_QUERY = "";
+
+	/** Seconds an unused pooled database connection is kept open */
+	public static int AUTOMATION_DATABASE_POOL_IDLE_TIMEOUT = 600;
+
+	/**
+	 * Seconds a database connection may be borrowed from the pool before it is
+	 * reported as possible leak, 0 to turn leak detection off
+	 */
+	public static int AUTOMATION_DATABASE_POOL_LEAK_DETECTION_THRESHOLD = 0;
+
+	/** Seconds to wait for a free connection when the pool is exhausted */
+	public static int AUTOMATION_DATABASE_POOL_CONNECTION_TIMEOUT = 30;
+
+	/**
+	 * Number of prepared statements cached per database connection, 0 to turn
+	 * the cache off
+	 */
+	public static int AUTOMATION_DATABASE_STATEMENT_CACHE_SIZE = 50;
+
+	/**
+	 * Number of rows fetched from the database at once when reading query
+	 * results, 0 to use the JDBC driver default
+	 */
+	public static int AUTOMATION_DATABASE_FETCH_SIZE = 500;
+
+	/**
+	 * Number of rows of a query result written to the log, the rest is
+	 * summarized by row count and hash
+	 */
+	public static int AUTOMATION_DATABASE_LOG_MAX_ROWS = 10;
+
+	/** Number of SQL statements sent to the database in one batch */
+	public static int AUTOMATION_DATABASE_BATCH_SIZE = 1000;
+
+	/** Number of threads executing asynchronous database verifications */
+	public static int AUTOMATION_DATABASE_VERIFY_THREADS = 4;
+
+	/**
+	 * Seconds to wait for the asynchronous database verifications of a
+	 * testcase at its finish
+	 */
+	public static int AUTOMATION_DATABASE_VERIFY_TIMEOUT = 300;
+
 	/** Global string for test browser */
 	public static String AUTOMATION_TEST_BROWSER; // = "Internet Explorer 6.0";
 
@@ -375,6 +468,19 @@ public class Log {
 	/** Delete all files in results folder before start script */
 	public static boolean AUTOMATION_CLEAR_RESULTS = false;
 
+	/**
+	 * Number of previous results kept when the results folder is cleared, the
+	 * previous results are moved to a folder next to the results folder. 0
+	 * keeps none, or any number within AUTOMATION_CLEAR_RESULTS_KEEP_GB.
+	 */
+	public static int AUTOMATION_CLEAR_RESULTS_KEEP_RUNS = 0;
+
+	/** Maximum size in GB of the kept previous results, 0 for no limit */
+	public static int AUTOMATION_CLEAR_RESULTS_KEEP_GB = 0;
+
+	/** Number of files deleted at the same time when clearing results */
+	public static int AUTOMATION_CLEANUP_THREADS = 4;
+
 	protected static int iCurrentScriptTestCaseNumber;
 	protected static int numScriptsRun = 0;
 
@@ -389,6 +495,21 @@ public class Log {
 	/** optionally copies results files to alternate result location */
 	public static String AUTOMATION_COPY_RESULTS_TO;
 
+	/** Number of files copied at the same time by directory copies */
+	public static int AUTOMATION_COPY_THREADS = 4;
+
+	/**
+	 * Hard links the results files instead of copying them when the alternate
+	 * result location is on the same file system
+	 */
+	public static boolean AUTOMATION_COPY_RESULTS_HARD_LINK = false;
+
+	/**
+	 * optionally packages results files into a zip archive in this location,
+	 * screenshots are added while the tests run
+	 */
+	public static String AUTOMATION_PACKAGE_RESULTS_TO;
+
 	/**
 	 * Global boolean to update test case data in runtime before starting of
 	 * each test case. Number of test cases must be static and known before
@@ -432,6 +553,9 @@ public class Log {
 	 */
 	private static AutomationReport report = null;
 
+	/** Results archive of the run, created with the first packaged file */
+	private static ResultsPackager resultsPackager = null;
+
 	/** Global Setting to enable BandWidth limit */
 	public static boolean AUTOMATION_BANDWIDTH_LIMIT = false;
 	/**
@@ -584,10 +708,7 @@ public class Log {
 
 		// clear result folder
 		if (!isSuite && AUTOMATION_CLEAR_RESULTS) {
-			Platform.sleep(AUTOMATION_WAIT_VALUE_1);
-			FileIO.clearDirectory(Paths.get(AUTOMATION_TEST_RESULTS_PATH));
-			Platform.sleep(AUTOMATION_WAIT_VALUE_1);
-			FileIO.dirExists(Paths.get(AUTOMATION_TEST_RESULTS_PATH));
+			FileIO.clearResultsDirectory(Paths.get(AUTOMATION_TEST_RESULTS_PATH));
 		}
 
 		// create unique result file based on script name and date
@@ -874,6 +995,62 @@ public class Log {
 		logScreenCapture(null, false);
 	}
 
+	/**
+	 * Packages a result file, f.ex. a screenshot, into the results archive of
+	 * the run if AUTOMATION_PACKAGE_RESULTS_TO is set. The file is compressed
+	 * in the background and must not be changed anymore.
+	 *
+	 * @param fileName
+	 *            result file
+	 * @param testCase
+	 *            id of the test case the file belongs to, null if none
+	 */
+	public static void packageResultFile(final String fileName, final String testCase) {
+		try {
+			final ResultsPackager packager = getResultsPackager();
+			if (packager != null && fileName != null) {
+				packager.add(Paths.get(fileName), testCase);
+			}
+		} catch (final Exception e) {
+			// the archive is created again and the error reported when the
+			// run is finished
+			logDebugInfo("Error packaging result file " + fileName + ": " + e.getMessage());
+		}
+	}
+
+	/**
+	 * Adds the remaining result files to the results archive of the run and
+	 * finishes it. The next packaged file starts a new archive.
+	 *
+	 * @return totals of the archive, null if AUTOMATION_PACKAGE_RESULTS_TO is
+	 *         not set
+	 * @throws IOException
+	 *             if the archive can't be written
+	 */
+	public static PackageResult finishResultsPackage() throws IOException {
+		final ResultsPackager packager;
+		synchronized (Log.class) {
+			packager = getResultsPackager();
+			resultsPackager = null;
+		}
+		if (packager == null) {
+			return null;
+		}
+		packager.addResultsDirectory();
+		return packager.finish();
+	}
+
+	private static synchronized ResultsPackager getResultsPackager() throws IOException {
+		if (resultsPackager == null && AUTOMATION_PACKAGE_RESULTS_TO != null
+				&& !AUTOMATION_PACKAGE_RESULTS_TO.isEmpty()) {
+			final File archive = new File(AUTOMATION_PACKAGE_RESULTS_TO, String.format("%s_%s.zip",
+					AUTOMATION_SCRIPT_NAME != null ? AUTOMATION_SCRIPT_NAME : "NONAME",
+					DateTime.getCurrentDate("yyyy-MM-dd_HHmmss")));
+			resultsPackager = new ResultsPackager(Paths.get(AUTOMATION_TEST_RESULTS_PATH), archive);
+		}
+		return resultsPackager;
+	}
+
 	/**
 	 * Logs script information to multiple output sources. Overloaded to
 	 * simplify to single parameter. Forces use of global Log Type
@@ -1073,6 +1250,9 @@ public class Log {
 		// calculate any previous pass-fail metrics
 		autoCleanup(false);
 
+		// Verifications of a previous testcase which was not finished
+		DatabaseVerification.clearPending();
+
 		// Add one to testcase counter
 		AUTOMATION_TESTCASE_COUNTER++;
 
@@ -1098,12 +1278,23 @@ public class Log {
 
 	
 	/**
-	 * Logs test case completion info.
+	 * Logs test case completion info. Waits for the asynchronous database
+	 * verifications started during the testcase and fails the testcase if
+	 * one of them failed.
 	 */
 	public static void finishTestCase() {
 		final DateFormat dtformat = DateFormat.getDateInstance();
 		final DateFormat tmformat = DateFormat.getTimeInstance();
 
+		// Wait for the asynchronous database verifications of the testcase,
+		// a failure is raised after the testcase is finished in the report
+		AssertionError verificationFailure = null;
+		try {
+			DatabaseVerification.awaitPending();
+		} catch (AssertionError e) {
+			verificationFailure = e;
+		}
+
 		// Display testcase completion information
 		logScriptInfo("==============================================================================", LOGTYPE_SIMPLE);
 		logScriptInfo("* Testcase - Finish - Date: " + dtformat.format(new Date()) + "  " + tmformat.format(new Date()),
@@ -1111,6 +1302,10 @@ public class Log {
 		logScriptInfo("==============================================================================", LOGTYPE_SIMPLE);
 
 		report.finishTestCase();
+
+		if (verificationFailure != null) {
+			throw verificationFailure;
+		}
 	}
 
 	/**
@@ -1287,9 +1482,7 @@ public class Log {
 
 		// clear result folder
 		if (isSuite && AUTOMATION_CLEAR_RESULTS && report == null) {
-			FileIO.clearDirectory(Paths.get(AUTOMATION_TEST_RESULTS_PATH));
-			Platform.sleep(AUTOMATION_WAIT_VALUE_1);
-			FileIO.dirExists(Paths.get(AUTOMATION_TEST_RESULTS_PATH));
+			FileIO.clearResultsDirectory(Paths.get(AUTOMATION_TEST_RESULTS_PATH));
 		}
 
 		if (report == null) {
@@ -1963,6 +2156,21 @@ public class Log {
 				AUTOMATION_CLEAR_RESULTS = Boolean.valueOf(autoProps.getProperty(key));
 			}
 
+			key = "AUTOMATION_CLEAR_RESULTS_KEEP_RUNS";
+			if (autoProps.containsKey(key) && !autoProps.getProperty(key).isEmpty()) {
+				AUTOMATION_CLEAR_RESULTS_KEEP_RUNS = Integer.valueOf(autoProps.getProperty(key).trim());
+			}
+
+			key = "AUTOMATION_CLEAR_RESULTS_KEEP_GB";
+			if (autoProps.containsKey(key) && !autoProps.getProperty(key).isEmpty()) {
+				AUTOMATION_CLEAR_RESULTS_KEEP_GB = Integer.valueOf(autoProps.getProperty(key).trim());
+			}
+
+			key = "AUTOMATION_CLEANUP_THREADS";
+			if (autoProps.containsKey(key) && !autoProps.getProperty(key).isEmpty()) {
+				AUTOMATION_CLEANUP_THREADS = Integer.valueOf(autoProps.getProperty(key).trim());
+			}
+
 			// Auto Image capture on every error
 			key = "AUTOMATION_ERROR_IMAGE_CAPTURE";
 			if (autoProps.containsKey(key) && !autoProps.getProperty(key).isEmpty()) {
@@ -2056,6 +2264,11 @@ public class Log {
 				AUTOMATION_BROWSER_PROFILE = autoProps.getProperty(key);
 			}
 
+			key = "AUTOMATION_DOWNLOAD_PATH";
+			if (autoProps.containsKey(key) && !autoProps.getProperty(key).isEmpty()) {
+				AUTOMATION_DOWNLOAD_PATH = autoProps.getProperty(key);
+			}
+
 			key = "AUTOMATION_CHROME_COMMANDLINE";
 			if (autoProps.containsKey(key) && !autoProps.getProperty(key).isEmpty()) {
 				AUTOMATION_CHROME_COMMANDLINE = autoProps.getProperty(key);
@@ -2078,6 +2291,22 @@ public class Log {
 			if (autoProps.containsKey(key) && !autoProps.getProperty(key).isEmpty()) {
 				AUTOMATION_COPY_RESULTS_TO = autoProps.getProperty(key);
 			}
+
+			key = "AUTOMATION_COPY_THREADS";
+			if (autoProps.containsKey(key) && !autoProps.getProperty(key).isEmpty()) {
+				AUTOMATION_COPY_THREADS = Integer.valueOf(autoProps.getProperty(key).trim());
+			}
+
+			key = "AUTOMATION_COPY_RESULTS_HARD_LINK";
+			if (autoProps.containsKey(key) && !autoProps.getProperty(key).isEmpty()) {
+				AUTOMATION_COPY_RESULTS_HARD_LINK = Boolean.valueOf(autoProps.getProperty(key).trim());
+			}
+
+			//Package results into an archive
+			key = "AUTOMATION_PACKAGE_RESULTS_TO";
+			if (autoProps.containsKey(key) && !autoProps.getProperty(key).isEmpty()) {
+				AUTOMATION_PACKAGE_RESULTS_TO = autoProps.getProperty(key);
+			}
 			
 			
 			
@@ -2109,6 +2338,26 @@ public class Log {
 				}
 			}
 
+			key = "AUTOMATION_SCM_SESSION_MAX_CHANNELS";
+			if (autoProps.containsKey(key) && !autoProps.getProperty(key).isEmpty()) {
+				AUTOMATION_SCM_SESSION_MAX_CHANNELS = Integer.valueOf(autoProps.getProperty(key).trim());
+			}
+
+			key = "AUTOMATION_SCM_SESSION_KEEPALIVE";
+			if (autoProps.containsKey(key) && !autoProps.getProperty(key).isEmpty()) {
+				AUTOMATION_SCM_SESSION_KEEPALIVE = Integer.valueOf(autoProps.getProperty(key).trim());
+			}
+
+			key = "AUTOMATION_SCM_SESSION_IDLE_TIMEOUT";
+			if (autoProps.containsKey(key) && !autoProps.getProperty(key).isEmpty()) {
+				AUTOMATION_SCM_SESSION_IDLE_TIMEOUT = Integer.valueOf(autoProps.getProperty(key).trim());
+			}
+
+			key = "AUTOMATION_SCM_FANOUT_THREADS";
+			if (autoProps.containsKey(key) && !autoProps.getProperty(key).isEmpty()) {
+				AUTOMATION_SCM_FANOUT_THREADS = Integer.valueOf(autoProps.getProperty(key).trim());
+			}
+
 			// FTP server name or ip address
 			key = "AUTOMATION_FTP_SERVER_NAME";
 			if (autoProps.containsKey(key) && !autoProps.getProperty(key).isEmpty()) {
@@ -2135,6 +2384,31 @@ public class Log {
 					AUTOMATION_FTP_SERVER_PORTAL = "21";
 				}
 			}
+
+			key = "AUTOMATION_FTP_POOL_MAX_SIZE";
+			if (autoProps.containsKey(key) && !autoProps.getProperty(key).isEmpty()) {
+				AUTOMATION_FTP_POOL_MAX_SIZE = Integer.valueOf(autoProps.getProperty(key).trim());
+			}
+
+			key = "AUTOMATION_FTP_POOL_KEEPALIVE";
+			if (autoProps.containsKey(key) && !autoProps.getProperty(key).isEmpty()) {
+				AUTOMATION_FTP_POOL_KEEPALIVE = Integer.valueOf(autoProps.getProperty(key).trim());
+			}
+
+			key = "AUTOMATION_FTP_POOL_IDLE_TIMEOUT";
+			if (autoProps.containsKey(key) && !autoProps.getProperty(key).isEmpty()) {
+				AUTOMATION_FTP_POOL_IDLE_TIMEOUT = Integer.valueOf(autoProps.getProperty(key).trim());
+			}
+
+			key = "AUTOMATION_FTP_POOL_CONNECTION_TIMEOUT";
+			if (autoProps.containsKey(key) && !autoProps.getProperty(key).isEmpty()) {
+				AUTOMATION_FTP_POOL_CONNECTION_TIMEOUT = Integer.valueOf(autoProps.getProperty(key).trim());
+			}
+
+			key = "AUTOMATION_FTP_BUFFER_SIZE";
+			if (autoProps.containsKey(key) && !autoProps.getProperty(key).isEmpty()) {
+				AUTOMATION_FTP_BUFFER_SIZE = Integer.valueOf(autoProps.getProperty(key).trim());
+			}
 			// Database server driver system
 			key = "AUTOMATION_DATABASE_SERVER_SYSTEM";
 			if (autoProps.containsKey(key) && !autoProps.getProperty(key).isEmpty()) {
@@ -2172,6 +2446,69 @@ public class Log {
 				AUTOMATION_DATABASE_SERVER_PORT = autoProps.getProperty(key);
 
 			}
+
+			// Database connection pool
+			key = "AUTOMATION_DATABASE_POOL_MIN_SIZE";
+			if (autoProps.containsKey(key) && !autoProps.getProperty(key).isEmpty()) {
+				AUTOMATION_DATABASE_POOL_MIN_SIZE = Integer.valueOf(autoProps.getProperty(key).trim());
+			}
+
+			key = "AUTOMATION_DATABASE_POOL_MAX_SIZE";
+			if (autoProps.containsKey(key) && !autoProps.getProperty(key).isEmpty()) {
+				AUTOMATION_DATABASE_POOL_MAX_SIZE = Integer.valueOf(autoProps.getProperty(key).trim());
+			}
+
+			key = "AUTOMATION_DATABASE_POOL_VALIDATION_QUERY";
+			if (autoProps.containsKey(key)) {
+				AUTOMATION_DATABASE_POOL_VALIDATION_QUERY = autoProps.getProperty(key).trim();
+			}
+
+			key = "AUTOMATION_DATABASE_POOL_IDLE_TIMEOUT";
+			if (autoProps.containsKey(key) && !autoProps.getProperty(key).isEmpty()) {
+				AUTOMATION_DATABASE_POOL_IDLE_TIMEOUT = Integer.valueOf(autoProps.getProperty(key).trim());
+			}
+
+			key = "AUTOMATION_DATABASE_POOL_LEAK_DETECTION_THRESHOLD";
+			if (autoProps.containsKey(key) && !autoProps.getProperty(key).isEmpty()) {
+				AUTOMATION_DATABASE_POOL_LEAK_DETECTION_THRESHOLD = Integer.valueOf(autoProps.getProperty(key).trim());
+			}
+
+			key = "AUTOMATION_DATABASE_POOL_CONNECTION_TIMEOUT";
+			if (autoProps.containsKey(key) && !autoProps.getProperty(key).isEmpty()) {
+				AUTOMATION_DATABASE_POOL_CONNECTION_TIMEOUT = Integer.valueOf(autoProps.getProperty(key).trim());
+			}
+
+			// Database prepared statement cache
+			key = "AUTOMATION_DATABASE_STATEMENT_CACHE_SIZE";
+			if (autoProps.containsKey(key) && !autoProps.getProperty(key).isEmpty()) {
+				AUTOMATION_DATABASE_STATEMENT_CACHE_SIZE = Integer.valueOf(autoProps.getProperty(key).trim());
+			}
+
+			// Database query result fetch size and logging
+			key = "AUTOMATION_DATABASE_FETCH_SIZE";
+			if (autoProps.containsKey(key) && !autoProps.getProperty(key).isEmpty()) {
+				AUTOMATION_DATABASE_FETCH_SIZE = Integer.valueOf(autoProps.getProperty(key).trim());
+			}
+
+			key = "AUTOMATION_DATABASE_LOG_MAX_ROWS";
+			if (autoProps.containsKey(key) && !autoProps.getProperty(key).isEmpty()) {
+				AUTOMATION_DATABASE_LOG_MAX_ROWS = Integer.valueOf(autoProps.getProperty(key).trim());
+			}
+
+			key = "AUTOMATION_DATABASE_BATCH_SIZE";
+			if (autoProps.containsKey(key) && !autoProps.getProperty(key).isEmpty()) {
+				AUTOMATION_DATABASE_BATCH_SIZE = Integer.valueOf(autoProps.getProperty(key).trim());
+			}
+
+			key = "AUTOMATION_DATABASE_VERIFY_THREADS";
+			if (autoProps.containsKey(key) && !autoProps.getProperty(key).isEmpty()) {
+				AUTOMATION_DATABASE_VERIFY_THREADS = Integer.valueOf(autoProps.getProperty(key).trim());
+			}
+
+			key = "AUTOMATION_DATABASE_VERIFY_TIMEOUT";
+			if (autoProps.containsKey(key) && !autoProps.getProperty(key).isEmpty()) {
+				AUTOMATION_DATABASE_VERIFY_TIMEOUT = Integer.valueOf(autoProps.getProperty(key).trim());
+			}
 			// BrowserStack
 			key = "AUTOMATION_BROWSERSTACK_ENABLE";
 			if (autoProps.containsKey(key) && !autoProps.getProperty(key).isEmpty()) {
@@ -2250,6 +2587,9 @@ public class Log {
 		logScriptInfo(
 				"AUTOMATION_CLOSE_BROWSER_UPON_COMPLETION=" + String.valueOf(AUTOMATION_CLOSE_BROWSER_UPON_COMPLETION));
 		logScriptInfo("AUTOMATION_CLEAR_RESULTS=" + String.valueOf(AUTOMATION_CLEAR_RESULTS));
+		logScriptInfo("AUTOMATION_CLEAR_RESULTS_KEEP_RUNS=" + String.valueOf(AUTOMATION_CLEAR_RESULTS_KEEP_RUNS));
+		logScriptInfo("AUTOMATION_CLEAR_RESULTS_KEEP_GB=" + String.valueOf(AUTOMATION_CLEAR_RESULTS_KEEP_GB));
+		logScriptInfo("AUTOMATION_CLEANUP_THREADS=" + String.valueOf(AUTOMATION_CLEANUP_THREADS));
 		logScriptInfo("AUTOMATION_SPREADSHEET_SUFFIX=" + AUTOMATION_SPREADSHEET_SUFFIX);
 		logScriptInfo("AUTOMATION_LOG_TYPE=" + String.valueOf(AUTOMATION_LOG_TYPE));
 		logScriptInfo("AUTOMATION_REPORT_TYPE=" + AUTOMATION_REPORT_TYPE);
@@ -2273,20 +2613,34 @@ public class Log {
 		logScriptInfo("AUTOMATION_WAIT_VALUE_60=" + String.valueOf(AUTOMATION_WAIT_VALUE_60));
 		logScriptInfo("AUTOMATION_RESULT_VIEWER_APP=" + AUTOMATION_RESULT_VIEWER_APP);
 		logScriptInfo("AUTOMATION_BROWSER_PROFILE=" + AUTOMATION_BROWSER_PROFILE);
+		logScriptInfo("AUTOMATION_DOWNLOAD_PATH=" + AUTOMATION_DOWNLOAD_PATH);
 		logScriptInfo("AUTOMATION_BROWSER_PATH=" + AUTOMATION_BROWSER_PATH);
 		logScriptInfo("AUTOMATION_CHROME_COMMANDLINE=" + AUTOMATION_CHROME_COMMANDLINE);
 		logScriptInfo("AUTOMATION_TEST_LEVEL=" + String.valueOf(AUTOMATION_TEST_LEVEL));
 		logScriptInfo("AUTOMATION_COPY_RESULTS_TO=" + AUTOMATION_COPY_RESULTS_TO);
+		logScriptInfo("AUTOMATION_COPY_THREADS=" + String.valueOf(AUTOMATION_COPY_THREADS));
+		logScriptInfo("AUTOMATION_COPY_RESULTS_HARD_LINK=" + String.valueOf(AUTOMATION_COPY_RESULTS_HARD_LINK));
+		logScriptInfo("AUTOMATION_PACKAGE_RESULTS_TO=" + AUTOMATION_PACKAGE_RESULTS_TO);
 
 		logScriptInfo("AUTOMATION_SCM_REMOTE_SERVER_NAME=" + AUTOMATION_SCM_REMOTE_SERVER_NAME);
 		logScriptInfo("AUTOMATION_SCM_REMOTE_SERVER_USERNAME=" + AUTOMATION_SCM_REMOTE_SERVER_USERNAME);
 		logScriptInfo("AUTOMATION_SCM_REMOTE_SERVER_PASSWORD=" + AUTOMATION_SCM_REMOTE_SERVER_PASSWORD);
 		logScriptInfo("AUTOMATION_SCM_REMOTE_SERVER_PORT=" + AUTOMATION_SCM_REMOTE_SERVER_PORT);
+		logScriptInfo("AUTOMATION_SCM_SESSION_MAX_CHANNELS=" + String.valueOf(AUTOMATION_SCM_SESSION_MAX_CHANNELS));
+		logScriptInfo("AUTOMATION_SCM_SESSION_KEEPALIVE=" + String.valueOf(AUTOMATION_SCM_SESSION_KEEPALIVE));
+		logScriptInfo("AUTOMATION_SCM_SESSION_IDLE_TIMEOUT=" + String.valueOf(AUTOMATION_SCM_SESSION_IDLE_TIMEOUT));
+		logScriptInfo("AUTOMATION_SCM_FANOUT_THREADS=" + String.valueOf(AUTOMATION_SCM_FANOUT_THREADS));
 
 		logScriptInfo("AUTOMATION_FTP_SERVER_NAME=" + AUTOMATION_FTP_SERVER_NAME);
 		logScriptInfo("AUTOMATION_FTP_SERVER_USERNAME=" + AUTOMATION_FTP_SERVER_USERNAME);
 		logScriptInfo("AUTOMATION_FTP_SERVER_PASSWORD=" + AUTOMATION_FTP_SERVER_PASSWORD);
 		logScriptInfo("AUTOMATION_FTP_SERVER_PORTAL=" + AUTOMATION_FTP_SERVER_PORTAL);
+		logScriptInfo("AUTOMATION_FTP_POOL_MAX_SIZE=" + String.valueOf(AUTOMATION_FTP_POOL_MAX_SIZE));
+		logScriptInfo("AUTOMATION_FTP_POOL_KEEPALIVE=" + String.valueOf(AUTOMATION_FTP_POOL_KEEPALIVE));
+		logScriptInfo("AUTOMATION_FTP_POOL_IDLE_TIMEOUT=" + String.valueOf(AUTOMATION_FTP_POOL_IDLE_TIMEOUT));
+		logScriptInfo(
+				"AUTOMATION_FTP_POOL_CONNECTION_TIMEOUT=" + String.valueOf(AUTOMATION_FTP_POOL_CONNECTION_TIMEOUT));
+		logScriptInfo("AUTOMATION_FTP_BUFFER_SIZE=" + String.valueOf(AUTOMATION_FTP_BUFFER_SIZE));
 
 		logScriptInfo("AUTOMATION_DATABASE_SERVER_SYSTEM=" + AUTOMATION_DATABASE_SERVER_SYSTEM);
 		logScriptInfo("AUTOMATION_DATABASE_SERVER_NAME=" + AUTOMATION_DATABASE_SERVER_NAME);
@@ -2294,6 +2648,21 @@ public class Log {
 		logScriptInfo("AUTOMATION_DATABASE_SERVER_USERNAME=" + AUTOMATION_DATABASE_SERVER_USERNAME);
 		logScriptInfo("AUTOMATION_DATABASE_SERVER_PASSWORD=" + AUTOMATION_DATABASE_SERVER_PASSWORD);
 		logScriptInfo("AUTOMATION_DATABASE_SERVER_PORT=" + AUTOMATION_DATABASE_SERVER_PORT);
+		logScriptInfo("AUTOMATION_DATABASE_POOL_MIN_SIZE=" + String.valueOf(AUTOMATION_DATABASE_POOL_MIN_SIZE));
+		logScriptInfo("AUTOMATION_DATABASE_POOL_MAX_SIZE=" + String.valueOf(AUTOMATION_DATABASE_POOL_MAX_SIZE));
+		logScriptInfo("AUTOMATION_DATABASE_POOL_VALIDATION_QUERY=" + AUTOMATION_DATABASE_POOL_VALIDATION_QUERY);
+		logScriptInfo("AUTOMATION_DATABASE_POOL_IDLE_TIMEOUT=" + String.valueOf(AUTOMATION_DATABASE_POOL_IDLE_TIMEOUT));
+		logScriptInfo("AUTOMATION_DATABASE_POOL_LEAK_DETECTION_THRESHOLD="
+				+ String.valueOf(AUTOMATION_DATABASE_POOL_LEAK_DETECTION_THRESHOLD));
+		logScriptInfo("AUTOMATION_DATABASE_POOL_CONNECTION_TIMEOUT="
+				+ String.valueOf(AUTOMATION_DATABASE_POOL_CONNECTION_TIMEOUT));
+		logScriptInfo("AUTOMATION_DATABASE_STATEMENT_CACHE_SIZE="
+				+ String.valueOf(AUTOMATION_DATABASE_STATEMENT_CACHE_SIZE));
+		logScriptInfo("AUTOMATION_DATABASE_FETCH_SIZE=" + String.valueOf(AUTOMATION_DATABASE_FETCH_SIZE));
+		logScriptInfo("AUTOMATION_DATABASE_LOG_MAX_ROWS=" + String.valueOf(AUTOMATION_DATABASE_LOG_MAX_ROWS));
+		logScriptInfo("AUTOMATION_DATABASE_BATCH_SIZE=" + String.valueOf(AUTOMATION_DATABASE_BATCH_SIZE));
+		logScriptInfo("AUTOMATION_DATABASE_VERIFY_THREADS=" + String.valueOf(AUTOMATION_DATABASE_VERIFY_THREADS));
+		logScriptInfo("AUTOMATION_DATABASE_VERIFY_TIMEOUT=" + String.valueOf(AUTOMATION_DATABASE_VERIFY_TIMEOUT));
 
 		// BrowserStack
 		logScriptInfo("AUTOMATION_BROWSERSTACK_ENABLE=" + String.valueOf(AUTOMATION_BROWSERSTACK_ENABLE));
@@ -2375,6 +2744,10 @@ public class Log {
 		FileIO.appendStringToFile(file, "");
 		FileIO.appendStringToFile(file, "#Delete all files in results folder before start script");
 		FileIO.appendStringToFile(file, "AUTOMATION_CLEAR_RESULTS=false");
+		FileIO.appendStringToFile(file, "#Number and maximum size in GB of previous results kept next to the results folder, deleted in the background");
+		FileIO.appendStringToFile(file, "AUTOMATION_CLEAR_RESULTS_KEEP_RUNS=0");
+		FileIO.appendStringToFile(file, "AUTOMATION_CLEAR_RESULTS_KEEP_GB=0");
+		FileIO.appendStringToFile(file, "AUTOMATION_CLEANUP_THREADS=4");
 		FileIO.appendStringToFile(file, "");
 		FileIO.appendStringToFile(file, "#Global boolean to capture browser window");
 		FileIO.appendStringToFile(file, "#If variable is false then entire screen (primary desktop) will be captured");
@@ -2384,6 +2757,9 @@ public class Log {
 		FileIO.appendStringToFile(file, "#profile file enter the name of the profile file here. Leave empty if the default browser is what you want.");
 		FileIO.appendStringToFile(file, "AUTOMATION_BROWSER_PROFILE=");
 		FileIO.appendStringToFile(file, "");
+		FileIO.appendStringToFile(file, "#Browser download folder, the default download folder of the browser is used if empty");
+		FileIO.appendStringToFile(file, "AUTOMATION_DOWNLOAD_PATH=");
+		FileIO.appendStringToFile(file, "");
 		FileIO.appendStringToFile(file, "#Browser Path. leaving this property empty tells automation to use the default browser path");
 		FileIO.appendStringToFile(file, "#If you are using a Opera or require an alternate browser directory, you can set it here");
 		FileIO.appendStringToFile(file, "AUTOMATION_BROWSER_PATH=");
@@ -2436,6 +2812,13 @@ public class Log {
 		FileIO.appendStringToFile(file, "#If directory is specified this will copy all result files to the specified alternate results folder");
 		FileIO.appendStringToFile(file, "AUTOMATION_COPY_RESULTS_TO=");
 		FileIO.appendStringToFile(file, "");
+		FileIO.appendStringToFile(file, "#Number of files copied at the same time, hard link results instead of copying them on the same file system");
+		FileIO.appendStringToFile(file, "AUTOMATION_COPY_THREADS=4");
+		FileIO.appendStringToFile(file, "AUTOMATION_COPY_RESULTS_HARD_LINK=false");
+		FileIO.appendStringToFile(file, "");
+		FileIO.appendStringToFile(file, "#If directory is specified this will package all result files into a zip archive in the specified folder");
+		FileIO.appendStringToFile(file, "AUTOMATION_PACKAGE_RESULTS_TO=");
+		FileIO.appendStringToFile(file, "");
 		FileIO.appendStringToFile(file, "#Global Sleep (wait) values in seconds");
 		FileIO.appendStringToFile(file, "AUTOMATION_WAIT_VALUE_1=1");
 		FileIO.appendStringToFile(file, "AUTOMATION_WAIT_VALUE_2=2");
@@ -2466,6 +2849,12 @@ public class Log {
 		FileIO.appendStringToFile(file, "#gsRemoteServerPort=22");
 		FileIO.appendStringToFile(file, "AUTOMATION_SCM_REMOTE_SERVER_PORT=22");
 		FileIO.appendStringToFile(file, "");
+		FileIO.appendStringToFile(file, "#SSH Session Cache: channels per session, keep-alive and idle timeout (seconds), parallel servers");
+		FileIO.appendStringToFile(file, "AUTOMATION_SCM_SESSION_MAX_CHANNELS=8");
+		FileIO.appendStringToFile(file, "AUTOMATION_SCM_SESSION_KEEPALIVE=30");
+		FileIO.appendStringToFile(file, "AUTOMATION_SCM_SESSION_IDLE_TIMEOUT=300");
+		FileIO.appendStringToFile(file, "AUTOMATION_SCM_FANOUT_THREADS=8");
+		FileIO.appendStringToFile(file, "");
 		FileIO.appendStringToFile(file, "#****************************************************");
 		FileIO.appendStringToFile(file, "#FTP Remote Server Properties for FTPUtil class");
 		FileIO.appendStringToFile(file, "#****************************************************");
@@ -2485,11 +2874,19 @@ public class Log {
 		FileIO.appendStringToFile(file, "#gsFTPServerPort=21");
 		FileIO.appendStringToFile(file, "AUTOMATION_FTP_SERVER_PORTAL=21");
 		FileIO.appendStringToFile(file, "");
+		FileIO.appendStringToFile(file, "#FTP Session Pool: maximum sessions, keep-alive, idle and wait timeouts (seconds)");
+		FileIO.appendStringToFile(file, "AUTOMATION_FTP_POOL_MAX_SIZE=4");
+		FileIO.appendStringToFile(file, "AUTOMATION_FTP_POOL_KEEPALIVE=60");
+		FileIO.appendStringToFile(file, "AUTOMATION_FTP_POOL_IDLE_TIMEOUT=300");
+		FileIO.appendStringToFile(file, "AUTOMATION_FTP_POOL_CONNECTION_TIMEOUT=60");
+		FileIO.appendStringToFile(file, "#Buffer size in bytes for FTP file transfers");
+		FileIO.appendStringToFile(file, "AUTOMATION_FTP_BUFFER_SIZE=65536");
+		FileIO.appendStringToFile(file, "");
 		FileIO.appendStringToFile(file, "#****************************************************");
 		FileIO.appendStringToFile(file, "#Database Server Properties for Database class");
 		FileIO.appendStringToFile(file, "#****************************************************");
 		FileIO.appendStringToFile(file, "#Database System Name (SQLServer)");
-		FileIO.appendStringToFile(file, "# Valid options are : ORACLE or MYSQL or MSSQL or SQLSERVER or DB2 or SYBASE");
+		FileIO.appendStringToFile(file, "# Valid options are : ORACLE or MYSQL or MSSQL or SQLSERVER or DB2 or SYBASE or H2 or DERBY");
 		FileIO.appendStringToFile(file, "#gsDBServerSystem=SQLSERVER");
 		FileIO.appendStringToFile(file, "AUTOMATION_DATABASE_SERVER_SYSTEM=SQLSERVER");
 		FileIO.appendStringToFile(file, "");
@@ -2513,6 +2910,27 @@ public class Log {
 		FileIO.appendStringToFile(file, "#gsDBServerPort=1433");
 		FileIO.appendStringToFile(file, "AUTOMATION_DATABASE_SERVER_PORT=1433");
 		FileIO.appendStringToFile(file, "");
+		FileIO.appendStringToFile(file, "#Database Connection Pool (timeouts in seconds, leak detection 0 = off)");
+		FileIO.appendStringToFile(file, "AUTOMATION_DATABASE_POOL_MIN_SIZE=1");
+		FileIO.appendStringToFile(file, "AUTOMATION_DATABASE_POOL_MAX_SIZE=10");
+		FileIO.appendStringToFile(file, "AUTOMATION_DATABASE_POOL_VALIDATION_QUERY=");
+		FileIO.appendStringToFile(file, "AUTOMATION_DATABASE_POOL_IDLE_TIMEOUT=600");
+		FileIO.appendStringToFile(file, "AUTOMATION_DATABASE_POOL_LEAK_DETECTION_THRESHOLD=0");
+		FileIO.appendStringToFile(file, "AUTOMATION_DATABASE_POOL_CONNECTION_TIMEOUT=30");
+		FileIO.appendStringToFile(file, "");
+		FileIO.appendStringToFile(file, "#Prepared statements cached per database connection (0 = off)");
+		FileIO.appendStringToFile(file, "AUTOMATION_DATABASE_STATEMENT_CACHE_SIZE=50");
+		FileIO.appendStringToFile(file, "");
+		FileIO.appendStringToFile(file, "#Rows fetched at once from query results (0 = driver default)");
+		FileIO.appendStringToFile(file, "AUTOMATION_DATABASE_FETCH_SIZE=500");
+		FileIO.appendStringToFile(file, "#Rows of query results written to the log, the rest is summarized");
+		FileIO.appendStringToFile(file, "AUTOMATION_DATABASE_LOG_MAX_ROWS=10");
+		FileIO.appendStringToFile(file, "#SQL statements sent to the database in one batch");
+		FileIO.appendStringToFile(file, "AUTOMATION_DATABASE_BATCH_SIZE=1000");
+		FileIO.appendStringToFile(file, "#Threads and timeout (seconds) of asynchronous database verifications");
+		FileIO.appendStringToFile(file, "AUTOMATION_DATABASE_VERIFY_THREADS=4");
+		FileIO.appendStringToFile(file, "AUTOMATION_DATABASE_VERIFY_TIMEOUT=300");
+		FileIO.appendStringToFile(file, "");
 		FileIO.appendStringToFile(file, "#****************************************************");
 		FileIO.appendStringToFile(file, "#BrowserStack Properties");
 		FileIO.appendStringToFile(file, "#****************************************************");
@@ -2686,10 +3104,8 @@ public class Log {
 	 *         specified file
 	 */
 	public static Properties loadFromFile(final File file) {
-		final Properties p = new Properties();
-		try (FileInputStream fis = new FileInputStream(file)) {
-			p.load(fis);
-			return p;
+		try {
+			return FileIO.getPropertiesStore().load(file.toPath());
 		} catch (final Exception e) {
 			errorHandler("Error loading properties from file: " + String.valueOf(file), e);
 			return null;
@@ -2810,9 +3226,10 @@ public class Log {
 			// Append the path to the file name
 			final String propFile = getPropertiesDir(propFileName) + FileIO.stripPath(propFileName);
 
-			// Write new property in specified file
+			// Write new property in specified file, the updated file is not
+			// parsed again
 			FileIO.updatePropertyFile(propFile, key, value);
-			return getPropertyFromFile(key, propFile);
+			return FileIO.getPropertiesStore().get(Paths.get(propFile), key);
 		} catch (final Exception e) {
 			errorHandler(String.format("Error setting \"%s\" property in %s property file", key, propFileName), e);
 		}
@@ -2937,6 +3354,8 @@ public class Log {
 
 		AUTOMATION_BROWSER_PROFILE = null;
 		p.setProperty("AUTOMATION_BROWSER_PROFILE", "");
+		AUTOMATION_DOWNLOAD_PATH = null;
+		p.setProperty("AUTOMATION_DOWNLOAD_PATH", "");
 
 		AUTOMATION_BROWSER_PATH = null;
 		p.setProperty("AUTOMATION_BROWSER_PATH", "");
@@ -2973,6 +3392,12 @@ public class Log {
 
 		AUTOMATION_CLEAR_RESULTS = false;
 		p.setProperty("AUTOMATION_CLEAR_RESULTS", "false");
+		AUTOMATION_CLEAR_RESULTS_KEEP_RUNS = 0;
+		p.setProperty("AUTOMATION_CLEAR_RESULTS_KEEP_RUNS", "0");
+		AUTOMATION_CLEAR_RESULTS_KEEP_GB = 0;
+		p.setProperty("AUTOMATION_CLEAR_RESULTS_KEEP_GB", "0");
+		AUTOMATION_CLEANUP_THREADS = 4;
+		p.setProperty("AUTOMATION_CLEANUP_THREADS", "4");
 
 		AUTOMATION_LOCATOR_PRINT = false;
 		p.setProperty("AUTOMATION_LOCATOR_PRINT", "false");
@@ -3000,6 +3425,12 @@ public class Log {
 		
 		AUTOMATION_COPY_RESULTS_TO = null;
 		p.setProperty("AUTOMATION_COPY_RESULTS_TO", "");
+		AUTOMATION_COPY_THREADS = 4;
+		p.setProperty("AUTOMATION_COPY_THREADS", "4");
+		AUTOMATION_COPY_RESULTS_HARD_LINK = false;
+		p.setProperty("AUTOMATION_COPY_RESULTS_HARD_LINK", "false");
+		AUTOMATION_PACKAGE_RESULTS_TO = null;
+		p.setProperty("AUTOMATION_PACKAGE_RESULTS_TO", "");
 
 		AUTOMATION_TEST_LEVEL = 2;
 		p.setProperty("AUTOMATION_TEST_LEVEL", "2");
@@ -3036,6 +3467,50 @@ public class Log {
 		p.setProperty("AUTOMATION_BANDWIDTH_LIMIT_READ", "10000");
 		AUTOMATION_BANDWIDTH_LIMIT_WRITE = 10000;
 		p.setProperty("AUTOMATION_BANDWIDTH_LIMIT_WRITE", "10000");
+
+		// Database connection pool settings
+		AUTOMATION_FTP_POOL_MAX_SIZE = 4;
+		p.setProperty("AUTOMATION_FTP_POOL_MAX_SIZE", "4");
+		AUTOMATION_FTP_POOL_KEEPALIVE = 60;
+		p.setProperty("AUTOMATION_FTP_POOL_KEEPALIVE", "60");
+		AUTOMATION_FTP_POOL_IDLE_TIMEOUT = 300;
+		p.setProperty("AUTOMATION_FTP_POOL_IDLE_TIMEOUT", "300");
+		AUTOMATION_FTP_POOL_CONNECTION_TIMEOUT = 60;
+		p.setProperty("AUTOMATION_FTP_POOL_CONNECTION_TIMEOUT", "60");
+		AUTOMATION_FTP_BUFFER_SIZE = 65536;
+		p.setProperty("AUTOMATION_FTP_BUFFER_SIZE", "65536");
+		AUTOMATION_SCM_SESSION_MAX_CHANNELS = 8;
+		p.setProperty("AUTOMATION_SCM_SESSION_MAX_CHANNELS", "8");
+		AUTOMATION_SCM_SESSION_KEEPALIVE = 30;
+		p.setProperty("AUTOMATION_SCM_SESSION_KEEPALIVE", "30");
+		AUTOMATION_SCM_SESSION_IDLE_TIMEOUT = 300;
+		p.setProperty("AUTOMATION_SCM_SESSION_IDLE_TIMEOUT", "300");
+		AUTOMATION_SCM_FANOUT_THREADS = 8;
+		p.setProperty("AUTOMATION_SCM_FANOUT_THREADS", "8");
+		AUTOMATION_DATABASE_POOL_MIN_SIZE = 1;
+		p.setProperty("AUTOMATION_DATABASE_POOL_MIN_SIZE", "1");
+		AUTOMATION_DATABASE_POOL_MAX_SIZE = 10;
+		p.setProperty("AUTOMATION_DATABASE_POOL_MAX_SIZE", "10");
+		AUTOMATION_DATABASE_POOL_VALIDATION_QUERY = "";
+		p.setProperty("AUTOMATION_DATABASE_POOL_VALIDATION_QUERY", "");
+		AUTOMATION_DATABASE_POOL_IDLE_TIMEOUT = 600;
+		p.setProperty("AUTOMATION_DATABASE_POOL_IDLE_TIMEOUT", "600");
+		AUTOMATION_DATABASE_POOL_LEAK_DETECTION_THRESHOLD = 0;
+		p.setProperty("AUTOMATION_DATABASE_POOL_LEAK_DETECTION_THRESHOLD", "0");
+		AUTOMATION_DATABASE_POOL_CONNECTION_TIMEOUT = 30;
+		p.setProperty("AUTOMATION_DATABASE_POOL_CONNECTION_TIMEOUT", "30");
+		AUTOMATION_DATABASE_STATEMENT_CACHE_SIZE = 50;
+		p.setProperty("AUTOMATION_DATABASE_STATEMENT_CACHE_SIZE", "50");
+		AUTOMATION_DATABASE_FETCH_SIZE = 500;
+		p.setProperty("AUTOMATION_DATABASE_FETCH_SIZE", "500");
+		AUTOMATION_DATABASE_LOG_MAX_ROWS = 10;
+		p.setProperty("AUTOMATION_DATABASE_LOG_MAX_ROWS", "10");
+		AUTOMATION_DATABASE_BATCH_SIZE = 1000;
+		p.setProperty("AUTOMATION_DATABASE_BATCH_SIZE", "1000");
+		AUTOMATION_DATABASE_VERIFY_THREADS = 4;
+		p.setProperty("AUTOMATION_DATABASE_VERIFY_THREADS", "4");
+		AUTOMATION_DATABASE_VERIFY_TIMEOUT = 300;
+		p.setProperty("AUTOMATION_DATABASE_VERIFY_TIMEOUT", "300");
 		return p;
 	}
 
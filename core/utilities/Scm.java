@@ -1,23 +1,25 @@
 package core.utilities;
 
 import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
 import java.util.Vector;
 
 import com.jcraft.jsch.Channel;
 import com.jcraft.jsch.ChannelSftp;
-import com.jcraft.jsch.JSch;
 import com.jcraft.jsch.JSchException;
-import com.jcraft.jsch.Session;
 import com.jcraft.jsch.SftpException;
 
+import core.utilities.ssh.SftpCallback;
+import core.utilities.ssh.SshCommandResult;
+import core.utilities.ssh.SshLease;
+import core.utilities.ssh.SshSessionCache;
 import net.neoremind.sshxcute.core.ConnBean;
 import net.neoremind.sshxcute.core.IOptionName;
-import net.neoremind.sshxcute.core.Result;
 import net.neoremind.sshxcute.core.SSHExec;
-import net.neoremind.sshxcute.exception.TaskExecFailException;
-import net.neoremind.sshxcute.task.CustomTask;
-import net.neoremind.sshxcute.task.impl.ExecCommand;
-import net.neoremind.sshxcute.task.impl.ExecShellScript;
 
 /**
  * The Scm class or Software Configuration Management class contains a library
@@ -25,13 +27,16 @@ import net.neoremind.sshxcute.task.impl.ExecShellScript;
  * The global parameters (gsServerName, gsServerUserName, gsServerPassword,
  * gsServerPort) need to be defined under Remote Server Properties section in
  * automation.properties file as a pre-requisite.
+ * <p>
+ * Commands and file transfers run on channels of one cached SSH session per
+ * server, so consecutive calls don't pay for a new handshake and parallel
+ * tests can share the session, see {@link SshSessionCache}.
  */
 public class Scm {
 	static ConnBean cb = null;
-	static JSch jsch;
-	static Session session = null;
+	static SshLease session = null;
 	static Channel channel = null;
-	static ChannelSftp sftpChannel = null;
+	private static SshSessionCache sessionCache = null;
 
 	/**
 	 * Method to connect remote server via ssh.
@@ -68,49 +73,88 @@ public class Scm {
 		return ssh;
 	}
 
+	/**
+	 * Gets the cache of SSH sessions used by the Scm methods. The cache is
+	 * created on first use.
+	 *
+	 * @return session cache
+	 */
+	public static synchronized SshSessionCache getSessionCache() {
+		if (sessionCache == null) {
+			sessionCache = new SshSessionCache();
+		}
+		return sessionCache;
+	}
+
+	/**
+	 * Disconnects all cached SSH sessions, call when the test run is done.
+	 * The next Scm method connects again.
+	 */
+	public static synchronized void closeAllSessions() {
+		if (sessionCache != null) {
+			sessionCache.close();
+			Log.logScriptInfo("Disconnected from Server : " + Log.AUTOMATION_SCM_REMOTE_SERVER_NAME + " Successfully");
+		}
+	}
+
 	/**
 	 * Method to execute command(s) on remote unix/linux server via ssh. The
 	 * global parameters (gsServerName, gsServerUserName, gsServerPassword,
 	 * gsServerPort) need to be defined under Remote Server Properties section
-	 * in automation.properties file as a pre-requisite.
+	 * in automation.properties file as a pre-requisite. The commands run on
+	 * the cached session to the server, see {@link #getSessionCache()}.
 	 *
 	 * @param sCmd
 	 *            - command to execute on remote server. For multiple commands,
 	 *            use comma as a delimeter.
 	 */
 	public static void execCmd(String sCmd) {
-		SSHExec ssh = null;
-		int s;
 		try {
 			// Convert String sCmd to array for multiple execution of commands.
 			String[] sCmdArray = Strings.split(sCmd, ",");
 
-			ssh = connectServer();
 			// Loop to execute single or multiple commands
-			for (s = 0; s < sCmdArray.length; s++) {
-				CustomTask echo = new ExecCommand(sCmdArray[s]);
-
-				Log.logScriptInfo(echo.getInfo());
-
-				Result res = ssh.exec(echo);
-				if (res.isSuccess) {
-					Log.logScriptInfo("Return code: " + res.rc);
-					// Log.logScriptInfo("sysout: " + res.sysout);
-				} else {
-					Log.logScriptInfo("Return code: " + res.rc);
-					Log.errorHandler("Error message: " + res.error_msg);
-				}
+			for (String sCommand : sCmdArray) {
+				Log.logScriptInfo("Executing command : " + sCommand);
+				logResult(exec(sCommand));
 			}
-		} catch (TaskExecFailException e) {
-			Log.errorHandler("Error executing task in execCmd()", e);
 		} catch (Exception e) {
 			Log.errorHandler("Exception occured in execCmd()", e);
-		} finally {
-			ssh.disconnect();
-			Log.logScriptInfo("Disconnected from Server : " + Log.AUTOMATION_SCM_REMOTE_SERVER_NAME + " Successfully");
 		}
 	}
 
+	/**
+	 * Method to execute a command on several remote unix/linux servers at the
+	 * same time via ssh, with the user name, password and port of the Remote
+	 * Server Properties section in automation.properties file. At most
+	 * AUTOMATION_SCM_FANOUT_THREADS servers are accessed at the same time.
+	 *
+	 * @param sServers
+	 *            - names or IP addresses of the servers, use comma as a
+	 *            delimeter.
+	 * @param sCmd
+	 *            - command to execute on every server
+	 * @return results of the command by server name
+	 */
+	public static Map<String, SshCommandResult> execCmdOnServers(String sServers, String sCmd) {
+		Map<String, SshCommandResult> results = getSessionCache().execOnHosts(
+				Arrays.asList(Strings.split(sServers, ",")), getPort(), Log.AUTOMATION_SCM_REMOTE_SERVER_USERNAME,
+				Log.AUTOMATION_SCM_REMOTE_SERVER_PASSWORD, sCmd, Log.AUTOMATION_SCM_FANOUT_THREADS);
+
+		List<String> failures = new ArrayList<>();
+		for (SshCommandResult result : results.values()) {
+			Log.logScriptInfo(result.toString());
+			if (!result.isSuccess()) {
+				failures.add(result.getHost() + ": " + result.getError().trim());
+			}
+		}
+		if (!failures.isEmpty()) {
+			Log.errorHandler(failures.size() + " of " + results.size() + " server(s) failed to execute " + sCmd
+					+ System.lineSeparator() + String.join(System.lineSeparator(), failures));
+		}
+		return results;
+	}
+
 	/**
 	 * Method to execute shell script on remote server via ssh. The global
 	 * parameters (gsServerName, gsServerUserName, gsServerPassword,
@@ -130,26 +174,15 @@ public class Scm {
 	 */
 
 	public static String execShellScript(String sWorkingDir, String sShellPath, String sArgs) {
-		SSHExec ssh = null;
 		try {
-			CustomTask echo = new ExecShellScript(sWorkingDir, sShellPath, sArgs);
-			ssh = connectServer();
-			Log.logScriptInfo(echo.getInfo());
-
-			Result res = ssh.exec(echo);
-			if (res.isSuccess) {
-				Log.logScriptInfo("Return code: " + res.rc);
-			} else {
-				Log.logScriptInfo("Return code: " + res.rc);
-				Log.errorHandler("error message: " + res.error_msg);
+			String sCommand = "cd " + sWorkingDir + ";" + sShellPath;
+			if (sArgs != null && !sArgs.isEmpty()) {
+				sCommand += " " + sArgs;
 			}
-		} catch (TaskExecFailException e) {
-			Log.errorHandler("Error executing task in execShellScript()", e);
+			Log.logScriptInfo("Executing shell script : " + sCommand);
+			logResult(exec(sCommand));
 		} catch (Exception e) {
 			Log.errorHandler("Exception occured in execShellScript()", e);
-		} finally {
-			ssh.disconnect();
-			Log.logScriptInfo("Disconnected from Server : " + Log.AUTOMATION_SCM_REMOTE_SERVER_NAME + " Successfully");
 		}
 		return sArgs;
 	}
@@ -169,17 +202,18 @@ public class Scm {
 	 *            in server eg: /home/pmtplus
 	 */
 
-	public static void uploadDirToServer(String sSourceDir, String sTargetDir) {
-		SSHExec ssh = null;
+	public static void uploadDirToServer(final String sSourceDir, final String sTargetDir) {
 		try {
-			ssh = connectServer();
-			ssh.uploadAllDataToServer(sSourceDir, sTargetDir);
+			sftp(new SftpCallback<Void>() {
+				@Override
+				public Void doInChannel(ChannelSftp sftp) throws SftpException, IOException {
+					uploadDir(sftp, new File(sSourceDir), sTargetDir);
+					return null;
+				}
+			});
 			Log.logScriptInfo("Uploaded " + sSourceDir + " to " + sTargetDir);
 		} catch (Exception e) {
 			Log.errorHandler("Exception occured in uploadDirToServer()", e);
-		} finally {
-			ssh.disconnect();
-			Log.logScriptInfo("Disconnected from Server : " + Log.AUTOMATION_SCM_REMOTE_SERVER_NAME + " Successfully");
 		}
 	}
 
@@ -197,35 +231,34 @@ public class Scm {
 	 *            server eg: /home/pmtplus
 	 */
 
-	public static void uploadFileToServer(String sSourceFile, String sTargetDir) {
-		SSHExec ssh = null;
+	public static void uploadFileToServer(final String sSourceFile, final String sTargetDir) {
 		try {
-			ssh = connectServer();
-			ssh.uploadSingleDataToServer(sSourceFile, sTargetDir);
+			sftp(new SftpCallback<Void>() {
+				@Override
+				public Void doInChannel(ChannelSftp sftp) throws SftpException {
+					sftp.put(sSourceFile, sTargetDir);
+					return null;
+				}
+			});
 			Log.logScriptInfo("Uploaded " + sSourceFile + " to " + sTargetDir);
 		} catch (Exception e) {
 			Log.errorHandler("Exception occured in uploadFileToServer()", e);
-		} finally {
-			ssh.disconnect();
-			Log.logScriptInfo("Disconnected from Server : " + Log.AUTOMATION_SCM_REMOTE_SERVER_NAME + " Successfully");
 		}
 	}
 
 	/**
 	 * Method to connect remote server via sftp. Note: Connection credentials
-	 * will be pulled from automation.properties file
+	 * will be pulled from automation.properties file. The sftp channel is
+	 * opened through a lease on the cached session to the server; disconnecting
+	 * the lease only closes its channel, the session shared with other tests
+	 * stays connected.
 	 *
 	 * @throws JSchException
 	 *             error
 	 */
 	public static void connectSftp() throws JSchException {
-		jsch = new JSch();
-		session = jsch.getSession(Log.AUTOMATION_SCM_REMOTE_SERVER_USERNAME, Log.AUTOMATION_SCM_REMOTE_SERVER_NAME,
-				Integer.valueOf(Log.AUTOMATION_SCM_REMOTE_SERVER_PORT));
-		session.setPassword(Encrypt.decryptPassword(Log.AUTOMATION_SCM_REMOTE_SERVER_PASSWORD));
-		session.setConfig("StrictHostKeyChecking", "no");
-		session.setConfig("PreferredAuthentications", "publickey,keyboard-interactive,password");
-		session.connect();
+		session = getSessionCache().lease(Log.AUTOMATION_SCM_REMOTE_SERVER_NAME, getPort(),
+				Log.AUTOMATION_SCM_REMOTE_SERVER_USERNAME, Log.AUTOMATION_SCM_REMOTE_SERVER_PASSWORD);
 
 		channel = session.openChannel("sftp");
 		channel.connect();
@@ -254,31 +287,25 @@ public class Scm {
 	 * @throws SftpException
 	 *             error
 	 */
-	public static void downloadDataFromServer(String sSourceData, String sTargetDir, Boolean bIsFolder)
-			throws SftpException {
+	public static void downloadDataFromServer(final String sSourceData, final String sTargetDir,
+			final Boolean bIsFolder) throws SftpException {
 		// Create local folders if absent.
 		try {
-			connectSftp();
-			sftpChannel = (ChannelSftp) channel;
-			if (bIsFolder) {
-				new File(sTargetDir).mkdirs();
-				Log.logScriptInfo("Created folder : " + sTargetDir);
-				sftpChannel.lcd(sTargetDir);
-			}
-			// Copy remote folders one by one.
-			lsFile_FolderCopy(sSourceData, sTargetDir, bIsFolder); // Separated
-																	// because
-																	// loops
-																	// itself
-																	// inside
-																	// for
-																	// subfolders.
+			sftp(new SftpCallback<Void>() {
+				@Override
+				public Void doInChannel(ChannelSftp sftp) throws SftpException {
+					if (bIsFolder) {
+						new File(sTargetDir).mkdirs();
+						Log.logScriptInfo("Created folder : " + sTargetDir);
+						sftp.lcd(sTargetDir);
+					}
+					// Copy remote folders one by one.
+					lsFile_FolderCopy(sftp, sSourceData, sTargetDir, bIsFolder);
+					return null;
+				}
+			});
 		} catch (Exception e) {
-			Log.errorHandler("Error at : " + sTargetDir);
-		} finally {
-			sftpChannel.exit();
-			session.disconnect();
-			Log.logScriptInfo("Disconnected from Server : " + Log.AUTOMATION_SCM_REMOTE_SERVER_NAME + " Successfully");
+			Log.errorHandler("Error at : " + sTargetDir, e);
 		}
 	}
 
@@ -289,6 +316,8 @@ public class Scm {
 	 * under Remote Server Properties section in automation.properties file as a
 	 * pre-requisite.
 	 *
+	 * @param sftp
+	 *            - connected sftp channel
 	 * @param sSourceData
 	 *            - Specify local source file or folder name to be downloaded
 	 *            from server with absolute source path in case locates on
@@ -303,37 +332,26 @@ public class Scm {
 	 * @throws SftpException
 	 */
 	@SuppressWarnings("unchecked")
-	private static void lsFile_FolderCopy(String sSourceData, String sTargetDir, Boolean bIsFolder)
+	private static void lsFile_FolderCopy(ChannelSftp sftp, String sSourceData, String sTargetDir, Boolean bIsFolder)
 			throws SftpException {
-		Vector<ChannelSftp.LsEntry> list = sftpChannel.ls(sSourceData); // List
-																		// source
-																		// directory
-																		// structure.
+		Vector<ChannelSftp.LsEntry> list = sftp.ls(sSourceData); // List source
+																	// directory
+																	// structure.
 		for (ChannelSftp.LsEntry oListItem : list) { // Iterate objects in the
 														// list to get
 														// file/folder names.
 			if (!oListItem.getAttrs().isDir()) { // If it is a file (not a
 													// directory).
-				////// if (!(new File(destPath + "/" +
-				////// oListItem.getFilename())).exists() ||
-				////// (oListItem.getAttrs().getMTime() >
-				////// Long.valueOf(new File(destPath + "/" +
-				////// oListItem.getFilename()).lastModified() / (long)
-				////// 1000).intValue())) { //
-				////// Download only if changed later.
 				if (bIsFolder) {
-					new File(sTargetDir + "/" + oListItem.getFilename());
 					// Grab file from source ([source filename], [destination
 					// filename]).
-					sftpChannel.get(sSourceData + "/" + oListItem.getFilename(),
-							sTargetDir + "/" + oListItem.getFilename());
+					sftp.get(sSourceData + "/" + oListItem.getFilename(), sTargetDir + "/" + oListItem.getFilename());
 					Log.logScriptInfo("Downloaded " + sSourceData + "/" + oListItem.getFilename() + " to " + sTargetDir
 							+ "/" + oListItem.getFilename());
 				} else {
-					sftpChannel.get(sSourceData, sTargetDir);
+					sftp.get(sSourceData, sTargetDir);
 					Log.logScriptInfo("Downloaded " + sSourceData + " to " + sTargetDir);
 				}
-				////// }
 			} else if (!(".".equals(oListItem.getFilename()) || "..".equals(oListItem.getFilename()))) {
 				new File(sTargetDir + "/" + oListItem.getFilename()).mkdirs(); // Empty
 																				// folder
@@ -341,9 +359,59 @@ public class Scm {
 				Log.logScriptInfo("Created folder : " + sTargetDir + "/" + oListItem.getFilename());
 				// Enter found folder on server to read its contents and create
 				// locally.
-				lsFile_FolderCopy(sSourceData + "/" + oListItem.getFilename(),
+				lsFile_FolderCopy(sftp, sSourceData + "/" + oListItem.getFilename(),
 						sTargetDir + "/" + oListItem.getFilename(), bIsFolder);
 			}
 		}
 	}
+
+	/**
+	 * Uploads the files and sub directories of a local directory, creating
+	 * the remote directories which don't exist
+	 */
+	private static void uploadDir(ChannelSftp sftp, File fSourceDir, String sTargetDir)
+			throws SftpException, IOException {
+		File[] faFiles = fSourceDir.listFiles();
+		if (faFiles == null) {
+			throw new IOException("Local Source Directory: " + fSourceDir + " does not exists to upload.");
+		}
+		try {
+			sftp.stat(sTargetDir);
+		} catch (SftpException e) {
+			if (e.id != ChannelSftp.SSH_FX_NO_SUCH_FILE) {
+				throw e;
+			}
+			sftp.mkdir(sTargetDir);
+		}
+		for (File item : faFiles) {
+			String sRemotePath = sTargetDir + "/" + item.getName();
+			if (item.isDirectory()) {
+				uploadDir(sftp, item, sRemotePath);
+			} else {
+				sftp.put(item.getAbsolutePath(), sRemotePath);
+			}
+		}
+	}
+
+	private static SshCommandResult exec(String sCommand) throws JSchException, IOException {
+		return getSessionCache().exec(Log.AUTOMATION_SCM_REMOTE_SERVER_NAME, getPort(),
+				Log.AUTOMATION_SCM_REMOTE_SERVER_USERNAME, Log.AUTOMATION_SCM_REMOTE_SERVER_PASSWORD, sCommand);
+	}
+
+	private static <T> T sftp(SftpCallback<T> callback) throws JSchException, SftpException, IOException {
+		return getSessionCache().sftp(Log.AUTOMATION_SCM_REMOTE_SERVER_NAME, getPort(),
+				Log.AUTOMATION_SCM_REMOTE_SERVER_USERNAME, Log.AUTOMATION_SCM_REMOTE_SERVER_PASSWORD, callback);
+	}
+
+	private static void logResult(SshCommandResult result) {
+		Log.logScriptInfo("Return code: " + result.getExitStatus());
+		if (!result.isSuccess()) {
+			Log.errorHandler("Error message: " + result.getError());
+		}
+	}
+
+	private static int getPort() {
+		String sPort = Log.AUTOMATION_SCM_REMOTE_SERVER_PORT;
+		return sPort == null || sPort.trim().isEmpty() ? 22 : Integer.valueOf(sPort.trim());
+	}
 }
@@ -2,8 +2,10 @@ package core.utilities;
 
 import java.awt.Robot;
 import java.io.File;
+import java.io.IOException;
 import java.net.URL;
 import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.HashMap;
@@ -39,6 +41,7 @@ import org.openqa.selenium.support.ui.WebDriverWait;
 
 import com.browserstack.local.Local;
 
+import core.utilities.io.DownloadWatcher;
 import core.webwidgets.WebWidget;
 import net.lightbody.bmp.BrowserMobProxy;
 import net.lightbody.bmp.BrowserMobProxyServer;
@@ -278,6 +281,9 @@ public class SeleniumCore {
 					}
 
 					profile.setPreference("browser.download.folderList", 2);
+					if (Log.AUTOMATION_DOWNLOAD_PATH != null) {
+						profile.setPreference("browser.download.dir", getDownloadPath().toString());
+					}
 					profile.setPreference("browser.download.manager.showWhenStarting", false);
 					profile.setPreference("browser.helperApps.neverAsk.saveToDisk",
 							"application/octet-stream,application/pdf,text/csv,application/csv,application/vnd.ms-excel,text/plain,application-download,application/x-pdf");
@@ -330,6 +336,56 @@ public class SeleniumCore {
 			start(defaultBrowser);
 		}
 
+		/**
+		 * returns the browser download folder: AUTOMATION_DOWNLOAD_PATH or the
+		 * Downloads folder in the user home
+		 *
+		 * @return download folder
+		 */
+		public static Path getDownloadPath() {
+			if (Log.AUTOMATION_DOWNLOAD_PATH != null) {
+				return Paths.get(Log.AUTOMATION_DOWNLOAD_PATH).toAbsolutePath();
+			}
+			return Paths.get(Platform.getUserHome(), "Downloads");
+		}
+
+		/**
+		 * Starts watching the browser download folder for new downloads. Call
+		 * before starting a download and close the watcher after waiting:
+		 *
+		 * <pre>
+		 * try (DownloadWatcher watcher = browser.watchDownloads()) {
+		 * 	browser.click(exportButton);
+		 * 	Path file = watcher.awaitNew(60000);
+		 * }
+		 * </pre>
+		 *
+		 * @return watcher of the download folder, null if it can't be watched
+		 */
+		public DownloadWatcher watchDownloads() {
+			try {
+				return new DownloadWatcher(getDownloadPath());
+			} catch (final IOException e) {
+				Log.errorHandler("Error watching download folder " + getDownloadPath(), e);
+				return null;
+			}
+		}
+
+		/**
+		 * waits for a file downloaded by the browser to complete, returns as
+		 * soon as the browser finished writing it
+		 *
+		 * @param fileName
+		 *            name of the file in the download folder
+		 * @param maxWait
+		 *            maximum time to wait in seconds
+		 * @return true if the download completed, false if it did not complete
+		 *         within the time
+		 */
+		public boolean waitForDownload(final String fileName, final int maxWait) {
+			return FileIO.waitForDownload(getDownloadPath().resolve(fileName).toString(), maxWait);
+		}
+
 		/**
 		 * launches specified page in browser and waits 60 seconds for page to
 		 * load
@@ -2124,6 +2180,13 @@ public class SeleniumCore {
 				options.addArguments(args);
 			}
 
+			if (Log.AUTOMATION_DOWNLOAD_PATH != null) {
+				final HashMap<String, Object> prefs = new HashMap<String, Object>();
+				prefs.put("download.default_directory", getDownloadPath().toString());
+				prefs.put("download.prompt_for_download", false);
+				options.setExperimentalOption("prefs", prefs);
+			}
+
 			capabilities.setCapability(ChromeOptions.CAPABILITY, options);
 			System.setProperty("webdriver.chrome.driver", Log.AUTOMATION_TEST_PROJECT_PATH + "chromedriver.exe");
 			driver = new ChromeDriver(capabilities);
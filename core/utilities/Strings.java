@@ -15,6 +15,10 @@ import java.util.StringTokenizer;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
+import core.utilities.text.MultiStringSearch;
+import core.utilities.text.PatternCache;
+import core.utilities.text.SearchResult;
+
 /**
  * Contains library of generic, useful string functions
  */
@@ -115,7 +119,7 @@ public class Strings {
 	 */
 
 	public static String[] stringToStringArray(final String s, final String delim) {
-		return s.split(delim);
+		return PatternCache.getShared().split(s, delim);
 	}
 
 	/**
@@ -1013,7 +1017,7 @@ public class Strings {
 	 * @return true if present, false if not
 	 */
 	public static boolean isSubstring(final String searchString, final String substring) {
-		return Pattern.compile(substring).matcher(searchString).matches();
+		return PatternCache.getShared().compile(substring).matcher(searchString).matches();
 	}
 
 	/**
@@ -1082,7 +1086,7 @@ public class Strings {
 		final boolean found = false;
 		// Regex re = new Regex(pattern);
 
-		final Pattern p = Pattern.compile(pattern);
+		final Pattern p = PatternCache.getShared().compile(pattern);
 
 		// search for a pattern in the screen contents
 		for (final String screenContent : screenContents) {
@@ -1110,7 +1114,7 @@ public class Strings {
 			return false;
 		}
 
-		return Pattern.compile(pattern).matcher(screenContents).matches();
+		return PatternCache.getShared().compile(pattern).matcher(screenContents).matches();
 
 		// return new Regex(pattern).matches(screenContents);
 	}
@@ -1126,7 +1130,7 @@ public class Strings {
 	 */
 	public static int findPatternRow(final String pattern, final String[] screenContents) {
 		final int row = -1;
-		final Pattern p = Pattern.compile(pattern);
+		final Pattern p = PatternCache.getShared().compile(pattern);
 		// return p.matcher(screenContents[i]).matches();
 
 		// Regex re = new Regex(pattern);
@@ -1157,7 +1161,7 @@ public class Strings {
 	public static int findPatternRow(final String pattern, final int fromIndex, final String[] screenContents) {
 		final int row = -1;
 		// Regex re = new Regex(pattern);
-		final Pattern p = Pattern.compile(pattern);
+		final Pattern p = PatternCache.getShared().compile(pattern);
 
 		// search for a pattern in the screen contents
 		for (int i = fromIndex; i < screenContents.length; ++i) {
@@ -1207,6 +1211,51 @@ public class Strings {
 		return (s == null || screenContents == null) ? false : screenContents.indexOf(s) != -1;
 	}
 
+	/**
+	 * Searches the input array for all search strings in one pass, instead of
+	 * calling findStringRow() for each string. See {@link MultiStringSearch}.
+	 * <p>
+	 * i.e. Strings.findStrings(Arrays.asList("Name", "Status"),
+	 * screenContents).getMissing() returns the strings not on the screen
+	 *
+	 * @param searchStrings
+	 *            the substrings to search for
+	 * @param screenContents
+	 *            the String array to search in
+	 * @return first row and column of each search string
+	 */
+	public static SearchResult findStrings(final List<String> searchStrings, final String[] screenContents) {
+		return new MultiStringSearch(searchStrings, false).search(screenContents);
+	}
+
+	/**
+	 * Searches the input string for all search strings in one pass, f.ex. the
+	 * expected labels in the page text. See {@link MultiStringSearch}.
+	 *
+	 * @param searchStrings
+	 *            the substrings to search for
+	 * @param screenContents
+	 *            the String to search in
+	 * @return first line, column and offset of each search string
+	 */
+	public static SearchResult findStrings(final List<String> searchStrings, final String screenContents) {
+		return new MultiStringSearch(searchStrings, false).search(screenContents);
+	}
+
+	/**
+	 * Searches the input string for all search strings in one pass ignoring
+	 * case. See {@link MultiStringSearch}.
+	 *
+	 * @param searchStrings
+	 *            the substrings to search for
+	 * @param screenContents
+	 *            the String to search in
+	 * @return first line, column and offset of each search string
+	 */
+	public static SearchResult findStringsIgnoreCase(final List<String> searchStrings, final String screenContents) {
+		return new MultiStringSearch(searchStrings, true).search(screenContents);
+	}
+
 	/**
 	 * Searches the input array for an occurrence of the search string
 	 *
@@ -1650,7 +1699,7 @@ public class Strings {
 	 * @return string list
 	 */
 	public static List<String> stringToList(final String inputString, final String delimiter) {
-		return Arrays.asList(inputString.split(delimiter));
+		return Arrays.asList(PatternCache.getShared().split(inputString, delimiter));
 	}
 
 	/**
@@ -1662,7 +1711,7 @@ public class Strings {
 	 * @return string list
 	 */
 	public static List<String> stringToList(final String inputString) {
-		return Arrays.asList(inputString.split(LINE_SEPARATOR));
+		return Arrays.asList(PatternCache.getShared().split(inputString, LINE_SEPARATOR));
 	}
 
 	/**
@@ -1694,7 +1743,7 @@ public class Strings {
 	 */
 	public static Entry<String, String> stringToMapEntry(final String inputString) {
 		final String KEY_VALUE_DELIMITER = "=";
-		final Pattern pattern = Pattern.compile("(.+?)" + KEY_VALUE_DELIMITER + "(.*)");
+		final Pattern pattern = PatternCache.getShared().compile("(.+?)" + KEY_VALUE_DELIMITER + "(.*)");
 		final Matcher matcher = pattern.matcher(inputString);
 
 		if (!matcher.find()) {
@@ -6,6 +6,8 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.StringReader;
 import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 import java.util.UUID;
 import java.util.concurrent.Callable;
@@ -385,6 +387,50 @@ public class XML {
 		}, String.format("Failed to get child nodes by XPath: %s", xpath));
 	}
 
+	/**
+	 * Gets child elements of the node in document order. Unlike
+	 * {@link #getChildNodesByXPath(Node, String)} it walks the child nodes
+	 * directly, so it is cheap enough to be called for every row of a big
+	 * document.
+	 *
+	 * @param node
+	 *            parent node
+	 * @param localName
+	 *            local name of the child elements to get or null to get all
+	 *            child elements
+	 * @return {@link List} of child {@link Element} objects
+	 */
+	public static List<Element> getChildElements(Node node, String localName) {
+		List<Element> elements = new ArrayList<>();
+
+		for (Node child = node.getFirstChild(); child != null; child = child.getNextSibling()) {
+			if (child.getNodeType() == Node.ELEMENT_NODE
+					&& (localName == null || localName.equals(getLocalName(child)))) {
+				elements.add((Element) child);
+			}
+		}
+
+		return elements;
+	}
+
+	/**
+	 * Gets local name of the node. For nodes created without namespace
+	 * returns the node name without prefix.
+	 *
+	 * @param node
+	 *            {@link Node} object
+	 * @return local name of the node
+	 */
+	public static String getLocalName(Node node) {
+		if (node.getLocalName() != null) {
+			return node.getLocalName();
+		}
+
+		String nodeName = node.getNodeName();
+
+		return nodeName.substring(nodeName.indexOf(':') + 1);
+	}
+
 	/**
 	 * Checks if tag exists in {@link Document}.
 	 *
@@ -3,6 +3,7 @@ package core.utilities.data;
 import java.io.File;
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.HashMap;
@@ -18,15 +19,68 @@ import core.utilities.Log;
 import core.utilities.Strings;
 import core.utilities.exceptions.AutomationException;
 
-public class CSV {
+public class CSV implements WritableSheet {
 	private final String fileName;
 	private final List<CSVRecord> data;
+	private String[][] table;
+	private boolean autoSave = true;
+	private int keyColumn = 0;
+	private RowKeyIndex rowKeyIndex;
 
 	public CSV(String fileName) throws IOException {
 		this.fileName = fileName;
 		this.data = CSVParser.parse(new File(fileName), StandardCharsets.UTF_8, CSVFormat.RFC4180).getRecords();
 	}
 
+	/**
+	 * Sets the column which holds the row header names. Row lookups by name
+	 * use an index of this column built on first use and fall back to a scan
+	 * of all cells for values that are not in the index.
+	 *
+	 * @param columnIndex
+	 *            the index or number of the key column (i.e. 0 = the first
+	 *            column, 1= the second column, 2= 3rd column)
+	 */
+	public void setKeyColumn(int columnIndex) {
+		this.keyColumn = columnIndex;
+		this.rowKeyIndex = null;
+	}
+
+	/**
+	 * Finds the row number by the row header name. Uses the key column index
+	 * and falls back to a scan of all cells.
+	 *
+	 * @param rowValue
+	 *            the row header name
+	 * @return the row number or -1 if the row is not found
+	 */
+	private int findRowIndex(String rowValue) {
+		if (rowKeyIndex == null || rowKeyIndex.getKeyColumn() != keyColumn) {
+			rowKeyIndex = new RowKeyIndex(keyColumn);
+
+			for (int row = 0; row < data.size(); row++) {
+				if (keyColumn < data.get(row).size()) {
+					rowKeyIndex.put(data.get(row).get(keyColumn), row);
+				}
+			}
+		}
+
+		int rowIndex = rowKeyIndex.find(rowValue);
+
+		if (rowIndex == -1) {
+			for (int row = 0; row < data.size() && rowIndex == -1; row++) {
+				for (int col = 0; col < data.get(row).size(); col++) {
+					if (data.get(row).get(col).equals(rowValue)) {
+						rowIndex = row;
+						break;
+					}
+				}
+			}
+		}
+
+		return rowIndex;
+	}
+
 	/**
 	 * Gets the row count of the specified .csv spreadsheet. This is a private
 	 * method called and used by the main "get" methods to support files of the
@@ -96,22 +150,9 @@ public class CSV {
 				rowIndex = Integer.parseInt(rowValue);
 			} else {
 				// find row to get data from
-				boolean flag = false;
-				for (int row = 0; row < data.size(); row++) {
-					for (int col = 0; col < data.get(0).size(); col++) {
-						if (data.get(row).get(col).equals(rowValue)) {
-							rowIndex = row;
-							flag = true;
-							break;
-						}
-					}
-
-					if (flag) {
-						break;
-					}
-				}
+				rowIndex = findRowIndex(rowValue);
 
-				if (rowIndex == 0) {
+				if (rowIndex == -1) {
 					throw new AutomationException(
 							String.format("Row '%s' not found in CSV file: %s", rowValue, fileName));
 				}
@@ -204,20 +245,7 @@ public class CSV {
 				rowIndex = Integer.parseInt(rowValue);
 			} else {
 				// find row to get data from
-				boolean flag = false;
-				for (int row = 0; row < data.size(); row++) {
-					for (int col = 0; col < data.get(0).size(); col++) {
-						if (data.get(row).get(col).equals(rowValue)) {
-							rowIndex = row;
-							flag = true;
-							break;
-						}
-					}
-
-					if (flag) {
-						break;
-					}
-				}
+				rowIndex = findRowIndex(rowValue);
 
 				if (rowIndex == -1) {
 					throw new AutomationException(
@@ -372,25 +400,13 @@ public class CSV {
 	 * @param value
 	 *            to set
 	 */
+	@Override
 	public void setCellValue(int rowIndex, int columnIndex, String value) {
-		String[][] data = null;
-
-		data = getTableData(true);
-
-		data[rowIndex][columnIndex] = value;
-		List<StringBuilder> lines = new ArrayList<>();
+		getTableForWrite()[rowIndex][columnIndex] = value;
 
-		for (String[] row : data) {
-			StringBuilder line = new StringBuilder();
-			for (int i = 0; i < row.length; i++) {
-				line.append(row[i]);
-				if (i < row.length - 1) {
-					line.append(",");
-				}
-			}
-			lines.add(line);
+		if (autoSave) {
+			save();
 		}
-		FileIO.writeFileContent(Paths.get(fileName), lines);
 	}
 
 	/**
@@ -401,29 +417,18 @@ public class CSV {
 	 *            first row, 1= the second row, 2= 3rd column)
 	 * @param cells
 	 *            the {@link List} of cells values
-	 * @throws IOException
-	 *             error
 	 */
-	public void updateRowData(int rowIndex, List<String> cells) throws IOException {
-		String[][] data = getTableData(true);
+	@Override
+	public void updateRowData(int rowIndex, List<String> cells) {
+		String[][] data = getTableForWrite();
+
 		for (int cellIndex = 0; cellIndex < data[rowIndex].length; cellIndex++) {
 			data[rowIndex][cellIndex] = cells.get(cellIndex);
 		}
 
-		List<StringBuilder> lines = new ArrayList<>();
-
-		for (String[] row : data) {
-			StringBuilder line = new StringBuilder();
-			for (int i = 0; i < row.length; i++) {
-				line.append(row[i]);
-				if (i < row.length - 1) {
-					line.append(",");
-				}
-			}
-			lines.add(line);
+		if (autoSave) {
+			save();
 		}
-
-		FileIO.writeFileContent(Paths.get(fileName), lines);
 	}
 
 	/**
@@ -435,25 +440,40 @@ public class CSV {
 	 *            the first row, 1= the second row, 2= 3rd column)
 	 * @param cells
 	 *            the {@link List} of cells values
-	 * @throws IOException
-	 *             error
 	 */
-	public void insertRowDataAfter(int rowIndex, List<String> cells) throws IOException {
-		String[][] data = getTableData(true);
+	@Override
+	public void insertRowDataAfter(int rowIndex, List<String> cells) {
+		String[][] data = getTableForWrite();
 
-		String[][] temp = new String[data.length + 1][data[0].length];
+		String[][] temp = new String[data.length + 1][];
 
 		for (int index = 0; index < data.length; index++) {
 			temp[index + ((index < rowIndex) ? 0 : 1)] = data[index];
 		}
 
-		for (int cellIndex = 0; cellIndex < data[rowIndex].length; cellIndex++) {
+		temp[rowIndex] = new String[data[0].length];
+
+		for (int cellIndex = 0; cellIndex < temp[rowIndex].length; cellIndex++) {
 			temp[rowIndex][cellIndex] = cells.get(cellIndex);
 		}
 
+		table = temp;
+
+		if (autoSave) {
+			save();
+		}
+	}
+
+	@Override
+	public void setAutoSave(boolean autoSave) {
+		this.autoSave = autoSave;
+	}
+
+	@Override
+	public void save() {
 		List<StringBuilder> lines = new ArrayList<>();
 
-		for (String[] row : temp) {
+		for (String[] row : getTableForWrite()) {
 			StringBuilder line = new StringBuilder();
 			for (int i = 0; i < row.length; i++) {
 				line.append(row[i]);
@@ -464,6 +484,29 @@ public class CSV {
 			lines.add(line);
 		}
 
-		FileIO.writeFileContent(Paths.get(fileName), lines);
+		Path filePath = Paths.get(fileName);
+		Path tempFilePath = FileIO.createSiblingTempFile(filePath);
+
+		try {
+			FileIO.writeFileContent(tempFilePath, lines);
+			FileIO.move(tempFilePath, filePath);
+		} finally {
+			FileIO.deleteFile(tempFilePath.toString());
+		}
+	}
+
+	/**
+	 * Gets the copy of the table data which collects the changes until they
+	 * are saved to the file.
+	 *
+	 * @return String[][] Array containing all of the data including the
+	 *         changes which are not saved yet
+	 */
+	private String[][] getTableForWrite() {
+		if (table == null) {
+			table = getTableData(true);
+		}
+
+		return table;
 	}
 }
@@ -0,0 +1,53 @@
+package core.utilities.data;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+
+import org.apache.commons.csv.CSVFormat;
+import org.apache.commons.csv.CSVParser;
+import org.apache.commons.csv.CSVRecord;
+
+/**
+ * Reads the rows of the .csv file one at a time.
+ */
+public class CSVRowIterator extends RowIterator {
+
+	private final CSVParser parser;
+	private final Iterator<CSVRecord> records;
+
+	/**
+	 * Constructor for the CSVRowIterator class. Opens the file for reading.
+	 *
+	 * @param fileName
+	 *            the .csv file to read
+	 * @throws IOException
+	 *             error
+	 */
+	public CSVRowIterator(String fileName) throws IOException {
+		parser = CSVParser.parse(new File(fileName), StandardCharsets.UTF_8, CSVFormat.RFC4180);
+		records = parser.iterator();
+	}
+
+	@Override
+	protected String[] readRow() {
+		if (!records.hasNext()) {
+			return null;
+		}
+
+		CSVRecord record = records.next();
+		String[] row = new String[record.size()];
+
+		for (int index = 0; index < row.length; index++) {
+			row[index] = record.get(index);
+		}
+
+		return row;
+	}
+
+	@Override
+	protected void closeSource() throws IOException {
+		parser.close();
+	}
+}
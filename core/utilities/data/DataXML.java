@@ -1,5 +1,6 @@
 package core.utilities.data;
 
+import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.HashMap;
@@ -9,24 +10,41 @@ import java.util.Map;
 import org.w3c.dom.Document;
 import org.w3c.dom.Element;
 import org.w3c.dom.Node;
-import org.w3c.dom.NodeList;
 
+import core.utilities.FileIO;
 import core.utilities.Log;
 import core.utilities.Strings;
 import core.utilities.XML;
 import core.utilities.exceptions.AutomationException;
 
-public class DataXML {
+public class DataXML implements WritableSheet {
 
 	private final Node sheet;
 	private final String fileName;
 	private final Document workbook;
+	private List<Record> records;
+	private int keyColumn = 0;
+	private RowKeyIndex rowKeyIndex;
+	private boolean autoSave = true;
 
 	private static class Tags {
 		static final String DATA_SET = "data-set";
 		static final String RECORD = "record";
 	}
 
+	/**
+	 * Record element of the data set with its cell elements in document order.
+	 */
+	private static class Record {
+		private final Element node;
+		private final List<Element> cells;
+
+		Record(Element node) {
+			this.node = node;
+			this.cells = XML.getChildElements(node, null);
+		}
+	}
+
 	/**
 	 * Constructor for the DataXML class. Reads in XML file content
 	 *
@@ -39,6 +57,25 @@ public class DataXML {
 		sheet = XML.getNodesByXPath(workbook, Tags.DATA_SET).item(0);
 	}
 
+	/**
+	 * Gets the records of the data set. The records and their cells are
+	 * indexed in one pass over the document on first use, so the getters do
+	 * not evaluate XPath for every cell.
+	 *
+	 * @return {@link List} of records
+	 */
+	private List<Record> getRecords() {
+		if (records == null) {
+			records = new ArrayList<>();
+
+			for (Element record : XML.getChildElements(sheet, Tags.RECORD)) {
+				records.add(new Record(record));
+			}
+		}
+
+		return records;
+	}
+
 	/**
 	 * Gets the row count of the specified .xml spreadsheet This is a private
 	 * method called and used by the main "get" methods to support files of the
@@ -47,7 +84,7 @@ public class DataXML {
 	 * @return int the total number of rows of data in the given spreadsheet
 	 */
 	public int getRowCount() {
-		return Integer.valueOf(XML.getChildNodesByXPath(sheet, Tags.RECORD).getLength());
+		return getRecords().size();
 	}
 
 	/**
@@ -58,7 +95,15 @@ public class DataXML {
 	 * @return int the total number of rows of data in the given spreadsheet
 	 */
 	public int getRowCountExcludeEmptyRows() {
-		return Integer.valueOf(XML.getChildNodesByXPath(sheet, String.format("%s[*]", Tags.RECORD)).getLength());
+		int rowCount = 0;
+
+		for (Record record : getRecords()) {
+			if (!record.cells.isEmpty()) {
+				rowCount++;
+			}
+		}
+
+		return rowCount;
 	}
 
 	/**
@@ -69,7 +114,7 @@ public class DataXML {
 	 * @return int the total number of columns of data in the given spreadsheet
 	 */
 	public int getColumnCount() {
-		return Integer.valueOf(XML.getChildNodesByXPath(sheet, String.format("%s[1]/*", Tags.RECORD)).getLength());
+		return getRecords().isEmpty() ? 0 : getRecords().get(0).cells.size();
 	}
 
 	/**
@@ -83,11 +128,11 @@ public class DataXML {
 	 *         file including header rows and columns
 	 */
 	public String[][] getTableData(boolean returnHeader) {
-		NodeList rows = XML.getChildNodesByXPath(sheet, Tags.RECORD);
+		List<Record> rows = getRecords();
 
 		int cellsCount = getColumnCount();
 
-		String[][] tableArray = new String[getRowCount() + ((returnHeader) ? 1 : 0)][cellsCount];
+		String[][] tableArray = new String[rows.size() + ((returnHeader) ? 1 : 0)][cellsCount];
 
 		List<String> headers = getHeaders();
 
@@ -97,10 +142,10 @@ public class DataXML {
 			}
 		}
 
-		for (int rowIndex = 0; rowIndex < rows.getLength(); rowIndex++) {
+		for (int rowIndex = 0; rowIndex < rows.size(); rowIndex++) {
 			for (int cellIndex = 0; cellIndex < cellsCount; cellIndex++) {
-				tableArray[rowIndex + ((returnHeader) ? 1 : 0)][cellIndex] = getCellValue(rows.item(rowIndex),
-						cellIndex + 1);
+				tableArray[rowIndex + ((returnHeader) ? 1 : 0)][cellIndex] = getCellValue(rows.get(rowIndex),
+						cellIndex);
 			}
 		}
 
@@ -108,27 +153,77 @@ public class DataXML {
 	}
 
 	/**
-	 * Gets cell value from {@link Node} that contains cell elements.
+	 * Gets cell value from the record.
 	 *
 	 * @param row
-	 *            {@link Node} that contains cell elements.
+	 *            record that contains cell elements.
 	 * @param cellIndex
-	 * @return cell value
+	 *            the index of the cell (i.e. 0 = the first cell)
+	 * @return cell value or empty string if there is no such cell
 	 */
-	private String getCellValue(Node row, int cellIndex) {
-		try {
-			return XML.getChildNodesByXPath(row, String.format("*[%s]", cellIndex)).item(0).getTextContent();
-		} catch (Exception e) {
-			return "";
+	private String getCellValue(Record row, int cellIndex) {
+		return (cellIndex < row.cells.size()) ? row.cells.get(cellIndex).getTextContent() : "";
+	}
+
+	/**
+	 * Sets the column which holds the row header names. Row lookups by name
+	 * use an index of this column built on first use and fall back to a
+	 * search of all cells for values that are not in the index.
+	 *
+	 * @param columnIndex
+	 *            the index or number of the key column (i.e. 0 = the first
+	 *            column, 1= the second column, 2= 3rd column)
+	 */
+	public void setKeyColumn(int columnIndex) {
+		this.keyColumn = columnIndex;
+		this.rowKeyIndex = null;
+	}
+
+	/**
+	 * Finds record by the row header name. Uses the key column index and falls
+	 * back to the search of the first cell which contains the row header name.
+	 *
+	 * @param rowValue
+	 *            the row header name
+	 * @return record or null if the row is not found
+	 */
+	private Record findRow(String rowValue) {
+		List<Record> rows = getRecords();
+
+		if (rowKeyIndex == null || rowKeyIndex.getKeyColumn() != keyColumn) {
+			rowKeyIndex = new RowKeyIndex(keyColumn);
+
+			for (int rowIndex = 0; rowIndex < rows.size(); rowIndex++) {
+				rowKeyIndex.put(getCellValue(rows.get(rowIndex), keyColumn), rowIndex);
+			}
 		}
+
+		int rowIndex = rowKeyIndex.find(rowValue);
+
+		if (rowIndex != -1) {
+			return rows.get(rowIndex);
+		}
+
+		for (Record row : rows) {
+			for (Element cell : row.cells) {
+				if (cell.getTextContent().contains(rowValue)) {
+					return row;
+				}
+			}
+		}
+
+		return null;
 	}
 
 	public List<String> getHeaders() {
 		List<String> headers = new ArrayList<>();
-		NodeList headersList = XML.getChildNodesByXPath(sheet, String.format("%s[1]/*", Tags.RECORD));
-		for (int i = 0; i < headersList.getLength(); i++) {
-			headers.add(headersList.item(i).getLocalName());
+
+		if (!getRecords().isEmpty()) {
+			for (Element cell : getRecords().get(0).cells) {
+				headers.add(XML.getLocalName(cell));
+			}
 		}
+
 		return headers;
 	}
 
@@ -156,16 +251,18 @@ public class DataXML {
 
 		List<String> rowData = new ArrayList<>();
 
-		Node row = null;
+		Record row = null;
 		int rowIndex = -1;
 		int columnCount = getColumnCount();
 
 		if (Strings.isNumber(rowValue)) {
 			rowIndex = Integer.parseInt(rowValue);
-			row = XML.getChildNodesByXPath(sheet, Tags.RECORD).item(rowIndex - 1);
+
+			if (rowIndex > 0 && rowIndex <= getRecords().size()) {
+				row = getRecords().get(rowIndex - 1);
+			}
 		} else {
-			row = XML.getNodesByXPath(workbook, String.format("//*[text()[contains(.,'%s')]]", rowValue)).item(0)
-					.getParentNode();
+			row = findRow(rowValue);
 		}
 
 		if (row == null) {
@@ -173,7 +270,7 @@ public class DataXML {
 					String.format("Row '%s' not found in test data file: %s", rowValue, fileName));
 		}
 
-		for (int columnIndex = 1; columnIndex <= columnCount; columnIndex++) {
+		for (int columnIndex = 0; columnIndex < columnCount; columnIndex++) {
 			rowData.add(getCellValue(row, columnIndex));
 		}
 
@@ -255,21 +352,33 @@ public class DataXML {
 	 *         a List of String
 	 */
 	public List<String> getColumnData(String columnValue) {
-		String header = "";
+		String header = null;
 
 		if (Strings.isNumber(columnValue)) {
 			header = getHeaders().get(Integer.parseInt(columnValue));
 		} else {
-			header = XML.getNodesByXPath(workbook, String.format("//*[text()[contains(.,'%s')]]", columnValue)).item(0)
-					.getLocalName();
+			for (Record row : getRecords()) {
+				for (Element cell : row.cells) {
+					if (header == null && cell.getTextContent().contains(columnValue)) {
+						header = XML.getLocalName(cell);
+					}
+				}
+			}
 		}
 
-		NodeList columns = XML.getChildNodesByXPath(sheet, String.format("//*[local-name()='%s']", header));
+		if (header == null) {
+			throw new AutomationException(
+					String.format("Column '%s' not found in test data file: %s", columnValue, fileName));
+		}
 
 		List<String> columnData = new ArrayList<>();
 
-		for (int rowIndex = 0; rowIndex < columns.getLength(); rowIndex++) {
-			columnData.add(columns.item(rowIndex).getTextContent());
+		for (Record row : getRecords()) {
+			for (Element cell : row.cells) {
+				if (header.equals(XML.getLocalName(cell))) {
+					columnData.add(cell.getTextContent());
+				}
+			}
 		}
 
 		return columnData;
@@ -313,20 +422,23 @@ public class DataXML {
 	 *            row, 2= the second row, 3= 3rd column)
 	 * @param columnIndex
 	 *            the index or number of the column to set the cell content to
-	 *            (i.e. 0 = the first column, 1= the second column, 2= 3rd
+	 *            (i.e. 1 = the first column, 2= the second column, 3= 3rd
 	 *            column)
 	 * @param value
 	 *            value to set
 	 */
+	@Override
 	public void setCellValue(int rowIndex, int columnIndex, String value) {
 		if (rowIndex == 0) {
 			throw new AutomationException("Can't change header");
 		}
 
-		XML.getChildNodesByXPath(sheet, String.format("//%s[%s]//*[%s]", Tags.RECORD, rowIndex, columnIndex)).item(0)
-				.setTextContent(value);
+		getRecords().get(rowIndex - 1).cells.get(columnIndex - 1).setTextContent(value);
+		rowKeyIndex = null;
 
-		XML.saveToFile(workbook, Paths.get(fileName));
+		if (autoSave) {
+			save();
+		}
 	}
 
 	/**
@@ -338,15 +450,18 @@ public class DataXML {
 	 * @param cells
 	 *            the {@link List} of cells values
 	 */
+	@Override
 	public void updateRowData(int rowIndex, List<String> cells) {
-		Node row = XML.getChildNodesByXPath(sheet, Tags.RECORD).item(rowIndex - 1);
+		Record row = getRecords().get(rowIndex - 1);
 
 		for (int cellIndex = 0; cellIndex < cells.size(); cellIndex++) {
-			XML.getChildNodesByXPath(row, String.format("*[%s]", cellIndex + 1)).item(0)
-					.setTextContent(cells.get(cellIndex));
+			row.cells.get(cellIndex).setTextContent(cells.get(cellIndex));
 		}
+		rowKeyIndex = null;
 
-		XML.saveToFile(workbook, Paths.get(fileName));
+		if (autoSave) {
+			save();
+		}
 	}
 
 	/**
@@ -359,11 +474,12 @@ public class DataXML {
 	 * @param cells
 	 *            the {@link List} of cells values
 	 */
+	@Override
 	public void insertRowDataAfter(int rowIndex, List<String> cells) {
 
-		Node row = XML.getChildNodesByXPath(sheet, Tags.RECORD).item(rowIndex);
+		Element row = getRecords().get(rowIndex).node;
 
-		Node newRow = XML.createChildElement(workbook, (Element) row, Tags.RECORD);
+		Node newRow = XML.createChildElement(workbook, row, Tags.RECORD);
 
 		Node cell = null;
 		List<String> headers = getHeaders();
@@ -377,7 +493,29 @@ public class DataXML {
 		}
 
 		sheet.insertBefore(newRow, row);
+		records = null;
+		rowKeyIndex = null;
 
-		XML.saveToFile(workbook, Paths.get(fileName));
+		if (autoSave) {
+			save();
+		}
+	}
+
+	@Override
+	public void setAutoSave(boolean autoSave) {
+		this.autoSave = autoSave;
+	}
+
+	@Override
+	public void save() {
+		Path filePath = Paths.get(fileName);
+		Path tempFilePath = FileIO.createSiblingTempFile(filePath);
+
+		try {
+			XML.saveToFile(workbook, tempFilePath);
+			FileIO.move(tempFilePath, filePath);
+		} finally {
+			FileIO.deleteFile(tempFilePath.toString());
+		}
 	}
 }
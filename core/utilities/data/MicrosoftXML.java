@@ -1,5 +1,6 @@
 package core.utilities.data;
 
+import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.HashMap;
@@ -9,18 +10,43 @@ import java.util.Map;
 import org.w3c.dom.Document;
 import org.w3c.dom.Element;
 import org.w3c.dom.Node;
-import org.w3c.dom.NodeList;
+import org.w3c.dom.NamedNodeMap;
 
+import core.utilities.FileIO;
 import core.utilities.Log;
 import core.utilities.Strings;
 import core.utilities.XML;
 import core.utilities.exceptions.AutomationException;
 
-public class MicrosoftXML {
+public class MicrosoftXML implements WritableSheet {
 
 	private final Node sheet;
 	private final String fileName;
 	private final Document workbook;
+	private List<SheetRow> rows;
+	private int keyColumn = 0;
+	private RowKeyIndex rowKeyIndex;
+	private boolean autoSave = true;
+
+	/**
+	 * Row element of the sheet with its cell elements by the cell index.
+	 */
+	private static class SheetRow {
+		private final Element node;
+		private final Map<String, Element> cells = new HashMap<>();
+
+		SheetRow(Element node) {
+			this.node = node;
+
+			for (Element cell : XML.getChildElements(node, "Cell")) {
+				String index = getCellIndex(cell);
+
+				if (index != null && !cells.containsKey(index)) {
+					cells.put(index, cell);
+				}
+			}
+		}
+	}
 
 	public MicrosoftXML(String fileName, String sheetName) {
 		this.fileName = fileName;
@@ -35,6 +61,44 @@ public class MicrosoftXML {
 				.item(0);
 	}
 
+	/**
+	 * Gets the rows of the sheet. The rows and their cells are indexed in one
+	 * pass over the document on first use, so the getters do not evaluate
+	 * XPath for every cell.
+	 *
+	 * @return {@link List} of rows
+	 */
+	private List<SheetRow> getRows() {
+		if (rows == null) {
+			rows = new ArrayList<>();
+
+			for (Element row : XML.getChildElements(sheet, "Row")) {
+				rows.add(new SheetRow(row));
+			}
+		}
+
+		return rows;
+	}
+
+	/**
+	 * Gets the value of the Index attribute of the cell element.
+	 *
+	 * @param cell
+	 *            cell {@link Element}
+	 * @return the cell index or null if the cell has no Index attribute
+	 */
+	private static String getCellIndex(Element cell) {
+		NamedNodeMap attributes = cell.getAttributes();
+
+		for (int index = 0; index < attributes.getLength(); index++) {
+			if ("Index".equals(XML.getLocalName(attributes.item(index)))) {
+				return attributes.item(index).getNodeValue();
+			}
+		}
+
+		return null;
+	}
+
 	/**
 	 * Returns sheet from given file as the {@link Node} object.
 	 *
@@ -63,7 +127,7 @@ public class MicrosoftXML {
 	 * @return int the total number of rows of data in the given spreadsheet
 	 */
 	public int getRowCountExcludeEmptyRows() {
-		return XML.getChildNodesByXPath(sheet, "*[local-name()='Row']").getLength();
+		return getRows().size();
 	}
 
 	/**
@@ -88,15 +152,15 @@ public class MicrosoftXML {
 	 *         file including header rows and columns
 	 */
 	public String[][] getTableData(boolean returnHeader) {
-		NodeList rows = XML.getChildNodesByXPath(sheet, "*[local-name()='Row']");
+		List<SheetRow> rows = getRows();
 
 		int cellsCount = getColumnCount();
 
 		String[][] tableArray = new String[getRowCount() - ((returnHeader) ? 0 : 1)][cellsCount];
 
-		for (int rowIndex = (returnHeader) ? 0 : 1; rowIndex < rows.getLength(); rowIndex++) {
+		for (int rowIndex = (returnHeader) ? 0 : 1; rowIndex < rows.size(); rowIndex++) {
 			for (int cellIndex = 0; cellIndex < cellsCount; cellIndex++) {
-				tableArray[rowIndex - ((returnHeader) ? 0 : 1)][cellIndex] = (getCellValue(rows.item(rowIndex),
+				tableArray[rowIndex - ((returnHeader) ? 0 : 1)][cellIndex] = (getCellValue(rows.get(rowIndex),
 						cellIndex));
 
 			}
@@ -137,7 +201,7 @@ public class MicrosoftXML {
 	 *         or row number and given spreadsheet as a List of String
 	 */
 	public List<String> getRowData(String rowValue) {
-		NodeList rows = XML.getChildNodesByXPath(sheet, "*[local-name()='Row']");
+		List<SheetRow> rows = getRows();
 		List<String> rowData = new ArrayList<>();
 
 		int rowIndex = -1;
@@ -146,12 +210,7 @@ public class MicrosoftXML {
 		if (Strings.isNumber(rowValue)) {
 			rowIndex = Integer.parseInt(rowValue);
 		} else {
-			for (int index = 0; index < rows.getLength(); index++) {
-				if (getCellValue(rows.item(index), 0).equals(rowValue)) {
-					rowIndex = index;
-					break;
-				}
-			}
+			rowIndex = findRowIndex(rows, rowValue);
 		}
 
 		if (rowIndex == -1) {
@@ -159,13 +218,66 @@ public class MicrosoftXML {
 					String.format("Row '%s' not found in test data file: %s", rowValue, fileName));
 		}
 
+		SheetRow row = (rowIndex < rows.size()) ? rows.get(rowIndex) : null;
+
 		for (int columnIndex = 0; columnIndex < columnCount; columnIndex++) {
-			rowData.add(getCellValue(rows.item(rowIndex), columnIndex));
+			rowData.add(getCellValue(row, columnIndex));
 		}
 
 		return rowData;
 	}
 
+	/**
+	 * Sets the column which holds the row header names. Row lookups by name
+	 * use an index of this column built on first use and fall back to a scan
+	 * of all cells for values that are not in the index.
+	 *
+	 * @param columnIndex
+	 *            the index or number of the key column (i.e. 0 = the first
+	 *            column, 1= the second column, 2= 3rd column)
+	 */
+	public void setKeyColumn(int columnIndex) {
+		this.keyColumn = columnIndex;
+		this.rowKeyIndex = null;
+	}
+
+	/**
+	 * Finds the row number by the row header name. Uses the key column index
+	 * and falls back to a scan of all cells.
+	 *
+	 * @param rows
+	 *            rows of the sheet
+	 * @param rowValue
+	 *            the row header name
+	 * @return the row number or -1 if the row is not found
+	 */
+	private int findRowIndex(List<SheetRow> rows, String rowValue) {
+		if (rowKeyIndex == null || rowKeyIndex.getKeyColumn() != keyColumn) {
+			rowKeyIndex = new RowKeyIndex(keyColumn);
+
+			for (int index = 0; index < rows.size(); index++) {
+				rowKeyIndex.put(getCellValue(rows.get(index), keyColumn), index);
+			}
+		}
+
+		int rowIndex = rowKeyIndex.find(rowValue);
+
+		if (rowIndex == -1) {
+			int columnCount = getColumnCount();
+
+			for (int index = 0; index < rows.size() && rowIndex == -1; index++) {
+				for (int columnIndex = 0; columnIndex < columnCount; columnIndex++) {
+					if (getCellValue(rows.get(index), columnIndex).equals(rowValue)) {
+						rowIndex = index;
+						break;
+					}
+				}
+			}
+		}
+
+		return rowIndex;
+	}
+
 	/**
 	 * Returns the cell content of the given .xml spreadsheet file, sheet,
 	 * column and row This is a private method called and used by the main "get"
@@ -241,7 +353,7 @@ public class MicrosoftXML {
 	 *         a List of String
 	 */
 	public List<String> getColumnData(String columnValue) {
-		NodeList rows = XML.getChildNodesByXPath(sheet, "*[local-name()='Row']");
+		List<SheetRow> rows = getRows();
 		List<String> columnData = new ArrayList<>();
 
 		int columnIndex = 0;
@@ -250,11 +362,7 @@ public class MicrosoftXML {
 			columnIndex = Integer.parseInt(columnValue);
 		} else {
 			for (int cellIndex = 0; cellIndex < getColumnCount(); cellIndex++) {
-				if (XML.getChildNodesByXPath(rows.item(0),
-						String.format(
-								"*[local-name()='Cell'][@*[local-name()='Index' and . = '%s']]/*[local-name()='Data']",
-								String.valueOf(cellIndex + 1)))
-						.item(0).getTextContent().equals(columnValue)) {
+				if (getCellValue(rows.get(0), cellIndex).equals(columnValue)) {
 					columnIndex = cellIndex;
 					break;
 				}
@@ -262,12 +370,8 @@ public class MicrosoftXML {
 		}
 
 		Node cell = null;
-		for (int rowIndex = 1; rowIndex < rows.getLength(); rowIndex++) {
-			cell = XML.getChildNodesByXPath(rows.item(rowIndex),
-					String.format(
-							"*[local-name()='Cell'][@*[local-name()='Index' and . = '%s']]/*[local-name()='Data']",
-							String.valueOf(columnIndex + 1)))
-					.item(0);
+		for (int rowIndex = 1; rowIndex < rows.size(); rowIndex++) {
+			cell = getCellData(rows.get(rowIndex), columnIndex);
 
 			columnData.add((cell != null) ? cell.getTextContent() : "");
 		}
@@ -308,67 +412,74 @@ public class MicrosoftXML {
 	}
 
 	/**
-	 * Gets cell value from {@link Node} that contains cell elements.
+	 * Gets cell value from the row.
 	 *
 	 * @param row
-	 *            {@link Node} that contains cell elements.
+	 *            row that contains cell elements or null for missing row
 	 * @param cellIndex
-	 * @return cell value
+	 *            the index of the cell (i.e. 0 = the first cell)
+	 * @return cell value or empty string if there is no such cell
 	 */
-	private String getCellValue(Node row, int cellIndex) {
-		try {
-			return XML.getChildNodesByXPath(row, String.format(
-					"*[local-name()='Cell'][@*[local-name()='Index' and . = '%s']]", String.valueOf(cellIndex + 1)))
-					.item(0).getTextContent();
-		} catch (Exception e) {
-			return "";
+	private String getCellValue(SheetRow row, int cellIndex) {
+		Element cell = (row != null) ? row.cells.get(String.valueOf(cellIndex + 1)) : null;
+
+		return (cell != null) ? cell.getTextContent() : "";
+	}
+
+	/**
+	 * Gets Data element of the cell from the row.
+	 *
+	 * @param row
+	 *            row that contains cell elements
+	 * @param cellIndex
+	 *            the index of the cell (i.e. 0 = the first cell)
+	 * @return Data {@link Element} or null if there is no such cell
+	 */
+	private Element getCellData(SheetRow row, int cellIndex) {
+		Element cell = row.cells.get(String.valueOf(cellIndex + 1));
+
+		if (cell != null) {
+			List<Element> data = XML.getChildElements(cell, "Data");
+
+			if (!data.isEmpty()) {
+				return data.get(0);
+			}
 		}
+
+		return null;
 	}
 
 	/**
-	 * Sets the cell content in the given .xml spreadsheet file, sheet, column
-	 * and row.
+	 * Sets the text of the cell in the row. Creates the cell if the row does
+	 * not have it yet, keeping the cells ordered by their index.
 	 *
-	 * @param rowIndex
-	 *            the row number to set the cell content to (i.e. 0 = the first
-	 *            row, 1= the second row, 2= 3rd column)
-	 * @param columnIndex
-	 *            the index or number of the column to set the cell content to
-	 *            (i.e. 0 = the first column, 1= the second column, 2= 3rd
-	 *            column)
+	 * @param row
+	 *            row that contains cell elements
+	 * @param cellIndex
+	 *            the index of the cell (i.e. 0 = the first cell)
 	 * @param value
 	 *            value to set
 	 */
-	public void setCellValue(int rowIndex, int columnIndex, String value) {
-		Node row = XML.getChildNodesByXPath(sheet, "*[local-name()='Row']").item(rowIndex);
-
-		Node cell = XML.getChildNodesByXPath(row,
-				String.format("*[local-name()='Cell'][@*[local-name()='Index' and . = '%s']]/*[local-name()='Data']",
-						String.valueOf(columnIndex + 1)))
-				.item(0);
+	private void setCellText(SheetRow row, int cellIndex, String value) {
+		Node cell = getCellData(row, cellIndex);
 
 		if (cell == null) {
-			Node newCell = XML.createChildElement(workbook, (Element) row, "Cell");
+			Element newCell = XML.createChildElement(workbook, row.node, "Cell");
 
 			Node attribute = newCell.getOwnerDocument().createAttribute("ss:Index");
-			attribute.setNodeValue(String.valueOf(columnIndex + 1));
+			attribute.setNodeValue(String.valueOf(cellIndex + 1));
 			newCell.getAttributes().setNamedItem(attribute);
 
-			Node newCellData = XML.createChildElement(workbook, (Element) newCell, "Data");
+			Node newCellData = XML.createChildElement(workbook, newCell, "Data");
 
 			attribute = newCellData.getOwnerDocument().createAttribute("ss:Type");
 			attribute.setNodeValue("String");
 			newCellData.getAttributes().setNamedItem(attribute);
 
-			row.insertBefore(newCell,
-					XML.getChildNodesByXPath(row,
-							String.format("*[local-name()='Cell'][@*[local-name()='Index' and . > '%s']]",
-									String.valueOf(columnIndex + 1)))
-							.item(0));
+			row.node.insertBefore(newCell, getNextCell(row, cellIndex + 1));
+			row.cells.put(String.valueOf(cellIndex + 1), newCell);
 
 			newCellData.setTextContent(value);
-			System.out.println(newCellData.getTextContent());
-
 		} else {
 			Node attribute = cell.getOwnerDocument().createAttribute("ss:Type");
 			attribute.setNodeValue("String");
@@ -376,8 +487,52 @@ public class MicrosoftXML {
 
 			cell.setTextContent(value);
 		}
+	}
+
+	/**
+	 * Gets the first cell of the row with the index greater than the given
+	 * one.
+	 *
+	 * @param row
+	 *            row that contains cell elements
+	 * @param cellNumber
+	 *            the number of the cell (i.e. 1 = the first cell)
+	 * @return cell {@link Element} or null if there is no such cell
+	 */
+	private Element getNextCell(SheetRow row, int cellNumber) {
+		for (Element cell : XML.getChildElements(row.node, "Cell")) {
+			String index = getCellIndex(cell);
+
+			if (index != null && Strings.isNumber(index) && Integer.parseInt(index) > cellNumber) {
+				return cell;
+			}
+		}
 
-		XML.saveToFile(workbook, Paths.get(fileName));
+		return null;
+	}
+
+	/**
+	 * Sets the cell content in the given .xml spreadsheet file, sheet, column
+	 * and row.
+	 *
+	 * @param rowIndex
+	 *            the row number to set the cell content to (i.e. 0 = the first
+	 *            row, 1= the second row, 2= 3rd column)
+	 * @param columnIndex
+	 *            the index or number of the column to set the cell content to
+	 *            (i.e. 0 = the first column, 1= the second column, 2= 3rd
+	 *            column)
+	 * @param value
+	 *            value to set
+	 */
+	@Override
+	public void setCellValue(int rowIndex, int columnIndex, String value) {
+		setCellText(getRows().get(rowIndex), columnIndex, value);
+		rowKeyIndex = null;
+
+		if (autoSave) {
+			save();
+		}
 	}
 
 	/**
@@ -389,48 +544,18 @@ public class MicrosoftXML {
 	 * @param cells
 	 *            the {@link List} of cells values
 	 */
+	@Override
 	public void updateRowData(int rowIndex, List<String> cells) {
-		Node row = XML.getChildNodesByXPath(sheet, "*[local-name()='Row']").item(rowIndex);
-
-		Node cell = null;
+		SheetRow row = getRows().get(rowIndex);
 
 		for (int cellIndex = 0; cellIndex < cells.size(); cellIndex++) {
-			cell = XML.getChildNodesByXPath(row,
-					String.format(
-							"*[local-name()='Cell'][@*[local-name()='Index' and . = '%s']]/*[local-name()='Data']",
-							String.valueOf(cellIndex + 1)))
-					.item(0);
-
-			if (cell == null) {
-				Node newCell = XML.createChildElement(workbook, (Element) row, "Cell");
-
-				Node attribute = newCell.getOwnerDocument().createAttribute("ss:Index");
-				attribute.setNodeValue(String.valueOf(cellIndex + 1));
-				newCell.getAttributes().setNamedItem(attribute);
-
-				Node newCellData = XML.createChildElement(workbook, (Element) newCell, "Data");
-
-				attribute = newCellData.getOwnerDocument().createAttribute("ss:Type");
-				attribute.setNodeValue("String");
-				newCellData.getAttributes().setNamedItem(attribute);
-
-				row.insertBefore(newCell,
-						XML.getChildNodesByXPath(row,
-								String.format("*[local-name()='Cell'][@*[local-name()='Index' and . > '%s']]",
-										String.valueOf(cellIndex + 1)))
-								.item(0));
-
-				newCellData.setTextContent(cells.get(cellIndex));
-			} else {
-				Node attribute = cell.getOwnerDocument().createAttribute("ss:Type");
-				attribute.setNodeValue("String");
-				cell.getAttributes().setNamedItem(attribute);
-
-				cell.setTextContent(cells.get(cellIndex));
-			}
+			setCellText(row, cellIndex, cells.get(cellIndex));
 		}
+		rowKeyIndex = null;
 
-		XML.saveToFile(workbook, Paths.get(fileName));
+		if (autoSave) {
+			save();
+		}
 	}
 
 	/**
@@ -443,15 +568,15 @@ public class MicrosoftXML {
 	 * @param cells
 	 *            the {@link List} of cells values
 	 */
+	@Override
 	public void insertRowDataAfter(int rowIndex, List<String> cells) {
 		Node sheetAttribute = sheet.getOwnerDocument().createAttribute("ss:ExpandedRowCount");
-		sheetAttribute.setNodeValue(
-				String.valueOf(sheet.getAttributes().getNamedItem("ss:ExpandedRowCount").getTextContent()) + 1);
+		sheetAttribute.setNodeValue(String.valueOf(getRowCount() + 1));
 		sheet.getAttributes().setNamedItem(sheetAttribute);
 
-		Node row = XML.getChildNodesByXPath(sheet, "*[local-name()='Row']").item(rowIndex);
+		Element row = getRows().get(rowIndex).node;
 
-		Node newRow = XML.createChildElement(workbook, (Element) row, "Row");
+		Node newRow = XML.createChildElement(workbook, row, "Row");
 
 		Node cell = null;
 		Node cellData = null;
@@ -473,7 +598,29 @@ public class MicrosoftXML {
 		}
 
 		sheet.insertBefore(newRow, row);
+		rows = null;
+		rowKeyIndex = null;
 
-		XML.saveToFile(workbook, Paths.get(fileName));
+		if (autoSave) {
+			save();
+		}
+	}
+
+	@Override
+	public void setAutoSave(boolean autoSave) {
+		this.autoSave = autoSave;
+	}
+
+	@Override
+	public void save() {
+		Path filePath = Paths.get(fileName);
+		Path tempFilePath = FileIO.createSiblingTempFile(filePath);
+
+		try {
+			XML.saveToFile(workbook, tempFilePath);
+			FileIO.move(tempFilePath, filePath);
+		} finally {
+			FileIO.deleteFile(tempFilePath.toString());
+		}
 	}
 }
@@ -0,0 +1,149 @@
+package core.utilities.data;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import core.utilities.exceptions.AutomationException;
+
+/**
+ * Iterator over the data rows of a spreadsheet which reads one row at a time,
+ * so the memory used does not depend on the size of the file. The first row
+ * is the header row, it is not returned by the iterator. Empty rows are
+ * skipped and every row is padded or truncated to the number of headers. The
+ * file is closed after the last row is read or on {@link #close()}.
+ */
+public abstract class RowIterator implements Iterator<String[]>, Closeable {
+
+	private List<String> headers;
+	private String[] nextRow;
+	private boolean closed = false;
+
+	/**
+	 * Reads the next row of the file.
+	 *
+	 * @return cell values of the row or null if there are no more rows
+	 * @throws Exception
+	 *             error
+	 */
+	protected abstract String[] readRow() throws Exception;
+
+	/**
+	 * Closes the file the rows are read from.
+	 *
+	 * @throws IOException
+	 *             error
+	 */
+	protected abstract void closeSource() throws IOException;
+
+	/**
+	 * Gets the names of the columns from the header row.
+	 *
+	 * @return {@link List} of column names
+	 */
+	public synchronized List<String> getHeaders() {
+		if (headers == null) {
+			String[] row = readNonEmptyRow();
+
+			headers = (row != null) ? Collections.unmodifiableList(Arrays.asList(row))
+					: Collections.<String> emptyList();
+		}
+
+		return headers;
+	}
+
+	@Override
+	public synchronized boolean hasNext() {
+		if (nextRow == null && !closed) {
+			int columnCount = getHeaders().size();
+			String[] row = readNonEmptyRow();
+
+			if (row != null) {
+				nextRow = (row.length == columnCount) ? row : Arrays.copyOf(row, columnCount);
+
+				for (int index = row.length; index < columnCount; index++) {
+					nextRow[index] = "";
+				}
+			}
+		}
+
+		return nextRow != null;
+	}
+
+	@Override
+	public synchronized String[] next() {
+		if (!hasNext()) {
+			throw new NoSuchElementException();
+		}
+
+		String[] row = nextRow;
+		nextRow = null;
+
+		return row;
+	}
+
+	@Override
+	public void remove() {
+		throw new UnsupportedOperationException("Rows can't be removed from the data file");
+	}
+
+	@Override
+	public synchronized void close() {
+		if (!closed) {
+			closed = true;
+
+			try {
+				closeSource();
+			} catch (IOException exception) {
+				throw new AutomationException("Error closing data file", exception);
+			}
+		}
+	}
+
+	/**
+	 * Reads rows until the row with at least one not empty cell. Closes the
+	 * file when there are no more rows.
+	 *
+	 * @return cell values of the row with empty strings instead of nulls or
+	 *         null if there are no more rows
+	 */
+	private String[] readNonEmptyRow() {
+		if (closed) {
+			return null;
+		}
+
+		try {
+			String[] row;
+
+			while ((row = readRow()) != null) {
+				boolean empty = true;
+
+				for (int index = 0; index < row.length; index++) {
+					if (row[index] == null) {
+						row[index] = "";
+					} else if (!row[index].isEmpty()) {
+						empty = false;
+					}
+				}
+
+				if (!empty) {
+					return row;
+				}
+			}
+		} catch (AutomationException exception) {
+			close();
+			throw exception;
+		} catch (Exception exception) {
+			close();
+			throw new AutomationException("Error reading row from data file", exception);
+		}
+
+		close();
+
+		return null;
+	}
+}
@@ -0,0 +1,62 @@
+package core.utilities.data;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Index of row offsets by the value of the key column of a loaded sheet. It is
+ * built once per sheet so that keyed row lookups do not scan every cell.
+ */
+class RowKeyIndex {
+
+	private final int keyColumn;
+	private final Map<String, Integer> rows = new HashMap<>();
+
+	/**
+	 * Constructor for the RowKeyIndex class.
+	 *
+	 * @param keyColumn
+	 *            index of the column holding the row keys (i.e. 0 = the first
+	 *            column)
+	 */
+	RowKeyIndex(int keyColumn) {
+		this.keyColumn = keyColumn;
+	}
+
+	/**
+	 * Gets the index of the column holding the row keys.
+	 *
+	 * @return key column index
+	 */
+	int getKeyColumn() {
+		return keyColumn;
+	}
+
+	/**
+	 * Adds row key to the index. Only the first row with the given key is
+	 * kept, the same way a top-down scan would find it.
+	 *
+	 * @param key
+	 *            value of the key cell
+	 * @param rowIndex
+	 *            the row number of the key cell
+	 */
+	void put(String key, int rowIndex) {
+		if (key != null && !key.isEmpty()) {
+			rows.putIfAbsent(key, rowIndex);
+		}
+	}
+
+	/**
+	 * Finds the row number by the key cell value.
+	 *
+	 * @param key
+	 *            value of the key cell
+	 * @return the row number or -1 if the key is not indexed
+	 */
+	int find(String key) {
+		Integer rowIndex = rows.get(key);
+
+		return (rowIndex != null) ? rowIndex : -1;
+	}
+}
@@ -0,0 +1,151 @@
+package core.utilities.data;
+
+import java.util.List;
+
+import core.utilities.Log;
+import core.utilities.exceptions.AutomationException;
+
+/**
+ * Write session for one sheet of a spreadsheet file. The file is read once
+ * when the session is opened, the changes are collected in memory and written
+ * to the file once on {@link #commit()}. Closing the session discards the
+ * changes which are not committed, so an edit interrupted by an exception is
+ * not written half way.
+ * <p>
+ * For example:
+ *
+ * <pre>
+ * try (SheetWriter writer = Excel.openForWrite("TestData.xlsx", "Results")) {
+ * 	writer.setCellValue(1, 3, "Passed");
+ * 	writer.setCellValue(2, 3, "Failed");
+ * 	writer.commit();
+ * }
+ * </pre>
+ */
+public class SheetWriter implements AutoCloseable {
+
+	private final String fileName;
+	private final WritableSheet sheet;
+	private int pendingChanges = 0;
+	private boolean closed = false;
+
+	/**
+	 * Constructor for the SheetWriter class. Turns off auto save of the given
+	 * sheet.
+	 *
+	 * @param fileName
+	 *            name of the spreadsheet file the sheet was read from
+	 * @param sheet
+	 *            the sheet to collect the changes in
+	 */
+	public SheetWriter(String fileName, WritableSheet sheet) {
+		this.fileName = fileName;
+		this.sheet = sheet;
+
+		sheet.setAutoSave(false);
+	}
+
+	/**
+	 * Sets the cell content in the given column and row. The change is written
+	 * to the file on commit.
+	 *
+	 * @param rowIndex
+	 *            the row number to set the cell content to
+	 * @param columnIndex
+	 *            the index or number of the column to set the cell content to
+	 *            (i.e. 0 = the first column, 1= the second column, 2= 3rd
+	 *            column)
+	 * @param value
+	 *            value to set
+	 */
+	public void setCellValue(int rowIndex, int columnIndex, String value) {
+		checkNotClosed();
+
+		sheet.setCellValue(rowIndex, columnIndex, value);
+		pendingChanges++;
+	}
+
+	/**
+	 * Updates the row with cell content. The change is written to the file on
+	 * commit.
+	 *
+	 * @param rowIndex
+	 *            the row number to update the row content in
+	 * @param cells
+	 *            the {@link List} of cells values
+	 */
+	public void updateRowData(int rowIndex, List<String> cells) {
+		checkNotClosed();
+
+		sheet.updateRowData(rowIndex, cells);
+		pendingChanges++;
+	}
+
+	/**
+	 * Insert the row with cell content after necessary row. The change is
+	 * written to the file on commit.
+	 *
+	 * @param rowIndex
+	 *            the row number after what needed to insert new row
+	 * @param cells
+	 *            the {@link List} of cells values
+	 */
+	public void insertRowDataAfter(int rowIndex, List<String> cells) {
+		checkNotClosed();
+
+		sheet.insertRowDataAfter(rowIndex, cells);
+		pendingChanges++;
+	}
+
+	/**
+	 * Gets the number of changes which are not written to the file yet.
+	 *
+	 * @return number of pending changes
+	 */
+	public int getPendingChanges() {
+		return pendingChanges;
+	}
+
+	/**
+	 * Writes all pending changes to the file at once. The file is replaced
+	 * only after the new content is completely written.
+	 */
+	public void commit() {
+		checkNotClosed();
+
+		if (pendingChanges > 0) {
+			sheet.save();
+
+			Log.logDebugInfo(String.format("Committed %d change(s) to file: %s", pendingChanges, fileName));
+			pendingChanges = 0;
+		}
+	}
+
+	/**
+	 * Discards all pending changes and closes the session. The file is left
+	 * as it was on the last commit.
+	 */
+	public void rollback() {
+		if (!closed && pendingChanges > 0) {
+			Log.logDebugInfo(String.format("Discarded %d change(s) to file: %s", pendingChanges, fileName));
+		}
+
+		pendingChanges = 0;
+		closed = true;
+	}
+
+	/**
+	 * Closes the session. Changes which are not committed are discarded like
+	 * on {@link #rollback()}.
+	 */
+	@Override
+	public void close() {
+		rollback();
+	}
+
+	private void checkNotClosed() {
+		if (closed) {
+			throw new AutomationException(String.format("Write session is already closed for file: %s", fileName));
+		}
+	}
+}
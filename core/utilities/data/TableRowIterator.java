@@ -0,0 +1,38 @@
+package core.utilities.data;
+
+/**
+ * Iterates over the rows of the table which is already loaded into memory.
+ * Used for the spreadsheet formats which can't be read one row at a time.
+ */
+public class TableRowIterator extends RowIterator {
+
+	private final String[][] table;
+	private int rowIndex = 0;
+
+	/**
+	 * Constructor for the TableRowIterator class.
+	 *
+	 * @param table
+	 *            table data including the header row
+	 */
+	public TableRowIterator(String[][] table) {
+		this.table = table;
+	}
+
+	@Override
+	protected String[] readRow() {
+		if (rowIndex >= table.length) {
+			return null;
+		}
+
+		String[] row = table[rowIndex];
+		table[rowIndex++] = null;
+
+		return (row != null) ? row : new String[0];
+	}
+
+	@Override
+	protected void closeSource() {
+		rowIndex = table.length;
+	}
+}
@@ -0,0 +1,61 @@
+package core.utilities.data;
+
+import java.util.List;
+
+/**
+ * Spreadsheet which can be changed in memory and saved back to its file. By
+ * default every change is saved at once; with auto save turned off the
+ * changes are kept in memory until {@link #save()} is called.
+ */
+public interface WritableSheet {
+
+	/**
+	 * Sets the cell content in the given column and row.
+	 *
+	 * @param rowIndex
+	 *            the row number to set the cell content to
+	 * @param columnIndex
+	 *            the index or number of the column to set the cell content to
+	 *            (i.e. 0 = the first column, 1= the second column, 2= 3rd
+	 *            column)
+	 * @param value
+	 *            value to set
+	 */
+	void setCellValue(int rowIndex, int columnIndex, String value);
+
+	/**
+	 * Updates the row with cell content.
+	 *
+	 * @param rowIndex
+	 *            the row number to update the row content in
+	 * @param cells
+	 *            the {@link List} of cells values
+	 */
+	void updateRowData(int rowIndex, List<String> cells);
+
+	/**
+	 * Insert the row with cell content after necessary row.
+	 *
+	 * @param rowIndex
+	 *            the row number after what needed to insert new row
+	 * @param cells
+	 *            the {@link List} of cells values
+	 */
+	void insertRowDataAfter(int rowIndex, List<String> cells);
+
+	/**
+	 * Turns saving of the file after every change on or off.
+	 *
+	 * @param autoSave
+	 *            true to save the file after every change, false to keep the
+	 *            changes in memory until {@link #save()} is called
+	 */
+	void setAutoSave(boolean autoSave);
+
+	/**
+	 * Saves the sheet to its file. The content is written to a temporary file
+	 * first which then replaces the original file, so the original file is
+	 * never left half written.
+	 */
+	void save();
+}
@@ -5,6 +5,8 @@ import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.Iterator;
@@ -21,17 +23,21 @@ import org.apache.poi.ss.usermodel.Sheet;
 import org.apache.poi.ss.usermodel.Workbook;
 import org.apache.poi.ss.usermodel.WorkbookFactory;
 
+import core.utilities.FileIO;
 import core.utilities.Log;
 import core.utilities.Strings;
 import core.utilities.exceptions.AutomationException;
 import core.utilities.exceptions.SetupException;
 
-public class XLS {
+public class XLS implements WritableSheet {
 
 	private final String fileName;
 	private final String sheetName;
 	private Sheet sheet;
 	private final Workbook workbook;
+	private int keyColumn = 0;
+	private RowKeyIndex rowKeyIndex;
+	private boolean autoSave = true;
 
 	public XLS(String fileName, String sheetName) {
 		this.fileName = fileName;
@@ -273,6 +279,50 @@ public class XLS {
 		}
 	}
 
+	/**
+	 * Sets the column which holds the row header names. Row lookups by name
+	 * use an index of this column built on first use and fall back to a scan
+	 * of all cells for values that are not in the index.
+	 *
+	 * @param columnIndex
+	 *            the index or number of the key column (i.e. 0 = the first
+	 *            column, 1= the second column, 2= 3rd column)
+	 */
+	public void setKeyColumn(int columnIndex) {
+		this.keyColumn = columnIndex;
+		this.rowKeyIndex = null;
+	}
+
+	/**
+	 * Return {@link Row} object by the row header name. Uses the key column
+	 * index and falls back to {@link #findCell(String)}.
+	 *
+	 * @param rowValue
+	 *            the row header name
+	 * @return {@link Row} object or null if the row is not found
+	 */
+	private Row findRow(String rowValue) {
+		if (rowKeyIndex == null || rowKeyIndex.getKeyColumn() != keyColumn) {
+			rowKeyIndex = new RowKeyIndex(keyColumn);
+
+			for (Row row : sheet) {
+				if (keyColumn < row.getLastCellNum()) {
+					rowKeyIndex.put(getCellValue(row.getCell(keyColumn)), row.getRowNum());
+				}
+			}
+		}
+
+		int rowIndex = rowKeyIndex.find(rowValue);
+
+		if (rowIndex != -1) {
+			return sheet.getRow(rowIndex);
+		}
+
+		Cell cell = findCell(rowValue);
+
+		return (cell != null) ? cell.getRow() : null;
+	}
+
 	/**
 	 * Return {#link Cell} object by value.
 	 *
@@ -368,12 +418,12 @@ public class XLS {
 					// so treat rowValue as a string
 					// added to support ssb team that uses long account numbers
 					// as row headers
-					rowIndex = findCell(rowValue).getRowIndex();
+					rowIndex = findRow(rowValue).getRowNum();
 				}
 			} else {
-				Cell cell = findCell(rowValue);
-				if (cell != null) {
-					rowIndex = cell.getRowIndex();
+				Row keyRow = findRow(rowValue);
+				if (keyRow != null) {
+					rowIndex = keyRow.getRowNum();
 				}
 			}
 
@@ -442,10 +492,10 @@ public class XLS {
 					// so treat rowValue as a string
 					// added to support ssb team that uses long account numbers
 					// as row headers
-					row = findCell(rowValue).getRow();
+					row = findRow(rowValue);
 				}
 			} else {
-				row = findCell(rowValue).getRow();
+				row = findRow(rowValue);
 			}
 
 			// get row data as map
@@ -507,10 +557,14 @@ public class XLS {
 	 * @param value
 	 *            to set
 	 */
+	@Override
 	public void setCellValue(int rowIndex, int columnIndex, String value) {
 		sheet.getRow(rowIndex).getCell(columnIndex).setCellValue(value);
+		rowKeyIndex = null;
 
-		saveWorkbook();
+		if (autoSave) {
+			save();
+		}
 	}
 
 	/**
@@ -522,14 +576,18 @@ public class XLS {
 	 * @param cells
 	 *            the {@link List} of cells values
 	 */
+	@Override
 	public void updateRowData(int rowIndex, List<String> cells) {
 		Row row = sheet.getRow(rowIndex);
 
 		for (int cellIndex = 0; cellIndex < row.getPhysicalNumberOfCells(); cellIndex++) {
 			row.getCell(cellIndex).setCellValue(cells.get(cellIndex));
 		}
+		rowKeyIndex = null;
 
-		saveWorkbook();
+		if (autoSave) {
+			save();
+		}
 	}
 
 	/**
@@ -542,6 +600,7 @@ public class XLS {
 	 * @param cells
 	 *            the {@link List} of cells values
 	 */
+	@Override
 	public void insertRowDataAfter(int rowIndex, List<String> cells) {
 		// Shift number of rows down
 		sheet.shiftRows(rowIndex, sheet.getPhysicalNumberOfRows(), 1);
@@ -551,18 +610,36 @@ public class XLS {
 		for (int cellIndex = 0; cellIndex < cells.size(); cellIndex++) {
 			row.getCell(cellIndex).setCellValue(cells.get(cellIndex));
 		}
+		rowKeyIndex = null;
+
+		if (autoSave) {
+			save();
+		}
+	}
 
-		saveWorkbook();
+	@Override
+	public void setAutoSave(boolean autoSave) {
+		this.autoSave = autoSave;
 	}
 
 	/**
 	 * Saves {@link Workbook} object to file.
 	 */
-	private void saveWorkbook() {
-		try (FileOutputStream fileOutputStream = new FileOutputStream(fileName)) {
-			workbook.write(fileOutputStream);
+	@Override
+	public void save() {
+		Path filePath = Paths.get(fileName);
+		Path tempFilePath = FileIO.createSiblingTempFile(filePath);
+
+		try {
+			try (FileOutputStream fileOutputStream = new FileOutputStream(tempFilePath.toFile())) {
+				workbook.write(fileOutputStream);
+			}
+
+			FileIO.move(tempFilePath, filePath);
 		} catch (IOException exception) {
 			throw new SetupException(String.format("Can't write data to excel file: %s", fileName), exception);
+		} finally {
+			FileIO.deleteFile(tempFilePath.toString());
 		}
 	}
 }
@@ -0,0 +1,209 @@
+package core.utilities.data;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamReader;
+
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.openxml4j.opc.PackageAccess;
+import org.apache.poi.ss.usermodel.BuiltinFormats;
+import org.apache.poi.ss.usermodel.DataFormatter;
+import org.apache.poi.ss.util.CellReference;
+import org.apache.poi.xssf.eventusermodel.ReadOnlySharedStringsTable;
+import org.apache.poi.xssf.eventusermodel.XSSFReader;
+import org.apache.poi.xssf.model.StylesTable;
+import org.apache.poi.xssf.usermodel.XSSFCellStyle;
+
+import core.utilities.exceptions.SetupException;
+
+/**
+ * Reads the rows of the .xlsx sheet one at a time. The sheet XML is parsed
+ * with StAX instead of loading the whole workbook, only the shared strings and
+ * the styles are kept in memory. Cell values are formatted the same way as
+ * {@link XLS#getCellValue} does for the cached values of the cells.
+ */
+public class XLSXRowIterator extends RowIterator {
+
+	private final OPCPackage workbook;
+	private final ReadOnlySharedStringsTable sharedStrings;
+	private final StylesTable styles;
+	private final DataFormatter dataFormatter = new DataFormatter();
+	private final InputStream sheetStream;
+	private final XMLStreamReader sheet;
+
+	/**
+	 * Constructor for the XLSXRowIterator class. Opens the sheet for reading.
+	 *
+	 * @param fileName
+	 *            the .xlsx file to read
+	 * @param sheetName
+	 *            name of the sheet to read or empty string to read the first
+	 *            sheet
+	 */
+	public XLSXRowIterator(String fileName, String sheetName) {
+		OPCPackage opcPackage = null;
+		InputStream stream = null;
+
+		try {
+			opcPackage = OPCPackage.open(new File(fileName), PackageAccess.READ);
+
+			XSSFReader reader = new XSSFReader(opcPackage);
+			XSSFReader.SheetIterator sheets = (XSSFReader.SheetIterator) reader.getSheetsData();
+
+			while (sheets.hasNext() && stream == null) {
+				InputStream sheetData = sheets.next();
+
+				if (sheetName == null || sheetName.isEmpty() || sheets.getSheetName().equals(sheetName)) {
+					stream = sheetData;
+				} else {
+					sheetData.close();
+				}
+			}
+
+			if (stream == null) {
+				throw new SetupException(
+						String.format("Error: Sheet [%s] does not exist in file [%s]", sheetName, fileName));
+			}
+
+			sharedStrings = new ReadOnlySharedStringsTable(opcPackage);
+			styles = reader.getStylesTable();
+			sheet = XMLInputFactory.newInstance().createXMLStreamReader(stream);
+			sheetStream = stream;
+			workbook = opcPackage;
+		} catch (Exception exception) {
+			try {
+				if (stream != null) {
+					stream.close();
+				}
+			} catch (IOException closeException) {
+				exception.addSuppressed(closeException);
+			}
+
+			if (opcPackage != null) {
+				opcPackage.revert();
+			}
+
+			if (exception instanceof SetupException) {
+				throw (SetupException) exception;
+			}
+
+			throw new SetupException("Check the file name with the test data: " + fileName, exception);
+		}
+	}
+
+	@Override
+	protected String[] readRow() throws Exception {
+		List<String> row = null;
+
+		String cellType = null;
+		String cellStyle = null;
+		int columnIndex = 0;
+		StringBuilder cellText = new StringBuilder();
+		boolean inValue = false;
+
+		while (sheet.hasNext()) {
+			int event = sheet.next();
+
+			if (event == XMLStreamConstants.START_ELEMENT) {
+				String name = sheet.getLocalName();
+
+				if ("row".equals(name)) {
+					row = new ArrayList<>();
+				} else if ("c".equals(name) && row != null) {
+					String reference = sheet.getAttributeValue(null, "r");
+
+					columnIndex = (reference != null) ? new CellReference(reference).getCol() : row.size();
+					cellType = sheet.getAttributeValue(null, "t");
+					cellStyle = sheet.getAttributeValue(null, "s");
+					cellText.setLength(0);
+				} else if ("v".equals(name) || "t".equals(name)) {
+					inValue = true;
+				}
+			} else if (event == XMLStreamConstants.CHARACTERS || event == XMLStreamConstants.CDATA) {
+				if (inValue) {
+					cellText.append(sheet.getText());
+				}
+			} else if (event == XMLStreamConstants.END_ELEMENT) {
+				String name = sheet.getLocalName();
+
+				if ("v".equals(name) || "t".equals(name)) {
+					inValue = false;
+				} else if ("c".equals(name) && row != null) {
+					while (row.size() < columnIndex) {
+						row.add("");
+					}
+
+					row.add(formatCellValue(cellType, cellStyle, cellText.toString()));
+				} else if ("row".equals(name) && row != null) {
+					return row.toArray(new String[row.size()]);
+				}
+			}
+		}
+
+		return null;
+	}
+
+	/**
+	 * Converts the raw value of the cell to string depending on the cell type
+	 * and number format.
+	 *
+	 * @param cellType
+	 *            value of the "t" attribute of the cell
+	 * @param cellStyle
+	 *            value of the "s" attribute of the cell
+	 * @param value
+	 *            raw value of the cell
+	 * @return cell value as string
+	 */
+	private String formatCellValue(String cellType, String cellStyle, String value) {
+		if (cellType == null || "n".equals(cellType)) {
+			if (value.isEmpty()) {
+				return "";
+			}
+
+			int formatIndex = 0;
+			String formatString = null;
+
+			if (cellStyle != null) {
+				XSSFCellStyle style = styles.getStyleAt(Integer.parseInt(cellStyle));
+				formatIndex = style.getDataFormat();
+				formatString = style.getDataFormatString();
+			}
+
+			if (formatString == null) {
+				formatString = BuiltinFormats.getBuiltinFormat(formatIndex);
+			}
+
+			return dataFormatter.formatRawCellContents(Double.parseDouble(value), formatIndex, formatString);
+		}
+
+		switch (cellType) {
+		case "s":
+			return sharedStrings.getEntryAt(Integer.parseInt(value));
+		case "b":
+			return String.valueOf("1".equals(value));
+		case "e":
+			return "";
+		default:
+			return value;
+		}
+	}
+
+	@Override
+	protected void closeSource() throws IOException {
+		try {
+			sheet.close();
+		} catch (Exception exception) {
+			throw new IOException(exception);
+		} finally {
+			sheetStream.close();
+			workbook.revert();
+		}
+	}
+}
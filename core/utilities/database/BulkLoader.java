@@ -0,0 +1,590 @@
+package core.utilities.database;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.text.ParsePosition;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import core.utilities.Log;
+import core.utilities.data.RowIterator;
+import core.utilities.exceptions.SetupException;
+
+/**
+ * Loads the rows of a spreadsheet into a database table with batched
+ * prepared statements. The rows are read one at a time from a
+ * {@link RowIterator}, so files of any size can be loaded. The header row of
+ * the file names the table columns; headers can be mapped to other column
+ * names or ignored. Cell values are converted to the type of their table
+ * column, empty cells are loaded as NULL.
+ * <p>
+ * The rows are loaded in one transaction which is rolled back if a row
+ * fails. With more than one partition the rows are loaded in parallel over
+ * that many pooled connections; the partitions are committed together after
+ * all rows are loaded, or all rolled back.
+ * <p>
+ * For example:
+ *
+ * <pre>
+ * long rows = new BulkLoader("CUSTOMERS").mapColumn("Customer Name", "NAME").ignoreColumn("Comment")
+ * 		.setPartitions(4).load(Excel.getRowIterator("Customers.csv", "Customers"), Database.getConnectionPool());
+ * </pre>
+ */
+public class BulkLoader {
+
+	/** Default format of dates which are not in JDBC escape format */
+	public static final String DEFAULT_DATE_FORMAT = "MM/dd/yyyy";
+
+	private final String tableName;
+	private final Map<String, String> columnMapping = new LinkedHashMap<>();
+	private final Set<String> ignoredHeaders = new HashSet<>();
+	private int batchSize = Log.AUTOMATION_DATABASE_BATCH_SIZE;
+	private int partitions = 1;
+	private String dateFormat = DEFAULT_DATE_FORMAT;
+
+	/**
+	 * Constructor for the BulkLoader class
+	 *
+	 * @param tableName
+	 *            name of the table to load the rows into
+	 */
+	public BulkLoader(String tableName) {
+		this.tableName = tableName;
+	}
+
+	/**
+	 * Loads the column with the given header into the named table column
+	 * instead of the column with the same name as the header
+	 *
+	 * @param header
+	 *            header of the column in the file, not case sensitive
+	 * @param columnName
+	 *            name of the table column
+	 * @return this loader
+	 */
+	public BulkLoader mapColumn(String header, String columnName) {
+		columnMapping.put(header.trim().toLowerCase(Locale.ENGLISH), columnName);
+		return this;
+	}
+
+	/**
+	 * Skips the column with the given header
+	 *
+	 * @param header
+	 *            header of the column in the file, not case sensitive
+	 * @return this loader
+	 */
+	public BulkLoader ignoreColumn(String header) {
+		ignoredHeaders.add(header.trim().toLowerCase(Locale.ENGLISH));
+		return this;
+	}
+
+	/**
+	 * Sets the number of rows sent to the database at once
+	 *
+	 * @param batchSize
+	 *            number of rows per batch, by default
+	 *            AUTOMATION_DATABASE_BATCH_SIZE
+	 * @return this loader
+	 */
+	public BulkLoader setBatchSize(int batchSize) {
+		this.batchSize = Math.max(1, batchSize);
+		return this;
+	}
+
+	/**
+	 * Sets the number of connections loading the rows in parallel when
+	 * loading over a {@link ConnectionPool}
+	 *
+	 * @param partitions
+	 *            number of parallel connections, 1 by default
+	 * @return this loader
+	 */
+	public BulkLoader setPartitions(int partitions) {
+		this.partitions = Math.max(1, partitions);
+		return this;
+	}
+
+	/**
+	 * Sets the format of dates which are not in JDBC escape format
+	 * (yyyy-mm-dd or yyyy-mm-dd hh:mm:ss)
+	 *
+	 * @param dateFormat
+	 *            date format, {@link #DEFAULT_DATE_FORMAT} by default
+	 * @return this loader
+	 */
+	public BulkLoader setDateFormat(String dateFormat) {
+		this.dateFormat = dateFormat;
+		return this;
+	}
+
+	/**
+	 * Loads the rows into the table over one connection. The rows iterator is
+	 * closed when done.
+	 *
+	 * @param rows
+	 *            rows to load, f.ex. from Excel.getRowIterator()
+	 * @param conn
+	 *            connection to the database
+	 * @return number of rows loaded
+	 * @throws SQLException
+	 *             if a row can't be loaded, after the transaction is rolled
+	 *             back
+	 */
+	public long load(RowIterator rows, Connection conn) throws SQLException {
+		long start = System.currentTimeMillis();
+		try {
+			List<TargetColumn> columns = getTargetColumns(rows.getHeaders(), conn);
+			boolean autoCommit = conn.getAutoCommit();
+			conn.setAutoCommit(false);
+			try (BatchWriter writer = new BatchWriter(conn, columns)) {
+				int rowNumber = 0;
+				while (rows.hasNext()) {
+					writer.add(rows.next(), ++rowNumber);
+					if (writer.getPendingRows() == batchSize) {
+						writer.executeBatch();
+					}
+				}
+				writer.executeBatch();
+				conn.commit();
+				logLoaded(writer.getLoadedRows(), writer.getBatches(), 1, start);
+				return writer.getLoadedRows();
+			} catch (SQLException | RuntimeException e) {
+				conn.rollback();
+				throw e;
+			} finally {
+				conn.setAutoCommit(autoCommit);
+			}
+		} finally {
+			rows.close();
+		}
+	}
+
+	/**
+	 * Loads the rows into the table over connections from the pool, in
+	 * parallel if more than one partition is set. The rows iterator is closed
+	 * when done.
+	 *
+	 * @param rows
+	 *            rows to load, f.ex. from Excel.getRowIterator()
+	 * @param pool
+	 *            connection pool of the database
+	 * @return number of rows loaded
+	 * @throws SQLException
+	 *             if a row can't be loaded, after all partitions are rolled
+	 *             back
+	 */
+	public long load(RowIterator rows, ConnectionPool pool) throws SQLException {
+		if (partitions == 1) {
+			try (Connection conn = pool.getConnection()) {
+				return load(rows, conn);
+			}
+		}
+
+		long start = System.currentTimeMillis();
+		List<Connection> connections = new ArrayList<>();
+		ExecutorService executor = Executors.newFixedThreadPool(partitions, new LoaderThreadFactory(tableName));
+		try {
+			for (int i = 0; i < partitions; i++) {
+				Connection conn = pool.getConnection();
+				connections.add(conn);
+				conn.setAutoCommit(false);
+			}
+			List<TargetColumn> columns = getTargetColumns(rows.getHeaders(), connections.get(0));
+
+			// The reader hands chunks of rows to the partitions, an empty
+			// chunk tells a partition that all rows are read
+			BlockingQueue<Chunk> chunks = new ArrayBlockingQueue<>(partitions * 2);
+			List<Future<BatchWriter>> results = new ArrayList<>();
+			for (Connection conn : connections) {
+				results.add(executor.submit(new Partition(conn, columns, chunks)));
+			}
+
+			int rowNumber = 0;
+			Chunk chunk = new Chunk(1);
+			while (rows.hasNext()) {
+				chunk.rows.add(rows.next());
+				if (++rowNumber % batchSize == 0) {
+					put(chunks, chunk, results);
+					chunk = new Chunk(rowNumber + 1);
+				}
+			}
+			if (!chunk.rows.isEmpty()) {
+				put(chunks, chunk, results);
+			}
+			for (int i = 0; i < partitions; i++) {
+				put(chunks, new Chunk(0), results);
+			}
+
+			long loadedRows = 0;
+			int batches = 0;
+			for (Future<BatchWriter> result : results) {
+				BatchWriter writer = getResult(result);
+				loadedRows += writer.getLoadedRows();
+				batches += writer.getBatches();
+			}
+			for (Connection conn : connections) {
+				conn.commit();
+			}
+			logLoaded(loadedRows, batches, partitions, start);
+			return loadedRows;
+		} catch (SQLException | RuntimeException e) {
+			executor.shutdownNow();
+			for (Connection conn : connections) {
+				try {
+					conn.rollback();
+				} catch (SQLException rollbackError) {
+					e.addSuppressed(rollbackError);
+				}
+			}
+			throw e;
+		} finally {
+			executor.shutdownNow();
+			rows.close();
+			for (Connection conn : connections) {
+				release(conn);
+			}
+		}
+	}
+
+	private static void release(Connection conn) {
+		try {
+			conn.setAutoCommit(true);
+			conn.close();
+		} catch (SQLException e) {
+			// the pool discards connections which can't be reset
+		}
+	}
+
+	private void put(BlockingQueue<Chunk> chunks, Chunk chunk, List<Future<BatchWriter>> results)
+			throws SQLException {
+		try {
+			while (!chunks.offer(chunk, 100, TimeUnit.MILLISECONDS)) {
+				// Stop reading if a partition failed
+				for (Future<BatchWriter> result : results) {
+					if (result.isDone()) {
+						getResult(result);
+					}
+				}
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new SQLException("Interrupted while loading table " + tableName, e);
+		}
+	}
+
+	private BatchWriter getResult(Future<BatchWriter> result) throws SQLException {
+		try {
+			return result.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new SQLException("Interrupted while loading table " + tableName, e);
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof SQLException) {
+				throw (SQLException) e.getCause();
+			}
+			if (e.getCause() instanceof RuntimeException) {
+				throw (RuntimeException) e.getCause();
+			}
+			throw new SQLException("Error loading table " + tableName, e.getCause());
+		}
+	}
+
+	private void logLoaded(long loadedRows, int batches, int usedPartitions, long start) {
+		Log.logScriptInfo(String.format("Loaded %d row(s) into table %s in %d batch(es) over %d connection(s) in %d ms",
+				loadedRows, tableName, batches, usedPartitions, System.currentTimeMillis() - start));
+	}
+
+	/**
+	 * Gets the table columns of the file columns to load, with their SQL types
+	 */
+	private List<TargetColumn> getTargetColumns(List<String> headers, Connection conn) throws SQLException {
+		List<TargetColumn> columns = new ArrayList<>();
+		Set<String> foundHeaders = new HashSet<>();
+		for (int i = 0; i < headers.size(); i++) {
+			String header = headers.get(i) == null ? "" : headers.get(i).trim();
+			String key = header.toLowerCase(Locale.ENGLISH);
+			if (header.isEmpty() || ignoredHeaders.contains(key)) {
+				continue;
+			}
+			foundHeaders.add(key);
+			String columnName = columnMapping.containsKey(key) ? columnMapping.get(key) : header;
+			columns.add(new TargetColumn(header, i, columnName));
+		}
+		for (String header : columnMapping.keySet()) {
+			if (!foundHeaders.contains(header) && !ignoredHeaders.contains(header)) {
+				throw new SetupException(String.format("Column [%s] does not exist in headers %s", header, headers));
+			}
+		}
+		if (columns.isEmpty()) {
+			throw new SetupException("No columns to load into table " + tableName);
+		}
+
+		StringBuilder sql = new StringBuilder("select ");
+		for (int i = 0; i < columns.size(); i++) {
+			sql.append(i == 0 ? "" : ", ").append(columns.get(i).name);
+		}
+		sql.append(" from ").append(tableName).append(" where 1 = 0");
+		try (Statement statement = conn.createStatement(); ResultSet rSet = statement.executeQuery(sql.toString())) {
+			ResultSetMetaData metaData = rSet.getMetaData();
+			for (int i = 0; i < columns.size(); i++) {
+				columns.get(i).sqlType = metaData.getColumnType(i + 1);
+			}
+		}
+		return columns;
+	}
+
+	private String getInsertSql(List<TargetColumn> columns) {
+		StringBuilder names = new StringBuilder();
+		StringBuilder values = new StringBuilder();
+		for (TargetColumn column : columns) {
+			if (names.length() > 0) {
+				names.append(", ");
+				values.append(", ");
+			}
+			names.append(column.name);
+			values.append('?');
+		}
+		return "insert into " + tableName + " (" + names + ") values (" + values + ")";
+	}
+
+	/**
+	 * File column loaded into a table column
+	 */
+	private static class TargetColumn {
+		private final String header;
+		private final int sourceIndex;
+		private final String name;
+		private int sqlType = Types.VARCHAR;
+
+		private TargetColumn(String header, int sourceIndex, String name) {
+			this.header = header;
+			this.sourceIndex = sourceIndex;
+			this.name = name;
+		}
+	}
+
+	/**
+	 * Rows read from the file, numbered from the first row of the chunk
+	 */
+	private static class Chunk {
+		private final int firstRowNumber;
+		private final List<String[]> rows = new ArrayList<>();
+
+		private Chunk(int firstRowNumber) {
+			this.firstRowNumber = firstRowNumber;
+		}
+	}
+
+	/**
+	 * Loads the chunks of rows of one partition over its connection
+	 */
+	private class Partition implements Callable<BatchWriter> {
+		private final Connection conn;
+		private final List<TargetColumn> columns;
+		private final BlockingQueue<Chunk> chunks;
+
+		private Partition(Connection conn, List<TargetColumn> columns, BlockingQueue<Chunk> chunks) {
+			this.conn = conn;
+			this.columns = columns;
+			this.chunks = chunks;
+		}
+
+		@Override
+		public BatchWriter call() throws Exception {
+			try (BatchWriter writer = new BatchWriter(conn, columns)) {
+				Chunk chunk;
+				while (!(chunk = chunks.take()).rows.isEmpty()) {
+					int rowNumber = chunk.firstRowNumber;
+					for (String[] row : chunk.rows) {
+						writer.add(row, rowNumber++);
+					}
+					writer.executeBatch();
+				}
+				return writer;
+			}
+		}
+	}
+
+	/**
+	 * Converts the rows to the column types and adds them to the batch of a
+	 * prepared insert statement
+	 */
+	private class BatchWriter implements AutoCloseable {
+		private final List<TargetColumn> columns;
+		private final PreparedStatement statement;
+		private final SimpleDateFormat dateParser;
+		private int pendingRows = 0;
+		private long loadedRows = 0;
+		private int batches = 0;
+
+		private BatchWriter(Connection conn, List<TargetColumn> columns) throws SQLException {
+			this.columns = columns;
+			this.statement = conn.prepareStatement(getInsertSql(columns));
+			this.dateParser = new SimpleDateFormat(dateFormat);
+			this.dateParser.setLenient(false);
+		}
+
+		private void add(String[] row, int rowNumber) throws SQLException {
+			for (int i = 0; i < columns.size(); i++) {
+				TargetColumn column = columns.get(i);
+				String value = column.sourceIndex < row.length ? row[column.sourceIndex] : null;
+				try {
+					setValue(i + 1, column.sqlType, value);
+				} catch (IllegalArgumentException | ArithmeticException e) {
+					throw new SQLException(String.format("Cannot convert value [%s] in row %d column [%s] for table %s",
+							value, rowNumber, column.header, tableName), e);
+				}
+			}
+			statement.addBatch();
+			pendingRows++;
+		}
+
+		private void setValue(int index, int sqlType, String value) throws SQLException {
+			if (value == null || value.trim().isEmpty()) {
+				statement.setNull(index, sqlType);
+				return;
+			}
+			String text = value.trim();
+			switch (sqlType) {
+			case Types.BIT:
+			case Types.BOOLEAN:
+				statement.setBoolean(index, parseBoolean(text));
+				break;
+			case Types.TINYINT:
+			case Types.SMALLINT:
+			case Types.INTEGER:
+				statement.setInt(index, new BigDecimal(text).intValueExact());
+				break;
+			case Types.BIGINT:
+				statement.setLong(index, new BigDecimal(text).longValueExact());
+				break;
+			case Types.REAL:
+			case Types.FLOAT:
+			case Types.DOUBLE:
+				statement.setDouble(index, Double.parseDouble(text));
+				break;
+			case Types.DECIMAL:
+			case Types.NUMERIC:
+				statement.setBigDecimal(index, new BigDecimal(text));
+				break;
+			case Types.DATE:
+				statement.setDate(index, new java.sql.Date(parseDate(text).getTime()));
+				break;
+			case Types.TIME:
+				statement.setTime(index, Time.valueOf(text));
+				break;
+			case Types.TIMESTAMP:
+			case Types.TIMESTAMP_WITH_TIMEZONE:
+				statement.setTimestamp(index, new Timestamp(parseDate(text).getTime()));
+				break;
+			default:
+				statement.setString(index, value);
+				break;
+			}
+		}
+
+		private boolean parseBoolean(String text) {
+			switch (text.toLowerCase(Locale.ENGLISH)) {
+			case "true":
+			case "yes":
+			case "y":
+			case "1":
+				return true;
+			case "false":
+			case "no":
+			case "n":
+			case "0":
+				return false;
+			default:
+				throw new IllegalArgumentException("Not a boolean: " + text);
+			}
+		}
+
+		private Date parseDate(String text) {
+			if (text.matches("\\d{4}-\\d{1,2}-\\d{1,2}")) {
+				return java.sql.Date.valueOf(text);
+			}
+			if (text.matches("\\d{4}-\\d{1,2}-\\d{1,2} \\d{1,2}:\\d{2}:\\d{2}(\\.\\d+)?")) {
+				return Timestamp.valueOf(text);
+			}
+			ParsePosition position = new ParsePosition(0);
+			Date date = dateParser.parse(text, position);
+			if (date == null || position.getIndex() != text.length()) {
+				throw new IllegalArgumentException("Date does not match format " + dateFormat + ": " + text);
+			}
+			return date;
+		}
+
+		private void executeBatch() throws SQLException {
+			if (pendingRows == 0) {
+				return;
+			}
+			statement.executeBatch();
+			loadedRows += pendingRows;
+			pendingRows = 0;
+			batches++;
+		}
+
+		private int getPendingRows() {
+			return pendingRows;
+		}
+
+		private long getLoadedRows() {
+			return loadedRows;
+		}
+
+		private int getBatches() {
+			return batches;
+		}
+
+		@Override
+		public void close() throws SQLException {
+			statement.close();
+		}
+	}
+
+	/**
+	 * Creates the daemon threads of the partitions
+	 */
+	private static class LoaderThreadFactory implements ThreadFactory {
+		private final String tableName;
+		private final AtomicInteger count = new AtomicInteger();
+
+		private LoaderThreadFactory(String tableName) {
+			this.tableName = tableName;
+		}
+
+		@Override
+		public Thread newThread(Runnable runnable) {
+			Thread thread = new Thread(runnable, "bulk-loader-" + tableName + "-" + count.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		}
+	}
+}
@@ -0,0 +1,428 @@
+package core.utilities.database;
+
+import java.lang.ref.WeakReference;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import core.utilities.Log;
+
+/**
+ * Pool of JDBC connections to one {@link DatabaseTarget}. Connections are
+ * opened on demand up to the maximum pool size and are handed out as
+ * wrappers; closing the wrapper returns the connection to the pool instead
+ * of closing it. Idle connections are validated before they are handed out
+ * again and closed after the idle timeout, keeping at least the minimum pool
+ * size open. Connections which are not returned within the leak detection
+ * threshold are reported together with the stack trace of the code that
+ * borrowed them.
+ * <p>
+ * The pool settings are initialized from the AUTOMATION_DATABASE_POOL_*
+ * global parameters. Every connection keeps a {@link StatementCache} of the
+ * size given by AUTOMATION_DATABASE_STATEMENT_CACHE_SIZE.
+ */
+public class ConnectionPool {
+
+	/** Maximum interval of the housekeeping of a pool in milliseconds */
+	private static final long HOUSEKEEPING_INTERVAL = 30000;
+
+	private static final ScheduledExecutorService housekeeper = Executors
+			.newSingleThreadScheduledExecutor(new ThreadFactory() {
+				@Override
+				public Thread newThread(Runnable runnable) {
+					Thread thread = new Thread(runnable, "database-pool-housekeeper");
+					thread.setDaemon(true);
+					return thread;
+				}
+			});
+
+	private final DatabaseTarget target;
+	private final int minSize;
+	private final int maxSize;
+	private final String validationQuery;
+	private final long idleTimeout;
+	private final long leakDetectionThreshold;
+	private final long connectionTimeout;
+	private final int statementCacheSize = Log.AUTOMATION_DATABASE_STATEMENT_CACHE_SIZE;
+
+	private final Semaphore permits;
+	private final LinkedBlockingDeque<PooledConnection> idleConnections = new LinkedBlockingDeque<>();
+	private final Set<PooledConnection> borrowedConnections = ConcurrentHashMap.newKeySet();
+	private volatile boolean closed = false;
+	private boolean driverLoaded = false;
+
+	/**
+	 * Constructor for the ConnectionPool class with the settings of the
+	 * AUTOMATION_DATABASE_POOL_* global parameters
+	 *
+	 * @param target
+	 *            database to connect to
+	 */
+	public ConnectionPool(DatabaseTarget target) {
+		this(target, Log.AUTOMATION_DATABASE_POOL_MIN_SIZE, Log.AUTOMATION_DATABASE_POOL_MAX_SIZE,
+				Log.AUTOMATION_DATABASE_POOL_VALIDATION_QUERY, Log.AUTOMATION_DATABASE_POOL_IDLE_TIMEOUT,
+				Log.AUTOMATION_DATABASE_POOL_LEAK_DETECTION_THRESHOLD, Log.AUTOMATION_DATABASE_POOL_CONNECTION_TIMEOUT);
+	}
+
+	/**
+	 * Constructor for the ConnectionPool class
+	 *
+	 * @param target
+	 *            database to connect to
+	 * @param minSize
+	 *            minimum number of connections kept open
+	 * @param maxSize
+	 *            maximum number of connections opened at the same time
+	 * @param validationQuery
+	 *            query to validate idle connections with, empty to use
+	 *            {@link Connection#isValid(int)}
+	 * @param idleTimeout
+	 *            seconds an unused connection is kept open
+	 * @param leakDetectionThreshold
+	 *            seconds a connection may be borrowed before it is reported as
+	 *            possible leak, 0 to turn leak detection off
+	 * @param connectionTimeout
+	 *            seconds to wait for a free connection when all connections
+	 *            are borrowed
+	 */
+	public ConnectionPool(DatabaseTarget target, int minSize, int maxSize, String validationQuery, int idleTimeout,
+			int leakDetectionThreshold, int connectionTimeout) {
+		this.target = target;
+		this.maxSize = Math.max(1, maxSize);
+		this.minSize = Math.max(0, Math.min(minSize, this.maxSize));
+		this.validationQuery = validationQuery == null ? "" : validationQuery.trim();
+		this.idleTimeout = TimeUnit.SECONDS.toMillis(idleTimeout);
+		this.leakDetectionThreshold = TimeUnit.SECONDS.toMillis(leakDetectionThreshold);
+		this.connectionTimeout = TimeUnit.SECONDS.toMillis(connectionTimeout);
+		this.permits = new Semaphore(this.maxSize, true);
+
+		// Check for leaks often enough to report them close to the threshold
+		long interval = HOUSEKEEPING_INTERVAL;
+		if (this.leakDetectionThreshold > 0) {
+			interval = Math.max(1000, Math.min(interval, this.leakDetectionThreshold / 2));
+		}
+		housekeeper.scheduleWithFixedDelay(new Housekeeping(this), interval, interval, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * Gets the database the pool connects to
+	 *
+	 * @return database target
+	 */
+	public DatabaseTarget getTarget() {
+		return target;
+	}
+
+	/**
+	 * Borrows a connection from the pool. An idle connection is reused if it
+	 * is still valid, otherwise a new connection is opened. The connection
+	 * must be closed to return it to the pool.
+	 *
+	 * @return pooled connection
+	 * @throws SQLException
+	 *             if no connection could be opened or the pool is exhausted
+	 *             for longer than the connection timeout
+	 */
+	public Connection getConnection() throws SQLException {
+		if (closed) {
+			throw new SQLException("Connection pool is closed: " + target);
+		}
+
+		try {
+			if (!permits.tryAcquire(connectionTimeout, TimeUnit.MILLISECONDS)) {
+				throw new SQLException(String.format(
+						"Timed out after %d ms waiting for a connection to %s, all %d connection(s) are in use",
+						connectionTimeout, target, maxSize));
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new SQLException("Interrupted while waiting for a connection to " + target, e);
+		}
+
+		try {
+			PooledConnection pooled;
+			while ((pooled = idleConnections.pollFirst()) != null) {
+				if (isValid(pooled.physical)) {
+					break;
+				}
+				closeQuietly(pooled.physical);
+			}
+			if (pooled == null) {
+				pooled = new PooledConnection(openConnection());
+			}
+
+			pooled.borrowedAt = System.currentTimeMillis();
+			pooled.leakReported = false;
+			if (leakDetectionThreshold > 0) {
+				pooled.borrowedBy = new Throwable("Connection borrowed by thread " + Thread.currentThread().getName());
+			}
+			borrowedConnections.add(pooled);
+			return pooled.createHandle();
+		} catch (SQLException | RuntimeException e) {
+			permits.release();
+			throw e;
+		}
+	}
+
+	/**
+	 * Gets the number of connections borrowed from the pool
+	 *
+	 * @return number of active connections
+	 */
+	public int getActiveConnections() {
+		return borrowedConnections.size();
+	}
+
+	/**
+	 * Gets the number of open connections waiting in the pool
+	 *
+	 * @return number of idle connections
+	 */
+	public int getIdleConnections() {
+		return idleConnections.size();
+	}
+
+	/**
+	 * Closes all idle connections and the connections which are returned to
+	 * the pool from now on. The pool can't be used anymore after closing.
+	 */
+	public void close() {
+		closed = true;
+
+		PooledConnection pooled;
+		while ((pooled = idleConnections.pollFirst()) != null) {
+			closeQuietly(pooled.physical);
+		}
+		if (!borrowedConnections.isEmpty()) {
+			Log.logDebugInfo(String.format("Connection pool %s closed with %d connection(s) still in use", target,
+					borrowedConnections.size()));
+		}
+	}
+
+	private Connection openConnection() throws SQLException {
+		synchronized (this) {
+			if (!driverLoaded) {
+				try {
+					Class.forName(target.getDriverClass());
+				} catch (ClassNotFoundException e) {
+					throw new SQLException("JDBC driver not found: " + target.getDriverClass(), e);
+				}
+				driverLoaded = true;
+			}
+		}
+
+		Connection connection = DriverManager.getConnection(target.getConnectionUrl(), target.getUserName(),
+				target.getDecryptedPassword());
+		Log.logDebugInfo("Database connection opened to " + target.getConnectionUrl());
+		return connection;
+	}
+
+	private boolean isValid(Connection connection) {
+		try {
+			if (connection.isClosed()) {
+				return false;
+			}
+			if (validationQuery.isEmpty()) {
+				return connection.isValid(5);
+			}
+			try (Statement statement = connection.createStatement()) {
+				statement.execute(validationQuery);
+			}
+			return true;
+		} catch (SQLException | AbstractMethodError e) {
+			return false;
+		}
+	}
+
+	private void release(PooledConnection pooled) {
+		if (!borrowedConnections.remove(pooled)) {
+			return;
+		}
+
+		try {
+			boolean reusable = !closed && !pooled.physical.isClosed();
+			if (reusable && !pooled.physical.getAutoCommit()) {
+				// Discard the uncommitted work of the borrower
+				pooled.physical.rollback();
+				pooled.physical.setAutoCommit(true);
+			}
+			if (reusable) {
+				pooled.lastUsed = System.currentTimeMillis();
+				pooled.borrowedBy = null;
+				idleConnections.offerFirst(pooled);
+			} else {
+				closeQuietly(pooled.physical);
+			}
+		} catch (SQLException e) {
+			closeQuietly(pooled.physical);
+		} finally {
+			permits.release();
+		}
+	}
+
+	private void housekeep() {
+		long now = System.currentTimeMillis();
+
+		// Close connections idle for too long, the least recently used first
+		if (idleTimeout > 0) {
+			while (idleConnections.size() + borrowedConnections.size() > minSize) {
+				PooledConnection pooled = idleConnections.peekLast();
+				if (pooled == null || now - pooled.lastUsed < idleTimeout || !idleConnections.remove(pooled)) {
+					break;
+				}
+				closeQuietly(pooled.physical);
+			}
+		}
+
+		// Top up the pool to the minimum size
+		while (!closed && idleConnections.size() + borrowedConnections.size() < minSize
+				&& permits.tryAcquire()) {
+			try {
+				PooledConnection pooled = new PooledConnection(openConnection());
+				pooled.lastUsed = now;
+				idleConnections.offerLast(pooled);
+			} catch (SQLException e) {
+				Log.logDebugInfo("Could not open database connection to " + target + ": " + e.getMessage());
+				break;
+			} finally {
+				permits.release();
+			}
+		}
+
+		// Report connections which are borrowed for too long
+		if (leakDetectionThreshold > 0) {
+			for (PooledConnection pooled : borrowedConnections) {
+				if (!pooled.leakReported && now - pooled.borrowedAt > leakDetectionThreshold) {
+					pooled.leakReported = true;
+					StringBuilder trace = new StringBuilder();
+					if (pooled.borrowedBy != null) {
+						for (StackTraceElement element : pooled.borrowedBy.getStackTrace()) {
+							trace.append(System.lineSeparator()).append("\tat ").append(element);
+						}
+					}
+					Log.logScriptInfo(String.format(
+							"Possible connection leak: connection to %s is in use for %d ms. %s%s", target,
+							now - pooled.borrowedAt,
+							pooled.borrowedBy == null ? "" : pooled.borrowedBy.getMessage(), trace));
+				}
+			}
+		}
+	}
+
+	private static void closeQuietly(Connection connection) {
+		try {
+			connection.close();
+		} catch (SQLException e) {
+			// connection is discarded anyway
+		}
+	}
+
+	/**
+	 * Physical connection owned by the pool
+	 */
+	private class PooledConnection {
+		private final Connection physical;
+		private final StatementCache statementCache;
+		private volatile long lastUsed = System.currentTimeMillis();
+		private volatile long borrowedAt;
+		private volatile Throwable borrowedBy;
+		private volatile boolean leakReported;
+
+		private PooledConnection(Connection physical) {
+			this.physical = physical;
+			this.statementCache = new StatementCache(physical, statementCacheSize);
+		}
+
+		/**
+		 * Creates the connection handed out to the borrower. Closing it
+		 * returns the physical connection to the pool, any other call on a
+		 * closed handle fails. The statement cache of the connection is
+		 * available by unwrapping the handle to {@link StatementCache}.
+		 */
+		private Connection createHandle() {
+			return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+					new Class<?>[] { Connection.class }, new InvocationHandler() {
+						private volatile boolean handleClosed = false;
+
+						@Override
+						public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+							switch (method.getName()) {
+							case "close":
+								if (!handleClosed) {
+									handleClosed = true;
+									release(PooledConnection.this);
+								}
+								return null;
+							case "isClosed":
+								return handleClosed || physical.isClosed();
+							case "isWrapperFor":
+								if (args[0] == StatementCache.class) {
+									return true;
+								}
+								return physical.isWrapperFor((Class<?>) args[0]);
+							case "unwrap":
+								if (args[0] == StatementCache.class) {
+									return statementCache;
+								}
+								return physical.unwrap((Class<?>) args[0]);
+							case "equals":
+								return proxy == args[0];
+							case "hashCode":
+								return System.identityHashCode(proxy);
+							case "toString":
+								return "Pooled connection to " + target + (handleClosed ? " (closed)" : "");
+							default:
+								if (handleClosed) {
+									throw new SQLException("Connection is closed");
+								}
+								try {
+									return method.invoke(physical, args);
+								} catch (InvocationTargetException e) {
+									throw e.getCause();
+								}
+							}
+						}
+					});
+		}
+	}
+
+	/**
+	 * Housekeeping task which stops when the pool is closed. Holds the pool
+	 * weakly so pools which are not referenced anymore are not kept open by
+	 * the housekeeper.
+	 */
+	private static class Housekeeping implements Runnable {
+		private final WeakReference<ConnectionPool> pool;
+
+		private Housekeeping(ConnectionPool pool) {
+			this.pool = new WeakReference<>(pool);
+		}
+
+		@Override
+		public void run() {
+			ConnectionPool connectionPool = pool.get();
+			if (connectionPool == null || connectionPool.closed) {
+				// Cancels the scheduled housekeeping of the pool
+				throw new IllegalStateException("Connection pool closed");
+			}
+			try {
+				connectionPool.housekeep();
+			} catch (RuntimeException e) {
+				Log.logDebugInfo("Error in connection pool housekeeping: " + e.getMessage());
+			}
+		}
+	}
+}
@@ -0,0 +1,261 @@
+package core.utilities.database;
+
+import java.util.Properties;
+
+import core.utilities.Encrypt;
+import core.utilities.Log;
+
+/**
+ * Connection settings of one database: system, server, port, instance and
+ * credentials. A target is the same set of values as the
+ * AUTOMATION_DATABASE_SERVER_* properties in automation.properties file.
+ * <p>
+ * Supported database systems are ORACLE, MYSQL, MSSQL (SQLSERVER), DB2,
+ * SYBASE, H2 and DERBY. H2 and DERBY may be used as embedded stand-ins for
+ * tests, f.ex. new DatabaseTarget("test", "H2", "", "",
+ * "mem:testdb;DB_CLOSE_DELAY=-1", "sa", "") connects to an in-memory H2
+ * database.
+ */
+public class DatabaseTarget {
+
+	private final String name;
+	private final String system;
+	private final String serverName;
+	private final String port;
+	private final String instanceName;
+	private final String userName;
+	private final String password;
+
+	/**
+	 * Constructor for the DatabaseTarget class
+	 *
+	 * @param name
+	 *            name of the target the connection pool is registered under
+	 * @param system
+	 *            database system, f.ex. ORACLE or MSSQL
+	 * @param serverName
+	 *            database server name or IP address, empty for embedded
+	 *            databases
+	 * @param port
+	 *            database server port
+	 * @param instanceName
+	 *            database name or instance
+	 * @param userName
+	 *            database user name
+	 * @param password
+	 *            database password encrypted with
+	 *            {@link Encrypt#encryptPassword(String)}
+	 */
+	public DatabaseTarget(String name, String system, String serverName, String port, String instanceName,
+			String userName, String password) {
+		this.name = name;
+		this.system = system == null ? "" : system.trim();
+		this.serverName = serverName == null ? "" : serverName.trim();
+		this.port = port == null ? "" : port.trim();
+		this.instanceName = instanceName == null ? "" : instanceName.trim();
+		this.userName = userName == null ? "" : userName;
+		this.password = password == null ? "" : password;
+	}
+
+	/**
+	 * Creates the target from the current values of the global
+	 * AUTOMATION_DATABASE_SERVER_* parameters. The target is named after the
+	 * user and connection url, so re-initializing the parameters to connect to
+	 * another database gives a different target.
+	 *
+	 * @return target of the default database
+	 */
+	public static DatabaseTarget fromAutomationProperties() {
+		DatabaseTarget target = new DatabaseTarget("", Log.AUTOMATION_DATABASE_SERVER_SYSTEM,
+				Log.AUTOMATION_DATABASE_SERVER_NAME, Log.AUTOMATION_DATABASE_SERVER_PORT,
+				Log.AUTOMATION_DATABASE_SERVER_INSTANCE_NAME, Log.AUTOMATION_DATABASE_SERVER_USERNAME,
+				Log.AUTOMATION_DATABASE_SERVER_PASSWORD);
+		return new DatabaseTarget(target.getUserName() + "@" + target.getConnectionUrl(), target.getSystem(),
+				target.getServerName(), target.getPort(), target.getInstanceName(), target.getUserName(),
+				target.getPassword());
+	}
+
+	/**
+	 * Creates the target of the named database profile in
+	 * automation.properties file. A profile is set up with the
+	 * AUTOMATION_DATABASE_SERVER_* properties followed by a dot and the
+	 * profile name, f.ex. AUTOMATION_DATABASE_SERVER_NAME.REPORTING=10.0.0.1.
+	 * Properties not set for the profile are taken from the default database
+	 * properties.
+	 *
+	 * @param profile
+	 *            name of the database profile
+	 * @return target of the database profile
+	 */
+	public static DatabaseTarget fromAutomationProperties(String profile) {
+		Properties properties = Log.getAutomationProperties();
+		return new DatabaseTarget(profile,
+				getProfileProperty(properties, "AUTOMATION_DATABASE_SERVER_SYSTEM", profile,
+						Log.AUTOMATION_DATABASE_SERVER_SYSTEM),
+				getProfileProperty(properties, "AUTOMATION_DATABASE_SERVER_NAME", profile,
+						Log.AUTOMATION_DATABASE_SERVER_NAME),
+				getProfileProperty(properties, "AUTOMATION_DATABASE_SERVER_PORT", profile,
+						Log.AUTOMATION_DATABASE_SERVER_PORT),
+				getProfileProperty(properties, "AUTOMATION_DATABASE_SERVER_INSTANCE_NAME", profile,
+						Log.AUTOMATION_DATABASE_SERVER_INSTANCE_NAME),
+				getProfileProperty(properties, "AUTOMATION_DATABASE_SERVER_USERNAME", profile,
+						Log.AUTOMATION_DATABASE_SERVER_USERNAME),
+				getProfileProperty(properties, "AUTOMATION_DATABASE_SERVER_PASSWORD", profile,
+						Log.AUTOMATION_DATABASE_SERVER_PASSWORD));
+	}
+
+	private static String getProfileProperty(Properties properties, String key, String profile,
+			String defaultValue) {
+		String value = properties.getProperty(key + "." + profile);
+		if (value == null || value.isEmpty()) {
+			return defaultValue;
+		}
+		return value;
+	}
+
+	/**
+	 * Gets the name of the target
+	 *
+	 * @return target name
+	 */
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * Gets the database system, f.ex. ORACLE or MSSQL
+	 *
+	 * @return database system
+	 */
+	public String getSystem() {
+		return system;
+	}
+
+	/**
+	 * Gets the database server name or IP address
+	 *
+	 * @return server name
+	 */
+	public String getServerName() {
+		return serverName;
+	}
+
+	/**
+	 * Gets the database server port
+	 *
+	 * @return server port
+	 */
+	public String getPort() {
+		return port;
+	}
+
+	/**
+	 * Gets the database name or instance
+	 *
+	 * @return instance name
+	 */
+	public String getInstanceName() {
+		return instanceName;
+	}
+
+	/**
+	 * Gets the database user name
+	 *
+	 * @return user name
+	 */
+	public String getUserName() {
+		return userName;
+	}
+
+	String getPassword() {
+		return password;
+	}
+
+	String getDecryptedPassword() {
+		return Encrypt.decryptPassword(password);
+	}
+
+	/**
+	 * Gets the class name of the JDBC driver of the database system
+	 *
+	 * @return JDBC driver class name
+	 */
+	public String getDriverClass() {
+		switch (system.toUpperCase()) {
+
+		case "ORACLE":
+			return "oracle.jdbc.driver.OracleDriver";
+
+		case "MYSQL":
+			return "com.mysql.jdbc.Driver";
+
+		case "SQLSERVER":
+		case "MSSQL":
+			return "com.microsoft.sqlserver.jdbc.SQLServerDriver";
+
+		case "DB2":
+			return "COM.ibm.db2os390.sqlj.jdbc.DB2SQLJDriver";
+
+		case "SYBASE":
+			return "com.sybase.jdbc3.jdbc.SybDriver";
+
+		case "H2":
+			return "org.h2.Driver";
+
+		case "DERBY":
+			return serverName.isEmpty() ? "org.apache.derby.jdbc.EmbeddedDriver"
+					: "org.apache.derby.jdbc.ClientDriver";
+
+		default:
+			Log.errorHandler(
+					"Supported Database and values in Log.AUTOMATION_DATABASE_SERVER_SYSTEM variable in automation.properties/script are : ORACLE or MYSQL or MSSQL or SQLSERVER or DB2 or SYBASE or H2 or DERBY");
+			return null;
+		}
+	}
+
+	/**
+	 * Gets the JDBC connection url of the database
+	 *
+	 * @return JDBC connection url
+	 */
+	public String getConnectionUrl() {
+		switch (system.toUpperCase()) {
+
+		case "ORACLE":
+			return "jdbc:oracle:thin:@" + serverName + ":" + port + ":" + instanceName;
+
+		case "MYSQL":
+			return "jdbc:mysql://" + serverName + ":" + port + "/" + instanceName;
+
+		case "SQLSERVER":
+		case "MSSQL":
+			return "jdbc:sqlserver://" + serverName + ":" + port + ";databaseName=" + instanceName;
+
+		case "DB2":
+			return "jdbc:db2://" + serverName + ":" + port + "/" + instanceName;
+
+		case "SYBASE":
+			return "jdbc:sybase:Tds:" + serverName + ":" + port + "/" + instanceName;
+
+		case "H2":
+			if (serverName.isEmpty()) {
+				return "jdbc:h2:" + instanceName;
+			}
+			return "jdbc:h2:tcp://" + serverName + (port.isEmpty() ? "" : ":" + port) + "/" + instanceName;
+
+		case "DERBY":
+			if (serverName.isEmpty()) {
+				return "jdbc:derby:" + instanceName;
+			}
+			return "jdbc:derby://" + serverName + (port.isEmpty() ? "" : ":" + port) + "/" + instanceName;
+
+		default:
+			return "jdbc:" + system.toLowerCase() + "://" + serverName + ":" + port + "/" + instanceName;
+		}
+	}
+
+	@Override
+	public String toString() {
+		return name;
+	}
+}
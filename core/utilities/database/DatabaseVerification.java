@@ -0,0 +1,428 @@
+package core.utilities.database;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+import core.utilities.Database;
+import core.utilities.Log;
+
+/**
+ * Runs database verifications in the background while the test continues
+ * with the next steps. Queries are executed on a dedicated executor of
+ * AUTOMATION_DATABASE_VERIFY_THREADS threads, every query on its own pooled
+ * connection, so they never share the connection of the test thread.
+ * <p>
+ * Verifications started with the verify methods are registered with the
+ * current testcase; {@link Log#finishTestCase()} waits for them, logs the
+ * passed ones and fails the testcase with all failed ones. The background
+ * threads don't write to the log or the report themselves.
+ * <p>
+ * Example, checking the rows an order form inserted and updated:
+ *
+ * <pre>
+ * CompletableFuture&lt;TableSnapshot&gt; before = DatabaseVerification.snapshotAsync("ORDERS",
+ * 		new String[] { "ORDER_ID" }, "CUSTOMER_ID = ?", customerId);
+ * // ... submit the order form ...
+ * DatabaseVerification.verifyChangesAsync("order saved", before, new Predicate&lt;SnapshotDiff&gt;() {
+ * 	public boolean test(SnapshotDiff diff) {
+ * 		return diff.getAdded().size() == 1 &amp;&amp; diff.getRemoved().isEmpty();
+ * 	}
+ * });
+ * </pre>
+ */
+public final class DatabaseVerification {
+
+	private static final ThreadLocal<List<Verification>> pending = new ThreadLocal<List<Verification>>() {
+		@Override
+		protected List<Verification> initialValue() {
+			return new ArrayList<>();
+		}
+	};
+
+	private static ExecutorService executor;
+
+	private DatabaseVerification() {
+	}
+
+	/**
+	 * Executes a parameterized SQL query asynchronously on a connection of
+	 * the default connection pool
+	 *
+	 * @param sql
+	 *            SQL query with ? placeholders
+	 * @param mapper
+	 *            mapper of the rows
+	 * @param params
+	 *            values of the placeholders
+	 * @param <T>
+	 *            type of the mapped rows
+	 * @return future of the mapped rows
+	 */
+	public static <T> CompletableFuture<List<T>> queryAsync(String sql, RowMapper<T> mapper, Object... params) {
+		return queryAsync(Database.getConnectionPool(), sql, mapper, params);
+	}
+
+	/**
+	 * Executes a parameterized SQL query asynchronously on a connection of
+	 * the connection pool
+	 *
+	 * @param pool
+	 *            connection pool of the database
+	 * @param sql
+	 *            SQL query with ? placeholders
+	 * @param mapper
+	 *            mapper of the rows
+	 * @param params
+	 *            values of the placeholders
+	 * @param <T>
+	 *            type of the mapped rows
+	 * @return future of the mapped rows
+	 */
+	public static <T> CompletableFuture<List<T>> queryAsync(final ConnectionPool pool, final String sql,
+			final RowMapper<T> mapper, final Object... params) {
+		return CompletableFuture.supplyAsync(new Supplier<List<T>>() {
+			@Override
+			public List<T> get() {
+				try (Connection conn = pool.getConnection()) {
+					return query(conn, sql, mapper, params);
+				} catch (SQLException e) {
+					throw new CompletionException(e);
+				}
+			}
+		}, getExecutor());
+	}
+
+	/**
+	 * Executes a parameterized SQL query asynchronously on the default
+	 * connection pool and verifies the rows with the condition. The result is
+	 * checked when the testcase finishes.
+	 *
+	 * @param description
+	 *            description of the verification for the log
+	 * @param sql
+	 *            SQL query with ? placeholders
+	 * @param mapper
+	 *            mapper of the rows
+	 * @param condition
+	 *            condition the rows must meet
+	 * @param params
+	 *            values of the placeholders
+	 * @param <T>
+	 *            type of the mapped rows
+	 * @return future of the verification result
+	 */
+	public static <T> CompletableFuture<Boolean> verifyAsync(String description, String sql, RowMapper<T> mapper,
+			Predicate<List<T>> condition, Object... params) {
+		return verifyAsync(description, Database.getConnectionPool(), sql, mapper, condition, params);
+	}
+
+	/**
+	 * Executes a parameterized SQL query asynchronously on the connection
+	 * pool and verifies the rows with the condition. The result is checked
+	 * when the testcase finishes.
+	 *
+	 * @param description
+	 *            description of the verification for the log
+	 * @param pool
+	 *            connection pool of the database
+	 * @param sql
+	 *            SQL query with ? placeholders
+	 * @param mapper
+	 *            mapper of the rows
+	 * @param condition
+	 *            condition the rows must meet
+	 * @param params
+	 *            values of the placeholders
+	 * @param <T>
+	 *            type of the mapped rows
+	 * @return future of the verification result
+	 */
+	public static <T> CompletableFuture<Boolean> verifyAsync(String description, ConnectionPool pool, String sql,
+			RowMapper<T> mapper, final Predicate<List<T>> condition, Object... params) {
+		CompletableFuture<Outcome> outcome = queryAsync(pool, sql, mapper, params)
+				.thenApply(new Function<List<T>, Outcome>() {
+					@Override
+					public Outcome apply(List<T> rows) {
+						return new Outcome(condition.test(rows), summarize(rows));
+					}
+				});
+		return register(description, outcome);
+	}
+
+	/**
+	 * Takes a snapshot of rows of a table asynchronously on the default
+	 * connection pool
+	 *
+	 * @param tableName
+	 *            name of the table
+	 * @param keyColumns
+	 *            primary key columns identifying the rows
+	 * @param where
+	 *            condition selecting the rows with ? placeholders, null or
+	 *            empty for all rows
+	 * @param params
+	 *            values of the placeholders
+	 * @return future of the snapshot
+	 */
+	public static CompletableFuture<TableSnapshot> snapshotAsync(String tableName, String[] keyColumns, String where,
+			Object... params) {
+		return snapshotAsync(Database.getConnectionPool(), tableName, keyColumns, where, params);
+	}
+
+	/**
+	 * Takes a snapshot of rows of a table asynchronously on the connection
+	 * pool
+	 *
+	 * @param pool
+	 *            connection pool of the database
+	 * @param tableName
+	 *            name of the table
+	 * @param keyColumns
+	 *            primary key columns identifying the rows
+	 * @param where
+	 *            condition selecting the rows with ? placeholders, null or
+	 *            empty for all rows
+	 * @param params
+	 *            values of the placeholders
+	 * @return future of the snapshot
+	 */
+	public static CompletableFuture<TableSnapshot> snapshotAsync(final ConnectionPool pool, final String tableName,
+			final String[] keyColumns, final String where, final Object... params) {
+		return CompletableFuture.supplyAsync(new Supplier<TableSnapshot>() {
+			@Override
+			public TableSnapshot get() {
+				try (Connection conn = pool.getConnection()) {
+					return TableSnapshot.take(conn, tableName, keyColumns, where, params);
+				} catch (SQLException e) {
+					throw new CompletionException(e);
+				}
+			}
+		}, getExecutor());
+	}
+
+	/**
+	 * Takes a second snapshot of the rows of an earlier snapshot
+	 * asynchronously on the default connection pool and verifies the
+	 * differences with the condition. The result is checked when the testcase
+	 * finishes.
+	 *
+	 * @param description
+	 *            description of the verification for the log
+	 * @param before
+	 *            future of the earlier snapshot
+	 * @param condition
+	 *            condition the differences must meet
+	 * @return future of the verification result
+	 */
+	public static CompletableFuture<Boolean> verifyChangesAsync(String description,
+			CompletableFuture<TableSnapshot> before, Predicate<SnapshotDiff> condition) {
+		return verifyChangesAsync(description, Database.getConnectionPool(), before, condition);
+	}
+
+	/**
+	 * Takes a second snapshot of the rows of an earlier snapshot
+	 * asynchronously on the connection pool and verifies the differences with
+	 * the condition. The result is checked when the testcase finishes.
+	 *
+	 * @param description
+	 *            description of the verification for the log
+	 * @param pool
+	 *            connection pool of the database
+	 * @param before
+	 *            future of the earlier snapshot
+	 * @param condition
+	 *            condition the differences must meet
+	 * @return future of the verification result
+	 */
+	public static CompletableFuture<Boolean> verifyChangesAsync(String description, final ConnectionPool pool,
+			CompletableFuture<TableSnapshot> before, final Predicate<SnapshotDiff> condition) {
+		CompletableFuture<Outcome> outcome = before.thenApplyAsync(new Function<TableSnapshot, Outcome>() {
+			@Override
+			public Outcome apply(TableSnapshot snapshot) {
+				try (Connection conn = pool.getConnection()) {
+					SnapshotDiff diff = snapshot.diff(snapshot.retake(conn));
+					return new Outcome(condition.test(diff), diff.toString());
+				} catch (SQLException e) {
+					throw new CompletionException(e);
+				}
+			}
+		}, getExecutor());
+		return register(description, outcome);
+	}
+
+	/**
+	 * Gets the number of verifications of the current testcase not checked
+	 * yet
+	 *
+	 * @return number of pending verifications
+	 */
+	public static int getPendingCount() {
+		return pending.get().size();
+	}
+
+	/**
+	 * Waits for the pending verifications of the current testcase, at most
+	 * AUTOMATION_DATABASE_VERIFY_TIMEOUT seconds in total, and logs their
+	 * results. Called by {@link Log#finishTestCase()}.
+	 * <p>
+	 * All failed verifications are reported together with
+	 * {@link Log#errorHandler(String)}, which fails the testcase.
+	 */
+	public static void awaitPending() {
+		List<Verification> verifications = pending.get();
+		if (verifications.isEmpty()) {
+			return;
+		}
+		List<Verification> waiting = new ArrayList<>(verifications);
+		verifications.clear();
+
+		long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(Log.AUTOMATION_DATABASE_VERIFY_TIMEOUT);
+		StringBuilder failures = new StringBuilder();
+		int failed = 0;
+		for (Verification verification : waiting) {
+			String failure;
+			try {
+				Outcome outcome = verification.outcome.get(Math.max(0, deadline - System.nanoTime()),
+						TimeUnit.NANOSECONDS);
+				if (outcome.passed) {
+					Log.logScriptInfo("Verified: " + verification.description + " - " + outcome.details);
+					continue;
+				}
+				failure = "Verification failed: " + verification.description + " - " + outcome.details;
+			} catch (TimeoutException e) {
+				verification.outcome.cancel(false);
+				failure = "Verification timed out after " + Log.AUTOMATION_DATABASE_VERIFY_TIMEOUT + " seconds: "
+						+ verification.description;
+			} catch (ExecutionException e) {
+				failure = "Verification error: " + verification.description + " - " + e.getCause();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				failure = "Verification interrupted: " + verification.description;
+			}
+			failures.append("\r\n").append(failure);
+			failed++;
+		}
+
+		if (failed > 0) {
+			Log.errorHandler(failed + " of " + waiting.size() + " database verification(s) failed" + failures);
+		}
+	}
+
+	/**
+	 * Drops the pending verifications of the previous testcase on this
+	 * thread, f.ex. when it ended without {@link Log#finishTestCase()}, so
+	 * they are not reported in the next testcase. Called by
+	 * {@link Log#startTestCase(String)}.
+	 */
+	public static void clearPending() {
+		List<Verification> verifications = pending.get();
+		if (verifications.isEmpty()) {
+			return;
+		}
+		for (Verification verification : verifications) {
+			verification.outcome.cancel(false);
+		}
+		Log.logDebugInfo(verifications.size() + " database verification(s) of the previous testcase not checked");
+		verifications.clear();
+	}
+
+	private static CompletableFuture<Boolean> register(String description, CompletableFuture<Outcome> outcome) {
+		pending.get().add(new Verification(description, outcome));
+		return outcome.thenApply(new Function<Outcome, Boolean>() {
+			@Override
+			public Boolean apply(Outcome result) {
+				return result.passed;
+			}
+		});
+	}
+
+	private static <T> List<T> query(Connection conn, String sql, RowMapper<T> mapper, Object... params)
+			throws SQLException {
+		List<T> rows = new ArrayList<>();
+		StatementCache cache = StatementCache.of(conn);
+		PreparedStatement statement = cache != null ? cache.prepare(sql) : conn.prepareStatement(sql);
+		try {
+			SqlParameters.bind(statement, params);
+			statement.setFetchSize(Log.AUTOMATION_DATABASE_FETCH_SIZE);
+			try (ResultSet rSet = statement.executeQuery()) {
+				while (rSet.next()) {
+					rows.add(mapper.mapRow(rSet, rows.size() + 1));
+				}
+			}
+		} finally {
+			if (cache != null) {
+				cache.release(sql, statement);
+			} else {
+				statement.close();
+			}
+		}
+		return rows;
+	}
+
+	private static String summarize(List<?> rows) {
+		StringBuilder summary = new StringBuilder().append(rows.size()).append(" row(s)");
+		int max = Math.min(rows.size(), Log.AUTOMATION_DATABASE_LOG_MAX_ROWS);
+		for (int i = 0; i < max; i++) {
+			Object row = rows.get(i);
+			summary.append("\r\n").append(row instanceof Object[] ? Arrays.toString((Object[]) row) : row);
+		}
+		if (rows.size() > max && max > 0) {
+			summary.append("\r\n... ").append(rows.size() - max).append(" more row(s)");
+		}
+		return summary.toString();
+	}
+
+	private static synchronized ExecutorService getExecutor() {
+		if (executor == null) {
+			executor = Executors.newFixedThreadPool(Math.max(1, Log.AUTOMATION_DATABASE_VERIFY_THREADS),
+					new ThreadFactory() {
+						private final AtomicInteger count = new AtomicInteger();
+
+						@Override
+						public Thread newThread(Runnable runnable) {
+							Thread thread = new Thread(runnable, "database-verification-" + count.incrementAndGet());
+							thread.setDaemon(true);
+							return thread;
+						}
+					});
+		}
+		return executor;
+	}
+
+	private static class Verification {
+		private final String description;
+		private final CompletableFuture<Outcome> outcome;
+
+		private Verification(String description, CompletableFuture<Outcome> outcome) {
+			this.description = description;
+			this.outcome = outcome;
+		}
+	}
+
+	private static class Outcome {
+		private final boolean passed;
+		private final String details;
+
+		private Outcome(boolean passed, String details) {
+			this.passed = passed;
+			this.details = details;
+		}
+	}
+}
@@ -0,0 +1,114 @@
+package core.utilities.database;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+import core.utilities.exceptions.AutomationException;
+
+/**
+ * Summary of a query result for the log: the number of rows, a hash of the
+ * contents and the first rows as text. Two results with the same rows in the
+ * same order have the same hash, so results can be compared in the log
+ * without logging every row.
+ */
+public class ResultDigest {
+
+	private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+	private final int maxLoggedRows;
+	private final MessageDigest digest;
+	private final StringBuilder loggedRows = new StringBuilder();
+	private int rowCount = 0;
+
+	/**
+	 * Constructor for the ResultDigest class
+	 *
+	 * @param maxLoggedRows
+	 *            number of rows to keep as text for the log
+	 */
+	public ResultDigest(int maxLoggedRows) {
+		this.maxLoggedRows = Math.max(0, maxLoggedRows);
+		try {
+			this.digest = MessageDigest.getInstance("SHA-256");
+		} catch (NoSuchAlgorithmException e) {
+			throw new AutomationException("SHA-256 is not available", e);
+		}
+	}
+
+	/**
+	 * Adds the current row of the result set
+	 *
+	 * @param resultSet
+	 *            result set positioned on the row
+	 * @throws SQLException
+	 *             if a column value can't be read
+	 */
+	public void update(ResultSet resultSet) throws SQLException {
+		update(RowMappers.STRING_ARRAY.mapRow(resultSet, rowCount + 1));
+	}
+
+	/**
+	 * Adds a row of string values
+	 *
+	 * @param row
+	 *            values of the columns
+	 */
+	public void update(String[] row) {
+		String line = String.join(",", row);
+		digest.update(line.getBytes(StandardCharsets.UTF_8));
+		digest.update((byte) '\n');
+
+		if (rowCount < maxLoggedRows) {
+			loggedRows.append("\r\n").append(line);
+		}
+		rowCount++;
+	}
+
+	/**
+	 * Gets the number of rows added
+	 *
+	 * @return number of rows
+	 */
+	public int getRowCount() {
+		return rowCount;
+	}
+
+	/**
+	 * Gets the hash of the rows added so far
+	 *
+	 * @return first 16 hex digits of the SHA-256 hash of the rows
+	 */
+	public String getHash() {
+		byte[] hash;
+		try {
+			hash = ((MessageDigest) digest.clone()).digest();
+		} catch (CloneNotSupportedException e) {
+			hash = digest.digest();
+		}
+		char[] hex = new char[16];
+		for (int i = 0; i < hex.length / 2; i++) {
+			hex[i * 2] = HEX[(hash[i] >> 4) & 0xf];
+			hex[i * 2 + 1] = HEX[hash[i] & 0xf];
+		}
+		return new String(hex);
+	}
+
+	/**
+	 * Gets the summary for the log: row count, hash and the first rows
+	 *
+	 * @return summary of the rows
+	 */
+	@Override
+	public String toString() {
+		StringBuilder summary = new StringBuilder();
+		summary.append(rowCount).append(" row(s), hash ").append(getHash());
+		summary.append(loggedRows);
+		if (rowCount > maxLoggedRows && maxLoggedRows > 0) {
+			summary.append("\r\n... ").append(rowCount - maxLoggedRows).append(" more row(s)");
+		}
+		return summary.toString();
+	}
+}
@@ -0,0 +1,24 @@
+package core.utilities.database;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Processes the rows of a query one at a time, so the result of the query
+ * does not need to fit in memory. Returning false stops reading the result.
+ */
+public interface RowCallback {
+
+	/**
+	 * Processes the current row of the result set
+	 *
+	 * @param resultSet
+	 *            result set positioned on the row to process
+	 * @param rowNumber
+	 *            number of the row, starting from 1
+	 * @return true to continue with the next row, false to stop
+	 * @throws SQLException
+	 *             if a column value can't be read
+	 */
+	boolean processRow(ResultSet resultSet, int rowNumber) throws SQLException;
+}
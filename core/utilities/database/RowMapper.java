@@ -0,0 +1,28 @@
+package core.utilities.database;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Maps the current row of a {@link ResultSet} to an object. Implementations
+ * must not move the cursor of the result set. Common mappers are available in
+ * {@link RowMappers}.
+ *
+ * @param <T>
+ *            type of the mapped row
+ */
+public interface RowMapper<T> {
+
+	/**
+	 * Maps the current row of the result set
+	 *
+	 * @param resultSet
+	 *            result set positioned on the row to map
+	 * @param rowNumber
+	 *            number of the row, starting from 1
+	 * @return mapped row
+	 * @throws SQLException
+	 *             if a column value can't be read
+	 */
+	T mapRow(ResultSet resultSet, int rowNumber) throws SQLException;
+}
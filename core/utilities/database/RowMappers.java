@@ -0,0 +1,107 @@
+package core.utilities.database;
+
+import java.math.BigDecimal;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Common {@link RowMapper} implementations
+ */
+public final class RowMappers {
+
+	/**
+	 * Maps a row to the string values of its columns. Null values are
+	 * returned as null.
+	 */
+	public static final RowMapper<String[]> STRING_ARRAY = new RowMapper<String[]>() {
+		@Override
+		public String[] mapRow(ResultSet resultSet, int rowNumber) throws SQLException {
+			String[] row = new String[resultSet.getMetaData().getColumnCount()];
+			for (int i = 0; i < row.length; i++) {
+				row[i] = resultSet.getString(i + 1);
+			}
+			return row;
+		}
+	};
+
+	/**
+	 * Maps a row to the values of its columns by column label, in the order of
+	 * the columns in the query.
+	 */
+	public static final RowMapper<Map<String, Object>> MAP = new RowMapper<Map<String, Object>>() {
+		@Override
+		public Map<String, Object> mapRow(ResultSet resultSet, int rowNumber) throws SQLException {
+			ResultSetMetaData metaData = resultSet.getMetaData();
+			Map<String, Object> row = new LinkedHashMap<>();
+			for (int i = 1; i <= metaData.getColumnCount(); i++) {
+				row.put(metaData.getColumnLabel(i), resultSet.getObject(i));
+			}
+			return row;
+		}
+	};
+
+	private RowMappers() {
+	}
+
+	/**
+	 * Gets a mapper of the value in the first column of a row, f.ex. for
+	 * "select count(*) from ..." queries.
+	 *
+	 * @param type
+	 *            type of the value: String, Integer, Long, Double,
+	 *            BigDecimal, Boolean, Date or Object
+	 * @param <T>
+	 *            type of the value
+	 * @return mapper of the first column
+	 */
+	public static <T> RowMapper<T> firstColumn(final Class<T> type) {
+		return column(1, type);
+	}
+
+	/**
+	 * Gets a mapper of the value in the given column of a row
+	 *
+	 * @param columnIndex
+	 *            column number, starting from 1
+	 * @param type
+	 *            type of the value: String, Integer, Long, Double,
+	 *            BigDecimal, Boolean, Date or Object
+	 * @param <T>
+	 *            type of the value
+	 * @return mapper of the column
+	 */
+	public static <T> RowMapper<T> column(final int columnIndex, final Class<T> type) {
+		return new RowMapper<T>() {
+			@Override
+			public T mapRow(ResultSet resultSet, int rowNumber) throws SQLException {
+				return type.cast(getValue(resultSet, columnIndex, type));
+			}
+		};
+	}
+
+	private static Object getValue(ResultSet resultSet, int columnIndex, Class<?> type) throws SQLException {
+		Object value;
+		if (type == String.class) {
+			value = resultSet.getString(columnIndex);
+		} else if (type == Integer.class) {
+			value = resultSet.getInt(columnIndex);
+		} else if (type == Long.class) {
+			value = resultSet.getLong(columnIndex);
+		} else if (type == Double.class) {
+			value = resultSet.getDouble(columnIndex);
+		} else if (type == BigDecimal.class) {
+			value = resultSet.getBigDecimal(columnIndex);
+		} else if (type == Boolean.class) {
+			value = resultSet.getBoolean(columnIndex);
+		} else if (type == Date.class) {
+			value = resultSet.getTimestamp(columnIndex);
+		} else {
+			value = resultSet.getObject(columnIndex);
+		}
+		return resultSet.wasNull() ? null : value;
+	}
+}
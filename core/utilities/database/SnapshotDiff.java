@@ -0,0 +1,103 @@
+package core.utilities.database;
+
+import java.util.Collections;
+import java.util.List;
+
+import core.utilities.Log;
+
+/**
+ * Differences between two snapshots of a table: the keys of the rows
+ * inserted, deleted and updated in between.
+ */
+public class SnapshotDiff {
+
+	private final String tableName;
+	private final List<String> added;
+	private final List<String> removed;
+	private final List<String> changed;
+
+	/**
+	 * Constructor for the SnapshotDiff class
+	 *
+	 * @param tableName
+	 *            name of the table
+	 * @param added
+	 *            keys of the inserted rows
+	 * @param removed
+	 *            keys of the deleted rows
+	 * @param changed
+	 *            keys of the updated rows
+	 */
+	public SnapshotDiff(String tableName, List<String> added, List<String> removed, List<String> changed) {
+		this.tableName = tableName;
+		this.added = Collections.unmodifiableList(added);
+		this.removed = Collections.unmodifiableList(removed);
+		this.changed = Collections.unmodifiableList(changed);
+	}
+
+	/**
+	 * Gets the keys of the rows inserted
+	 *
+	 * @return keys, key columns separated by |
+	 */
+	public List<String> getAdded() {
+		return added;
+	}
+
+	/**
+	 * Gets the keys of the rows deleted
+	 *
+	 * @return keys, key columns separated by |
+	 */
+	public List<String> getRemoved() {
+		return removed;
+	}
+
+	/**
+	 * Gets the keys of the rows updated
+	 *
+	 * @return keys, key columns separated by |
+	 */
+	public List<String> getChanged() {
+		return changed;
+	}
+
+	/**
+	 * Checks if the snapshots are equal
+	 *
+	 * @return true if no row was inserted, deleted or updated
+	 */
+	public boolean isEmpty() {
+		return added.isEmpty() && removed.isEmpty() && changed.isEmpty();
+	}
+
+	/**
+	 * Gets the summary for the log, listing at most
+	 * AUTOMATION_DATABASE_LOG_MAX_ROWS keys per kind of change
+	 *
+	 * @return summary of the differences
+	 */
+	@Override
+	public String toString() {
+		StringBuilder summary = new StringBuilder(tableName).append(": ");
+		append(summary, "added", added);
+		summary.append(", ");
+		append(summary, "removed", removed);
+		summary.append(", ");
+		append(summary, "changed", changed);
+		return summary.toString();
+	}
+
+	private static void append(StringBuilder summary, String kind, List<String> keys) {
+		summary.append(keys.size()).append(' ').append(kind);
+		if (keys.isEmpty()) {
+			return;
+		}
+		int max = Math.max(1, Log.AUTOMATION_DATABASE_LOG_MAX_ROWS);
+		summary.append(' ').append(keys.subList(0, Math.min(max, keys.size())));
+		if (keys.size() > max) {
+			summary.setLength(summary.length() - 1);
+			summary.append(", ... ").append(keys.size() - max).append(" more]");
+		}
+	}
+}
@@ -0,0 +1,44 @@
+package core.utilities.database;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.Date;
+
+/**
+ * Binds values to the ? placeholders of prepared statements
+ */
+public final class SqlParameters {
+
+	private SqlParameters() {
+	}
+
+	/**
+	 * Binds the values to the placeholders of the statement. Null values are
+	 * bound as SQL NULL and java.util.Date values as timestamps.
+	 *
+	 * @param statement
+	 *            prepared statement
+	 * @param params
+	 *            values of the placeholders in order
+	 * @throws SQLException
+	 *             if a value can't be bound
+	 */
+	public static void bind(PreparedStatement statement, Object... params) throws SQLException {
+		if (params == null) {
+			return;
+		}
+		for (int i = 0; i < params.length; i++) {
+			Object param = params[i];
+			if (param == null) {
+				statement.setNull(i + 1, Types.NULL);
+			} else if (param instanceof Date && !(param instanceof java.sql.Date || param instanceof Timestamp
+					|| param instanceof java.sql.Time)) {
+				statement.setTimestamp(i + 1, new Timestamp(((Date) param).getTime()));
+			} else {
+				statement.setObject(i + 1, param);
+			}
+		}
+	}
+}
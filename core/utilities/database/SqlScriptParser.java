@@ -0,0 +1,181 @@
+package core.utilities.database;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Splits a SQL script into statements. Statements end with a semicolon, a
+ * line containing only a slash (SQL*Plus) or a line containing only GO
+ * (SQL Server). Statements may span multiple lines; semicolons in quoted
+ * strings, quoted identifiers, $$ or $tag$ quoted bodies and comments don't
+ * end a statement.
+ * <p>
+ * PL/SQL and T-SQL blocks (anonymous blocks starting with DECLARE or BEGIN,
+ * CREATE FUNCTION, PROCEDURE, PACKAGE or TRIGGER statements and CREATE TYPE
+ * AS OBJECT or TYPE BODY statements) contain semicolons themselves, so they
+ * end only with a slash or GO line or at the end of the script. Their
+ * semicolons are kept. BEGIN starting a transaction is not a block, and a
+ * statement with a dollar quoted body ends with the semicolon after the body.
+ */
+public final class SqlScriptParser {
+
+	private static final Pattern BLOCK_START = Pattern.compile(
+			"^(DECLARE\\b|BEGIN\\b(?!\\s*$)(?!\\s+(TRANSACTION|TRAN|WORK|ISOLATION)\\b)"
+					+ "|CREATE\\s+(OR\\s+REPLACE\\s+)?((NON)?EDITIONABLE\\s+)?"
+					+ "(FUNCTION\\b|PROCEDURE\\b|PACKAGE\\b|TRIGGER\\b|TYPE\\s+BODY\\b"
+					+ "|TYPE\\b.*?\\b(AS|IS)\\s+OBJECT\\b)).*",
+			Pattern.CASE_INSENSITIVE | Pattern.DOTALL);
+
+	/** Opening tag of a dollar quoted body, $$ or $tag$ */
+	private static final Pattern DOLLAR_TAG = Pattern.compile("\\$([A-Za-z_][A-Za-z_0-9]*)?\\$");
+
+	private SqlScriptParser() {
+	}
+
+	/**
+	 * Splits the script into statements
+	 *
+	 * @param script
+	 *            SQL script
+	 * @return statements of the script without their terminators
+	 */
+	public static List<String> parse(String script) {
+		List<String> statements = new ArrayList<>();
+		StringBuilder current = new StringBuilder();
+		char quote = 0;
+		boolean inBlockComment = false;
+		String dollarTag = null;
+		// The semicolon after a dollar quoted body ends the statement
+		boolean dollarQuoted = false;
+
+		for (String line : script.split("\r?\n|\r", -1)) {
+			if (quote == 0 && !inBlockComment && dollarTag == null) {
+				String trimmed = line.trim();
+				if (trimmed.equals("/") || trimmed.equalsIgnoreCase("GO")) {
+					addStatement(statements, current);
+					dollarQuoted = false;
+					continue;
+				}
+			}
+
+			for (int i = 0; i < line.length(); i++) {
+				char c = line.charAt(i);
+				char next = i + 1 < line.length() ? line.charAt(i + 1) : 0;
+
+				if (inBlockComment) {
+					current.append(c);
+					if (c == '*' && next == '/') {
+						current.append(next);
+						i++;
+						inBlockComment = false;
+					}
+				} else if (dollarTag != null) {
+					if (line.startsWith(dollarTag, i)) {
+						current.append(dollarTag);
+						i += dollarTag.length() - 1;
+						dollarTag = null;
+					} else {
+						current.append(c);
+					}
+				} else if (quote != 0) {
+					// A doubled quote is an escaped quote, it closes and
+					// reopens the quoted text
+					current.append(c);
+					if (c == quote) {
+						quote = 0;
+					}
+				} else if (c == '$' && isDollarTag(line, i)) {
+					Matcher tag = DOLLAR_TAG.matcher(line).region(i, line.length());
+					tag.lookingAt();
+					dollarTag = tag.group();
+					dollarQuoted = true;
+					current.append(dollarTag);
+					i += dollarTag.length() - 1;
+				} else if (c == '\'' || c == '"') {
+					current.append(c);
+					quote = c;
+				} else if (c == '-' && next == '-') {
+					current.append(line, i, line.length());
+					break;
+				} else if (c == '/' && next == '*') {
+					current.append(c).append(next);
+					i++;
+					inBlockComment = true;
+				} else if (c == ';' && (dollarQuoted || !isBlock(current))) {
+					addStatement(statements, current);
+					dollarQuoted = false;
+				} else {
+					current.append(c);
+				}
+			}
+			current.append('\n');
+		}
+		addStatement(statements, current);
+		return statements;
+	}
+
+	/**
+	 * Checks if a dollar quote starts at a position. $1 parameters and $
+	 * inside identifiers are not dollar quotes.
+	 */
+	private static boolean isDollarTag(String line, int index) {
+		if (index > 0 && (Character.isLetterOrDigit(line.charAt(index - 1)) || line.charAt(index - 1) == '_')) {
+			return false;
+		}
+		return DOLLAR_TAG.matcher(line).region(index, line.length()).lookingAt();
+	}
+
+	/**
+	 * Checks if the statement is a PL/SQL or T-SQL block
+	 *
+	 * @param statement
+	 *            SQL statement
+	 * @return true if the statement is a block
+	 */
+	public static boolean isBlock(CharSequence statement) {
+		return BLOCK_START.matcher(stripLeadingComments(statement)).matches();
+	}
+
+	/**
+	 * Gets the first keyword of the statement in upper case, f.ex. INSERT or
+	 * SELECT
+	 *
+	 * @param statement
+	 *            SQL statement
+	 * @return first keyword or empty string
+	 */
+	public static String getKeyword(CharSequence statement) {
+		String text = stripLeadingComments(statement);
+		int end = 0;
+		while (end < text.length() && Character.isLetter(text.charAt(end))) {
+			end++;
+		}
+		return text.substring(0, end).toUpperCase(Locale.ENGLISH);
+	}
+
+	private static String stripLeadingComments(CharSequence statement) {
+		String text = statement.toString().trim();
+		while (true) {
+			if (text.startsWith("--")) {
+				int end = text.indexOf('\n');
+				text = end < 0 ? "" : text.substring(end + 1).trim();
+			} else if (text.startsWith("/*")) {
+				int end = text.indexOf("*/");
+				text = end < 0 ? "" : text.substring(end + 2).trim();
+			} else {
+				return text;
+			}
+		}
+	}
+
+	private static void addStatement(List<String> statements, StringBuilder current) {
+		String statement = current.toString().trim();
+		current.setLength(0);
+		if (!stripLeadingComments(statement).isEmpty()) {
+			statements.add(statement);
+		}
+	}
+}
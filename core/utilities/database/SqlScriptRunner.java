@@ -0,0 +1,220 @@
+package core.utilities.database;
+
+import java.sql.BatchUpdateException;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+
+import core.utilities.Log;
+
+/**
+ * Executes the statements of a SQL script in one transaction. Consecutive
+ * INSERT, UPDATE, DELETE and MERGE statements are sent to the database in
+ * batches of the configured size; other statements are executed one by one.
+ * All changes are committed at the end or rolled back when a statement
+ * fails. Note that most databases commit DDL statements implicitly, those
+ * can't be rolled back.
+ */
+public class SqlScriptRunner {
+
+	private final Connection connection;
+	private final int batchSize;
+	private int statementCount = 0;
+	private int batchCount = 0;
+	private long updateCount = 0;
+
+	/**
+	 * Constructor for the SqlScriptRunner class with the batch size of the
+	 * AUTOMATION_DATABASE_BATCH_SIZE global parameter
+	 *
+	 * @param connection
+	 *            connection to execute the statements on
+	 */
+	public SqlScriptRunner(Connection connection) {
+		this(connection, Log.AUTOMATION_DATABASE_BATCH_SIZE);
+	}
+
+	/**
+	 * Constructor for the SqlScriptRunner class
+	 *
+	 * @param connection
+	 *            connection to execute the statements on
+	 * @param batchSize
+	 *            maximum number of statements sent to the database at once, 1
+	 *            to execute every statement on its own
+	 */
+	public SqlScriptRunner(Connection connection, int batchSize) {
+		this.connection = connection;
+		this.batchSize = Math.max(1, batchSize);
+	}
+
+	/**
+	 * Splits the script into statements and executes them
+	 *
+	 * @param script
+	 *            SQL script
+	 * @return number of rows affected
+	 * @throws SQLException
+	 *             if a statement fails, after the transaction is rolled back
+	 */
+	public long runScript(String script) throws SQLException {
+		return run(SqlScriptParser.parse(script));
+	}
+
+	/**
+	 * Executes the statements in one transaction
+	 *
+	 * @param statements
+	 *            SQL statements without terminators
+	 * @return number of rows affected
+	 * @throws SQLException
+	 *             if a statement fails, after the transaction is rolled back
+	 */
+	public long run(List<String> statements) throws SQLException {
+		statementCount = 0;
+		batchCount = 0;
+		updateCount = 0;
+
+		boolean autoCommit = connection.getAutoCommit();
+		connection.setAutoCommit(false);
+		try (Statement statement = connection.createStatement()) {
+			int batchStart = 0;
+			int batched = 0;
+			for (int i = 0; i < statements.size(); i++) {
+				String sql = statements.get(i);
+				if (batchSize > 1 && isBatchable(sql)) {
+					if (batched == 0) {
+						batchStart = i;
+					}
+					statement.addBatch(sql);
+					if (++batched == batchSize) {
+						executeBatch(statement, statements, batchStart);
+						batched = 0;
+					}
+				} else {
+					if (batched > 0) {
+						executeBatch(statement, statements, batchStart);
+						batched = 0;
+					}
+					execute(statement, sql, i);
+				}
+			}
+			if (batched > 0) {
+				executeBatch(statement, statements, batchStart);
+			}
+			connection.commit();
+		} catch (SQLException | RuntimeException e) {
+			rollback();
+			throw e;
+		} finally {
+			connection.setAutoCommit(autoCommit);
+		}
+		return updateCount;
+	}
+
+	/**
+	 * Gets the number of statements executed by the last run
+	 *
+	 * @return number of statements
+	 */
+	public int getStatementCount() {
+		return statementCount;
+	}
+
+	/**
+	 * Gets the number of batches sent to the database by the last run
+	 *
+	 * @return number of batches
+	 */
+	public int getBatchCount() {
+		return batchCount;
+	}
+
+	/**
+	 * Gets the number of rows affected by the last run
+	 *
+	 * @return number of rows affected
+	 */
+	public long getUpdateCount() {
+		return updateCount;
+	}
+
+	private static boolean isBatchable(String sql) {
+		switch (SqlScriptParser.getKeyword(sql)) {
+		case "INSERT":
+		case "UPDATE":
+		case "DELETE":
+		case "MERGE":
+			return true;
+		default:
+			return false;
+		}
+	}
+
+	private void execute(Statement statement, String sql, int index) throws SQLException {
+		try {
+			if (statement.execute(sql)) {
+				try (ResultSet rSet = statement.getResultSet()) {
+					ResultDigest digest = new ResultDigest(Log.AUTOMATION_DATABASE_LOG_MAX_ROWS);
+					while (rSet.next()) {
+						digest.update(rSet);
+					}
+					Log.logScriptInfo("Executed: " + sql);
+					Log.logScriptInfo("ResultSet: " + digest);
+				}
+			} else if (statement.getUpdateCount() > 0) {
+				updateCount += statement.getUpdateCount();
+			}
+			statementCount++;
+		} catch (SQLException e) {
+			throw new SQLException(String.format("Error in statement %d: %s", index + 1, sql), e.getSQLState(),
+					e.getErrorCode(), e);
+		}
+	}
+
+	private void executeBatch(Statement statement, List<String> statements, int batchStart) throws SQLException {
+		try {
+			for (int count : statement.executeBatch()) {
+				if (count > 0) {
+					updateCount += count;
+				}
+				statementCount++;
+			}
+			batchCount++;
+		} catch (BatchUpdateException e) {
+			// Drivers which stop at the first failure report the counts of
+			// the statements before it, others mark the failed statements
+			int[] counts = e.getUpdateCounts() == null ? new int[0] : e.getUpdateCounts();
+			int failedIndex = counts.length;
+			for (int i = 0; i < counts.length; i++) {
+				if (counts[i] == Statement.EXECUTE_FAILED) {
+					failedIndex = i;
+					break;
+				}
+			}
+			int index = batchStart + failedIndex;
+			String failed = index < statements.size() ? statements.get(index) : "";
+			throw new SQLException(String.format("Error in statement %d: %s", index + 1, failed), e.getSQLState(),
+					e.getErrorCode(), e);
+		} finally {
+			statement.clearBatch();
+		}
+	}
+
+	private void rollback() {
+		try {
+			connection.rollback();
+			Log.logScriptInfo("Rolled back SQL script after error, no changes applied by DML statements");
+		} catch (SQLException e) {
+			Log.logDebugInfo("Error rolling back SQL script: " + e.getMessage());
+		}
+	}
+
+	@Override
+	public String toString() {
+		return String.format("%d statement(s) in %d batch(es), %d row(s) affected", statementCount, batchCount,
+				updateCount);
+	}
+}
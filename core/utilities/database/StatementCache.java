@@ -0,0 +1,186 @@
+package core.utilities.database;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Least recently used cache of the prepared statements of one connection.
+ * Preparing the same SQL again reuses the statement, so the database does not
+ * need to parse the statement again. A statement is taken out of the cache
+ * while it is in use and put back by {@link #release(String, PreparedStatement)},
+ * so the same SQL may be executed nested on the same connection.
+ * <p>
+ * Every pooled connection of a {@link ConnectionPool} has its own cache; it is
+ * found with {@link #of(Connection)}.
+ */
+public class StatementCache {
+
+	private static final AtomicLong totalHits = new AtomicLong();
+	private static final AtomicLong totalMisses = new AtomicLong();
+
+	private final Connection connection;
+	private final int maxSize;
+	private final LinkedHashMap<String, PreparedStatement> statements;
+	private long hits = 0;
+	private long misses = 0;
+
+	/**
+	 * Constructor for the StatementCache class
+	 *
+	 * @param connection
+	 *            connection to prepare the statements on
+	 * @param maxSize
+	 *            maximum number of statements kept open, 0 to turn the cache
+	 *            off
+	 */
+	public StatementCache(Connection connection, int maxSize) {
+		this.connection = connection;
+		this.maxSize = Math.max(0, maxSize);
+		this.statements = new LinkedHashMap<>(16, 0.75f, true);
+	}
+
+	/**
+	 * Gets the statement cache of a pooled connection
+	 *
+	 * @param connection
+	 *            connection from a {@link ConnectionPool}
+	 * @return statement cache of the connection or null if the connection is
+	 *         not pooled
+	 */
+	public static StatementCache of(Connection connection) {
+		try {
+			if (connection.isWrapperFor(StatementCache.class)) {
+				return connection.unwrap(StatementCache.class);
+			}
+		} catch (SQLException | AbstractMethodError e) {
+			// not a pooled connection
+		}
+		return null;
+	}
+
+	/**
+	 * Gets a prepared statement for the SQL, from the cache if available
+	 *
+	 * @param sql
+	 *            SQL of the statement
+	 * @return prepared statement, to be handed back with
+	 *         {@link #release(String, PreparedStatement)}
+	 * @throws SQLException
+	 *             if the statement can't be prepared
+	 */
+	public PreparedStatement prepare(String sql) throws SQLException {
+		synchronized (this) {
+			PreparedStatement statement = statements.remove(sql);
+			if (statement != null && !statement.isClosed()) {
+				hits++;
+				totalHits.incrementAndGet();
+				return statement;
+			}
+			misses++;
+			totalMisses.incrementAndGet();
+		}
+		return connection.prepareStatement(sql);
+	}
+
+	/**
+	 * Puts the statement back to the cache. The least recently used statement
+	 * is closed if the cache is full.
+	 *
+	 * @param sql
+	 *            SQL the statement was prepared for
+	 * @param statement
+	 *            statement returned by {@link #prepare(String)}
+	 */
+	public void release(String sql, PreparedStatement statement) {
+		try {
+			if (maxSize == 0 || statement.isClosed()) {
+				statement.close();
+				return;
+			}
+			statement.clearParameters();
+		} catch (SQLException e) {
+			closeQuietly(statement);
+			return;
+		}
+
+		synchronized (this) {
+			PreparedStatement previous = statements.put(sql, statement);
+			if (previous != null && previous != statement) {
+				closeQuietly(previous);
+			}
+			Iterator<Map.Entry<String, PreparedStatement>> eldest = statements.entrySet().iterator();
+			while (statements.size() > maxSize && eldest.hasNext()) {
+				closeQuietly(eldest.next().getValue());
+				eldest.remove();
+			}
+		}
+	}
+
+	/**
+	 * Closes all cached statements
+	 */
+	public synchronized void clear() {
+		for (PreparedStatement statement : statements.values()) {
+			closeQuietly(statement);
+		}
+		statements.clear();
+	}
+
+	/**
+	 * Gets the number of statements currently cached
+	 *
+	 * @return number of cached statements
+	 */
+	public synchronized int size() {
+		return statements.size();
+	}
+
+	/**
+	 * Gets the number of statements reused from this cache
+	 *
+	 * @return number of cache hits
+	 */
+	public synchronized long getHits() {
+		return hits;
+	}
+
+	/**
+	 * Gets the number of statements which had to be prepared by this cache
+	 *
+	 * @return number of cache misses
+	 */
+	public synchronized long getMisses() {
+		return misses;
+	}
+
+	/**
+	 * Gets the number of statements reused from all caches
+	 *
+	 * @return total number of cache hits
+	 */
+	public static long getTotalHits() {
+		return totalHits.get();
+	}
+
+	/**
+	 * Gets the number of statements which had to be prepared by all caches
+	 *
+	 * @return total number of cache misses
+	 */
+	public static long getTotalMisses() {
+		return totalMisses.get();
+	}
+
+	private static void closeQuietly(PreparedStatement statement) {
+		try {
+			statement.close();
+		} catch (SQLException e) {
+			// statement is discarded anyway
+		}
+	}
+}
@@ -0,0 +1,227 @@
+package core.utilities.database;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import core.utilities.Log;
+import core.utilities.exceptions.AutomationException;
+
+/**
+ * Snapshot of a subset of the rows of a table: a hash of every row by its
+ * primary key. Two snapshots of the same rows taken before and after a test
+ * step are compared with {@link #diff(TableSnapshot)} to find the rows the
+ * step inserted, deleted or updated, without keeping the rows in memory.
+ */
+public class TableSnapshot {
+
+	private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+	private final String tableName;
+	private final String[] keyColumns;
+	private final String where;
+	private final Object[] params;
+	private final Map<String, String> rowHashes;
+
+	private TableSnapshot(String tableName, String[] keyColumns, String where, Object[] params,
+			Map<String, String> rowHashes) {
+		this.tableName = tableName;
+		this.keyColumns = keyColumns;
+		this.where = where;
+		this.params = params;
+		this.rowHashes = rowHashes;
+	}
+
+	/**
+	 * Takes a snapshot of the rows of the table
+	 *
+	 * @param conn
+	 *            connection to read the table with
+	 * @param tableName
+	 *            name of the table
+	 * @param keyColumns
+	 *            primary key columns identifying the rows
+	 * @param where
+	 *            condition selecting the rows with ? placeholders, null or
+	 *            empty for all rows
+	 * @param params
+	 *            values of the placeholders
+	 * @return snapshot of the rows
+	 * @throws SQLException
+	 *             if the table can't be read or a key column does not exist
+	 */
+	public static TableSnapshot take(Connection conn, String tableName, String[] keyColumns, String where,
+			Object... params) throws SQLException {
+		if (keyColumns == null || keyColumns.length == 0) {
+			throw new AutomationException("No key columns given for the snapshot of table " + tableName);
+		}
+
+		StringBuilder sql = new StringBuilder("select * from ").append(tableName);
+		if (where != null && !where.trim().isEmpty()) {
+			sql.append(" where ").append(where);
+		}
+		sql.append(" order by ").append(String.join(", ", keyColumns));
+
+		MessageDigest digest = newDigest();
+		Map<String, String> rowHashes = new LinkedHashMap<>();
+		try (PreparedStatement statement = conn.prepareStatement(sql.toString())) {
+			SqlParameters.bind(statement, params);
+			statement.setFetchSize(Log.AUTOMATION_DATABASE_FETCH_SIZE);
+			try (ResultSet rSet = statement.executeQuery()) {
+				ResultSetMetaData metaData = rSet.getMetaData();
+				int[] keyIndexes = findColumns(metaData, tableName, keyColumns);
+				int columnCount = metaData.getColumnCount();
+				StringBuilder key = new StringBuilder();
+				while (rSet.next()) {
+					key.setLength(0);
+					for (int i = 0; i < keyIndexes.length; i++) {
+						if (i > 0) {
+							key.append('|');
+						}
+						key.append(rSet.getString(keyIndexes[i]));
+					}
+					for (int i = 1; i <= columnCount; i++) {
+						String value = rSet.getString(i);
+						// Separator and null marker keep (null, "ab") and
+						// ("a", "b") apart
+						digest.update(value == null ? new byte[] { 0 } : value.getBytes(StandardCharsets.UTF_8));
+						digest.update((byte) 1);
+					}
+					rowHashes.put(key.toString(), toHex(digest.digest()));
+				}
+			}
+		}
+		return new TableSnapshot(tableName, keyColumns.clone(), where, params, rowHashes);
+	}
+
+	/**
+	 * Takes a new snapshot of the same rows of the table, f.ex. after a test
+	 * step to compare with this snapshot
+	 *
+	 * @param conn
+	 *            connection to read the table with
+	 * @return new snapshot of the rows
+	 * @throws SQLException
+	 *             if the table can't be read
+	 */
+	public TableSnapshot retake(Connection conn) throws SQLException {
+		return take(conn, tableName, keyColumns, where, params);
+	}
+
+	/**
+	 * Compares this snapshot with a later snapshot of the same rows
+	 *
+	 * @param after
+	 *            later snapshot
+	 * @return keys of the rows inserted, deleted and updated in between
+	 */
+	public SnapshotDiff diff(TableSnapshot after) {
+		List<String> added = new ArrayList<>();
+		List<String> removed = new ArrayList<>();
+		List<String> changed = new ArrayList<>();
+		for (Map.Entry<String, String> row : rowHashes.entrySet()) {
+			String afterHash = after.rowHashes.get(row.getKey());
+			if (afterHash == null) {
+				removed.add(row.getKey());
+			} else if (!afterHash.equals(row.getValue())) {
+				changed.add(row.getKey());
+			}
+		}
+		for (String key : after.rowHashes.keySet()) {
+			if (!rowHashes.containsKey(key)) {
+				added.add(key);
+			}
+		}
+		return new SnapshotDiff(tableName, added, removed, changed);
+	}
+
+	/**
+	 * Gets the name of the table
+	 *
+	 * @return table name
+	 */
+	public String getTableName() {
+		return tableName;
+	}
+
+	/**
+	 * Gets the keys of the rows, key columns separated by |
+	 *
+	 * @return keys in key order
+	 */
+	public Set<String> getKeys() {
+		return Collections.unmodifiableSet(rowHashes.keySet());
+	}
+
+	/**
+	 * Gets the hash of a row
+	 *
+	 * @param key
+	 *            key of the row, key columns separated by |
+	 * @return first 16 hex digits of the SHA-256 hash of the row or null if
+	 *         the row is not in the snapshot
+	 */
+	public String getRowHash(String key) {
+		return rowHashes.get(key);
+	}
+
+	/**
+	 * Gets the number of rows
+	 *
+	 * @return number of rows
+	 */
+	public int size() {
+		return rowHashes.size();
+	}
+
+	@Override
+	public String toString() {
+		return String.format("%d row(s) of %s by %s", rowHashes.size(), tableName, Arrays.toString(keyColumns));
+	}
+
+	private static int[] findColumns(ResultSetMetaData metaData, String tableName, String[] columns)
+			throws SQLException {
+		int[] indexes = new int[columns.length];
+		for (int i = 0; i < columns.length; i++) {
+			for (int column = 1; column <= metaData.getColumnCount(); column++) {
+				if (metaData.getColumnLabel(column).equalsIgnoreCase(columns[i].trim())) {
+					indexes[i] = column;
+					break;
+				}
+			}
+			if (indexes[i] == 0) {
+				throw new SQLException("Key column [" + columns[i] + "] not found in table " + tableName);
+			}
+		}
+		return indexes;
+	}
+
+	private static MessageDigest newDigest() {
+		try {
+			return MessageDigest.getInstance("SHA-256");
+		} catch (NoSuchAlgorithmException e) {
+			throw new AutomationException("SHA-256 is not available", e);
+		}
+	}
+
+	private static String toHex(byte[] hash) {
+		char[] hex = new char[16];
+		for (int i = 0; i < hex.length / 2; i++) {
+			hex[i * 2] = HEX[(hash[i] >> 4) & 0xf];
+			hex[i * 2 + 1] = HEX[hash[i] & 0xf];
+		}
+		return new String(hex);
+	}
+}
@@ -0,0 +1,26 @@
+package core.utilities.ftp;
+
+import java.io.IOException;
+
+import org.apache.commons.net.ftp.FTPClient;
+
+/**
+ * Operations executed on one FTP session, see
+ * {@link FtpSessionPool#execute(FtpCallback)}
+ *
+ * @param <T>
+ *            type of the result
+ */
+public interface FtpCallback<T> {
+
+	/**
+	 * Executes the operations with the logged in client of the session
+	 *
+	 * @param ftp
+	 *            logged in client in binary and passive mode
+	 * @return result of the operations
+	 * @throws IOException
+	 *             if a command fails to execute
+	 */
+	T doInSession(FTPClient ftp) throws IOException;
+}
@@ -0,0 +1,452 @@
+package core.utilities.ftp;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.commons.net.ftp.FTPClient;
+import org.apache.commons.net.ftp.FTPFile;
+
+import core.utilities.Log;
+
+/**
+ * Transfers a directory tree between the local file system and a FTP server.
+ * The tree is listed first into a manifest of files, then the files are
+ * transferred by several threads, each on its own session of the
+ * {@link FtpSessionPool}, so many small files don't wait for each other's
+ * round trips.
+ * <p>
+ * Files whose target has the same size and is not older than the source are
+ * skipped. Files are transferred to a temporary name with the .part suffix
+ * and renamed to the target when complete, so a target is never a partial
+ * file. A .part file smaller than the source and newer than it is an
+ * interrupted transfer and is completed from its size on (REST offset for
+ * downloads, APPE for uploads); other files are transferred from the start,
+ * as are files on servers which refuse to resume. Downloaded files get the
+ * modification time of the remote file, so the next download of the tree
+ * skips them.
+ */
+public class FtpDirectoryTransfer {
+
+	/** Suffix of files being transferred */
+	public static final String PART_SUFFIX = ".part";
+
+	private final FtpSessionPool pool;
+	private final FtpFileTransfer fileTransfer = new FtpFileTransfer();
+	private int threads = Log.AUTOMATION_FTP_POOL_MAX_SIZE;
+	private boolean skipUnchanged = true;
+	private boolean resume = true;
+
+	/**
+	 * Constructor for the FtpDirectoryTransfer class
+	 *
+	 * @param pool
+	 *            session pool of the FTP server
+	 */
+	public FtpDirectoryTransfer(FtpSessionPool pool) {
+		this.pool = pool;
+	}
+
+	/**
+	 * Sets the number of files transferred at the same time, default is
+	 * AUTOMATION_FTP_POOL_MAX_SIZE
+	 *
+	 * @param threads
+	 *            number of transfer threads
+	 * @return this transfer
+	 */
+	public FtpDirectoryTransfer setThreads(int threads) {
+		this.threads = Math.max(1, threads);
+		return this;
+	}
+
+	/**
+	 * Sets the size of the transfer buffer, default is
+	 * AUTOMATION_FTP_BUFFER_SIZE
+	 *
+	 * @param bufferSize
+	 *            size in bytes
+	 * @return this transfer
+	 */
+	public FtpDirectoryTransfer setBufferSize(int bufferSize) {
+		fileTransfer.setBufferSize(bufferSize);
+		return this;
+	}
+
+	/**
+	 * Sets if files whose target is up to date are skipped, default is true
+	 *
+	 * @param skipUnchanged
+	 *            false to transfer every file
+	 * @return this transfer
+	 */
+	public FtpDirectoryTransfer setSkipUnchanged(boolean skipUnchanged) {
+		this.skipUnchanged = skipUnchanged;
+		return this;
+	}
+
+	/**
+	 * Sets if the .part files of interrupted transfers are completed instead
+	 * of transferred again, default is true
+	 *
+	 * @param resume
+	 *            false to transfer partial files again
+	 * @return this transfer
+	 */
+	public FtpDirectoryTransfer setResume(boolean resume) {
+		this.resume = resume;
+		return this;
+	}
+
+	/**
+	 * Downloads the files and sub directories of a remote directory
+	 *
+	 * @param remoteDir
+	 *            absolute path of the remote directory eg: /FTPTest
+	 * @param localDir
+	 *            local directory to download into, created if it does not
+	 *            exist
+	 * @return totals of the transfer, including the files which failed
+	 * @throws IOException
+	 *             if the remote directory can't be listed
+	 */
+	public FtpTransferResult download(final String remoteDir, final File localDir) throws IOException {
+		FtpTransferResult result = new FtpTransferResult();
+		final List<Entry> manifest = new ArrayList<>();
+		pool.execute(new FtpCallback<Void>() {
+			@Override
+			public Void doInSession(FTPClient ftp) throws IOException {
+				if (!ftp.changeWorkingDirectory(remoteDir)) {
+					throw new IOException("Remote directory: " + remoteDir + " does not exists.");
+				}
+				listRemote(ftp, trimSlash(remoteDir), localDir, manifest);
+				return null;
+			}
+		});
+		transfer(manifest, true, result);
+		result.finish();
+		return result;
+	}
+
+	/**
+	 * Uploads the files and sub directories of a local directory
+	 *
+	 * @param localDir
+	 *            local directory to upload
+	 * @param remoteDir
+	 *            absolute path of the remote directory eg: /FTPTest, created
+	 *            if it does not exist
+	 * @return totals of the transfer, including the files which failed
+	 * @throws IOException
+	 *             if a directory can't be listed or created
+	 */
+	public FtpTransferResult upload(final File localDir, final String remoteDir) throws IOException {
+		FtpTransferResult result = new FtpTransferResult();
+		final List<Entry> manifest = new ArrayList<>();
+		pool.execute(new FtpCallback<Void>() {
+			@Override
+			public Void doInSession(FTPClient ftp) throws IOException {
+				boolean exists = ftp.changeWorkingDirectory(remoteDir);
+				if (!exists) {
+					makeDirectories(ftp, remoteDir);
+				}
+				listLocal(ftp, localDir, trimSlash(remoteDir), exists, manifest);
+				return null;
+			}
+		});
+		transfer(manifest, false, result);
+		result.finish();
+		return result;
+	}
+
+	private static void listRemote(FTPClient ftp, String remoteDir, File localDir, List<Entry> manifest)
+			throws IOException {
+		if (!localDir.isDirectory() && !localDir.mkdirs()) {
+			throw new IOException("Create directory: " + localDir + " failed.");
+		}
+		for (FTPFile file : ftp.listFiles(remoteDir.isEmpty() ? "/" : remoteDir)) {
+			String name = file.getName();
+			if (name.equals(".") || name.equals("..")) {
+				continue;
+			}
+			String remotePath = remoteDir + "/" + name;
+			if (file.isDirectory()) {
+				listRemote(ftp, remotePath, new File(localDir, name), manifest);
+			} else if (file.isFile() && !name.endsWith(PART_SUFFIX)) {
+				manifest.add(new Entry(remotePath, new File(localDir, name), file.getSize(), file.getTimestamp(),
+						null));
+			}
+		}
+	}
+
+	private static void listLocal(FTPClient ftp, File localDir, String remoteDir, boolean remoteExists,
+			List<Entry> manifest) throws IOException {
+		File[] files = localDir.listFiles();
+		if (files == null) {
+			throw new IOException("Local directory: " + localDir + " can't be listed.");
+		}
+
+		// Only directories which existed before need to be compared
+		Map<String, FTPFile> remoteFiles = new HashMap<>();
+		if (remoteExists) {
+			for (FTPFile file : ftp.listFiles(remoteDir.isEmpty() ? "/" : remoteDir)) {
+				remoteFiles.put(file.getName(), file);
+			}
+		}
+
+		for (File file : files) {
+			String remotePath = remoteDir + "/" + file.getName();
+			FTPFile remoteFile = remoteFiles.get(file.getName());
+			if (file.isDirectory()) {
+				boolean exists = remoteFile != null && remoteFile.isDirectory();
+				if (!exists && !ftp.makeDirectory(remotePath)) {
+					throw new IOException("Create directory: " + remotePath + " failed. " + ftp.getReplyString());
+				}
+				listLocal(ftp, file, remotePath, exists, manifest);
+			} else if (file.isFile() && !file.getName().endsWith(PART_SUFFIX)) {
+				FTPFile partFile = remoteFiles.get(file.getName() + PART_SUFFIX);
+				if (partFile != null && !partFile.isFile()) {
+					partFile = null;
+				}
+				if (remoteFile != null && remoteFile.isFile()) {
+					manifest.add(new Entry(remotePath, file, remoteFile.getSize(), remoteFile.getTimestamp(),
+							partFile));
+				} else {
+					manifest.add(new Entry(remotePath, file, -1, null, partFile));
+				}
+			}
+		}
+	}
+
+	private static void makeDirectories(FTPClient ftp, String remoteDir) throws IOException {
+		StringBuilder path = new StringBuilder();
+		for (String dir : remoteDir.split("/")) {
+			if (dir.isEmpty()) {
+				continue;
+			}
+			path.append('/').append(dir);
+			if (!ftp.changeWorkingDirectory(path.toString()) && !ftp.makeDirectory(path.toString())) {
+				throw new IOException("Create directory: " + path + " failed. " + ftp.getReplyString());
+			}
+		}
+	}
+
+	private void transfer(List<Entry> manifest, final boolean download, final FtpTransferResult result)
+			throws IOException {
+		if (manifest.isEmpty()) {
+			return;
+		}
+
+		final Queue<Entry> queue = new ConcurrentLinkedQueue<>(manifest);
+		int workers = Math.min(threads, manifest.size());
+		ExecutorService executor = Executors.newFixedThreadPool(workers, new TransferThreadFactory());
+		try {
+			List<Future<Void>> futures = new ArrayList<>();
+			for (int i = 0; i < workers; i++) {
+				futures.add(executor.submit(new Callable<Void>() {
+					@Override
+					public Void call() {
+						transferFiles(queue, download, result);
+						return null;
+					}
+				}));
+			}
+			for (Future<Void> future : futures) {
+				future.get();
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException("Interrupted while transferring files", e);
+		} catch (ExecutionException e) {
+			throw new IOException("Error transferring files", e.getCause());
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	/**
+	 * Transfers files of the queue until it is empty, keeping one session
+	 * for all of them unless a transfer breaks the session
+	 */
+	private void transferFiles(Queue<Entry> queue, boolean download, FtpTransferResult result) {
+		FtpSession session = null;
+		try {
+			Entry entry;
+			while ((entry = queue.poll()) != null) {
+				try {
+					if (session == null) {
+						session = pool.getSession();
+					}
+					String failure = download ? download(session.getClient(), entry, result)
+							: upload(session.getClient(), entry, result);
+					if (failure != null) {
+						result.addFailure(entry.remotePath + ": " + failure);
+					}
+				} catch (IOException e) {
+					result.addFailure(entry.remotePath + ": " + e);
+					if (session != null) {
+						session.invalidate();
+						session.close();
+						session = null;
+					}
+				}
+			}
+		} finally {
+			if (session != null) {
+				session.close();
+			}
+		}
+	}
+
+	private String download(FTPClient ftp, Entry entry, FtpTransferResult result) throws IOException {
+		File localFile = entry.localFile;
+		long localSize = localFile.exists() ? localFile.length() : -1;
+		if (skipUnchanged && localSize == entry.remoteSize && entry.remoteTime != null
+				&& toPrecision(localFile.lastModified(), entry.remoteTime) == toPrecision(
+						entry.remoteTime.getTimeInMillis(), entry.remoteTime)) {
+			result.addSkipped();
+			return null;
+		}
+
+		File partFile = new File(localFile.getPath() + PART_SUFFIX);
+		long offset = resume && isPartial(partFile, entry) ? partFile.length() : 0;
+		FtpFileMetrics metrics = fileTransfer.download(ftp, entry.remotePath, partFile, offset);
+		if (offset > 0 && (metrics == null || partFile.length() != entry.remoteSize)) {
+			// Server does not support REST or ignored it, download the whole
+			// file
+			metrics = fileTransfer.download(ftp, entry.remotePath, partFile, 0);
+		}
+		if (metrics == null) {
+			Files.deleteIfExists(partFile.toPath());
+			return ftp.getReplyString().trim();
+		}
+		Files.move(partFile.toPath(), localFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+		if (entry.remoteTime != null) {
+			localFile.setLastModified(entry.remoteTime.getTimeInMillis());
+		}
+		result.addTransferred(metrics.getBytes(), metrics.getOffset() > 0);
+		return null;
+	}
+
+	private String upload(FTPClient ftp, Entry entry, FtpTransferResult result) throws IOException {
+		File localFile = entry.localFile;
+		long localSize = localFile.length();
+		if (skipUnchanged && entry.remoteSize == localSize && entry.remoteTime != null
+				&& toPrecision(entry.remoteTime.getTimeInMillis(), entry.remoteTime) >= toPrecision(
+						localFile.lastModified(), entry.remoteTime)) {
+			result.addSkipped();
+			return null;
+		}
+
+		String partPath = entry.remotePath + PART_SUFFIX;
+		long offset = resume && isPartial(entry.remotePart, localFile) ? entry.remotePart.getSize() : 0;
+		FtpFileMetrics metrics = fileTransfer.upload(ftp, localFile, partPath, offset);
+		if (metrics == null && offset > 0) {
+			// Server does not support APPE, upload the whole file
+			metrics = fileTransfer.upload(ftp, localFile, partPath, 0);
+		}
+		if (metrics == null) {
+			return ftp.getReplyString().trim();
+		}
+		// Not every server replaces an existing file on rename
+		if (!ftp.rename(partPath, entry.remotePath)) {
+			if (entry.remoteSize < 0 || !ftp.deleteFile(entry.remotePath) || !ftp.rename(partPath, entry.remotePath)) {
+				return ftp.getReplyString().trim();
+			}
+		}
+		result.addTransferred(metrics.getBytes(), metrics.getOffset() > 0);
+		return null;
+	}
+
+	/**
+	 * Checks if a local .part file is a partial download of the remote file:
+	 * smaller than it and written after the remote file changed last. Within
+	 * the precision of the remote timestamp the order is unknown, so the file
+	 * is transferred again.
+	 */
+	private static boolean isPartial(File partFile, Entry entry) {
+		return partFile.isFile() && partFile.length() > 0 && partFile.length() < entry.remoteSize
+				&& entry.remoteTime != null && toPrecision(partFile.lastModified(), entry.remoteTime) > toPrecision(
+						entry.remoteTime.getTimeInMillis(), entry.remoteTime);
+	}
+
+	/**
+	 * Checks if a remote .part file is a partial upload of the local file:
+	 * smaller than it and written after the local file changed last
+	 */
+	private static boolean isPartial(FTPFile partFile, File localFile) {
+		return partFile != null && partFile.getSize() > 0 && partFile.getSize() < localFile.length()
+				&& partFile.getTimestamp() != null
+				&& toPrecision(partFile.getTimestamp().getTimeInMillis(), partFile.getTimestamp()) > toPrecision(
+						localFile.lastModified(), partFile.getTimestamp());
+	}
+
+	/**
+	 * Truncates the time to the precision of the remote timestamp; listings
+	 * often show only minutes, or only the day for older files, which leaves
+	 * the missing fields zero
+	 */
+	private static long toPrecision(long time, Calendar remoteTime) {
+		long precision = 1000;
+		if (remoteTime.get(Calendar.SECOND) == 0) {
+			precision = remoteTime.get(Calendar.MINUTE) == 0 && remoteTime.get(Calendar.HOUR_OF_DAY) == 0 ? 86400000
+					: 60000;
+		}
+		return (time + remoteTime.get(Calendar.ZONE_OFFSET) + remoteTime.get(Calendar.DST_OFFSET)) / precision;
+	}
+
+	private static String trimSlash(String path) {
+		String trimmed = path.replace('\\', '/');
+		while (trimmed.endsWith("/")) {
+			trimmed = trimmed.substring(0, trimmed.length() - 1);
+		}
+		return trimmed;
+	}
+
+	/**
+	 * File of the manifest with the size and time of the remote file, -1 and
+	 * null if it does not exist yet, and for uploads the remote .part file of
+	 * an interrupted upload
+	 */
+	private static class Entry {
+		private final String remotePath;
+		private final File localFile;
+		private final long remoteSize;
+		private final Calendar remoteTime;
+		private final FTPFile remotePart;
+
+		private Entry(String remotePath, File localFile, long remoteSize, Calendar remoteTime, FTPFile remotePart) {
+			this.remotePath = remotePath;
+			this.localFile = localFile;
+			this.remoteSize = remoteSize;
+			this.remoteTime = remoteTime;
+			this.remotePart = remotePart;
+		}
+	}
+
+	private static class TransferThreadFactory implements ThreadFactory {
+		private final AtomicInteger count = new AtomicInteger();
+
+		@Override
+		public Thread newThread(Runnable runnable) {
+			Thread thread = new Thread(runnable, "ftp-transfer-" + count.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		}
+	}
+}
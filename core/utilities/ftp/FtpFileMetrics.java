@@ -0,0 +1,128 @@
+package core.utilities.ftp;
+
+import java.io.File;
+
+/**
+ * Metrics of one file transferred by {@link FtpFileTransfer}: the bytes
+ * moved, the duration and throughput and, if requested, the checksum of the
+ * whole file computed while it was transferred.
+ */
+public class FtpFileMetrics {
+
+	private final String remotePath;
+	private final File localFile;
+	private final boolean upload;
+	private final long offset;
+	private final long bytes;
+	private final long elapsedNanos;
+	private final String checksumAlgorithm;
+	private final String checksum;
+
+	FtpFileMetrics(String remotePath, File localFile, boolean upload, long offset, long bytes, long elapsedNanos,
+			String checksumAlgorithm, String checksum) {
+		this.remotePath = remotePath;
+		this.localFile = localFile;
+		this.upload = upload;
+		this.offset = offset;
+		this.bytes = bytes;
+		this.elapsedNanos = elapsedNanos;
+		this.checksumAlgorithm = checksumAlgorithm;
+		this.checksum = checksum;
+	}
+
+	/**
+	 * Gets the path of the file on the server
+	 *
+	 * @return remote path
+	 */
+	public String getRemotePath() {
+		return remotePath;
+	}
+
+	/**
+	 * Gets the local file
+	 *
+	 * @return local file
+	 */
+	public File getLocalFile() {
+		return localFile;
+	}
+
+	/**
+	 * Checks if the file was uploaded
+	 *
+	 * @return true for an upload, false for a download
+	 */
+	public boolean isUpload() {
+		return upload;
+	}
+
+	/**
+	 * Gets the position the transfer was resumed from
+	 *
+	 * @return offset in bytes, 0 if the whole file was transferred
+	 */
+	public long getOffset() {
+		return offset;
+	}
+
+	/**
+	 * Gets the number of bytes transferred
+	 *
+	 * @return number of bytes
+	 */
+	public long getBytes() {
+		return bytes;
+	}
+
+	/**
+	 * Gets the duration of the transfer
+	 *
+	 * @return duration in milliseconds
+	 */
+	public long getElapsedMillis() {
+		return elapsedNanos / 1000000;
+	}
+
+	/**
+	 * Gets the throughput of the transfer
+	 *
+	 * @return bytes per second
+	 */
+	public double getBytesPerSecond() {
+		return bytes * 1000000000.0 / Math.max(1, elapsedNanos);
+	}
+
+	/**
+	 * Gets the checksum algorithm
+	 *
+	 * @return CRC32, SHA-256 or another MessageDigest algorithm, null if no
+	 *         checksum was computed
+	 */
+	public String getChecksumAlgorithm() {
+		return checksumAlgorithm;
+	}
+
+	/**
+	 * Gets the checksum of the whole file, including the part before the
+	 * offset of a resumed transfer
+	 *
+	 * @return lower case hex checksum, null if no checksum was computed
+	 */
+	public String getChecksum() {
+		return checksum;
+	}
+
+	@Override
+	public String toString() {
+		String metrics = String.format("%d bytes in %d ms (%.1f KB/s)", bytes, getElapsedMillis(),
+				getBytesPerSecond() / 1024);
+		if (offset > 0) {
+			metrics += " resumed at " + offset;
+		}
+		if (checksum != null) {
+			metrics += ", " + checksumAlgorithm + " " + checksum;
+		}
+		return metrics;
+	}
+}
@@ -0,0 +1,274 @@
+package core.utilities.ftp;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.zip.CRC32;
+
+import org.apache.commons.net.ftp.FTPClient;
+
+import core.utilities.Log;
+
+/**
+ * Transfers single files over a FTP session. The data is copied through one
+ * buffer between the data connection and a {@link FileChannel} of the local
+ * file, and the checksum of the file is updated from the same buffer, so a
+ * download can be verified without reading the file again.
+ */
+public class FtpFileTransfer {
+
+	/** Checksum algorithm of java.util.zip.CRC32 */
+	public static final String CRC32 = "CRC32";
+
+	/** Checksum algorithm of MessageDigest SHA-256 */
+	public static final String SHA256 = "SHA-256";
+
+	private int bufferSize = Log.AUTOMATION_FTP_BUFFER_SIZE;
+	private String checksumAlgorithm = null;
+
+	/**
+	 * Sets the size of the transfer buffer, default is
+	 * AUTOMATION_FTP_BUFFER_SIZE
+	 *
+	 * @param bufferSize
+	 *            size in bytes
+	 * @return this transfer
+	 */
+	public FtpFileTransfer setBufferSize(int bufferSize) {
+		this.bufferSize = Math.max(1024, bufferSize);
+		return this;
+	}
+
+	/**
+	 * Sets the checksum computed while the files are transferred, default is
+	 * none
+	 *
+	 * @param checksumAlgorithm
+	 *            {@link #CRC32}, {@link #SHA256} or another MessageDigest
+	 *            algorithm, null for none
+	 * @return this transfer
+	 * @throws IllegalArgumentException
+	 *             if the algorithm is not supported
+	 */
+	public FtpFileTransfer setChecksumAlgorithm(String checksumAlgorithm) {
+		if (checksumAlgorithm != null && !checksumAlgorithm.equalsIgnoreCase(CRC32)) {
+			try {
+				MessageDigest.getInstance(checksumAlgorithm);
+			} catch (NoSuchAlgorithmException e) {
+				throw new IllegalArgumentException("Unsupported checksum algorithm: " + checksumAlgorithm, e);
+			}
+		}
+		this.checksumAlgorithm = checksumAlgorithm;
+		return this;
+	}
+
+	/**
+	 * Downloads a file, truncating the local file at the offset
+	 *
+	 * @param ftp
+	 *            logged in client
+	 * @param remotePath
+	 *            absolute path of the remote file
+	 * @param localFile
+	 *            local file, created if it does not exist
+	 * @param offset
+	 *            position to resume the download from, 0 for the whole file
+	 * @return metrics of the transfer, null if the server refused the
+	 *         transfer, see ftp.getReplyString()
+	 * @throws IOException
+	 *             if the transfer breaks, the session should be invalidated
+	 */
+	public FtpFileMetrics download(FTPClient ftp, String remotePath, File localFile, long offset) throws IOException {
+		long startTime = System.nanoTime();
+		Checksum checksum = newChecksum();
+		ftp.setBufferSize(bufferSize);
+		ftp.setRestartOffset(offset);
+		try (FileChannel channel = FileChannel.open(localFile.toPath(), StandardOpenOption.CREATE,
+				StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+			channel.truncate(offset);
+			byte[] buffer = new byte[bufferSize];
+			ByteBuffer byteBuffer = ByteBuffer.wrap(buffer);
+			if (checksum != null && offset > 0) {
+				update(checksum, channel, offset, byteBuffer);
+			}
+			channel.position(offset);
+
+			InputStream input = ftp.retrieveFileStream(remotePath);
+			if (input == null) {
+				return null;
+			}
+			long bytes = 0;
+			try {
+				int read;
+				while ((read = input.read(buffer)) != -1) {
+					byteBuffer.clear();
+					byteBuffer.limit(read);
+					while (byteBuffer.hasRemaining()) {
+						channel.write(byteBuffer);
+					}
+					if (checksum != null) {
+						checksum.update(buffer, read);
+					}
+					bytes += read;
+				}
+			} finally {
+				input.close();
+			}
+			if (!ftp.completePendingCommand()) {
+				return null;
+			}
+			return new FtpFileMetrics(remotePath, localFile, false, offset, bytes, System.nanoTime() - startTime,
+					checksumAlgorithm, checksum == null ? null : checksum.toHex());
+		} finally {
+			ftp.setRestartOffset(0);
+		}
+	}
+
+	/**
+	 * Uploads a file, appending to the remote file if an offset is given
+	 *
+	 * @param ftp
+	 *            logged in client
+	 * @param localFile
+	 *            local file
+	 * @param remotePath
+	 *            absolute path of the remote file
+	 * @param offset
+	 *            size of the partial remote file to append to, 0 to replace
+	 *            the remote file
+	 * @return metrics of the transfer, null if the server refused the
+	 *         transfer, see ftp.getReplyString()
+	 * @throws IOException
+	 *             if the transfer breaks, the session should be invalidated
+	 */
+	public FtpFileMetrics upload(FTPClient ftp, File localFile, String remotePath, long offset) throws IOException {
+		long startTime = System.nanoTime();
+		Checksum checksum = newChecksum();
+		ftp.setBufferSize(bufferSize);
+		try (FileChannel channel = FileChannel.open(localFile.toPath(), StandardOpenOption.READ)) {
+			byte[] buffer = new byte[bufferSize];
+			ByteBuffer byteBuffer = ByteBuffer.wrap(buffer);
+			if (checksum != null && offset > 0) {
+				update(checksum, channel, offset, byteBuffer);
+			}
+			channel.position(offset);
+
+			OutputStream output = offset > 0 ? ftp.appendFileStream(remotePath) : ftp.storeFileStream(remotePath);
+			if (output == null) {
+				return null;
+			}
+			long bytes = 0;
+			try {
+				int read;
+				byteBuffer.clear();
+				while ((read = channel.read(byteBuffer)) != -1) {
+					output.write(buffer, 0, read);
+					if (checksum != null) {
+						checksum.update(buffer, read);
+					}
+					bytes += read;
+					byteBuffer.clear();
+				}
+			} finally {
+				output.close();
+			}
+			if (!ftp.completePendingCommand()) {
+				return null;
+			}
+			return new FtpFileMetrics(remotePath, localFile, true, offset, bytes, System.nanoTime() - startTime,
+					checksumAlgorithm, checksum == null ? null : checksum.toHex());
+		}
+	}
+
+	/**
+	 * Computes the checksum of a local file
+	 *
+	 * @param file
+	 *            local file
+	 * @param checksumAlgorithm
+	 *            {@link #CRC32}, {@link #SHA256} or another MessageDigest
+	 *            algorithm
+	 * @return lower case hex checksum
+	 * @throws IOException
+	 *             if the file can't be read
+	 */
+	public static String checksum(File file, String checksumAlgorithm) throws IOException {
+		FtpFileTransfer transfer = new FtpFileTransfer().setChecksumAlgorithm(checksumAlgorithm);
+		Checksum checksum = transfer.newChecksum();
+		try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+			update(checksum, channel, channel.size(), ByteBuffer.allocate(transfer.bufferSize));
+		}
+		return checksum.toHex();
+	}
+
+	private Checksum newChecksum() {
+		if (checksumAlgorithm == null) {
+			return null;
+		}
+		if (checksumAlgorithm.equalsIgnoreCase(CRC32)) {
+			return new Checksum(new CRC32(), null);
+		}
+		try {
+			return new Checksum(null, MessageDigest.getInstance(checksumAlgorithm));
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalArgumentException("Unsupported checksum algorithm: " + checksumAlgorithm, e);
+		}
+	}
+
+	/**
+	 * Adds the first bytes of the file to the checksum
+	 */
+	private static void update(Checksum checksum, FileChannel channel, long length, ByteBuffer byteBuffer)
+			throws IOException {
+		channel.position(0);
+		long remaining = length;
+		while (remaining > 0) {
+			byteBuffer.clear();
+			byteBuffer.limit((int) Math.min(byteBuffer.capacity(), remaining));
+			int read = channel.read(byteBuffer);
+			if (read == -1) {
+				break;
+			}
+			checksum.update(byteBuffer.array(), read);
+			remaining -= read;
+		}
+	}
+
+	/**
+	 * CRC32 or MessageDigest updated from the transfer buffer
+	 */
+	private static class Checksum {
+		private final CRC32 crc;
+		private final MessageDigest digest;
+
+		private Checksum(CRC32 crc, MessageDigest digest) {
+			this.crc = crc;
+			this.digest = digest;
+		}
+
+		private void update(byte[] buffer, int length) {
+			if (crc != null) {
+				crc.update(buffer, 0, length);
+			} else {
+				digest.update(buffer, 0, length);
+			}
+		}
+
+		private String toHex() {
+			if (crc != null) {
+				return String.format("%08x", crc.getValue());
+			}
+			StringBuilder hex = new StringBuilder();
+			for (byte b : digest.digest()) {
+				hex.append(String.format("%02x", b));
+			}
+			return hex.toString();
+		}
+	}
+}
@@ -0,0 +1,62 @@
+package core.utilities.ftp;
+
+import java.io.Closeable;
+
+import org.apache.commons.net.ftp.FTPClient;
+
+/**
+ * Logged in FTP session borrowed from a {@link FtpSessionPool}. Closing the
+ * session returns it to the pool; the working directory and file type are
+ * restored before the next borrower gets it. A session whose control
+ * connection may be out of sync, f.ex. after an interrupted transfer, is
+ * discarded instead by calling {@link #invalidate()} before closing it.
+ */
+public class FtpSession implements Closeable {
+
+	private final FtpSessionPool pool;
+	private final FtpSessionPool.PooledClient client;
+	private volatile boolean closed = false;
+	private volatile boolean invalid = false;
+
+	FtpSession(FtpSessionPool pool, FtpSessionPool.PooledClient client) {
+		this.pool = pool;
+		this.client = client;
+	}
+
+	/**
+	 * Gets the client of the session
+	 *
+	 * @return logged in client in binary and passive mode
+	 */
+	public FTPClient getClient() {
+		if (closed) {
+			throw new IllegalStateException("FTP session is closed");
+		}
+		return client;
+	}
+
+	/**
+	 * Marks the session to be disconnected instead of returned to the pool
+	 * when it is closed
+	 */
+	public void invalidate() {
+		invalid = true;
+	}
+
+	/**
+	 * Returns the session to the pool, or disconnects it if it was
+	 * invalidated
+	 */
+	@Override
+	public void close() {
+		if (!closed) {
+			closed = true;
+			pool.release(client, invalid);
+		}
+	}
+
+	@Override
+	public String toString() {
+		return "FTP session to " + pool + (closed ? " (closed)" : "");
+	}
+}
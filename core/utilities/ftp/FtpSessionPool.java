@@ -0,0 +1,403 @@
+package core.utilities.ftp;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.lang.ref.WeakReference;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.commons.net.PrintCommandListener;
+import org.apache.commons.net.ftp.FTP;
+import org.apache.commons.net.ftp.FTPClient;
+import org.apache.commons.net.ftp.FTPReply;
+
+import core.utilities.Encrypt;
+import core.utilities.Log;
+
+/**
+ * Pool of logged in sessions to one FTP server. Sessions are opened on demand
+ * up to the maximum pool size and are reused by later operations, so a test
+ * pays for connecting and logging in only once per session instead of once
+ * per operation. Idle sessions are kept alive with NOOP commands every
+ * keep-alive interval and disconnected after the idle timeout.
+ * <p>
+ * The pool settings are initialized from the AUTOMATION_FTP_POOL_* global
+ * parameters. A session is used by one thread at a time, so parallel tests
+ * never share a control connection.
+ */
+public class FtpSessionPool {
+
+	private static final ScheduledExecutorService housekeeper = Executors
+			.newSingleThreadScheduledExecutor(new ThreadFactory() {
+				@Override
+				public Thread newThread(Runnable runnable) {
+					Thread thread = new Thread(runnable, "ftp-pool-housekeeper");
+					thread.setDaemon(true);
+					return thread;
+				}
+			});
+
+	private final String serverName;
+	private final int port;
+	private final String userName;
+	private final String password;
+	private final int maxSize;
+	private final long keepAlive;
+	private final long idleTimeout;
+	private final long connectionTimeout;
+
+	private final Semaphore permits;
+	private final LinkedBlockingDeque<PooledClient> idleClients = new LinkedBlockingDeque<>();
+	private final AtomicInteger activeSessions = new AtomicInteger();
+	private volatile boolean closed = false;
+
+	/**
+	 * Constructor for the FtpSessionPool class with the settings of the
+	 * AUTOMATION_FTP_POOL_* global parameters
+	 *
+	 * @param serverName
+	 *            FTP server name or IP address
+	 * @param port
+	 *            FTP server port
+	 * @param userName
+	 *            user name
+	 * @param password
+	 *            encrypted password, see {@link Encrypt#encryptPassword(String)}
+	 */
+	public FtpSessionPool(String serverName, int port, String userName, String password) {
+		this(serverName, port, userName, password, Log.AUTOMATION_FTP_POOL_MAX_SIZE, Log.AUTOMATION_FTP_POOL_KEEPALIVE,
+				Log.AUTOMATION_FTP_POOL_IDLE_TIMEOUT, Log.AUTOMATION_FTP_POOL_CONNECTION_TIMEOUT);
+	}
+
+	/**
+	 * Constructor for the FtpSessionPool class
+	 *
+	 * @param serverName
+	 *            FTP server name or IP address
+	 * @param port
+	 *            FTP server port
+	 * @param userName
+	 *            user name
+	 * @param password
+	 *            encrypted password, see {@link Encrypt#encryptPassword(String)}
+	 * @param maxSize
+	 *            maximum number of sessions opened at the same time
+	 * @param keepAlive
+	 *            seconds between NOOP commands on idle sessions and during
+	 *            long transfers
+	 * @param idleTimeout
+	 *            seconds an unused session is kept open
+	 * @param connectionTimeout
+	 *            seconds to wait for a free session when all sessions are in
+	 *            use
+	 */
+	public FtpSessionPool(String serverName, int port, String userName, String password, int maxSize, int keepAlive,
+			int idleTimeout, int connectionTimeout) {
+		this.serverName = serverName;
+		this.port = port;
+		this.userName = userName;
+		this.password = password;
+		this.maxSize = Math.max(1, maxSize);
+		this.keepAlive = TimeUnit.SECONDS.toMillis(Math.max(1, keepAlive));
+		this.idleTimeout = TimeUnit.SECONDS.toMillis(idleTimeout);
+		this.connectionTimeout = TimeUnit.SECONDS.toMillis(connectionTimeout);
+		this.permits = new Semaphore(this.maxSize, true);
+
+		housekeeper.scheduleWithFixedDelay(new Housekeeping(this), this.keepAlive, this.keepAlive,
+				TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * Creates a pool for the FTP server of the AUTOMATION_FTP_SERVER_* global
+	 * parameters
+	 *
+	 * @return session pool
+	 */
+	public static FtpSessionPool fromAutomationProperties() {
+		String sPort = Log.AUTOMATION_FTP_SERVER_PORTAL;
+		int port = sPort == null || sPort.trim().isEmpty() ? FTP.DEFAULT_PORT : Integer.valueOf(sPort.trim());
+		return new FtpSessionPool(Log.AUTOMATION_FTP_SERVER_NAME, port, Log.AUTOMATION_FTP_SERVER_USERNAME,
+				Log.AUTOMATION_FTP_SERVER_PASSWORD);
+	}
+
+	/**
+	 * Borrows a session from the pool. An idle session is reused if it is
+	 * still connected, otherwise a new session is opened and logged in. The
+	 * session must be closed to return it to the pool.
+	 *
+	 * @return logged in session
+	 * @throws IOException
+	 *             if no session could be opened or the pool is exhausted for
+	 *             longer than the connection timeout
+	 */
+	public FtpSession getSession() throws IOException {
+		if (closed) {
+			throw new IOException("FTP session pool is closed: " + this);
+		}
+
+		try {
+			if (!permits.tryAcquire(connectionTimeout, TimeUnit.MILLISECONDS)) {
+				throw new IOException(String.format(
+						"Timed out after %d ms waiting for a session to %s, all %d session(s) are in use",
+						connectionTimeout, this, maxSize));
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException("Interrupted while waiting for a session to " + this, e);
+		}
+
+		try {
+			PooledClient client;
+			while ((client = idleClients.pollFirst()) != null) {
+				if (isValid(client)) {
+					break;
+				}
+				disconnectQuietly(client);
+			}
+			if (client == null) {
+				client = openSession();
+			}
+			activeSessions.incrementAndGet();
+			return new FtpSession(this, client);
+		} catch (IOException | RuntimeException e) {
+			permits.release();
+			throw e;
+		}
+	}
+
+	/**
+	 * Executes operations on one session of the pool, f.ex. many transfers
+	 * without logging in again for every file
+	 *
+	 * @param callback
+	 *            operations to execute
+	 * @param <T>
+	 *            type of the result
+	 * @return result of the callback
+	 * @throws IOException
+	 *             if no session could be opened or an operation fails
+	 */
+	public <T> T execute(FtpCallback<T> callback) throws IOException {
+		FtpSession session = getSession();
+		try {
+			return callback.doInSession(session.getClient());
+		} catch (IOException e) {
+			session.invalidate();
+			throw e;
+		} finally {
+			session.close();
+		}
+	}
+
+	/**
+	 * Gets the number of sessions borrowed from the pool
+	 *
+	 * @return number of active sessions
+	 */
+	public int getActiveSessions() {
+		return activeSessions.get();
+	}
+
+	/**
+	 * Gets the number of logged in sessions waiting in the pool
+	 *
+	 * @return number of idle sessions
+	 */
+	public int getIdleSessions() {
+		return idleClients.size();
+	}
+
+	/**
+	 * Disconnects all idle sessions and the sessions which are returned to the
+	 * pool from now on. The pool can't be used anymore after closing.
+	 */
+	public void close() {
+		closed = true;
+
+		PooledClient client;
+		while ((client = idleClients.pollFirst()) != null) {
+			disconnectQuietly(client);
+		}
+	}
+
+	@Override
+	public String toString() {
+		return userName + "@" + serverName + ":" + port;
+	}
+
+	void release(PooledClient client, boolean invalid) {
+		activeSessions.decrementAndGet();
+		try {
+			boolean reusable = !closed && !invalid && client.isConnected();
+			if (reusable && client.workingDirectoryChanged) {
+				reusable = client.changeWorkingDirectory(client.homeDirectory);
+				client.workingDirectoryChanged = false;
+			}
+			if (reusable && client.fileTypeChanged) {
+				reusable = client.setFileType(FTP.BINARY_FILE_TYPE);
+				client.fileTypeChanged = false;
+			}
+			// The data connection mode is local state, the server is told the
+			// mode again with each transfer
+			if (reusable && client.getDataConnectionMode() != FTPClient.PASSIVE_LOCAL_DATA_CONNECTION_MODE) {
+				client.enterLocalPassiveMode();
+			}
+			if (reusable) {
+				client.lastUsed = System.currentTimeMillis();
+				idleClients.offerFirst(client);
+			} else {
+				disconnectQuietly(client);
+			}
+		} catch (IOException e) {
+			disconnectQuietly(client);
+		} finally {
+			permits.release();
+		}
+	}
+
+	private PooledClient openSession() throws IOException {
+		PooledClient client = new PooledClient();
+		if (Log.AUTOMATION_LOG_TYPE == Log.LOGTYPE_DEBUG_INFO) {
+			client.addProtocolCommandListener(new PrintCommandListener(new PrintWriter(System.out)));
+		}
+		client.setControlKeepAliveTimeout(TimeUnit.MILLISECONDS.toSeconds(keepAlive));
+		client.connect(serverName, port);
+		try {
+			if (!FTPReply.isPositiveCompletion(client.getReplyCode())) {
+				throw new IOException("Exception in connecting to FTP Server: " + client.getReplyString());
+			}
+			if (!client.login(userName, Encrypt.decryptPassword(password))) {
+				throw new IOException("Login to FTP Server failed: " + client.getReplyString());
+			}
+			client.setFileType(FTP.BINARY_FILE_TYPE);
+			client.enterLocalPassiveMode();
+			client.homeDirectory = client.printWorkingDirectory();
+			client.workingDirectoryChanged = false;
+			client.fileTypeChanged = false;
+		} catch (IOException | RuntimeException e) {
+			disconnectQuietly(client);
+			throw e;
+		}
+		Log.logScriptInfo("Connection to ftp server: " + serverName + " successful.");
+		return client;
+	}
+
+	private boolean isValid(PooledClient client) {
+		if (!client.isConnected()) {
+			return false;
+		}
+		if (System.currentTimeMillis() - client.lastUsed < keepAlive) {
+			return true;
+		}
+		// The server may have dropped a session idle for longer than the
+		// keep-alive interval
+		try {
+			return client.sendNoOp();
+		} catch (IOException e) {
+			return false;
+		}
+	}
+
+	private void housekeep() {
+		long now = System.currentTimeMillis();
+		for (PooledClient client : idleClients) {
+			if (now - client.lastUsed < keepAlive || !idleClients.remove(client)) {
+				continue;
+			}
+			if (idleTimeout > 0 && now - client.lastUsed >= idleTimeout) {
+				disconnectQuietly(client);
+				continue;
+			}
+			// Keep the session alive, sessions which don't answer are dropped
+			if (isValid(client)) {
+				idleClients.offerLast(client);
+			} else {
+				disconnectQuietly(client);
+			}
+		}
+	}
+
+	private void disconnectQuietly(FTPClient client) {
+		try {
+			if (client.isConnected()) {
+				client.logout();
+			}
+		} catch (IOException e) {
+			// session is discarded anyway
+		}
+		try {
+			client.disconnect();
+			Log.logDebugInfo("Disconnection from ftp server: " + serverName + " successful.");
+		} catch (IOException e) {
+			Log.logDebugInfo("Disconnection from ftp server: " + serverName + " failed: " + e.getMessage());
+		}
+	}
+
+	/**
+	 * FTP client owned by the pool. Tracks changes of the working directory
+	 * and file type which have to be undone before the session is reused,
+	 * like a change of the passive data connection mode.
+	 */
+	static class PooledClient extends FTPClient {
+		private volatile String homeDirectory;
+		private volatile boolean workingDirectoryChanged = false;
+		private volatile boolean fileTypeChanged = false;
+		private volatile long lastUsed = System.currentTimeMillis();
+
+		@Override
+		public int cwd(String directory) throws IOException {
+			workingDirectoryChanged = homeDirectory != null;
+			return super.cwd(directory);
+		}
+
+		@Override
+		public int cdup() throws IOException {
+			workingDirectoryChanged = homeDirectory != null;
+			return super.cdup();
+		}
+
+		@Override
+		public boolean setFileType(int fileType) throws IOException {
+			fileTypeChanged = fileType != FTP.BINARY_FILE_TYPE;
+			return super.setFileType(fileType);
+		}
+
+		@Override
+		public boolean setFileType(int fileType, int formatOrByteSize) throws IOException {
+			fileTypeChanged = true;
+			return super.setFileType(fileType, formatOrByteSize);
+		}
+	}
+
+	/**
+	 * Housekeeping task which stops when the pool is closed. Holds the pool
+	 * weakly so pools which are not referenced anymore are not kept open by
+	 * the housekeeper.
+	 */
+	private static class Housekeeping implements Runnable {
+		private final WeakReference<FtpSessionPool> pool;
+
+		private Housekeeping(FtpSessionPool pool) {
+			this.pool = new WeakReference<>(pool);
+		}
+
+		@Override
+		public void run() {
+			FtpSessionPool sessionPool = pool.get();
+			if (sessionPool == null || sessionPool.closed) {
+				// Cancels the scheduled housekeeping of the pool
+				throw new IllegalStateException("FTP session pool closed");
+			}
+			try {
+				sessionPool.housekeep();
+			} catch (RuntimeException e) {
+				Log.logDebugInfo("Error in FTP session pool housekeeping: " + e.getMessage());
+			}
+		}
+	}
+}
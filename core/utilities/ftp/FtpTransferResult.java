@@ -0,0 +1,115 @@
+package core.utilities.ftp;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Totals of a directory transfer: the files transferred, resumed, skipped
+ * because they were unchanged and failed, the bytes moved and the duration.
+ * Updated by the transfer threads, read after the transfer.
+ */
+public class FtpTransferResult {
+
+	private final AtomicInteger transferred = new AtomicInteger();
+	private final AtomicInteger resumed = new AtomicInteger();
+	private final AtomicInteger skipped = new AtomicInteger();
+	private final AtomicLong bytes = new AtomicLong();
+	private final List<String> failures = Collections.synchronizedList(new ArrayList<String>());
+	private final long startTime = System.currentTimeMillis();
+	private volatile long elapsed = -1;
+
+	void addTransferred(long byteCount, boolean wasResumed) {
+		transferred.incrementAndGet();
+		bytes.addAndGet(byteCount);
+		if (wasResumed) {
+			resumed.incrementAndGet();
+		}
+	}
+
+	void addSkipped() {
+		skipped.incrementAndGet();
+	}
+
+	void addFailure(String failure) {
+		failures.add(failure);
+	}
+
+	void finish() {
+		elapsed = System.currentTimeMillis() - startTime;
+	}
+
+	/**
+	 * Gets the number of files transferred, including resumed files
+	 *
+	 * @return number of files transferred
+	 */
+	public int getTransferred() {
+		return transferred.get();
+	}
+
+	/**
+	 * Gets the number of partially transferred files which were completed
+	 *
+	 * @return number of files resumed
+	 */
+	public int getResumed() {
+		return resumed.get();
+	}
+
+	/**
+	 * Gets the number of files skipped because the target was up to date
+	 *
+	 * @return number of files skipped
+	 */
+	public int getSkipped() {
+		return skipped.get();
+	}
+
+	/**
+	 * Gets the files which could not be transferred with the reason
+	 *
+	 * @return failures, empty if all files were transferred
+	 */
+	public List<String> getFailures() {
+		synchronized (failures) {
+			return new ArrayList<>(failures);
+		}
+	}
+
+	/**
+	 * Gets the number of bytes transferred
+	 *
+	 * @return number of bytes
+	 */
+	public long getBytes() {
+		return bytes.get();
+	}
+
+	/**
+	 * Gets the duration of the transfer, including building the manifest
+	 *
+	 * @return duration in milliseconds
+	 */
+	public long getElapsedMillis() {
+		return elapsed < 0 ? System.currentTimeMillis() - startTime : elapsed;
+	}
+
+	/**
+	 * Gets the throughput of the transfer
+	 *
+	 * @return bytes per second
+	 */
+	public double getBytesPerSecond() {
+		return bytes.get() * 1000.0 / Math.max(1, getElapsedMillis());
+	}
+
+	@Override
+	public String toString() {
+		return String.format("%d file(s) transferred (%d resumed), %d unchanged file(s) skipped, %d failed, "
+				+ "%d bytes in %d ms (%.1f KB/s)", transferred.get(), resumed.get(), skipped.get(), failures.size(),
+				bytes.get(), getElapsedMillis(), getBytesPerSecond() / 1024);
+	}
+}
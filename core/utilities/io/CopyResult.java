@@ -0,0 +1,116 @@
+package core.utilities.io;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Totals of a directory copy: the directories created, the files copied or
+ * hard linked and failed, the bytes copied and the duration. Updated by the
+ * copy threads, read after the copy.
+ */
+public class CopyResult {
+
+	private final AtomicInteger directories = new AtomicInteger();
+	private final AtomicInteger copied = new AtomicInteger();
+	private final AtomicInteger linked = new AtomicInteger();
+	private final AtomicLong bytes = new AtomicLong();
+	private final List<String> failures = Collections.synchronizedList(new ArrayList<String>());
+	private final long startTime = System.currentTimeMillis();
+	private volatile long elapsed = -1;
+
+	void addDirectory() {
+		directories.incrementAndGet();
+	}
+
+	void addCopied(long byteCount) {
+		copied.incrementAndGet();
+		bytes.addAndGet(byteCount);
+	}
+
+	void addLinked() {
+		linked.incrementAndGet();
+	}
+
+	void addFailure(String failure) {
+		failures.add(failure);
+	}
+
+	void finish() {
+		elapsed = System.currentTimeMillis() - startTime;
+	}
+
+	/**
+	 * Gets the number of directories created
+	 *
+	 * @return number of directories
+	 */
+	public int getDirectories() {
+		return directories.get();
+	}
+
+	/**
+	 * Gets the number of files copied
+	 *
+	 * @return number of files copied
+	 */
+	public int getCopied() {
+		return copied.get();
+	}
+
+	/**
+	 * Gets the number of files hard linked instead of copied
+	 *
+	 * @return number of files linked
+	 */
+	public int getLinked() {
+		return linked.get();
+	}
+
+	/**
+	 * Gets the files and directories which could not be copied with the reason
+	 *
+	 * @return failures, empty if everything was copied
+	 */
+	public List<String> getFailures() {
+		synchronized (failures) {
+			return new ArrayList<>(failures);
+		}
+	}
+
+	/**
+	 * Gets the number of bytes copied, linked files not included
+	 *
+	 * @return number of bytes
+	 */
+	public long getBytes() {
+		return bytes.get();
+	}
+
+	/**
+	 * Gets the duration of the copy
+	 *
+	 * @return duration in milliseconds
+	 */
+	public long getElapsedMillis() {
+		return elapsed < 0 ? System.currentTimeMillis() - startTime : elapsed;
+	}
+
+	/**
+	 * Gets the throughput of the copy
+	 *
+	 * @return bytes per second
+	 */
+	public double getBytesPerSecond() {
+		return bytes.get() * 1000.0 / Math.max(1, getElapsedMillis());
+	}
+
+	@Override
+	public String toString() {
+		return String.format("%d file(s) copied, %d file(s) linked, %d directories, %d failed, %d bytes in %d ms "
+				+ "(%.1f MB/s)", copied.get(), linked.get(), directories.get(), failures.size(), bytes.get(),
+				getElapsedMillis(), getBytesPerSecond() / (1024 * 1024));
+	}
+}
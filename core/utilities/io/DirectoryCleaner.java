@@ -0,0 +1,359 @@
+package core.utilities.io;
+
+import java.io.IOException;
+import java.nio.file.DirectoryNotEmptyException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import core.utilities.Log;
+
+/**
+ * Clears result directories without making the test wait for the delete.
+ * The directory is renamed into a directory of previous runs next to it and
+ * created again empty, which takes the same time for any number of files.
+ * The previous runs are then deleted in the background, except the runs kept
+ * by the retention policy: the last runs up to a number of runs and a total
+ * size.
+ * <p>
+ * Directories are deleted by a pool of threads deleting the files, the
+ * directories are deleted after their files. Runs which are being deleted
+ * are renamed first, so a delete which did not finish before the JVM ended is
+ * finished by the next clear. The directory of previous runs is removed when
+ * no run is kept.
+ */
+public class DirectoryCleaner {
+
+	/** Suffix of the directory of previous runs next to the cleared directory */
+	public static final String PREVIOUS_RUNS_SUFFIX = "_previous";
+
+	/** Prefix of previous runs which are being deleted */
+	private static final String DELETING_PREFIX = ".deleting-";
+
+	private static final ExecutorService background = Executors.newSingleThreadExecutor(new ThreadFactory() {
+		@Override
+		public Thread newThread(Runnable runnable) {
+			Thread thread = new Thread(runnable, "directory-cleaner");
+			thread.setDaemon(true);
+			return thread;
+		}
+	});
+
+	/** Guards the directories of previous runs while they are created or removed */
+	private static final Object previousRunsLock = new Object();
+
+	private int threads = Log.AUTOMATION_CLEANUP_THREADS;
+	private int keepRuns = 0;
+	private long keepBytes = 0;
+	private boolean skipReadOnly = false;
+
+	/**
+	 * Sets the number of files deleted at the same time, default is
+	 * AUTOMATION_CLEANUP_THREADS
+	 *
+	 * @param threads
+	 *            number of delete threads
+	 * @return this cleaner
+	 */
+	public DirectoryCleaner setThreads(int threads) {
+		this.threads = Math.max(1, threads);
+		return this;
+	}
+
+	/**
+	 * Sets the number of previous runs kept by {@link #clear(Path)}, default
+	 * is 0. The newest runs are kept; with a size limit, runs are deleted as
+	 * soon as either limit is exceeded.
+	 *
+	 * @param keepRuns
+	 *            number of previous runs to keep, 0 to delete all or, with a
+	 *            size limit, to keep any number of runs
+	 * @return this cleaner
+	 */
+	public DirectoryCleaner setKeepRuns(int keepRuns) {
+		this.keepRuns = Math.max(0, keepRuns);
+		return this;
+	}
+
+	/**
+	 * Sets the maximum total size of the previous runs kept by
+	 * {@link #clear(Path)}, the oldest runs are deleted until the kept runs
+	 * fit. Default is 0, no size limit. With a size limit and 0 kept runs,
+	 * only the size limits the number of runs kept.
+	 *
+	 * @param keepBytes
+	 *            maximum size in bytes, 0 for no limit
+	 * @return this cleaner
+	 */
+	public DirectoryCleaner setKeepBytes(long keepBytes) {
+		this.keepBytes = Math.max(0, keepBytes);
+		return this;
+	}
+
+	/**
+	 * Sets if write protected files and directories are left in place by
+	 * {@link #delete(Path)} like {@link java.io.File#canWrite()} reports
+	 * them, default is false. The directories containing them are kept too.
+	 *
+	 * @param skipReadOnly
+	 *            true to keep write protected files
+	 * @return this cleaner
+	 */
+	public DirectoryCleaner setSkipReadOnly(boolean skipReadOnly) {
+		this.skipReadOnly = skipReadOnly;
+		return this;
+	}
+
+	/**
+	 * Empties a directory: moves its content to the previous runs and
+	 * deletes the previous runs outside of the retention policy in the
+	 * background. If the directory can't be moved, f.ex. because a file is
+	 * open on Windows, it is deleted before returning.
+	 *
+	 * @param dir
+	 *            directory to clear, created if it does not exist
+	 * @return background deletion of previous runs
+	 * @throws IOException
+	 *             if the directory can't be moved, deleted or created
+	 */
+	public Future<?> clear(Path dir) throws IOException {
+		final Path directory = dir.toAbsolutePath().normalize();
+		final Path previousRuns = directory.resolveSibling(directory.getFileName() + PREVIOUS_RUNS_SUFFIX);
+
+		if (Files.isDirectory(directory)) {
+			String run = new SimpleDateFormat("yyyy-MM-dd_HHmmss_SSS").format(new Date());
+			Path target = previousRuns.resolve(run);
+			boolean moved = false;
+			synchronized (previousRunsLock) {
+				Files.createDirectories(previousRuns);
+				for (int i = 1; Files.exists(target); i++) {
+					target = previousRuns.resolve(run + "_" + i);
+				}
+				try {
+					Files.move(directory, target, StandardCopyOption.ATOMIC_MOVE);
+					moved = true;
+				} catch (IOException e) {
+					Log.logDebugInfo("Could not move " + directory + " to " + target + ", deleting it: "
+							+ e.getMessage());
+				}
+			}
+			if (!moved) {
+				delete(directory);
+			}
+		}
+		Files.createDirectories(directory);
+
+		if (!Files.isDirectory(previousRuns)) {
+			return background.submit(new Runnable() {
+				@Override
+				public void run() {
+					// nothing to delete
+				}
+			});
+		}
+		return background.submit(new Runnable() {
+			@Override
+			public void run() {
+				try {
+					applyRetention(previousRuns);
+				} catch (IOException | RuntimeException e) {
+					Log.logDebugInfo("Error deleting previous runs in " + previousRuns + ": " + e.getMessage());
+				}
+			}
+		});
+	}
+
+	/**
+	 * Deletes a directory and everything in it
+	 *
+	 * @param dir
+	 *            directory to delete
+	 * @return number of deleted files and directories
+	 * @throws IOException
+	 *             if a file or directory could not be deleted, with the first
+	 *             failure
+	 */
+	public int delete(Path dir) throws IOException {
+		if (!Files.exists(dir)) {
+			return 0;
+		}
+
+		final boolean skip = skipReadOnly;
+		final List<Path> directories = new ArrayList<>();
+		final List<String> failures = Collections.synchronizedList(new ArrayList<String>());
+		final AtomicInteger deleted = new AtomicInteger();
+		final ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+				new ArrayBlockingQueue<Runnable>(threads * 16), new CleanerThreadFactory(),
+				new ThreadPoolExecutor.CallerRunsPolicy());
+		try {
+			Files.walkFileTree(dir, new SimpleFileVisitor<Path>() {
+				@Override
+				public FileVisitResult preVisitDirectory(Path directory, BasicFileAttributes attrs) {
+					if (skip && !Files.isWritable(directory)) {
+						return FileVisitResult.SKIP_SUBTREE;
+					}
+					return FileVisitResult.CONTINUE;
+				}
+
+				@Override
+				public FileVisitResult visitFile(final Path file, BasicFileAttributes attrs) {
+					if (skip && !Files.isWritable(file)) {
+						return FileVisitResult.CONTINUE;
+					}
+					executor.execute(new Runnable() {
+						@Override
+						public void run() {
+							try {
+								Files.delete(file);
+								deleted.incrementAndGet();
+							} catch (IOException e) {
+								failures.add(file + ": " + e);
+							}
+						}
+					});
+					return FileVisitResult.CONTINUE;
+				}
+
+				@Override
+				public FileVisitResult visitFileFailed(Path file, IOException e) {
+					failures.add(file + ": " + e);
+					return FileVisitResult.CONTINUE;
+				}
+
+				@Override
+				public FileVisitResult postVisitDirectory(Path directory, IOException e) {
+					// Sub directories are visited before their parents
+					directories.add(directory);
+					return FileVisitResult.CONTINUE;
+				}
+			});
+		} finally {
+			executor.shutdown();
+			try {
+				while (!executor.awaitTermination(1, TimeUnit.SECONDS)) {
+					// wait for the remaining files
+				}
+			} catch (InterruptedException e) {
+				executor.shutdownNow();
+				Thread.currentThread().interrupt();
+				throw new IOException("Interrupted while deleting " + dir, e);
+			}
+		}
+
+		for (Path directory : directories) {
+			try {
+				Files.delete(directory);
+				deleted.incrementAndGet();
+			} catch (DirectoryNotEmptyException e) {
+				if (!skip) {
+					failures.add(directory + ": " + e);
+				}
+			} catch (IOException e) {
+				failures.add(directory + ": " + e);
+			}
+		}
+		if (!failures.isEmpty()) {
+			throw new IOException(failures.size() + " file(s) could not be deleted in " + dir + ", first: "
+					+ failures.get(0));
+		}
+		return deleted.get();
+	}
+
+	/**
+	 * Deletes the previous runs which are not kept, the newest runs are kept
+	 */
+	private void applyRetention(Path previousRuns) throws IOException {
+		List<Path> runs = new ArrayList<>();
+		List<Path> deleting = new ArrayList<>();
+		try (DirectoryStream<Path> stream = Files.newDirectoryStream(previousRuns)) {
+			for (Path run : stream) {
+				if (run.getFileName().toString().startsWith(DELETING_PREFIX)) {
+					deleting.add(run);
+				} else if (Files.isDirectory(run)) {
+					runs.add(run);
+				}
+			}
+		}
+		// The run names are timestamps, newest first
+		Collections.sort(runs, Collections.reverseOrder());
+
+		// Without a size limit 0 runs keeps none, with a size limit any number
+		int maxRuns = keepRuns > 0 || keepBytes == 0 ? keepRuns : Integer.MAX_VALUE;
+		long totalBytes = 0;
+		boolean exceeded = false;
+		for (int i = 0; i < runs.size(); i++) {
+			if (!exceeded && keepBytes > 0) {
+				totalBytes += size(runs.get(i));
+			}
+			exceeded = exceeded || i >= maxRuns || keepBytes > 0 && totalBytes > keepBytes;
+			if (exceeded) {
+				Path target = previousRuns.resolve(DELETING_PREFIX + runs.get(i).getFileName());
+				Files.move(runs.get(i), target, StandardCopyOption.ATOMIC_MOVE);
+				deleting.add(target);
+			}
+		}
+
+		for (Path run : deleting) {
+			long startTime = System.currentTimeMillis();
+			int deleted = delete(run);
+			Log.logDebugInfo(String.format("Deleted %d files and directories of %s in %d ms", deleted, run,
+					System.currentTimeMillis() - startTime));
+		}
+
+		// A clear running at the same time may have added a run
+		synchronized (previousRunsLock) {
+			try (DirectoryStream<Path> stream = Files.newDirectoryStream(previousRuns)) {
+				if (stream.iterator().hasNext()) {
+					return;
+				}
+			}
+			Files.delete(previousRuns);
+		}
+	}
+
+	private static long size(Path dir) throws IOException {
+		final AtomicLong size = new AtomicLong();
+		Files.walkFileTree(dir, new SimpleFileVisitor<Path>() {
+			@Override
+			public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+				size.addAndGet(attrs.size());
+				return FileVisitResult.CONTINUE;
+			}
+
+			@Override
+			public FileVisitResult visitFileFailed(Path file, IOException e) {
+				return FileVisitResult.CONTINUE;
+			}
+		});
+		return size.get();
+	}
+
+	private static class CleanerThreadFactory implements ThreadFactory {
+		private final AtomicInteger count = new AtomicInteger();
+
+		@Override
+		public Thread newThread(Runnable runnable) {
+			Thread thread = new Thread(runnable, "directory-delete-" + count.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		}
+	}
+}
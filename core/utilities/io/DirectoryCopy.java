@@ -0,0 +1,185 @@
+package core.utilities.io;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import core.utilities.Log;
+
+/**
+ * Copies a directory tree. The tree is walked once, creating the target
+ * directories, while the files are copied by a bounded pool of threads with
+ * {@link FileChannel#transferTo(long, long, java.nio.channels.WritableByteChannel)},
+ * which lets the operating system move the data without copying it through
+ * the Java heap. Files on the same file system can be hard linked instead of
+ * copied.
+ * <p>
+ * A file which can't be copied does not stop the copy, it is reported in the
+ * failures of the {@link CopyResult}.
+ */
+public class DirectoryCopy {
+
+	private int threads = Log.AUTOMATION_COPY_THREADS;
+	private boolean hardLink = false;
+
+	/**
+	 * Sets the number of files copied at the same time, default is
+	 * AUTOMATION_COPY_THREADS
+	 *
+	 * @param threads
+	 *            number of copy threads
+	 * @return this copy
+	 */
+	public DirectoryCopy setThreads(int threads) {
+		this.threads = Math.max(1, threads);
+		return this;
+	}
+
+	/**
+	 * Sets if files are hard linked instead of copied when the target is on
+	 * the same file system, default is false. Linked files share their
+	 * content, so only link files which are not changed anymore.
+	 *
+	 * @param hardLink
+	 *            true to link files
+	 * @return this copy
+	 */
+	public DirectoryCopy setHardLink(boolean hardLink) {
+		this.hardLink = hardLink;
+		return this;
+	}
+
+	/**
+	 * Copies the files and sub directories of a directory, replacing existing
+	 * files
+	 *
+	 * @param source
+	 *            directory to copy
+	 * @param target
+	 *            directory to copy to, created if it does not exist
+	 * @return totals of the copy, including the files which failed
+	 * @throws IOException
+	 *             if the target is inside the source or can't be created
+	 */
+	public CopyResult copy(Path source, Path target) throws IOException {
+		final Path sourceDir = source.toAbsolutePath().normalize();
+		final Path targetDir = target.toAbsolutePath().normalize();
+		if (targetDir.startsWith(sourceDir)) {
+			throw new IOException("Target directory " + target + " is inside source directory " + source);
+		}
+		Files.createDirectories(targetDir);
+
+		final CopyResult result = new CopyResult();
+		final boolean link = hardLink && Files.getFileStore(sourceDir).equals(Files.getFileStore(targetDir));
+		// The walk waits for the copy threads when the queue is full
+		final int workers = Math.max(1, threads);
+		final ThreadPoolExecutor executor = new ThreadPoolExecutor(workers, workers, 0L, TimeUnit.MILLISECONDS,
+				new ArrayBlockingQueue<Runnable>(workers * 16), new CopyThreadFactory(),
+				new ThreadPoolExecutor.CallerRunsPolicy());
+		try {
+			Files.walkFileTree(sourceDir, new SimpleFileVisitor<Path>() {
+				@Override
+				public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
+					Path targetPath = targetDir.resolve(sourceDir.relativize(dir).toString());
+					if (!Files.isDirectory(targetPath)) {
+						try {
+							Files.createDirectories(targetPath);
+							result.addDirectory();
+						} catch (IOException e) {
+							result.addFailure(dir + ": " + e);
+							return FileVisitResult.SKIP_SUBTREE;
+						}
+					}
+					return FileVisitResult.CONTINUE;
+				}
+
+				@Override
+				public FileVisitResult visitFile(final Path file, final BasicFileAttributes attrs) {
+					final Path targetPath = targetDir.resolve(sourceDir.relativize(file).toString());
+					executor.execute(new Runnable() {
+						@Override
+						public void run() {
+							copyFile(file, targetPath, attrs, link, result);
+						}
+					});
+					return FileVisitResult.CONTINUE;
+				}
+
+				@Override
+				public FileVisitResult visitFileFailed(Path file, IOException e) {
+					result.addFailure(file + ": " + e);
+					return FileVisitResult.CONTINUE;
+				}
+			});
+		} finally {
+			executor.shutdown();
+			try {
+				while (!executor.awaitTermination(1, TimeUnit.SECONDS)) {
+					// wait for the remaining files
+				}
+			} catch (InterruptedException e) {
+				executor.shutdownNow();
+				Thread.currentThread().interrupt();
+				throw new IOException("Interrupted while copying " + source, e);
+			}
+		}
+		result.finish();
+		return result;
+	}
+
+	private static void copyFile(Path source, Path target, BasicFileAttributes attrs, boolean link,
+			CopyResult result) {
+		try {
+			if (link) {
+				try {
+					Files.deleteIfExists(target);
+					Files.createLink(target, source);
+					result.addLinked();
+					return;
+				} catch (IOException | UnsupportedOperationException e) {
+					// file system does not allow the link, copy the file
+				}
+			}
+
+			long position = 0;
+			try (FileChannel input = FileChannel.open(source, StandardOpenOption.READ);
+					FileChannel output = FileChannel.open(target, StandardOpenOption.CREATE,
+							StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+				long size = input.size();
+				while (position < size) {
+					long transferred = input.transferTo(position, size - position, output);
+					if (transferred <= 0) {
+						// file was truncated while copying
+						break;
+					}
+					position += transferred;
+				}
+			}
+			Files.setLastModifiedTime(target, attrs.lastModifiedTime());
+			result.addCopied(position);
+		} catch (IOException | RuntimeException e) {
+			result.addFailure(source + ": " + e);
+		}
+	}
+
+	private static class CopyThreadFactory implements ThreadFactory {
+		private final AtomicInteger count = new AtomicInteger();
+
+		@Override
+		public Thread newThread(Runnable runnable) {
+			Thread thread = new Thread(runnable, "file-copy-" + count.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		}
+	}
+}
@@ -0,0 +1,254 @@
+package core.utilities.io;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Waits for browser downloads to complete. The download directory is watched
+ * with a {@link WatchService}, so the waiting test wakes up as soon as a file
+ * is created, written or renamed instead of on polling ticks.
+ * <p>
+ * A download is complete when the file exists, the partial file of the
+ * browser (".part" for Firefox, ".crdownload" for Chrome) is gone and the size
+ * and modification time of the file did not change for the quiet period.
+ * Firefox creates an empty file with the final name when the download starts,
+ * which is not complete until the ".part" file is renamed over it.
+ * <p>
+ * Create the watcher before starting the download to wait for any new file:
+ *
+ * <pre>
+ * try (DownloadWatcher watcher = new DownloadWatcher(downloadDir)) {
+ * 	exportButton.click();
+ * 	Path file = watcher.awaitNew(60000);
+ * }
+ * </pre>
+ *
+ * File systems without native change notification are checked at least once
+ * a second.
+ */
+public class DownloadWatcher implements Closeable {
+
+	/** Suffixes of the files browsers write before renaming the download */
+	private static final String[] PARTIAL_SUFFIXES = { ".part", ".crdownload", ".partial", ".download" };
+
+	/** Maximum time between checks when no change is notified */
+	private static final long MAX_POLL_MILLIS = 1000;
+
+	private final Path directory;
+	private final WatchService watchService;
+	private final Set<String> existing = new HashSet<>();
+	private long quietMillis = 500;
+
+	/**
+	 * Starts watching a download directory
+	 *
+	 * @param directory
+	 *            download directory, created if it does not exist
+	 * @throws IOException
+	 *             if the directory can't be created or watched
+	 */
+	public DownloadWatcher(Path directory) throws IOException {
+		this.directory = directory.toAbsolutePath().normalize();
+		Files.createDirectories(this.directory);
+		watchService = this.directory.getFileSystem().newWatchService();
+		try {
+			this.directory.register(watchService, StandardWatchEventKinds.ENTRY_CREATE,
+					StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_DELETE);
+			try (DirectoryStream<Path> stream = Files.newDirectoryStream(this.directory)) {
+				for (Path file : stream) {
+					existing.add(file.getFileName().toString());
+				}
+			}
+		} catch (IOException e) {
+			watchService.close();
+			throw e;
+		}
+	}
+
+	/**
+	 * Sets the time the size and modification time of a downloaded file must
+	 * not change before it is complete, default is 500 ms
+	 *
+	 * @param quietMillis
+	 *            quiet period in milliseconds
+	 * @return this watcher
+	 */
+	public DownloadWatcher setQuietPeriod(long quietMillis) {
+		this.quietMillis = Math.max(0, quietMillis);
+		return this;
+	}
+
+	/**
+	 * Gets the watched directory
+	 *
+	 * @return download directory
+	 */
+	public Path getDirectory() {
+		return directory;
+	}
+
+	/**
+	 * Waits for the download of a file to complete. A file which was
+	 * downloaded before the wait is returned once it is quiet.
+	 *
+	 * @param fileName
+	 *            name of the downloaded file in the directory
+	 * @param timeoutMillis
+	 *            maximum time to wait in milliseconds
+	 * @return the downloaded file, null if it is not complete within the
+	 *         timeout
+	 * @throws IOException
+	 *             if the directory can't be read
+	 * @throws InterruptedException
+	 *             if the thread is interrupted while waiting
+	 */
+	public Path await(String fileName, long timeoutMillis) throws IOException, InterruptedException {
+		return waitFor(directory.resolve(fileName), timeoutMillis);
+	}
+
+	/**
+	 * Waits for the download of a file which did not exist when the watcher
+	 * was created. If several new files are complete, the last modified one
+	 * is returned.
+	 *
+	 * @param timeoutMillis
+	 *            maximum time to wait in milliseconds
+	 * @return the downloaded file, null if no new file is complete within the
+	 *         timeout
+	 * @throws IOException
+	 *             if the directory can't be read
+	 * @throws InterruptedException
+	 *             if the thread is interrupted while waiting
+	 */
+	public Path awaitNew(long timeoutMillis) throws IOException, InterruptedException {
+		return waitFor(null, timeoutMillis);
+	}
+
+	@Override
+	public void close() throws IOException {
+		watchService.close();
+	}
+
+	/**
+	 * Checks the download after every change notified in the directory until
+	 * the file was quiet for the quiet period
+	 */
+	private Path waitFor(Path file, long timeoutMillis) throws IOException, InterruptedException {
+		long deadline = System.currentTimeMillis() + timeoutMillis;
+		Path candidate = null;
+		long size = -1;
+		long modified = -1;
+		long quietSince = 0;
+
+		while (true) {
+			Path found = file != null ? (isDownloaded(file) ? file : null) : findNew();
+			long now = System.currentTimeMillis();
+			BasicFileAttributes attributes = null;
+			if (found != null) {
+				try {
+					attributes = Files.readAttributes(found, BasicFileAttributes.class);
+				} catch (NoSuchFileException e) {
+					found = null;
+				}
+			}
+
+			if (found == null) {
+				candidate = null;
+			} else if (!found.equals(candidate) || attributes.size() != size
+					|| attributes.lastModifiedTime().toMillis() != modified) {
+				candidate = found;
+				size = attributes.size();
+				modified = attributes.lastModifiedTime().toMillis();
+				// A file finished before the wait is quiet since it was written
+				quietSince = Math.min(now, modified);
+			}
+			if (candidate != null && now - quietSince >= quietMillis) {
+				return candidate;
+			}
+			if (now >= deadline) {
+				return null;
+			}
+
+			long wait = Math.min(deadline - now, MAX_POLL_MILLIS);
+			if (candidate != null) {
+				wait = Math.min(wait, quietSince + quietMillis - now);
+			}
+			WatchKey key = watchService.poll(Math.max(1, wait), TimeUnit.MILLISECONDS);
+			while (key != null) {
+				for (WatchEvent<?> event : key.pollEvents()) {
+					// A write which changes neither size nor time restarts the
+					// quiet period too
+					if (candidate != null && event.kind() == StandardWatchEventKinds.ENTRY_MODIFY
+							&& candidate.getFileName().equals(event.context())) {
+						quietSince = System.currentTimeMillis();
+					}
+				}
+				key.reset();
+				key = watchService.poll();
+			}
+		}
+	}
+
+	/**
+	 * Finds the last modified downloaded file which did not exist when the
+	 * watcher was created
+	 */
+	private Path findNew() throws IOException {
+		Path newest = null;
+		long newestModified = Long.MIN_VALUE;
+		try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory)) {
+			for (Path file : stream) {
+				if (existing.contains(file.getFileName().toString()) || isPartial(file) || !isDownloaded(file)) {
+					continue;
+				}
+				try {
+					long modified = Files.getLastModifiedTime(file).toMillis();
+					if (modified > newestModified) {
+						newest = file;
+						newestModified = modified;
+					}
+				} catch (NoSuchFileException e) {
+					// removed while listing
+				}
+			}
+		}
+		return newest;
+	}
+
+	/**
+	 * Checks if a file exists and no browser is writing its partial file
+	 */
+	private static boolean isDownloaded(Path file) {
+		if (!Files.isRegularFile(file)) {
+			return false;
+		}
+		for (String suffix : PARTIAL_SUFFIXES) {
+			if (Files.exists(file.resolveSibling(file.getFileName() + suffix))) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static boolean isPartial(Path file) {
+		String name = file.getFileName().toString();
+		for (String suffix : PARTIAL_SUFFIXES) {
+			if (name.endsWith(suffix)) {
+				return true;
+			}
+		}
+		return false;
+	}
+}
@@ -0,0 +1,318 @@
+package core.utilities.io;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * Compares files without loading them into memory. The bytes of two files
+ * are compared in memory mapped windows, eight bytes at a time; the line by
+ * line comparison reads both files once and builds a unified diff of the
+ * first differences.
+ */
+public class FileCompare {
+
+	/** Size of the file windows mapped at a time */
+	private static final int WINDOW_SIZE = 16 * 1024 * 1024;
+
+	/** Number of lines searched ahead for the end of a difference */
+	private static final int LOOKAHEAD = 100;
+
+	private FileCompare() {
+	}
+
+	/**
+	 * Checks if two files have the same content. Files with different sizes
+	 * are not read.
+	 *
+	 * @param file1
+	 *            first file
+	 * @param file2
+	 *            second file
+	 * @return true if the files have the same bytes
+	 * @throws IOException
+	 *             if a file can't be read
+	 */
+	public static boolean contentEquals(Path file1, Path file2) throws IOException {
+		if (Files.size(file1) != Files.size(file2)) {
+			return false;
+		}
+		return mismatch(file1, file2) == -1;
+	}
+
+	/**
+	 * Finds the first byte which differs in two files
+	 *
+	 * @param file1
+	 *            first file
+	 * @param file2
+	 *            second file
+	 * @return position of the first different byte, the size of the shorter
+	 *         file if it is the start of the longer one or -1 if the files
+	 *         are identical
+	 * @throws IOException
+	 *             if a file can't be read
+	 */
+	public static long mismatch(Path file1, Path file2) throws IOException {
+		if (Files.isSameFile(file1, file2)) {
+			return -1;
+		}
+		try (FileChannel channel1 = FileChannel.open(file1, StandardOpenOption.READ);
+				FileChannel channel2 = FileChannel.open(file2, StandardOpenOption.READ)) {
+			long size = Math.min(channel1.size(), channel2.size());
+			for (long position = 0; position < size; position += WINDOW_SIZE) {
+				int length = (int) Math.min(WINDOW_SIZE, size - position);
+				MappedByteBuffer window1 = channel1.map(MapMode.READ_ONLY, position, length);
+				MappedByteBuffer window2 = channel2.map(MapMode.READ_ONLY, position, length);
+				int i = 0;
+				while (i + 8 <= length && window1.getLong(i) == window2.getLong(i)) {
+					i += 8;
+				}
+				for (; i < length; i++) {
+					if (window1.get(i) != window2.get(i)) {
+						return position + i;
+					}
+				}
+			}
+			return channel1.size() == channel2.size() ? -1 : size;
+		}
+	}
+
+	/**
+	 * Compares two text files line by line. The comparison stops after the
+	 * maximum number of changed lines, so a limit of 0 only checks if the
+	 * files are identical. Lines can end with \n, \r or \r\n in both files.
+	 *
+	 * @param file1
+	 *            first file, the removed lines in the diff
+	 * @param file2
+	 *            second file, the added lines in the diff
+	 * @param charset
+	 *            charset of the files
+	 * @param maxChangedLines
+	 *            maximum number of removed and added lines in the diff
+	 * @param context
+	 *            number of unchanged lines shown before and after a change
+	 * @return result with the unified diff of the first differences
+	 * @throws IOException
+	 *             if a file can't be read
+	 */
+	public static FileDiff diff(Path file1, Path file2, Charset charset, int maxChangedLines, int context)
+			throws IOException {
+		try (BufferedReader reader1 = new BufferedReader(new InputStreamReader(Files.newInputStream(file1), charset));
+				BufferedReader reader2 = new BufferedReader(
+						new InputStreamReader(Files.newInputStream(file2), charset))) {
+			return new Differ(reader1, reader2, maxChangedLines, Math.max(0, context)).diff(file1.toString(),
+					file2.toString());
+		}
+	}
+
+	/**
+	 * Lines of a file read ahead of the comparison
+	 */
+	private static class Lines {
+		private final BufferedReader reader;
+		private final List<String> ahead = new ArrayList<>();
+		private int lineNumber = 1;
+		private boolean end = false;
+
+		private Lines(BufferedReader reader) {
+			this.reader = reader;
+		}
+
+		/**
+		 * Gets a line ahead of the current line, null after the last line
+		 */
+		private String peek(int index) throws IOException {
+			while (ahead.size() <= index && !end) {
+				String line = reader.readLine();
+				if (line == null) {
+					end = true;
+				} else {
+					ahead.add(line);
+				}
+			}
+			return index < ahead.size() ? ahead.get(index) : null;
+		}
+
+		/**
+		 * Checks if a line ahead is exactly the end of the file
+		 */
+		private boolean isEnd(int index) throws IOException {
+			return peek(index) == null && (index == 0 || peek(index - 1) != null);
+		}
+
+		private String next() throws IOException {
+			String line = peek(0);
+			if (line != null) {
+				ahead.remove(0);
+				lineNumber++;
+			}
+			return line;
+		}
+	}
+
+	/**
+	 * Compares the lines of two files. Equal lines are skipped; at a
+	 * difference the nearest lines where the files are equal again are
+	 * searched within the lookahead and the lines in between are added to the
+	 * current hunk of the diff.
+	 */
+	private static class Differ {
+		private final Lines lines1;
+		private final Lines lines2;
+		private final int maxChangedLines;
+		private final int context;
+		private final Deque<String> before = new ArrayDeque<>();
+		private final StringBuilder diff = new StringBuilder();
+		private StringBuilder hunk = null;
+		private int start1;
+		private int start2;
+		private int count1;
+		private int count2;
+		private int trailing;
+		private int changedLines = 0;
+
+		private Differ(BufferedReader reader1, BufferedReader reader2, int maxChangedLines, int context) {
+			this.lines1 = new Lines(reader1);
+			this.lines2 = new Lines(reader2);
+			this.maxChangedLines = Math.max(0, maxChangedLines);
+			this.context = context;
+		}
+
+		private FileDiff diff(String file1, String file2) throws IOException {
+			boolean identical = true;
+			boolean truncated = false;
+
+			while (true) {
+				String line1 = lines1.peek(0);
+				String line2 = lines2.peek(0);
+				if (line1 == null && line2 == null) {
+					break;
+				}
+
+				if (line1 != null && line1.equals(line2)) {
+					lines1.next();
+					lines2.next();
+					if (hunk != null && trailing >= context) {
+						closeHunk();
+					}
+					if (hunk != null) {
+						addLine(' ', line1);
+						count1++;
+						count2++;
+						trailing++;
+					} else if (context > 0) {
+						before.addLast(line1);
+						if (before.size() > context) {
+							before.removeFirst();
+						}
+					}
+					continue;
+				}
+
+				identical = false;
+				if (changedLines >= maxChangedLines) {
+					truncated = true;
+					break;
+				}
+
+				int[] sync = findSync();
+				openHunk();
+				for (int i = 0; i < sync[0]; i++) {
+					truncated |= !addChange('-', lines1.next(), true);
+				}
+				for (int j = 0; j < sync[1]; j++) {
+					truncated |= !addChange('+', lines2.next(), false);
+				}
+				trailing = 0;
+				if (truncated) {
+					break;
+				}
+			}
+
+			closeHunk();
+			if (identical) {
+				return new FileDiff(file1, file2, true, 0, false, "");
+			}
+			String header = "--- " + file1 + System.lineSeparator() + "+++ " + file2 + System.lineSeparator();
+			return new FileDiff(file1, file2, false, changedLines, truncated, header + diff);
+		}
+
+		/**
+		 * Finds the number of lines to skip in each file until they are equal
+		 * again, preferring the fewest changed lines
+		 */
+		private int[] findSync() throws IOException {
+			for (int d = 1; d <= 2 * LOOKAHEAD; d++) {
+				for (int i = Math.max(0, d - LOOKAHEAD); i <= Math.min(d, LOOKAHEAD); i++) {
+					int j = d - i;
+					String line1 = lines1.peek(i);
+					if (line1 != null ? line1.equals(lines2.peek(j)) : lines1.isEnd(i) && lines2.isEnd(j)) {
+						return new int[] { i, j };
+					}
+				}
+			}
+			// No equal lines ahead, the current lines are changed
+			return new int[] { lines1.peek(0) != null ? 1 : 0, lines2.peek(0) != null ? 1 : 0 };
+		}
+
+		private void openHunk() {
+			if (hunk != null) {
+				return;
+			}
+			hunk = new StringBuilder();
+			start1 = lines1.lineNumber - before.size();
+			start2 = lines2.lineNumber - before.size();
+			count1 = before.size();
+			count2 = before.size();
+			for (String line : before) {
+				addLine(' ', line);
+			}
+			before.clear();
+		}
+
+		/**
+		 * Adds a removed or added line to the hunk unless the maximum number
+		 * of changed lines is reached
+		 */
+		private boolean addChange(char prefix, String line, boolean first) {
+			if (changedLines >= maxChangedLines) {
+				return false;
+			}
+			addLine(prefix, line);
+			changedLines++;
+			if (first) {
+				count1++;
+			} else {
+				count2++;
+			}
+			return true;
+		}
+
+		private void addLine(char prefix, String line) {
+			hunk.append(prefix).append(line).append(System.lineSeparator());
+		}
+
+		private void closeHunk() {
+			if (hunk == null) {
+				return;
+			}
+			// An empty range starts at the line before it
+			diff.append(String.format("@@ -%d,%d +%d,%d @@%n", count1 == 0 ? start1 - 1 : start1, count1,
+					count2 == 0 ? start2 - 1 : start2, count2)).append(hunk);
+			hunk = null;
+		}
+	}
+}
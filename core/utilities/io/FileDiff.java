@@ -0,0 +1,72 @@
+package core.utilities.io;
+
+/**
+ * Result of a line by line comparison of two files: whether the lines are
+ * identical and a unified diff of the first differences. The diff is limited
+ * to a maximum number of changed lines, so comparing two completely
+ * different large files does not build a large diff.
+ */
+public class FileDiff {
+
+	private final String file1;
+	private final String file2;
+	private final boolean identical;
+	private final int changedLines;
+	private final boolean truncated;
+	private final String diff;
+
+	FileDiff(String file1, String file2, boolean identical, int changedLines, boolean truncated, String diff) {
+		this.file1 = file1;
+		this.file2 = file2;
+		this.identical = identical;
+		this.changedLines = changedLines;
+		this.truncated = truncated;
+		this.diff = diff;
+	}
+
+	/**
+	 * Checks if the files have the same lines
+	 *
+	 * @return true if the files are identical, line breaks not compared
+	 */
+	public boolean isIdentical() {
+		return identical;
+	}
+
+	/**
+	 * Gets the number of removed and added lines in the diff
+	 *
+	 * @return number of changed lines shown
+	 */
+	public int getChangedLines() {
+		return changedLines;
+	}
+
+	/**
+	 * Checks if the comparison stopped at the maximum number of changed lines
+	 * before the end of the files
+	 *
+	 * @return true if there may be more differences than shown
+	 */
+	public boolean isTruncated() {
+		return truncated;
+	}
+
+	/**
+	 * Gets the differences in unified diff format
+	 *
+	 * @return diff with file headers, empty if the files are identical
+	 */
+	public String getDiff() {
+		return diff;
+	}
+
+	@Override
+	public String toString() {
+		if (identical) {
+			return "Files " + file1 + " and " + file2 + " are identical";
+		}
+		return "Files " + file1 + " and " + file2 + " differ, " + changedLines + " changed line(s)"
+				+ (truncated ? " shown, comparison stopped" : "") + System.lineSeparator() + diff;
+	}
+}
@@ -0,0 +1,105 @@
+package core.utilities.io;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Totals of a results archive: the files packaged and failed, the bytes
+ * before and after compression and the duration. Updated by the compression
+ * threads, read after the archive is finished.
+ */
+public class PackageResult {
+
+	private final File archive;
+	private final AtomicInteger files = new AtomicInteger();
+	private final AtomicLong bytes = new AtomicLong();
+	private final AtomicLong compressedBytes = new AtomicLong();
+	private final List<String> failures = Collections.synchronizedList(new ArrayList<String>());
+	private final long startTime = System.currentTimeMillis();
+	private volatile long elapsed = -1;
+
+	PackageResult(File archive) {
+		this.archive = archive;
+	}
+
+	void addFile(long size, long compressedSize) {
+		files.incrementAndGet();
+		bytes.addAndGet(size);
+		compressedBytes.addAndGet(compressedSize);
+	}
+
+	void addFailure(String failure) {
+		failures.add(failure);
+	}
+
+	void finish() {
+		elapsed = System.currentTimeMillis() - startTime;
+	}
+
+	/**
+	 * Gets the archive file
+	 *
+	 * @return zip archive
+	 */
+	public File getArchive() {
+		return archive;
+	}
+
+	/**
+	 * Gets the number of files packaged
+	 *
+	 * @return number of files, the manifest not included
+	 */
+	public int getFiles() {
+		return files.get();
+	}
+
+	/**
+	 * Gets the files which could not be packaged with the reason
+	 *
+	 * @return failures, empty if everything was packaged
+	 */
+	public List<String> getFailures() {
+		synchronized (failures) {
+			return new ArrayList<>(failures);
+		}
+	}
+
+	/**
+	 * Gets the size of the packaged files
+	 *
+	 * @return number of bytes before compression
+	 */
+	public long getBytes() {
+		return bytes.get();
+	}
+
+	/**
+	 * Gets the size of the packaged files in the archive
+	 *
+	 * @return number of bytes after compression
+	 */
+	public long getCompressedBytes() {
+		return compressedBytes.get();
+	}
+
+	/**
+	 * Gets the duration from opening to finishing the archive
+	 *
+	 * @return duration in milliseconds
+	 */
+	public long getElapsedMillis() {
+		return elapsed < 0 ? System.currentTimeMillis() - startTime : elapsed;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("%d file(s) packaged into %s, %d failed, %d bytes compressed to %d bytes (%.0f%%) in %d ms",
+				files.get(), archive, failures.size(), bytes.get(), compressedBytes.get(),
+				compressedBytes.get() * 100.0 / Math.max(1, bytes.get()), getElapsedMillis());
+	}
+}
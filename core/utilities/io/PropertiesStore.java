@@ -0,0 +1,330 @@
+package core.utilities.io;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Reads and updates properties files. Parsed files are kept in memory and
+ * only parsed again when their modification time or size changed, so
+ * reading a property does not parse the file every time.
+ * <p>
+ * Updates change the lines of the updated keys in place, comments and the
+ * order of the other lines are kept, and new keys are appended. All updates
+ * of a batch are written at once to a temporary file which replaces the
+ * properties file with an atomic move. The update holds a lock on the
+ * properties file in this JVM and a file lock on a ".lock" file next to it,
+ * so updates from parallel tests and parallel JVMs sharing the file don't
+ * overwrite each other.
+ */
+public class PropertiesStore {
+
+	private final ConcurrentMap<Path, CachedProperties> cache = new ConcurrentHashMap<>();
+	private final ConcurrentMap<Path, Object> locks = new ConcurrentHashMap<>();
+
+	/**
+	 * Gets the properties of a file
+	 *
+	 * @param file
+	 *            properties file
+	 * @return copy of the properties, changes are not written to the file
+	 * @throws IOException
+	 *             if the file can't be read
+	 */
+	public Properties load(Path file) throws IOException {
+		Properties properties = new Properties();
+		properties.putAll(getCached(file.toAbsolutePath().normalize()).properties);
+		return properties;
+	}
+
+	/**
+	 * Gets a property of a file
+	 *
+	 * @param file
+	 *            properties file
+	 * @param key
+	 *            property key
+	 * @return property value, null if the file does not contain the key
+	 * @throws IOException
+	 *             if the file can't be read
+	 */
+	public String get(Path file, String key) throws IOException {
+		return getCached(file.toAbsolutePath().normalize()).properties.getProperty(key);
+	}
+
+	/**
+	 * Sets a property in a file
+	 *
+	 * @param file
+	 *            properties file, created if it does not exist
+	 * @param key
+	 *            property key
+	 * @param value
+	 *            property value
+	 * @throws IOException
+	 *             if the file can't be written
+	 */
+	public void set(Path file, String key, String value) throws IOException {
+		Map<String, String> updates = new LinkedHashMap<>();
+		updates.put(key, value);
+		update(file, updates);
+	}
+
+	/**
+	 * Sets several properties in a file with one write
+	 *
+	 * @param file
+	 *            properties file, created if it does not exist
+	 * @param updates
+	 *            property keys and values, a null value removes the key
+	 * @throws IOException
+	 *             if the file can't be written
+	 */
+	public void update(Path file, Map<String, String> updates) throws IOException {
+		Path path = file.toAbsolutePath().normalize();
+		locks.putIfAbsent(path, new Object());
+		synchronized (locks.get(path)) {
+			Path lockFile = path.resolveSibling(path.getFileName() + ".lock");
+			try (FileChannel lockChannel = FileChannel.open(lockFile, StandardOpenOption.CREATE,
+					StandardOpenOption.WRITE)) {
+				FileLock lock = lockChannel.lock();
+				try {
+					// Read the file again under the lock, another JVM may have
+					// changed it
+					byte[] content = Files.exists(path) ? Files.readAllBytes(path) : new byte[0];
+					byte[] updated = applyUpdates(new String(content, StandardCharsets.ISO_8859_1), updates)
+							.getBytes(StandardCharsets.ISO_8859_1);
+
+					// Only one writer holds the locks, so the name of the
+					// temporary file is fixed
+					Path tempFile = path.resolveSibling(path.getFileName() + ".tmp");
+					try {
+						Files.write(tempFile, updated);
+						copyPermissions(path, tempFile);
+						try {
+							Files.move(tempFile, path, StandardCopyOption.ATOMIC_MOVE);
+						} catch (AtomicMoveNotSupportedException e) {
+							Files.move(tempFile, path, StandardCopyOption.REPLACE_EXISTING);
+						}
+					} finally {
+						Files.deleteIfExists(tempFile);
+					}
+					cache.put(path, parse(Files.readAttributes(path, BasicFileAttributes.class), updated));
+				} finally {
+					lock.release();
+				}
+			}
+		}
+	}
+
+	/**
+	 * Removes the parsed properties of all files from memory
+	 */
+	public void clear() {
+		cache.clear();
+	}
+
+	private CachedProperties getCached(Path path) throws IOException {
+		BasicFileAttributes attributes;
+		try {
+			attributes = Files.readAttributes(path, BasicFileAttributes.class);
+		} catch (NoSuchFileException e) {
+			cache.remove(path);
+			throw e;
+		}
+		CachedProperties cached = cache.get(path);
+		if (cached == null || !cached.isCurrent(attributes)) {
+			// A change while reading has new attributes and is parsed again
+			cached = parse(attributes, Files.readAllBytes(path));
+			cache.put(path, cached);
+		}
+		return cached;
+	}
+
+	private static CachedProperties parse(BasicFileAttributes attributes, byte[] content) throws IOException {
+		Properties properties = new Properties();
+		properties.load(new ByteArrayInputStream(content));
+		return new CachedProperties(attributes, properties);
+	}
+
+	/**
+	 * Gives the new file the permissions of the replaced file
+	 */
+	private static void copyPermissions(Path from, Path to) throws IOException {
+		if (Files.exists(from)) {
+			try {
+				Files.setPosixFilePermissions(to, Files.getPosixFilePermissions(from));
+			} catch (UnsupportedOperationException e) {
+				// not a POSIX file system
+			}
+		}
+	}
+
+	/**
+	 * Replaces the lines of the updated keys, removes the lines of removed
+	 * keys and appends the keys which are not in the file yet
+	 */
+	private static String applyUpdates(String content, Map<String, String> updates) {
+		String separator = content.contains("\r\n") ? "\r\n" : content.contains("\n") ? "\n" : System.lineSeparator();
+		Set<String> written = new HashSet<>();
+		List<String> lines = new ArrayList<>();
+		String[] fileLines = content.isEmpty() ? new String[0] : content.split("\r\n|\r|\n", -1);
+		// A final line break leaves an empty last element
+		int count = fileLines.length > 0 && fileLines[fileLines.length - 1].isEmpty() ? fileLines.length - 1
+				: fileLines.length;
+
+		boolean continuation = false;
+		for (int i = 0; i < count; i++) {
+			String key = continuation ? null : getKey(fileLines[i]);
+			// comment lines are not continued
+			continuation = (continuation || key != null) && isContinued(fileLines[i]);
+			if (key == null || !updates.containsKey(key)) {
+				lines.add(fileLines[i]);
+				continue;
+			}
+			// Skip the continuation lines of the old value
+			while (continuation && i + 1 < count) {
+				continuation = isContinued(fileLines[++i]);
+			}
+			// The last line of a key wins, so later lines of an updated key
+			// are removed
+			if (written.add(key) && updates.get(key) != null) {
+				lines.add(escape(key, true) + "=" + escape(updates.get(key), false));
+			}
+		}
+		for (Map.Entry<String, String> update : updates.entrySet()) {
+			if (!written.contains(update.getKey()) && update.getValue() != null) {
+				lines.add(escape(update.getKey(), true) + "=" + escape(update.getValue(), false));
+			}
+		}
+
+		StringBuilder out = new StringBuilder();
+		for (String line : lines) {
+			out.append(line).append(separator);
+		}
+		return out.toString();
+	}
+
+	/**
+	 * Gets the key of a property line, null for comments and empty lines
+	 */
+	private static String getKey(String line) {
+		int start = 0;
+		while (start < line.length() && isWhitespace(line.charAt(start))) {
+			start++;
+		}
+		if (start == line.length() || line.charAt(start) == '#' || line.charAt(start) == '!') {
+			return null;
+		}
+
+		StringBuilder escaped = new StringBuilder();
+		for (int i = start; i < line.length(); i++) {
+			char c = line.charAt(i);
+			if (c == '\\' && i + 1 < line.length()) {
+				escaped.append(c).append(line.charAt(++i));
+			} else if (c == '=' || c == ':' || isWhitespace(c)) {
+				break;
+			} else {
+				escaped.append(c);
+			}
+		}
+		Properties key = new Properties();
+		try {
+			key.load(new ByteArrayInputStream((escaped + "=").getBytes(StandardCharsets.ISO_8859_1)));
+		} catch (IOException | IllegalArgumentException e) {
+			return null;
+		}
+		return key.isEmpty() ? null : key.keySet().iterator().next().toString();
+	}
+
+	private static boolean isContinued(String line) {
+		int backslashes = 0;
+		for (int i = line.length() - 1; i >= 0 && line.charAt(i) == '\\'; i--) {
+			backslashes++;
+		}
+		return backslashes % 2 == 1;
+	}
+
+	private static boolean isWhitespace(char c) {
+		return c == ' ' || c == '\t' || c == '\f';
+	}
+
+	/**
+	 * Escapes a key or value like {@link Properties#store(java.io.OutputStream, String)}
+	 */
+	private static String escape(String text, boolean key) {
+		StringBuilder out = new StringBuilder(text.length() + 8);
+		for (int i = 0; i < text.length(); i++) {
+			char c = text.charAt(i);
+			switch (c) {
+			case ' ':
+				out.append(i == 0 || key ? "\\ " : " ");
+				break;
+			case '\t':
+				out.append("\\t");
+				break;
+			case '\n':
+				out.append("\\n");
+				break;
+			case '\r':
+				out.append("\\r");
+				break;
+			case '\f':
+				out.append("\\f");
+				break;
+			case '\\':
+			case '=':
+			case ':':
+			case '#':
+			case '!':
+				out.append('\\').append(c);
+				break;
+			default:
+				if (c < 0x20 || c > 0x7e) {
+					out.append(String.format("\\u%04X", (int) c));
+				} else {
+					out.append(c);
+				}
+			}
+		}
+		return out.toString();
+	}
+
+	/**
+	 * Parsed properties with the file attributes they were parsed from
+	 */
+	private static class CachedProperties {
+		private final FileTime lastModified;
+		private final long size;
+		private final Properties properties;
+
+		private CachedProperties(BasicFileAttributes attributes, Properties properties) {
+			this.lastModified = attributes.lastModifiedTime();
+			this.size = attributes.size();
+			this.properties = properties;
+		}
+
+		private boolean isCurrent(BasicFileAttributes attributes) {
+			return lastModified.equals(attributes.lastModifiedTime()) && size == attributes.size();
+		}
+	}
+}
@@ -0,0 +1,578 @@
+package core.utilities.io;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.ZipEntry;
+
+/**
+ * Packages result files into a zip archive while the tests run. Files are
+ * compressed by a pool of threads, each file with its own deflater, and
+ * appended to the archive as soon as they are compressed, so screenshots can
+ * be added when they are taken and only the remaining files are added when
+ * the run is finished. Images and other compressed files are stored without
+ * compressing them again.
+ * <p>
+ * The last entry of the archive is the manifest {@value #MANIFEST}, which
+ * lists the files by test case with the position of their data in the
+ * archive, so a stored image can be read straight from the archive without
+ * extracting it. A file which can't be packaged does not stop the archive, it
+ * is reported in the failures of the {@link PackageResult}.
+ */
+public class ResultsPackager {
+
+	/** Name of the manifest entry */
+	public static final String MANIFEST = "manifest.json";
+
+	/** Files larger than this are compressed into the archive instead of in memory */
+	private static final int MEMORY_LIMIT = 8 * 1024 * 1024;
+
+	/** Largest file the archive can hold without zip64 sizes */
+	private static final long MAX_FILE_SIZE = 0xFFFF0000L;
+
+	private static final long LOCAL_HEADER_SIGNATURE = 0x04034b50L;
+	private static final long DATA_DESCRIPTOR_SIGNATURE = 0x08074b50L;
+	private static final long CENTRAL_HEADER_SIGNATURE = 0x02014b50L;
+	private static final long ZIP64_END_SIGNATURE = 0x06064b50L;
+	private static final long ZIP64_LOCATOR_SIGNATURE = 0x07064b50L;
+	private static final long END_SIGNATURE = 0x06054b50L;
+	private static final int FLAG_DATA_DESCRIPTOR = 0x0008;
+	private static final int FLAG_UTF8 = 0x0800;
+	private static final int LOCAL_HEADER_SIZE = 30;
+
+	private static final Set<String> STORED_EXTENSIONS = new HashSet<>(
+			Arrays.asList("png", "jpg", "jpeg", "gif", "zip", "gz", "jar", "mp4", "webm", "avi"));
+
+	private final Path resultsDir;
+	private final File archive;
+	private final OutputStream out;
+	private final PackageResult result;
+	private final Set<String> names = ConcurrentHashMap.newKeySet();
+	private final byte[] scratch = new byte[8];
+	private final List<Entry> entries = new ArrayList<>();
+	private long position = 0;
+	private IOException writeError;
+	private int threads = Runtime.getRuntime().availableProcessors();
+	private int level = Deflater.DEFAULT_COMPRESSION;
+	private ThreadPoolExecutor executor;
+	private boolean finished = false;
+
+	/**
+	 * Constructor for the ResultsPackager class, creates the archive
+	 *
+	 * @param resultsDir
+	 *            results directory, entry names are relative to it
+	 * @param archive
+	 *            zip archive to create, replaced if it exists
+	 * @throws IOException
+	 *             if the archive can't be created
+	 */
+	public ResultsPackager(Path resultsDir, File archive) throws IOException {
+		this.resultsDir = resultsDir.toAbsolutePath().normalize();
+		this.archive = archive;
+		File parent = archive.getAbsoluteFile().getParentFile();
+		if (parent != null) {
+			Files.createDirectories(parent.toPath());
+		}
+		this.out = new BufferedOutputStream(new FileOutputStream(archive), 64 * 1024);
+		this.result = new PackageResult(archive);
+		names.add(MANIFEST);
+	}
+
+	/**
+	 * Sets the number of files compressed at the same time, default is the
+	 * number of processors. Must be set before the first file is added.
+	 *
+	 * @param threads
+	 *            number of compression threads
+	 * @return this packager
+	 */
+	public ResultsPackager setThreads(int threads) {
+		this.threads = Math.max(1, threads);
+		return this;
+	}
+
+	/**
+	 * Sets the compression level, default is
+	 * {@link Deflater#DEFAULT_COMPRESSION}. Must be set before the first file
+	 * is added.
+	 *
+	 * @param level
+	 *            compression level 0-9
+	 * @return this packager
+	 */
+	public ResultsPackager setLevel(int level) {
+		this.level = level;
+		return this;
+	}
+
+	/**
+	 * Gets the archive file
+	 *
+	 * @return zip archive
+	 */
+	public File getArchive() {
+		return archive;
+	}
+
+	/**
+	 * Adds a file to the archive. The file is compressed in the background
+	 * and must not be changed anymore.
+	 *
+	 * @param file
+	 *            file to add
+	 * @param testCase
+	 *            id of the test case the file belongs to, null if none
+	 * @return false if a file with the same entry name was already added
+	 */
+	public boolean add(final Path file, final String testCase) {
+		Path path = file.toAbsolutePath().normalize();
+		final String name = (path.startsWith(resultsDir) ? resultsDir.relativize(path) : path.getFileName())
+				.toString().replace(File.separatorChar, '/');
+		if (!names.add(name)) {
+			return false;
+		}
+		getExecutor().execute(new Runnable() {
+			@Override
+			public void run() {
+				packageFile(file, name, testCase);
+			}
+		});
+		return true;
+	}
+
+	/**
+	 * Adds the files of the results directory and its sub directories which
+	 * were not added yet
+	 *
+	 * @throws IOException
+	 *             if the results directory can't be read
+	 */
+	public void addResultsDirectory() throws IOException {
+		if (!Files.isDirectory(resultsDir)) {
+			return;
+		}
+		final Path archivePath = archive.toPath().toAbsolutePath().normalize();
+		Files.walkFileTree(resultsDir, new SimpleFileVisitor<Path>() {
+			@Override
+			public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+				if (attrs.isRegularFile() && !file.equals(archivePath)) {
+					add(file, null);
+				}
+				return FileVisitResult.CONTINUE;
+			}
+
+			@Override
+			public FileVisitResult visitFileFailed(Path file, IOException e) {
+				result.addFailure(file + ": " + e);
+				return FileVisitResult.CONTINUE;
+			}
+		});
+	}
+
+	/**
+	 * Waits for the added files, writes the manifest and closes the archive.
+	 * No files can be added afterwards.
+	 *
+	 * @return totals of the archive, including the files which failed
+	 * @throws IOException
+	 *             if the archive can't be written
+	 */
+	public PackageResult finish() throws IOException {
+		ThreadPoolExecutor pool;
+		synchronized (this) {
+			if (finished) {
+				throw new IllegalStateException("Archive " + archive + " is already finished");
+			}
+			finished = true;
+			pool = executor;
+		}
+		if (pool != null) {
+			pool.shutdown();
+			try {
+				while (!pool.awaitTermination(1, TimeUnit.SECONDS)) {
+					// wait for the remaining files
+				}
+			} catch (InterruptedException e) {
+				pool.shutdownNow();
+				Thread.currentThread().interrupt();
+				throw new IOException("Interrupted while packaging " + archive, e);
+			}
+		}
+
+		synchronized (out) {
+			try {
+				writeManifest();
+				writeCentralDirectory();
+			} finally {
+				out.close();
+			}
+		}
+		result.finish();
+		return result;
+	}
+
+	private synchronized ThreadPoolExecutor getExecutor() {
+		if (finished) {
+			throw new IllegalStateException("Archive " + archive + " is already finished");
+		}
+		if (executor == null) {
+			// The caller compresses the file itself when the queue is full
+			executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+					new ArrayBlockingQueue<Runnable>(threads * 16), new PackagerThreadFactory(),
+					new ThreadPoolExecutor.CallerRunsPolicy());
+		}
+		return executor;
+	}
+
+	private void packageFile(Path file, String name, String testCase) {
+		try {
+			BasicFileAttributes attrs = Files.readAttributes(file, BasicFileAttributes.class);
+			Entry entry = new Entry(name, testCase, attrs.lastModifiedTime().toMillis());
+			if (attrs.size() > MAX_FILE_SIZE) {
+				throw new IOException("File is larger than " + MAX_FILE_SIZE + " bytes");
+			} else if (attrs.size() > MEMORY_LIMIT) {
+				writeStreamedEntry(entry, file);
+			} else {
+				writeEntry(entry, Files.readAllBytes(file), !isCompressed(name));
+			}
+			result.addFile(entry.size, entry.compressedSize);
+		} catch (IOException | RuntimeException e) {
+			result.addFailure(file + ": " + e);
+		}
+	}
+
+	/**
+	 * Compresses the data in the calling thread and appends it to the archive,
+	 * the data is stored if it does not get smaller
+	 */
+	private void writeEntry(Entry entry, byte[] data, boolean compress) throws IOException {
+		CRC32 crc = new CRC32();
+		crc.update(data);
+		entry.crc = crc.getValue();
+		entry.size = data.length;
+
+		byte[] compressed = compress ? deflate(data) : null;
+		if (compressed == null) {
+			entry.method = ZipEntry.STORED;
+			compressed = data;
+		} else {
+			entry.method = ZipEntry.DEFLATED;
+		}
+		entry.compressedSize = compressed.length;
+
+		synchronized (out) {
+			checkWritable();
+			entry.offset = position;
+			writeLocalHeader(entry);
+			write(compressed, 0, compressed.length);
+			entries.add(entry);
+		}
+	}
+
+	/**
+	 * Compresses a large file straight into the archive, followed by a data
+	 * descriptor with the sizes. The archive is locked while the file is
+	 * compressed.
+	 */
+	private void writeStreamedEntry(Entry entry, Path file) throws IOException {
+		entry.method = ZipEntry.DEFLATED;
+		entry.flags |= FLAG_DATA_DESCRIPTOR;
+		CRC32 crc = new CRC32();
+		Deflater deflater = new Deflater(level, true);
+		byte[] buffer = new byte[64 * 1024];
+		byte[] output = new byte[64 * 1024];
+
+		synchronized (out) {
+			checkWritable();
+			// A file which fails while reading leaves unreferenced data in the
+			// archive, which zip readers skip
+			entry.offset = position;
+			writeLocalHeader(entry);
+			long dataStart = position;
+			try (InputStream input = Files.newInputStream(file)) {
+				int read;
+				while ((read = input.read(buffer)) != -1) {
+					crc.update(buffer, 0, read);
+					entry.size += read;
+					deflater.setInput(buffer, 0, read);
+					while (!deflater.needsInput()) {
+						write(output, 0, deflater.deflate(output));
+					}
+				}
+				deflater.finish();
+				while (!deflater.finished()) {
+					write(output, 0, deflater.deflate(output));
+				}
+			} finally {
+				deflater.end();
+			}
+			if (entry.size > MAX_FILE_SIZE) {
+				throw new IOException("File is larger than " + MAX_FILE_SIZE + " bytes");
+			}
+			entry.crc = crc.getValue();
+			entry.compressedSize = position - dataStart;
+			writeInt(DATA_DESCRIPTOR_SIGNATURE);
+			writeInt(entry.crc);
+			writeInt(entry.compressedSize);
+			writeInt(entry.size);
+			entries.add(entry);
+		}
+	}
+
+	private byte[] deflate(byte[] data) {
+		Deflater deflater = new Deflater(level, true);
+		try {
+			deflater.setInput(data);
+			deflater.finish();
+			byte[] buffer = new byte[data.length];
+			int length = 0;
+			while (!deflater.finished() && length < buffer.length) {
+				length += deflater.deflate(buffer, length, buffer.length - length);
+			}
+			// null if the data does not get smaller
+			return deflater.finished() ? Arrays.copyOf(buffer, length) : null;
+		} finally {
+			deflater.end();
+		}
+	}
+
+	private void writeManifest() throws IOException {
+		Map<String, List<String>> testCases = new LinkedHashMap<>();
+		StringBuilder files = new StringBuilder();
+		for (Entry entry : entries) {
+			if (entry.testCase != null) {
+				if (!testCases.containsKey(entry.testCase)) {
+					testCases.put(entry.testCase, new ArrayList<String>());
+				}
+				testCases.get(entry.testCase).add(entry.name);
+			}
+			files.append(files.length() == 0 ? "" : ",").append("\n    {\"name\": ").append(quote(entry.name))
+					.append(", \"testCase\": ").append(entry.testCase == null ? "null" : quote(entry.testCase))
+					.append(", \"method\": ").append(entry.method == ZipEntry.STORED ? "\"stored\"" : "\"deflated\"")
+					.append(", \"dataOffset\": ").append(entry.offset + LOCAL_HEADER_SIZE + entry.nameBytes.length)
+					.append(", \"size\": ").append(entry.size).append(", \"compressedSize\": ")
+					.append(entry.compressedSize).append(", \"crc\": ").append(entry.crc).append("}");
+		}
+
+		StringBuilder manifest = new StringBuilder("{\n  \"archive\": ").append(quote(archive.getName()))
+				.append(",\n  \"testCases\": {");
+		boolean first = true;
+		for (Map.Entry<String, List<String>> testCase : testCases.entrySet()) {
+			manifest.append(first ? "" : ",").append("\n    ").append(quote(testCase.getKey())).append(": [");
+			for (int i = 0; i < testCase.getValue().size(); i++) {
+				manifest.append(i == 0 ? "" : ", ").append(quote(testCase.getValue().get(i)));
+			}
+			manifest.append("]");
+			first = false;
+		}
+		manifest.append("\n  },\n  \"files\": [").append(files).append("\n  ]\n}\n");
+
+		writeEntry(new Entry(MANIFEST, null, System.currentTimeMillis()),
+				manifest.toString().getBytes(StandardCharsets.UTF_8), true);
+	}
+
+	private void writeCentralDirectory() throws IOException {
+		checkWritable();
+		long start = position;
+		for (Entry entry : entries) {
+			boolean zip64 = entry.offset >= 0xFFFFFFFFL;
+			writeInt(CENTRAL_HEADER_SIGNATURE);
+			writeShort(zip64 ? 45 : 20);
+			writeShort(zip64 ? 45 : 20);
+			writeShort(entry.flags);
+			writeShort(entry.method);
+			writeInt(entry.time);
+			writeInt(entry.crc);
+			writeInt(entry.compressedSize);
+			writeInt(entry.size);
+			writeShort(entry.nameBytes.length);
+			writeShort(zip64 ? 12 : 0);
+			// comment length, disk, internal and external attributes
+			writeShort(0);
+			writeShort(0);
+			writeShort(0);
+			writeInt(0);
+			writeInt(zip64 ? 0xFFFFFFFFL : entry.offset);
+			write(entry.nameBytes, 0, entry.nameBytes.length);
+			if (zip64) {
+				writeShort(0x0001);
+				writeShort(8);
+				writeLong(entry.offset);
+			}
+		}
+		long size = position - start;
+		long count = entries.size();
+
+		if (count >= 0xFFFF || start >= 0xFFFFFFFFL) {
+			long zip64End = position;
+			writeInt(ZIP64_END_SIGNATURE);
+			writeLong(44);
+			writeShort(45);
+			writeShort(45);
+			writeInt(0);
+			writeInt(0);
+			writeLong(count);
+			writeLong(count);
+			writeLong(size);
+			writeLong(start);
+			writeInt(ZIP64_LOCATOR_SIGNATURE);
+			writeInt(0);
+			writeLong(zip64End);
+			writeInt(1);
+		}
+		writeInt(END_SIGNATURE);
+		writeShort(0);
+		writeShort(0);
+		writeShort((int) Math.min(count, 0xFFFF));
+		writeShort((int) Math.min(count, 0xFFFF));
+		writeInt(Math.min(size, 0xFFFFFFFFL));
+		writeInt(Math.min(start, 0xFFFFFFFFL));
+		writeShort(0);
+	}
+
+	private void writeLocalHeader(Entry entry) throws IOException {
+		boolean descriptor = (entry.flags & FLAG_DATA_DESCRIPTOR) != 0;
+		writeInt(LOCAL_HEADER_SIGNATURE);
+		writeShort(20);
+		writeShort(entry.flags);
+		writeShort(entry.method);
+		writeInt(entry.time);
+		writeInt(descriptor ? 0 : entry.crc);
+		writeInt(descriptor ? 0 : entry.compressedSize);
+		writeInt(descriptor ? 0 : entry.size);
+		writeShort(entry.nameBytes.length);
+		writeShort(0);
+		write(entry.nameBytes, 0, entry.nameBytes.length);
+	}
+
+	private void checkWritable() throws IOException {
+		if (writeError != null) {
+			throw new IOException("Archive " + archive + " can't be written", writeError);
+		}
+	}
+
+	private void write(byte[] bytes, int offset, int length) throws IOException {
+		try {
+			out.write(bytes, offset, length);
+			position += length;
+		} catch (IOException e) {
+			writeError = e;
+			throw e;
+		}
+	}
+
+	private void writeShort(int value) throws IOException {
+		scratch[0] = (byte) value;
+		scratch[1] = (byte) (value >>> 8);
+		write(scratch, 0, 2);
+	}
+
+	private void writeInt(long value) throws IOException {
+		for (int i = 0; i < 4; i++) {
+			scratch[i] = (byte) (value >>> (8 * i));
+		}
+		write(scratch, 0, 4);
+	}
+
+	private void writeLong(long value) throws IOException {
+		for (int i = 0; i < 8; i++) {
+			scratch[i] = (byte) (value >>> (8 * i));
+		}
+		write(scratch, 0, 8);
+	}
+
+	private static boolean isCompressed(String name) {
+		int dot = name.lastIndexOf('.');
+		return dot >= 0 && STORED_EXTENSIONS.contains(name.substring(dot + 1).toLowerCase());
+	}
+
+	private static String quote(String value) {
+		StringBuilder quoted = new StringBuilder("\"");
+		for (char c : value.toCharArray()) {
+			if (c == '"' || c == '\\') {
+				quoted.append('\\').append(c);
+			} else if (c < 0x20) {
+				quoted.append(String.format("\\u%04x", (int) c));
+			} else {
+				quoted.append(c);
+			}
+		}
+		return quoted.append('"').toString();
+	}
+
+	/**
+	 * Converts a time to the MS-DOS date and time of zip entries, times
+	 * before 1980 are stored as 1980-01-01
+	 */
+	private static long toDosTime(long millis) {
+		Calendar calendar = Calendar.getInstance();
+		calendar.setTimeInMillis(millis);
+		int year = calendar.get(Calendar.YEAR);
+		if (year < 1980) {
+			return (1L << 21) | (1L << 16);
+		}
+		return ((long) (year - 1980) << 25) | ((calendar.get(Calendar.MONTH) + 1L) << 21)
+				| ((long) calendar.get(Calendar.DAY_OF_MONTH) << 16) | ((long) calendar.get(Calendar.HOUR_OF_DAY) << 11)
+				| ((long) calendar.get(Calendar.MINUTE) << 5) | (calendar.get(Calendar.SECOND) >> 1);
+	}
+
+	/**
+	 * Archive entry, updated while it is compressed
+	 */
+	private static class Entry {
+		private final String name;
+		private final byte[] nameBytes;
+		private final String testCase;
+		private final long time;
+		private int flags = FLAG_UTF8;
+		private int method;
+		private long crc;
+		private long size;
+		private long compressedSize;
+		private long offset;
+
+		private Entry(String name, String testCase, long modified) {
+			this.name = name;
+			this.nameBytes = name.getBytes(StandardCharsets.UTF_8);
+			this.testCase = testCase;
+			this.time = toDosTime(modified);
+		}
+	}
+
+	private static class PackagerThreadFactory implements ThreadFactory {
+		private final AtomicInteger count = new AtomicInteger();
+
+		@Override
+		public Thread newThread(Runnable runnable) {
+			Thread thread = new Thread(runnable, "results-packager-" + count.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		}
+	}
+}
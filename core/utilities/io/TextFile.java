@@ -0,0 +1,288 @@
+package core.utilities.io;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.function.Function;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * Reads large text files without loading them into memory. Lines are read
+ * lazily as a stream, and lines and delimiters are counted by scanning the
+ * bytes of memory mapped windows of the file instead of decoding it. Lines
+ * end with \n, \r or \r\n like {@link BufferedReader#readLine()}.
+ * <p>
+ * The bytes are only scanned for UTF-8 and single byte charsets which encode
+ * line breaks as ASCII, other charsets are decoded line by line.
+ */
+public class TextFile {
+
+	/** Size of the file window mapped at a time */
+	private static final int WINDOW_SIZE = 16 * 1024 * 1024;
+
+	private static final int BUFFER_SIZE = 64 * 1024;
+
+	private TextFile() {
+	}
+
+	/**
+	 * Gets the lines of a file as lazy stream, the lines are read while the
+	 * stream is consumed. The stream must be closed, f.ex. with
+	 * try-with-resources:
+	 *
+	 * <pre>
+	 * try (Stream&lt;String&gt; lines = TextFile.lines(path, StandardCharsets.UTF_8)) {
+	 * 	found = lines.anyMatch(line -&gt; line.contains("ERROR"));
+	 * }
+	 * </pre>
+	 *
+	 * Malformed characters are replaced. An error while reading is thrown as
+	 * {@link UncheckedIOException} by the stream operation.
+	 *
+	 * @param file
+	 *            file to read
+	 * @param charset
+	 *            charset of the file
+	 * @return stream of lines without line breaks
+	 * @throws IOException
+	 *             if the file can't be opened
+	 */
+	public static Stream<String> lines(Path file, Charset charset) throws IOException {
+		final BufferedReader reader = new BufferedReader(new InputStreamReader(Files.newInputStream(file), charset),
+				BUFFER_SIZE);
+		return reader.lines().onClose(new Runnable() {
+			@Override
+			public void run() {
+				try {
+					reader.close();
+				} catch (IOException e) {
+					throw new UncheckedIOException(e);
+				}
+			}
+		});
+	}
+
+	/**
+	 * Gets the lines of a delimited file split into columns as lazy stream.
+	 * The delimiter is a regular expression like in
+	 * {@link String#split(String)}, it is compiled once for all lines. The
+	 * stream must be closed.
+	 *
+	 * @param file
+	 *            file to read
+	 * @param delimiter
+	 *            regular expression separating the columns
+	 * @param charset
+	 *            charset of the file
+	 * @return stream of the columns of each line
+	 * @throws IOException
+	 *             if the file can't be opened
+	 */
+	public static Stream<String[]> rows(Path file, String delimiter, Charset charset) throws IOException {
+		final Pattern pattern = Pattern.compile(delimiter);
+		return lines(file, charset).map(new Function<String, String[]>() {
+			@Override
+			public String[] apply(String line) {
+				return pattern.split(line);
+			}
+		});
+	}
+
+	/**
+	 * Counts the lines of a file
+	 *
+	 * @param file
+	 *            file to read
+	 * @param charset
+	 *            charset of the file
+	 * @return number of lines, a last line without line break included
+	 * @throws IOException
+	 *             if the file can't be read
+	 */
+	public static long countLines(Path file, Charset charset) throws IOException {
+		if (!isScannable(charset)) {
+			try (Stream<String> lines = lines(file, charset)) {
+				return lines.count();
+			}
+		}
+		Scanner scanner = new Scanner(null);
+		scan(file, scanner);
+		return scanner.lines;
+	}
+
+	/**
+	 * Counts the columns of a delimited file: the number of delimiters plus
+	 * one in the line with the most delimiters. The delimiter is plain text,
+	 * not a regular expression.
+	 *
+	 * @param file
+	 *            file to read
+	 * @param delimiter
+	 *            text separating the columns
+	 * @param charset
+	 *            charset of the file
+	 * @return maximum number of columns in a line, 1 for an empty file
+	 * @throws IOException
+	 *             if the file can't be read
+	 */
+	public static int countColumns(Path file, String delimiter, Charset charset) throws IOException {
+		if (delimiter.isEmpty()) {
+			return 1;
+		}
+		byte[] bytes = delimiter.getBytes(charset);
+		if (!isScannable(charset) || delimiter.indexOf('\n') >= 0 || delimiter.indexOf('\r') >= 0) {
+			int maxColumns = 0;
+			try (Stream<String> lines = lines(file, charset)) {
+				Iterator<String> iterator = lines.iterator();
+				while (iterator.hasNext()) {
+					maxColumns = Math.max(maxColumns, count(iterator.next(), delimiter));
+				}
+			}
+			return maxColumns + 1;
+		}
+		Scanner scanner = new Scanner(bytes);
+		scan(file, scanner);
+		return scanner.maxColumns + 1;
+	}
+
+	/**
+	 * Checks if line breaks and text can be found in the bytes of a charset
+	 * without decoding them
+	 */
+	private static boolean isScannable(Charset charset) {
+		return Arrays.equals("\r\n,".getBytes(charset), new byte[] { '\r', '\n', ',' })
+				&& (charset.equals(StandardCharsets.UTF_8) || charset.newEncoder().maxBytesPerChar() == 1);
+	}
+
+	private static void scan(Path file, Scanner scanner) throws IOException {
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			long size = channel.size();
+			byte[] buffer = new byte[BUFFER_SIZE];
+			for (long position = 0; position < size; position += WINDOW_SIZE) {
+				MappedByteBuffer window = channel.map(MapMode.READ_ONLY, position,
+						Math.min(WINDOW_SIZE, size - position));
+				while (window.hasRemaining()) {
+					int length = Math.min(buffer.length, window.remaining());
+					window.get(buffer, 0, length);
+					scanner.update(buffer, length);
+				}
+			}
+		}
+		scanner.finish();
+	}
+
+	private static int count(String source, String delimiter) {
+		int count = 0;
+		int index = source.indexOf(delimiter);
+		while (index >= 0) {
+			count++;
+			index = source.indexOf(delimiter, index + delimiter.length());
+		}
+		return count;
+	}
+
+	/**
+	 * Counts the lines and the delimiters per line in the bytes of a file.
+	 * Delimiters are matched with the Knuth-Morris-Pratt algorithm, so a
+	 * delimiter split between two buffers is found.
+	 */
+	private static class Scanner {
+		private final byte[] delimiter;
+		private final int[] fallback;
+		private long lines = 0;
+		private int columns = 0;
+		private int maxColumns = 0;
+		private int matched = 0;
+		private boolean carriageReturn = false;
+		private boolean openLine = false;
+
+		private Scanner(byte[] delimiter) {
+			this.delimiter = delimiter;
+			this.fallback = delimiter == null ? null : fallback(delimiter);
+		}
+
+		private static int[] fallback(byte[] pattern) {
+			int[] fallback = new int[pattern.length];
+			for (int i = 1, k = 0; i < pattern.length; i++) {
+				while (k > 0 && pattern[i] != pattern[k]) {
+					k = fallback[k - 1];
+				}
+				if (pattern[i] == pattern[k]) {
+					k++;
+				}
+				fallback[i] = k;
+			}
+			return fallback;
+		}
+
+		private void update(byte[] buffer, int length) {
+			// The state is kept in locals while scanning the buffer
+			boolean cr = carriageReturn;
+			boolean open = openLine;
+			int match = matched;
+			int count = columns;
+			byte first = delimiter == null ? (byte) '\n' : delimiter[0];
+			for (int i = 0; i < length; i++) {
+				byte b = buffer[i];
+				if (b == '\n' || b == '\r') {
+					// \r\n is one line break
+					if (b == '\r' || !cr) {
+						lines++;
+						maxColumns = Math.max(maxColumns, count);
+						count = 0;
+						match = 0;
+						open = false;
+					}
+					cr = b == '\r';
+				} else {
+					cr = false;
+					open = true;
+					if (match == 0 && b != first) {
+						continue;
+					}
+					while (match > 0 && b != delimiter[match]) {
+						match = fallback[match - 1];
+					}
+					if (b == delimiter[match]) {
+						match++;
+					}
+					if (match == delimiter.length) {
+						// Matches don't overlap, like String.indexOf()
+						count++;
+						match = 0;
+					}
+				}
+			}
+			carriageReturn = cr;
+			openLine = open;
+			matched = match;
+			columns = count;
+		}
+
+		private void endLine() {
+			lines++;
+			maxColumns = Math.max(maxColumns, columns);
+			columns = 0;
+			matched = 0;
+			openLine = false;
+		}
+
+		private void finish() {
+			if (openLine) {
+				endLine();
+			}
+		}
+	}
+}
@@ -0,0 +1,129 @@
+package core.utilities.io;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Totals of a zip extraction: the files extracted and failed, the entries
+ * skipped by the filter, the compressed bytes read and the bytes written and
+ * the duration. Updated by the extraction threads, read after the
+ * extraction.
+ */
+public class UnzipResult {
+
+	private final AtomicInteger files = new AtomicInteger();
+	private final AtomicInteger directories = new AtomicInteger();
+	private final AtomicInteger skipped = new AtomicInteger();
+	private final AtomicLong bytes = new AtomicLong();
+	private final AtomicLong compressedBytes = new AtomicLong();
+	private final List<String> failures = Collections.synchronizedList(new ArrayList<String>());
+	private final long startTime = System.currentTimeMillis();
+	private volatile long elapsed = -1;
+
+	void addFile(long byteCount, long compressedByteCount) {
+		files.incrementAndGet();
+		bytes.addAndGet(byteCount);
+		compressedBytes.addAndGet(compressedByteCount);
+	}
+
+	void addDirectory() {
+		directories.incrementAndGet();
+	}
+
+	void addSkipped() {
+		skipped.incrementAndGet();
+	}
+
+	void addFailure(String failure) {
+		failures.add(failure);
+	}
+
+	void finish() {
+		elapsed = System.currentTimeMillis() - startTime;
+	}
+
+	/**
+	 * Gets the number of files extracted
+	 *
+	 * @return number of files
+	 */
+	public int getFiles() {
+		return files.get();
+	}
+
+	/**
+	 * Gets the number of directories created
+	 *
+	 * @return number of directories
+	 */
+	public int getDirectories() {
+		return directories.get();
+	}
+
+	/**
+	 * Gets the number of entries which did not match the filter
+	 *
+	 * @return number of skipped entries
+	 */
+	public int getSkipped() {
+		return skipped.get();
+	}
+
+	/**
+	 * Gets the entries which could not be extracted with the reason
+	 *
+	 * @return failures, empty if all entries were extracted
+	 */
+	public List<String> getFailures() {
+		synchronized (failures) {
+			return new ArrayList<>(failures);
+		}
+	}
+
+	/**
+	 * Gets the number of bytes written
+	 *
+	 * @return number of uncompressed bytes
+	 */
+	public long getBytes() {
+		return bytes.get();
+	}
+
+	/**
+	 * Gets the number of bytes read from the archive for the extracted files
+	 *
+	 * @return number of compressed bytes
+	 */
+	public long getCompressedBytes() {
+		return compressedBytes.get();
+	}
+
+	/**
+	 * Gets the duration of the extraction
+	 *
+	 * @return duration in milliseconds
+	 */
+	public long getElapsedMillis() {
+		return elapsed < 0 ? System.currentTimeMillis() - startTime : elapsed;
+	}
+
+	/**
+	 * Gets the throughput of the extraction
+	 *
+	 * @return uncompressed bytes per second
+	 */
+	public double getBytesPerSecond() {
+		return bytes.get() * 1000.0 / Math.max(1, getElapsedMillis());
+	}
+
+	@Override
+	public String toString() {
+		return String.format("%d file(s) extracted, %d directories, %d skipped, %d failed, %d bytes from %d "
+				+ "compressed bytes in %d ms (%.1f MB/s)", files.get(), directories.get(), skipped.get(),
+				failures.size(), bytes.get(), compressedBytes.get(), getElapsedMillis(),
+				getBytesPerSecond() / (1024 * 1024));
+	}
+}
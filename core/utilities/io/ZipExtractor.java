@@ -0,0 +1,345 @@
+package core.utilities.io;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Pattern;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import core.utilities.Log;
+
+/**
+ * Extracts zip archives. Entries can be selected with a glob on their names
+ * like "reports/**.xml", where * matches within a directory and ** across
+ * directories. A single entry can be read as stream without extracting it.
+ * <p>
+ * The files are extracted by several threads, each with its own handle on
+ * the archive, since reads through one {@link ZipFile} are serialized. The
+ * largest entries are extracted first. Entries with names outside of the
+ * destination directory, f.ex. "../../evil.sh", are rejected before anything
+ * is extracted.
+ */
+public class ZipExtractor {
+
+	private static final int BUFFER_SIZE = 64 * 1024;
+
+	private final Path zipFile;
+	private int threads = Log.AUTOMATION_COPY_THREADS;
+	private Pattern filter = null;
+
+	/**
+	 * Creates an extractor for an archive
+	 *
+	 * @param zipFile
+	 *            zip archive
+	 */
+	public ZipExtractor(Path zipFile) {
+		this.zipFile = zipFile;
+	}
+
+	/**
+	 * Sets the number of files extracted at the same time, default is
+	 * AUTOMATION_COPY_THREADS
+	 *
+	 * @param threads
+	 *            number of extraction threads
+	 * @return this extractor
+	 */
+	public ZipExtractor setThreads(int threads) {
+		this.threads = Math.max(1, threads);
+		return this;
+	}
+
+	/**
+	 * Selects the entries to extract by name. * and ? don't match /, **
+	 * matches any characters, {a,b} matches a or b and [abc] matches one of
+	 * the characters.
+	 *
+	 * @param glob
+	 *            pattern for the entry names, null for all entries
+	 * @return this extractor
+	 */
+	public ZipExtractor setFilter(String glob) {
+		this.filter = glob == null ? null : toPattern(glob);
+		return this;
+	}
+
+	/**
+	 * Gets the names of the entries matching the filter
+	 *
+	 * @return entry names in archive order
+	 * @throws IOException
+	 *             if the archive can't be read
+	 */
+	public List<String> list() throws IOException {
+		List<String> names = new ArrayList<>();
+		try (ZipFile zip = new ZipFile(zipFile.toFile())) {
+			Enumeration<? extends ZipEntry> entries = zip.entries();
+			while (entries.hasMoreElements()) {
+				ZipEntry entry = entries.nextElement();
+				if (matches(entry)) {
+					names.add(entry.getName());
+				}
+			}
+		}
+		return names;
+	}
+
+	/**
+	 * Opens an entry for reading without extracting it. Closing the stream
+	 * closes the archive.
+	 *
+	 * @param entryName
+	 *            name of the entry
+	 * @return uncompressed content of the entry
+	 * @throws IOException
+	 *             if the archive can't be read or does not contain the entry
+	 */
+	public InputStream open(String entryName) throws IOException {
+		final ZipFile zip = new ZipFile(zipFile.toFile());
+		try {
+			ZipEntry entry = zip.getEntry(entryName);
+			if (entry == null || entry.isDirectory()) {
+				throw new NoSuchFileException(zipFile + ": " + entryName);
+			}
+			return new FilterInputStream(zip.getInputStream(entry)) {
+				@Override
+				public void close() throws IOException {
+					try {
+						super.close();
+					} finally {
+						zip.close();
+					}
+				}
+			};
+		} catch (IOException | RuntimeException e) {
+			zip.close();
+			throw e;
+		}
+	}
+
+	/**
+	 * Writes the content of an entry to a stream without extracting it
+	 *
+	 * @param entryName
+	 *            name of the entry
+	 * @param out
+	 *            stream to write to, not closed
+	 * @return number of bytes written
+	 * @throws IOException
+	 *             if the archive can't be read, does not contain the entry or
+	 *             the stream can't be written
+	 */
+	public long read(String entryName, OutputStream out) throws IOException {
+		try (InputStream in = open(entryName)) {
+			return copy(in, out, new byte[BUFFER_SIZE]);
+		}
+	}
+
+	/**
+	 * Extracts the entries matching the filter, replacing existing files
+	 *
+	 * @param destination
+	 *            directory to extract to, created if it does not exist
+	 * @return totals of the extraction, including the entries which failed
+	 * @throws IOException
+	 *             if the archive can't be read, an entry is outside of the
+	 *             destination or a directory can't be created
+	 */
+	public UnzipResult extract(Path destination) throws IOException {
+		final Path destDir = destination.toAbsolutePath().normalize();
+		final UnzipResult result = new UnzipResult();
+		final List<ZipEntry> files = new ArrayList<>();
+		final List<Path> directories = new ArrayList<>();
+
+		try (ZipFile zip = new ZipFile(zipFile.toFile())) {
+			Enumeration<? extends ZipEntry> entries = zip.entries();
+			while (entries.hasMoreElements()) {
+				ZipEntry entry = entries.nextElement();
+				Path target = destDir.resolve(entry.getName()).normalize();
+				if (!target.startsWith(destDir) || target.equals(destDir) && !entry.isDirectory()) {
+					throw new IOException("Entry " + entry.getName() + " of " + zipFile
+							+ " is outside of the destination directory " + destination);
+				}
+				if (!matches(entry)) {
+					result.addSkipped();
+				} else if (entry.isDirectory()) {
+					directories.add(target);
+				} else {
+					files.add(entry);
+					directories.add(target.getParent());
+				}
+			}
+		}
+
+		Files.createDirectories(destDir);
+		for (Path directory : directories) {
+			if (!Files.isDirectory(directory)) {
+				Files.createDirectories(directory);
+				result.addDirectory();
+			}
+		}
+
+		// Largest first, so a large entry does not finish last alone
+		Collections.sort(files, new Comparator<ZipEntry>() {
+			@Override
+			public int compare(ZipEntry entry1, ZipEntry entry2) {
+				return Long.compare(entry2.getSize(), entry1.getSize());
+			}
+		});
+		final Queue<ZipEntry> queue = new ConcurrentLinkedQueue<>(files);
+		int workers = Math.min(threads, files.size());
+		if (workers <= 1) {
+			extractFiles(queue, destDir, result);
+		} else {
+			ExecutorService executor = Executors.newFixedThreadPool(workers, new UnzipThreadFactory());
+			for (int i = 0; i < workers; i++) {
+				executor.execute(new Runnable() {
+					@Override
+					public void run() {
+						extractFiles(queue, destDir, result);
+					}
+				});
+			}
+			executor.shutdown();
+			try {
+				while (!executor.awaitTermination(1, TimeUnit.SECONDS)) {
+					// wait for the remaining files
+				}
+			} catch (InterruptedException e) {
+				executor.shutdownNow();
+				Thread.currentThread().interrupt();
+				throw new IOException("Interrupted while extracting " + zipFile, e);
+			}
+		}
+		result.finish();
+		return result;
+	}
+
+	/**
+	 * Extracts entries from the queue with a handle on the archive of this
+	 * thread
+	 */
+	private void extractFiles(Queue<ZipEntry> queue, Path destDir, UnzipResult result) {
+		byte[] buffer = new byte[BUFFER_SIZE];
+		try (ZipFile zip = new ZipFile(zipFile.toFile())) {
+			ZipEntry entry;
+			while ((entry = queue.poll()) != null) {
+				Path target = destDir.resolve(entry.getName()).normalize();
+				try (InputStream in = zip.getInputStream(entry); OutputStream out = Files.newOutputStream(target)) {
+					result.addFile(copy(in, out, buffer), entry.getCompressedSize());
+				} catch (IOException | RuntimeException e) {
+					result.addFailure(entry.getName() + ": " + e);
+				}
+			}
+		} catch (IOException e) {
+			ZipEntry entry;
+			while ((entry = queue.poll()) != null) {
+				result.addFailure(entry.getName() + ": " + e);
+			}
+		}
+	}
+
+	private boolean matches(ZipEntry entry) {
+		if (filter == null) {
+			return true;
+		}
+		String name = entry.getName();
+		// Directory entries end with /, match them by their name
+		if (entry.isDirectory() && name.endsWith("/")) {
+			name = name.substring(0, name.length() - 1);
+		}
+		return filter.matcher(name).matches();
+	}
+
+	private static long copy(InputStream in, OutputStream out, byte[] buffer) throws IOException {
+		long count = 0;
+		int read;
+		while ((read = in.read(buffer)) >= 0) {
+			out.write(buffer, 0, read);
+			count += read;
+		}
+		return count;
+	}
+
+	/**
+	 * Converts a glob for entry names into a regular expression
+	 */
+	private static Pattern toPattern(String glob) {
+		StringBuilder regex = new StringBuilder();
+		boolean inGroup = false;
+		for (int i = 0; i < glob.length(); i++) {
+			char c = glob.charAt(i);
+			switch (c) {
+			case '*':
+				if (i + 1 < glob.length() && glob.charAt(i + 1) == '*') {
+					regex.append(".*");
+					i++;
+				} else {
+					regex.append("[^/]*");
+				}
+				break;
+			case '?':
+				regex.append("[^/]");
+				break;
+			case '[':
+				int end = glob.indexOf(']', i + 1);
+				if (end < 0) {
+					regex.append("\\[");
+				} else {
+					String chars = glob.substring(i + 1, end);
+					regex.append('[').append(chars.startsWith("!") ? "^" + chars.substring(1) : chars).append(']');
+					i = end;
+				}
+				break;
+			case '{':
+				regex.append("(?:");
+				inGroup = true;
+				break;
+			case '}':
+				regex.append(inGroup ? ")" : "\\}");
+				inGroup = false;
+				break;
+			case ',':
+				regex.append(inGroup ? "|" : ",");
+				break;
+			case '\\':
+				if (i + 1 < glob.length()) {
+					regex.append(Pattern.quote(String.valueOf(glob.charAt(++i))));
+				}
+				break;
+			default:
+				regex.append(Pattern.quote(String.valueOf(c)));
+			}
+		}
+		return Pattern.compile(regex.toString());
+	}
+
+	private static class UnzipThreadFactory implements ThreadFactory {
+		private final AtomicInteger count = new AtomicInteger();
+
+		@Override
+		public Thread newThread(Runnable runnable) {
+			Thread thread = new Thread(runnable, "unzip-" + count.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		}
+	}
+}
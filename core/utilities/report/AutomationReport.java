@@ -7,7 +7,6 @@ import java.util.Arrays;
 import java.util.Date;
 import java.util.List;
 import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 import org.testng.annotations.AfterClass;
 import org.testng.annotations.AfterTest;
@@ -24,6 +23,7 @@ import core.utilities.report.essences.Group;
 import core.utilities.report.essences.Script;
 import core.utilities.report.essences.Suite;
 import core.utilities.report.essences.TestCase;
+import core.utilities.text.PatternCache;
 
 public class AutomationReport {
 	private static XMLReport xmlReport;
@@ -285,7 +285,7 @@ public class AutomationReport {
 						}
 					}
 				} else {
-					Matcher matcher = Pattern.compile(Log.AUTOMATION_IMAGE_MARKER + "(.*)").matcher(actionDescription);
+					Matcher matcher = PatternCache.getShared().compile(Log.AUTOMATION_IMAGE_MARKER + "(.*)").matcher(actionDescription);
 
 					if (matcher.find()) {
 						fileName = matcher.group(1).trim();
@@ -293,6 +293,10 @@ public class AutomationReport {
 				}
 			}
 
+			if (fileName != null) {
+				Log.packageResultFile(fileName, testCase != null ? testCase.getId() : null);
+			}
+
 			Section section = Section.CURRENT;
 
 			if (isBefore() || isBeforeClass()) {
@@ -1,6 +1,8 @@
 package core.utilities.scripting;
 
 
+import java.nio.file.Paths;
+
 import org.testng.IInvokedMethod;
 import org.testng.IInvokedMethodListener;
 import org.testng.ISuite;
@@ -13,11 +15,17 @@ import org.testng.annotations.AfterMethod;
 import org.testng.annotations.Listeners;
 
 import core.utilities.Browser;
+import core.utilities.Database;
 import core.utilities.DateTime;
+import core.utilities.FTPUtil;
 import core.utilities.FileIO;
 import core.utilities.Log;
 import core.utilities.Platform;
+import core.utilities.Scm;
 import core.utilities.Strings;
+import core.utilities.io.CopyResult;
+import core.utilities.io.DirectoryCopy;
+import core.utilities.io.PackageResult;
 
 
 @Listeners(core.utilities.scripting.BaseTestScript.class)
@@ -64,14 +72,51 @@ public class BaseTestScript implements ITestListener, ISuiteListener, IInvokedMe
 			try {
 				if (!Log.AUTOMATION_COPY_RESULTS_TO.isEmpty()) {
 					String append_date_folder = DateTime.getCurrentDate("yyyy-MM-dd")+FileIO.getFileSeparator();
-					FileIO.copyDir(Log.AUTOMATION_TEST_RESULTS_PATH, Log.AUTOMATION_COPY_RESULTS_TO + append_date_folder);
-					Log.logScriptInfo("Results have been copied from : " + Strings.sDQ +Log.AUTOMATION_TEST_RESULTS_PATH + Strings.sDQ +" to: " + Strings.sDQ + Log.AUTOMATION_COPY_RESULTS_TO + append_date_folder+ Strings.sDQ );
+					CopyResult result = new DirectoryCopy().setHardLink(Log.AUTOMATION_COPY_RESULTS_HARD_LINK).copy(
+							Paths.get(Log.AUTOMATION_TEST_RESULTS_PATH), Paths.get(Log.AUTOMATION_COPY_RESULTS_TO + append_date_folder));
+					if (!result.getFailures().isEmpty()) {
+						Log.errorHandler("Error copying results: " + result + System.lineSeparator() + String.join(System.lineSeparator(), result.getFailures()));
+					}
+					Log.logScriptInfo("Results have been copied from : " + Strings.sDQ +Log.AUTOMATION_TEST_RESULTS_PATH + Strings.sDQ +" to: " + Strings.sDQ + Log.AUTOMATION_COPY_RESULTS_TO + append_date_folder+ Strings.sDQ + " " + result);
 				}
 				} catch (final Exception e) {
 					Log.errorHandler("Error copying results", e);
 				}
 			}
 		
+		//Package results files into an archive
+		if (Log.AUTOMATION_PACKAGE_RESULTS_TO != null && !Log.AUTOMATION_PACKAGE_RESULTS_TO.isEmpty()) {
+			try {
+				PackageResult result = Log.finishResultsPackage();
+				if (!result.getFailures().isEmpty()) {
+					Log.errorHandler("Error packaging results: " + result + System.lineSeparator() + String.join(System.lineSeparator(), result.getFailures()));
+				}
+				Log.logScriptInfo("Results have been packaged from : " + Strings.sDQ + Log.AUTOMATION_TEST_RESULTS_PATH + Strings.sDQ + " " + result);
+			} catch (final Exception e) {
+				Log.errorHandler("Error packaging results", e);
+			}
+		}
+		
+		//Close pooled database connections
+		try {
+			Database.closeAllConnections();
+		} catch (final Exception e) {
+			Log.errorHandler("Error closing database connections.", e);
+		}
+		
+		//Close pooled FTP sessions
+		try {
+			FTPUtil.closeAllSessions();
+		} catch (final Exception e) {
+			Log.errorHandler("Error closing FTP sessions.", e);
+		}
+		
+		//Close cached SSH sessions
+		try {
+			Scm.closeAllSessions();
+		} catch (final Exception e) {
+			Log.errorHandler("Error closing SSH sessions.", e);
+		}
 		
 		//Close browser if left open by failure and the close browser global parameter is set to true 
 		if (Log.AUTOMATION_CLOSE_BROWSER_UPON_COMPLETION == true) {
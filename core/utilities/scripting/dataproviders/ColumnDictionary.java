@@ -0,0 +1,81 @@
+package core.utilities.scripting.dataproviders;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import core.utilities.exceptions.AutomationException;
+
+/**
+ * Maps the column names of the data file to the column indexes. It is built
+ * once per data file and shared by all {@link TestCaseData} rows of the file.
+ */
+public class ColumnDictionary {
+
+	private final List<String> names;
+	private final Map<String, Integer> indexes = new HashMap<>();
+
+	/**
+	 * Constructor for the ColumnDictionary class.
+	 *
+	 * @param names
+	 *            column names from the header row of the data file
+	 */
+	public ColumnDictionary(List<String> names) {
+		this.names = Collections.unmodifiableList(names);
+
+		for (int index = 0; index < names.size(); index++) {
+			if (!indexes.containsKey(names.get(index))) {
+				indexes.put(names.get(index), index);
+			}
+		}
+	}
+
+	/**
+	 * Gets the column names in the order of the columns.
+	 *
+	 * @return {@link List} of column names
+	 */
+	public List<String> getNames() {
+		return names;
+	}
+
+	/**
+	 * Gets the number of columns.
+	 *
+	 * @return number of columns
+	 */
+	public int size() {
+		return names.size();
+	}
+
+	/**
+	 * Checks whether the column exists.
+	 *
+	 * @param columnName
+	 *            column name
+	 * @return true if the column exists
+	 */
+	public boolean contains(String columnName) {
+		return indexes.containsKey(columnName);
+	}
+
+	/**
+	 * Gets the index of the column. If several columns have the same name the
+	 * first one is used.
+	 *
+	 * @param columnName
+	 *            column name
+	 * @return the column index (i.e. 0 = the first column)
+	 */
+	public int indexOf(String columnName) {
+		Integer index = indexes.get(columnName);
+
+		if (index == null) {
+			throw new AutomationException(String.format("Column [%s] does not exist in test data", columnName));
+		}
+
+		return index;
+	}
+}
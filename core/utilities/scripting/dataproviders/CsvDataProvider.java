@@ -1,5 +1,7 @@
 package core.utilities.scripting.dataproviders;
 
+import java.util.Iterator;
+
 import core.utilities.Excel;
 
 /**
@@ -21,4 +23,62 @@ public class CsvDataProvider {
 		
 		return(table);
 	}
+
+	/**
+	 * Processes data from external csv file for test script one row at a
+	 * time. The file is not loaded into memory, so it can be used for data
+	 * sets of any size.
+	 * 
+	 * @param file to read in
+	 * @return Iterator over the data rows of the csv file
+	 */
+	public static Iterator<Object[]> getCSVDataIterator(String file) {
+		return getCSVDataIterator(file, new RowFilter());
+	}
+
+	/**
+	 * Processes data from external csv file for test script one row at a
+	 * time. Only the rows selected by the filter are passed to the test
+	 * method. The returned iterator is thread safe, so the data provider can
+	 * be declared with {@code @DataProvider(parallel = true)}.
+	 * 
+	 * @param file to read in
+	 * @param filter selects the rows to pass to the test method
+	 * @return Iterator over the selected data rows of the csv file
+	 */
+	public static Iterator<Object[]> getCSVDataIterator(String file, RowFilter filter) {
+		
+		final String csvFileName = FindFile.findFile(file);
+		
+		return new DataProviderIterator(Excel.getRowIterator(csvFileName, ""), filter, false);
+	}
+
+	/**
+	 * Processes data from csv file for test script one row at a time and
+	 * passes each row to the test method as one {@link TestCaseData}
+	 * parameter.
+	 * 
+	 * @param file to read in
+	 * @return Iterator over the data rows of the csv file
+	 */
+	public static Iterator<Object[]> getCSVTestCaseData(String file) {
+		return getCSVTestCaseData(file, new RowFilter());
+	}
+
+	/**
+	 * Processes data from csv file for test script one row at a time and
+	 * passes each row selected by the filter to the test method as one
+	 * {@link TestCaseData} parameter. The rows of the file share one
+	 * {@link ColumnDictionary}, so the rows are not copied into maps.
+	 * 
+	 * @param file to read in
+	 * @param filter selects the rows to pass to the test method
+	 * @return Iterator over the selected data rows of the csv file
+	 */
+	public static Iterator<Object[]> getCSVTestCaseData(String file, RowFilter filter) {
+		
+		final String csvFileName = FindFile.findFile(file);
+		
+		return new DataProviderIterator(Excel.getRowIterator(csvFileName, ""), filter, true);
+	}
 }
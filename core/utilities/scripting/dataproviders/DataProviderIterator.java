@@ -0,0 +1,80 @@
+package core.utilities.scripting.dataproviders;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import core.utilities.data.RowIterator;
+
+/**
+ * Iterator over the rows of the data file selected by the {@link RowFilter}.
+ * Rows are read only when TestNG asks for the next one, so the data file is
+ * never loaded into memory as a whole. Each row is passed to the test method
+ * either as the cell values or as one {@link TestCaseData} parameter. The
+ * iterator is thread safe, so it can be returned from the data provider with
+ * the parallel attribute set to true.
+ */
+class DataProviderIterator implements Iterator<Object[]> {
+
+	private final RowIterator rows;
+	private final RowFilter filter;
+	private final boolean testCaseData;
+	private ColumnDictionary columns;
+	private long matchCount = 0;
+	private Object[] nextRow;
+
+	/**
+	 * Constructor for the DataProviderIterator class.
+	 *
+	 * @param rows
+	 *            rows of the data file
+	 * @param filter
+	 *            selects the rows passed to the test method
+	 * @param testCaseData
+	 *            true to pass the row as {@link TestCaseData}, false to pass
+	 *            the cell values as separate parameters
+	 */
+	DataProviderIterator(RowIterator rows, RowFilter filter, boolean testCaseData) {
+		this.rows = rows;
+		this.filter = filter;
+		this.testCaseData = testCaseData;
+	}
+
+	@Override
+	public synchronized boolean hasNext() {
+		if (columns == null) {
+			columns = new ColumnDictionary(rows.getHeaders());
+		}
+
+		try {
+			while (nextRow == null && rows.hasNext()) {
+				String[] row = rows.next();
+
+				if (filter.matches(columns, row) && filter.inShard(matchCount++)) {
+					nextRow = testCaseData ? new Object[] { new TestCaseData(columns, row) } : row;
+				}
+			}
+		} catch (RuntimeException exception) {
+			rows.close();
+			throw exception;
+		}
+
+		return nextRow != null;
+	}
+
+	@Override
+	public synchronized Object[] next() {
+		if (!hasNext()) {
+			throw new NoSuchElementException();
+		}
+
+		Object[] row = nextRow;
+		nextRow = null;
+
+		return row;
+	}
+
+	@Override
+	public void remove() {
+		throw new UnsupportedOperationException("Rows can't be removed from the data file");
+	}
+}
@@ -0,0 +1,133 @@
+package core.utilities.scripting.dataproviders;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.function.Predicate;
+
+import core.utilities.exceptions.SetupException;
+
+/**
+ * Selects the rows of the data file which are passed to the test method by
+ * the iterator data providers. A row is selected when it has one of the tags
+ * in the tag column, matches the predicate and belongs to the shard of the
+ * current worker. For example, to run the smoke rows split between 4 workers
+ * on the worker number 2:
+ *
+ * <pre>
+ * new RowFilter().withTags("Tags", "smoke").withShard(2, 4)
+ * </pre>
+ */
+public class RowFilter {
+
+	private String tagColumn;
+	private final Set<String> tags = new HashSet<>();
+	private Predicate<TestCaseData> predicate;
+	private int shardIndex = 0;
+	private int shardCount = 1;
+
+	/**
+	 * Selects only the rows which have at least one of the given tags in the
+	 * tag column. The tags in the cell are separated by commas or spaces and
+	 * compared ignoring case.
+	 *
+	 * @param columnName
+	 *            name of the column with the tags
+	 * @param rowTags
+	 *            tags to select the rows by
+	 * @return this {@link RowFilter}
+	 */
+	public RowFilter withTags(String columnName, String... rowTags) {
+		this.tagColumn = columnName;
+
+		for (String tag : rowTags) {
+			tags.add(tag.trim().toLowerCase());
+		}
+
+		return this;
+	}
+
+	/**
+	 * Selects only the rows which match the predicate. The predicate gets the
+	 * row as the {@link TestCaseData} view.
+	 *
+	 * @param rowPredicate
+	 *            the predicate to select the rows by
+	 * @return this {@link RowFilter}
+	 */
+	public RowFilter withPredicate(Predicate<TestCaseData> rowPredicate) {
+		this.predicate = rowPredicate;
+
+		return this;
+	}
+
+	/**
+	 * Selects only every n-th row of the rows matching the other conditions,
+	 * starting from the row number i, so that n workers running the same test
+	 * with the same data file get separate rows.
+	 *
+	 * @param workerIndex
+	 *            number of the current worker (i.e. 0 = the first worker)
+	 * @param workerCount
+	 *            total number of workers
+	 * @return this {@link RowFilter}
+	 */
+	public RowFilter withShard(int workerIndex, int workerCount) {
+		if (workerCount < 1 || workerIndex < 0 || workerIndex >= workerCount) {
+			throw new SetupException(String.format("Wrong shard %d of %d workers", workerIndex, workerCount));
+		}
+
+		this.shardIndex = workerIndex;
+		this.shardCount = workerCount;
+
+		return this;
+	}
+
+	/**
+	 * Checks whether the row matches the tags and the predicate.
+	 *
+	 * @param columns
+	 *            column dictionary of the data file
+	 * @param row
+	 *            cell values of the row
+	 * @return true if the row matches
+	 */
+	boolean matches(ColumnDictionary columns, String[] row) {
+		if (tagColumn != null) {
+			if (!columns.contains(tagColumn)) {
+				throw new SetupException(String.format("Tag column [%s] does not exist in data file", tagColumn));
+			}
+
+			boolean tagged = false;
+
+			for (String tag : row[columns.indexOf(tagColumn)].toLowerCase().split("[,\\s]+")) {
+				if (tags.contains(tag)) {
+					tagged = true;
+					break;
+				}
+			}
+
+			if (!tagged) {
+				return false;
+			}
+		}
+
+		if (predicate != null) {
+			return predicate.test(new TestCaseData(columns, row));
+		}
+
+		return true;
+	}
+
+	/**
+	 * Checks whether the matching row belongs to the shard of the current
+	 * worker.
+	 *
+	 * @param matchIndex
+	 *            number of the row among the matching rows (i.e. 0 = the first
+	 *            matching row)
+	 * @return true if the row belongs to the shard
+	 */
+	boolean inShard(long matchIndex) {
+		return matchIndex % shardCount == shardIndex;
+	}
+}
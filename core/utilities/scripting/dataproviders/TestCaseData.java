@@ -1,73 +1,286 @@
 package core.utilities.scripting.dataproviders;
 
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import core.utilities.DateTime;
+import core.utilities.exceptions.AutomationException;
+
 /**
- * The class represents the data returned from the data provider.
+ * The class represents the data returned from the data provider. It is a view
+ * over one row of the data file: the cell values are accessed by the column
+ * index looked up in the {@link ColumnDictionary} shared by all rows of the
+ * file, so no map is created per row. Typed values are converted on first
+ * access and cached.
  */
 public class TestCaseData {
-	
-	
-		
-	private String search;
-	private String result;
-	
-	public TestCaseData(Object[][] data){
-	      //this.search=search;
-	      //this.result=result;
-	   }
-		
-	   
-	   public TestCaseData(String search, String result){
-	      this.search=search;
-	      this.result=result;
-	   }
-	   
-	   public String getSearch() {
-	      return search;
-	   }
-	   
-	   public String getResult() {
-	      return result;
-	   }
-	   
-	   
-	 
-	
-		
+
+	/** Default format of the date cells. */
+	public static final String DEFAULT_DATE_FORMAT = "MM/dd/yyyy";
+
+	private final ColumnDictionary columns;
+	private final String[] row;
+	private Object[] convertedValues;
+	private String[] dateFormats;
+
+	/**
+	 * Constructor for the TestCaseData class. The row is not copied.
+	 *
+	 * @param columns
+	 *            column dictionary of the data file
+	 * @param row
+	 *            cell values of the row in the order of the columns
+	 */
+	public TestCaseData(ColumnDictionary columns, String[] row) {
+		this.columns = columns;
+		this.row = row;
+	}
+
+	/**
+	 * Gets the column names of the data file.
+	 *
+	 * @return {@link List} of column names
+	 */
+	public List<String> getColumnNames() {
+		return columns.getNames();
+	}
+
+	/**
+	 * Checks whether the data file has the column.
+	 *
+	 * @param columnName
+	 *            column name
+	 * @return true if the column exists
+	 */
+	public boolean containsColumn(String columnName) {
+		return columns.contains(columnName);
+	}
+
+	/**
+	 * Gets the number of cells in the row.
+	 *
+	 * @return number of cells
+	 */
+	public int size() {
+		return columns.size();
+	}
+
+	/**
+	 * Checks whether the row has no cells.
+	 *
+	 * @return true if the row has no cells
+	 */
+	public boolean isEmpty() {
+		return size() == 0;
+	}
+
+	/**
+	 * Gets cell value.
+	 *
+	 * @param columnName
+	 *            column name
+	 * @return cell value or empty string for the missing cell
+	 */
+	public String get(String columnName) {
+		return get(columns.indexOf(columnName));
+	}
+
+	/**
+	 * Gets cell value.
+	 *
+	 * @param columnIndex
+	 *            the column index (i.e. 0 = the first column)
+	 * @return cell value or empty string for the missing cell
+	 */
+	public String get(int columnIndex) {
+		if (columnIndex < 0 || columnIndex >= size()) {
+			throw new AutomationException(String.format("Column index [%d] is out of range of %d columns",
+					columnIndex, size()));
+		}
+
+		String value = (columnIndex < row.length) ? row[columnIndex] : null;
+
+		return (value != null) ? value : "";
+	}
+
 	/**
 	 * Converts cell value to boolean type.
 	 *
-	 * @param columnName column name
+	 * @param columnName
+	 *            column name
 	 * @return boolean value
 	 */
 	public boolean getBoolean(String columnName) {
-		return Boolean.parseBoolean(get(columnName));
+		int columnIndex = columns.indexOf(columnName);
+		Object value = getConvertedValue(columnIndex);
+
+		if (!(value instanceof Boolean)) {
+			value = Boolean.parseBoolean(get(columnIndex).trim());
+			setConvertedValue(columnIndex, value, null);
+		}
+
+		return (Boolean) value;
 	}
 
 	/**
 	 * Converts cell value to int type.
 	 *
-	 * @param columnName column name
+	 * @param columnName
+	 *            column name
 	 * @return int value
 	 */
 	public int getInt(String columnName) {
-		return Integer.parseInt(get(columnName));
+		int columnIndex = columns.indexOf(columnName);
+		Object value = getConvertedValue(columnIndex);
+
+		if (!(value instanceof Integer)) {
+			try {
+				value = Integer.parseInt(get(columnIndex).trim());
+			} catch (NumberFormatException exception) {
+				throw conversionError(columnName, "int", exception);
+			}
+
+			setConvertedValue(columnIndex, value, null);
+		}
+
+		return (Integer) value;
 	}
 
-	
-	
-	public int size() {
-		return this.size();
+	/**
+	 * Converts cell value to long type.
+	 *
+	 * @param columnName
+	 *            column name
+	 * @return long value
+	 */
+	public long getLong(String columnName) {
+		int columnIndex = columns.indexOf(columnName);
+		Object value = getConvertedValue(columnIndex);
+
+		if (!(value instanceof Long)) {
+			try {
+				value = Long.parseLong(get(columnIndex).trim());
+			} catch (NumberFormatException exception) {
+				throw conversionError(columnName, "long", exception);
+			}
+
+			setConvertedValue(columnIndex, value, null);
+		}
+
+		return (Long) value;
 	}
 
-	public boolean isEmpty() {
-		return this.isEmpty();
+	/**
+	 * Converts cell value to decimal type.
+	 *
+	 * @param columnName
+	 *            column name
+	 * @return {@link BigDecimal} value
+	 */
+	public BigDecimal getDecimal(String columnName) {
+		int columnIndex = columns.indexOf(columnName);
+		Object value = getConvertedValue(columnIndex);
+
+		if (!(value instanceof BigDecimal)) {
+			try {
+				value = new BigDecimal(get(columnIndex).trim());
+			} catch (NumberFormatException exception) {
+				throw conversionError(columnName, "decimal", exception);
+			}
+
+			setConvertedValue(columnIndex, value, null);
+		}
+
+		return (BigDecimal) value;
 	}
 
-	public String get(String columnName) {
-		return this.get(columnName);
+	/**
+	 * Converts cell value to date in the default "MM/dd/yyyy" format.
+	 *
+	 * @param columnName
+	 *            column name
+	 * @return {@link Date} value
+	 */
+	public Date getDate(String columnName) {
+		return getDate(columnName, DEFAULT_DATE_FORMAT);
+	}
+
+	/**
+	 * Converts cell value to date.
+	 *
+	 * @param columnName
+	 *            column name
+	 * @param format
+	 *            date format of the cell value like: "MM/dd/yyyy"
+	 * @return {@link Date} value
+	 */
+	public Date getDate(String columnName, String format) {
+		int columnIndex = columns.indexOf(columnName);
+		Object value = getConvertedValue(columnIndex);
+
+		if (!(value instanceof Date) || !format.equals(dateFormats[columnIndex])) {
+			value = DateTime.stringToDate(get(columnIndex).trim(), format);
+
+			if (value == null) {
+				throw conversionError(columnName, "date with format " + format, null);
+			}
+
+			setConvertedValue(columnIndex, value, format);
+		}
+
+		return new Date(((Date) value).getTime());
+	}
+
+	/**
+	 * Copies the row to the map of column name to cell value in the order of
+	 * the columns.
+	 *
+	 * @return {@link Map} of the row cells
+	 */
+	public Map<String, String> toMap() {
+		Map<String, String> rowData = new LinkedHashMap<>();
+
+		for (int index = 0; index < size(); index++) {
+			rowData.put(columns.getNames().get(index), get(index));
+		}
+
+		return rowData;
 	}
 
-	
+	/**
+	 * Copies the cell values of the row.
+	 *
+	 * @return array of the cell values
+	 */
+	public String[] toArray() {
+		return Arrays.copyOf(row, row.length);
+	}
+
+	@Override
+	public String toString() {
+		return toMap().toString();
+	}
 
-	
+	private Object getConvertedValue(int columnIndex) {
+		return (convertedValues != null) ? convertedValues[columnIndex] : null;
+	}
+
+	private void setConvertedValue(int columnIndex, Object value, String dateFormat) {
+		if (convertedValues == null) {
+			convertedValues = new Object[size()];
+			dateFormats = new String[size()];
+		}
+
+		convertedValues[columnIndex] = value;
+		dateFormats[columnIndex] = dateFormat;
+	}
+
+	private AutomationException conversionError(String columnName, String type, Exception cause) {
+		return new AutomationException(String.format("Can't convert value [%s] of column [%s] to %s",
+				get(columnName), columnName, type), cause);
+	}
 }
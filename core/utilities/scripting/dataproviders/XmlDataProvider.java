@@ -1,5 +1,7 @@
 package core.utilities.scripting.dataproviders;
 
+import java.util.Iterator;
+
 import core.utilities.Excel;
 import core.utilities.exceptions.SetupException;
 
@@ -27,4 +29,65 @@ public class XmlDataProvider {
 		
 		return(table);
 	}
+
+	/**
+	 * Processes data from xml file for test script one row at a time.
+	 * 
+	 * @param file to read in
+	 * @param sheet to read from
+	 * @return Iterator over the data rows of the xml file
+	 */
+	public static Iterator<Object[]> getXMLDataIterator(String file, String sheet) {
+		return getXMLDataIterator(file, sheet, new RowFilter());
+	}
+
+	/**
+	 * Processes data from xml file for test script one row at a time. Only
+	 * the rows selected by the filter are passed to the test method. The xml
+	 * document is parsed into memory, the rows are handed out one at a time.
+	 * The returned iterator is thread safe, so the data provider can be
+	 * declared with {@code @DataProvider(parallel = true)}.
+	 * 
+	 * @param file to read in
+	 * @param sheet to read from
+	 * @param filter selects the rows to pass to the test method
+	 * @return Iterator over the selected data rows of the xml file
+	 */
+	public static Iterator<Object[]> getXMLDataIterator(String file, String sheet, RowFilter filter) {
+		
+		final String XMLFileName = FindFile.findFile(file);
+		
+		return new DataProviderIterator(Excel.getRowIterator(XMLFileName, sheet), filter, false);
+	}
+
+	/**
+	 * Processes data from xml file for test script one row at a time and
+	 * passes each row to the test method as one {@link TestCaseData}
+	 * parameter.
+	 * 
+	 * @param file to read in
+	 * @param sheet to read from
+	 * @return Iterator over the data rows of the xml file
+	 */
+	public static Iterator<Object[]> getXMLTestCaseData(String file, String sheet) {
+		return getXMLTestCaseData(file, sheet, new RowFilter());
+	}
+
+	/**
+	 * Processes data from xml file for test script one row at a time and
+	 * passes each row selected by the filter to the test method as one
+	 * {@link TestCaseData} parameter. The rows of the file share one
+	 * {@link ColumnDictionary}, so the rows are not copied into maps.
+	 * 
+	 * @param file to read in
+	 * @param sheet to read from
+	 * @param filter selects the rows to pass to the test method
+	 * @return Iterator over the selected data rows of the xml file
+	 */
+	public static Iterator<Object[]> getXMLTestCaseData(String file, String sheet, RowFilter filter) {
+		
+		final String XMLFileName = FindFile.findFile(file);
+		
+		return new DataProviderIterator(Excel.getRowIterator(XMLFileName, sheet), filter, true);
+	}
 }
@@ -0,0 +1,29 @@
+package core.utilities.ssh;
+
+import java.io.IOException;
+
+import com.jcraft.jsch.ChannelSftp;
+import com.jcraft.jsch.SftpException;
+
+/**
+ * Operations executed on one sftp channel, see
+ * {@link SshConnection#sftp(SftpCallback)}
+ *
+ * @param <T>
+ *            type of the result
+ */
+public interface SftpCallback<T> {
+
+	/**
+	 * Executes the operations with the connected channel
+	 *
+	 * @param sftp
+	 *            connected sftp channel
+	 * @return result of the operations
+	 * @throws SftpException
+	 *             if a command fails to execute
+	 * @throws IOException
+	 *             if a local file can't be accessed
+	 */
+	T doInChannel(ChannelSftp sftp) throws SftpException, IOException;
+}
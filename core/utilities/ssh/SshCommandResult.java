@@ -0,0 +1,94 @@
+package core.utilities.ssh;
+
+/**
+ * Result of a command executed on a remote server: the exit status, the
+ * standard and error output and the duration. A command which could not be
+ * started, f.ex. because the server was not reachable, has the exit status
+ * -1 and the reason as error output.
+ */
+public class SshCommandResult {
+
+	private final String host;
+	private final String command;
+	private final int exitStatus;
+	private final String output;
+	private final String error;
+	private final long elapsedMillis;
+
+	SshCommandResult(String host, String command, int exitStatus, String output, String error, long elapsedMillis) {
+		this.host = host;
+		this.command = command;
+		this.exitStatus = exitStatus;
+		this.output = output;
+		this.error = error;
+		this.elapsedMillis = elapsedMillis;
+	}
+
+	/**
+	 * Gets the server the command was executed on
+	 *
+	 * @return server name or IP address
+	 */
+	public String getHost() {
+		return host;
+	}
+
+	/**
+	 * Gets the command
+	 *
+	 * @return command line
+	 */
+	public String getCommand() {
+		return command;
+	}
+
+	/**
+	 * Gets the exit status of the command
+	 *
+	 * @return exit status, -1 if the command could not be executed
+	 */
+	public int getExitStatus() {
+		return exitStatus;
+	}
+
+	/**
+	 * Checks if the command exited with status 0
+	 *
+	 * @return true if the command succeeded
+	 */
+	public boolean isSuccess() {
+		return exitStatus == 0;
+	}
+
+	/**
+	 * Gets the standard output of the command
+	 *
+	 * @return standard output
+	 */
+	public String getOutput() {
+		return output;
+	}
+
+	/**
+	 * Gets the error output of the command
+	 *
+	 * @return error output
+	 */
+	public String getError() {
+		return error;
+	}
+
+	/**
+	 * Gets the duration of the command including opening the channel
+	 *
+	 * @return duration in milliseconds
+	 */
+	public long getElapsedMillis() {
+		return elapsedMillis;
+	}
+
+	@Override
+	public String toString() {
+		return host + ": " + command + " returned " + exitStatus + " in " + elapsedMillis + " ms";
+	}
+}
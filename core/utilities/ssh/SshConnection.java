@@ -0,0 +1,219 @@
+package core.utilities.ssh;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.Semaphore;
+
+import com.jcraft.jsch.ChannelExec;
+import com.jcraft.jsch.ChannelSftp;
+import com.jcraft.jsch.JSchException;
+import com.jcraft.jsch.Session;
+import com.jcraft.jsch.SftpException;
+
+/**
+ * Authenticated SSH session to one server shared by several threads. Every
+ * command and sftp operation runs on its own channel of the session, so they
+ * don't pay for a new handshake and can run at the same time, up to the
+ * maximum number of channels the server allows per session. The session itself
+ * is never handed out; other channels are opened through a {@link SshLease}.
+ */
+public class SshConnection {
+
+	private final String host;
+	private final Session session;
+	private final Semaphore channels;
+	private final Set<SshLease> leases = new HashSet<>();
+	private int openChannels = 0;
+	private long lastUsed = System.currentTimeMillis();
+	private boolean closed = false;
+
+	SshConnection(String host, Session session, int maxChannels) {
+		this.host = host;
+		this.session = session;
+		this.channels = new Semaphore(Math.max(1, maxChannels), true);
+	}
+
+	/**
+	 * Executes a command on an exec channel and waits for it to finish
+	 *
+	 * @param command
+	 *            command line to execute
+	 * @return exit status and output of the command
+	 * @throws JSchException
+	 *             if the channel can't be opened
+	 * @throws IOException
+	 *             if the output can't be read
+	 */
+	public SshCommandResult exec(String command) throws JSchException, IOException {
+		long startTime = System.currentTimeMillis();
+		beginChannel();
+		ChannelExec channel = null;
+		try {
+			channel = (ChannelExec) session.openChannel("exec");
+			channel.setCommand(command);
+			channel.setInputStream(null);
+			ByteArrayOutputStream error = new ByteArrayOutputStream();
+			channel.setErrStream(error);
+			ByteArrayOutputStream output = new ByteArrayOutputStream();
+			InputStream input = channel.getInputStream();
+			channel.connect(SshSessionCache.CONNECT_TIMEOUT);
+
+			byte[] buffer = new byte[8192];
+			int read;
+			while ((read = input.read(buffer)) != -1) {
+				output.write(buffer, 0, read);
+			}
+			// The exit status may arrive after the end of the output
+			while (!channel.isClosed()) {
+				try {
+					Thread.sleep(5);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					throw new IOException("Interrupted while waiting for " + command, e);
+				}
+			}
+			return new SshCommandResult(host, command, channel.getExitStatus(), output.toString(), error.toString(),
+					System.currentTimeMillis() - startTime);
+		} finally {
+			if (channel != null) {
+				channel.disconnect();
+			}
+			endChannel();
+		}
+	}
+
+	/**
+	 * Executes operations on a sftp channel
+	 *
+	 * @param callback
+	 *            operations to execute
+	 * @param <T>
+	 *            type of the result
+	 * @return result of the callback
+	 * @throws JSchException
+	 *             if the channel can't be opened
+	 * @throws SftpException
+	 *             if a sftp command fails
+	 * @throws IOException
+	 *             if a local file can't be accessed
+	 */
+	public <T> T sftp(SftpCallback<T> callback) throws JSchException, SftpException, IOException {
+		beginChannel();
+		ChannelSftp channel = null;
+		try {
+			channel = (ChannelSftp) session.openChannel("sftp");
+			channel.connect(SshSessionCache.CONNECT_TIMEOUT);
+			return callback.doInChannel(channel);
+		} finally {
+			if (channel != null) {
+				channel.disconnect();
+			}
+			endChannel();
+		}
+	}
+
+	/**
+	 * Leases the session for channels not covered by this class. Channels
+	 * opened through the lease don't count against the maximum number of
+	 * channels; disconnecting the lease closes its channels but not the
+	 * session.
+	 *
+	 * @return lease on the session
+	 * @throws JSchException
+	 *             if the session is closed
+	 */
+	public synchronized SshLease lease() throws JSchException {
+		if (closed || !session.isConnected()) {
+			throw new JSchException("SSH session to " + host + " is closed");
+		}
+		SshLease lease = new SshLease(this, session);
+		leases.add(lease);
+		return lease;
+	}
+
+	/**
+	 * Checks if the session is still connected
+	 *
+	 * @return true if the session can open channels
+	 */
+	public synchronized boolean isConnected() {
+		return !closed && session.isConnected();
+	}
+
+	/**
+	 * Gets the number of channels open at the moment
+	 *
+	 * @return number of open channels
+	 */
+	public synchronized int getOpenChannels() {
+		return openChannels;
+	}
+
+	@Override
+	public String toString() {
+		return session.getUserName() + "@" + host + ":" + session.getPort();
+	}
+
+	/**
+	 * Disconnects the session unless channels or leases are in use or it was
+	 * used within the idle timeout
+	 *
+	 * @return true if the session was disconnected
+	 */
+	synchronized boolean closeIfIdle(long idleTimeout, long now) {
+		if (closed) {
+			return true;
+		}
+		if (session.isConnected() && (openChannels > 0 || isLeased(now) || now - lastUsed < idleTimeout)) {
+			return false;
+		}
+		close();
+		return true;
+	}
+
+	synchronized void release(SshLease lease) {
+		leases.remove(lease);
+		lastUsed = System.currentTimeMillis();
+	}
+
+	private boolean isLeased(long now) {
+		for (SshLease lease : leases) {
+			if (lease.isInUse(now)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	synchronized void close() {
+		closed = true;
+		session.disconnect();
+	}
+
+	private void beginChannel() throws JSchException {
+		try {
+			channels.acquire();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new JSchException("Interrupted while waiting for a channel to " + host, e);
+		}
+		synchronized (this) {
+			if (closed || !session.isConnected()) {
+				channels.release();
+				throw new JSchException("SSH session to " + host + " is closed");
+			}
+			openChannels++;
+		}
+	}
+
+	private void endChannel() {
+		synchronized (this) {
+			openChannels--;
+			lastUsed = System.currentTimeMillis();
+		}
+		channels.release();
+	}
+}
@@ -0,0 +1,121 @@
+package core.utilities.ssh;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import com.jcraft.jsch.Channel;
+import com.jcraft.jsch.JSchException;
+import com.jcraft.jsch.Session;
+
+/**
+ * Handle on a cached SSH session for channels not covered by
+ * {@link SshConnection}, f.ex. a sftp channel kept open across several
+ * calls. The session is shared with other users of the cache, so it is never
+ * disconnected through the handle: {@link #disconnect()} disconnects the
+ * channels opened through this handle and releases the lease. The session is
+ * not closed by the idle timeout while a channel of a lease is connected.
+ */
+public class SshLease implements AutoCloseable {
+
+	private final SshConnection connection;
+	private final Session session;
+	private final List<Channel> channels = new ArrayList<>();
+	private long lastOpened = 0;
+	private boolean released = false;
+
+	SshLease(SshConnection connection, Session session) {
+		this.connection = connection;
+		this.session = session;
+	}
+
+	/**
+	 * Opens a channel on the session, see {@link Session#openChannel(String)}.
+	 * The channel is connected by the caller.
+	 *
+	 * @param type
+	 *            channel type, f.ex. "sftp" or "exec"
+	 * @return channel which is not connected yet
+	 * @throws JSchException
+	 *             if the lease is released or the session is closed
+	 */
+	public synchronized Channel openChannel(String type) throws JSchException {
+		if (released) {
+			throw new JSchException("SSH lease on " + connection + " is released");
+		}
+		Channel channel = session.openChannel(type);
+		channels.add(channel);
+		lastOpened = System.currentTimeMillis();
+		return channel;
+	}
+
+	/**
+	 * Checks if channels can be opened through the lease
+	 *
+	 * @return true if the lease is not released and the session is connected
+	 */
+	public boolean isConnected() {
+		synchronized (this) {
+			if (released) {
+				return false;
+			}
+		}
+		return connection.isConnected();
+	}
+
+	/**
+	 * Disconnects the channels opened through the lease and releases it. The
+	 * shared session stays connected for the other users of the cache.
+	 */
+	public void disconnect() {
+		List<Channel> open;
+		synchronized (this) {
+			if (released) {
+				return;
+			}
+			released = true;
+			open = new ArrayList<>(channels);
+			channels.clear();
+		}
+		for (Channel channel : open) {
+			channel.disconnect();
+		}
+		connection.release(this);
+	}
+
+	/**
+	 * Same as {@link #disconnect()}
+	 */
+	@Override
+	public void close() {
+		disconnect();
+	}
+
+	/**
+	 * Checks if a channel of the lease is connected or was opened too
+	 * recently to be connected yet
+	 */
+	synchronized boolean isInUse(long now) {
+		if (released) {
+			return false;
+		}
+		if (now - lastOpened < SshSessionCache.CONNECT_TIMEOUT) {
+			return true;
+		}
+		boolean inUse = false;
+		Iterator<Channel> iterator = channels.iterator();
+		while (iterator.hasNext()) {
+			if (iterator.next().isConnected()) {
+				inUse = true;
+			} else {
+				iterator.remove();
+			}
+		}
+		return inUse;
+	}
+
+	@Override
+	public String toString() {
+		return "Lease on " + connection + (released ? " (released)" : "");
+	}
+}
@@ -0,0 +1,372 @@
+package core.utilities.ssh;
+
+import java.io.IOException;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.jcraft.jsch.JSch;
+import com.jcraft.jsch.JSchException;
+import com.jcraft.jsch.Session;
+import com.jcraft.jsch.SftpException;
+
+import core.utilities.Encrypt;
+import core.utilities.Log;
+
+/**
+ * Cache of authenticated SSH sessions keyed by user, server and port. The
+ * first operation on a server pays for the handshake, later operations open
+ * a channel on the cached {@link SshConnection}. Sessions are kept alive by
+ * JSch keep-alive messages every keep-alive interval and disconnected after
+ * the idle timeout; a session dropped by the server is replaced on the next
+ * operation. The sessions are not handed out to callers, other channels are
+ * opened through a {@link SshLease} on the cached session.
+ * <p>
+ * The cache settings are initialized from the AUTOMATION_SCM_SESSION_*
+ * global parameters. All methods can be called from parallel tests.
+ */
+public class SshSessionCache {
+
+	/** Milliseconds to wait for the server when connecting */
+	static final int CONNECT_TIMEOUT = 30000;
+
+	private static final ScheduledExecutorService housekeeper = Executors
+			.newSingleThreadScheduledExecutor(new ThreadFactory() {
+				@Override
+				public Thread newThread(Runnable runnable) {
+					Thread thread = new Thread(runnable, "ssh-session-housekeeper");
+					thread.setDaemon(true);
+					return thread;
+				}
+			});
+
+	private final int maxChannels;
+	private final long keepAlive;
+	private final long idleTimeout;
+	private final ConcurrentMap<String, SshConnection> connections = new ConcurrentHashMap<>();
+	private final ConcurrentMap<String, Object> locks = new ConcurrentHashMap<>();
+
+	/**
+	 * Constructor for the SshSessionCache class with the settings of the
+	 * AUTOMATION_SCM_SESSION_* global parameters
+	 */
+	public SshSessionCache() {
+		this(Log.AUTOMATION_SCM_SESSION_MAX_CHANNELS, Log.AUTOMATION_SCM_SESSION_KEEPALIVE,
+				Log.AUTOMATION_SCM_SESSION_IDLE_TIMEOUT);
+	}
+
+	/**
+	 * Constructor for the SshSessionCache class
+	 *
+	 * @param maxChannels
+	 *            maximum number of channels open at the same time per session
+	 * @param keepAlive
+	 *            seconds between keep-alive messages
+	 * @param idleTimeout
+	 *            seconds an unused session is kept open
+	 */
+	public SshSessionCache(int maxChannels, int keepAlive, int idleTimeout) {
+		this.maxChannels = Math.max(1, maxChannels);
+		this.keepAlive = TimeUnit.SECONDS.toMillis(Math.max(1, keepAlive));
+		this.idleTimeout = TimeUnit.SECONDS.toMillis(idleTimeout);
+
+		housekeeper.scheduleWithFixedDelay(new Housekeeping(this), this.keepAlive, this.keepAlive,
+				TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * Gets the cached session to a server, connecting if there is no
+	 * connected session yet
+	 *
+	 * @param host
+	 *            server name or IP address
+	 * @param port
+	 *            ssh port
+	 * @param userName
+	 *            user name
+	 * @param password
+	 *            encrypted password, see {@link Encrypt#encryptPassword(String)}
+	 * @return connected session
+	 * @throws JSchException
+	 *             if the connection or authentication fails
+	 */
+	public SshConnection getConnection(String host, int port, String userName, String password)
+			throws JSchException {
+		String key = userName + "@" + host + ":" + port;
+		SshConnection connection = connections.get(key);
+		if (connection != null && connection.isConnected()) {
+			return connection;
+		}
+
+		// Connect to different servers at the same time, but only once to each
+		locks.putIfAbsent(key, new Object());
+		synchronized (locks.get(key)) {
+			connection = connections.get(key);
+			if (connection != null && connection.isConnected()) {
+				return connection;
+			}
+			if (connection != null) {
+				connection.close();
+			}
+			connection = connect(host, port, userName, password);
+			connections.put(key, connection);
+			return connection;
+		}
+	}
+
+	/**
+	 * Executes a command on a server. If the cached session was dropped, the
+	 * command is retried once on a new session.
+	 *
+	 * @param host
+	 *            server name or IP address
+	 * @param port
+	 *            ssh port
+	 * @param userName
+	 *            user name
+	 * @param password
+	 *            encrypted password
+	 * @param command
+	 *            command line to execute
+	 * @return exit status and output of the command
+	 * @throws JSchException
+	 *             if the server can't be reached
+	 * @throws IOException
+	 *             if the output can't be read
+	 */
+	public SshCommandResult exec(String host, int port, String userName, String password, String command)
+			throws JSchException, IOException {
+		SshConnection connection = getConnection(host, port, userName, password);
+		try {
+			return connection.exec(command);
+		} catch (JSchException e) {
+			if (connection.isConnected()) {
+				throw e;
+			}
+			return getConnection(host, port, userName, password).exec(command);
+		}
+	}
+
+	/**
+	 * Executes operations on a sftp channel to a server. If the cached
+	 * session was dropped, the channel is opened on a new session.
+	 *
+	 * @param host
+	 *            server name or IP address
+	 * @param port
+	 *            ssh port
+	 * @param userName
+	 *            user name
+	 * @param password
+	 *            encrypted password
+	 * @param callback
+	 *            operations to execute
+	 * @param <T>
+	 *            type of the result
+	 * @return result of the callback
+	 * @throws JSchException
+	 *             if the server can't be reached
+	 * @throws SftpException
+	 *             if a sftp command fails
+	 * @throws IOException
+	 *             if a local file can't be accessed
+	 */
+	public <T> T sftp(String host, int port, String userName, String password, SftpCallback<T> callback)
+			throws JSchException, SftpException, IOException {
+		SshConnection connection = getConnection(host, port, userName, password);
+		try {
+			return connection.sftp(callback);
+		} catch (JSchException e) {
+			if (connection.isConnected()) {
+				throw e;
+			}
+			return getConnection(host, port, userName, password).sftp(callback);
+		}
+	}
+
+	/**
+	 * Leases the cached session to a server for channels not covered by
+	 * {@link SshConnection}. Disconnecting the lease closes its channels but
+	 * leaves the session to the other users of the cache.
+	 *
+	 * @param host
+	 *            server name or IP address
+	 * @param port
+	 *            ssh port
+	 * @param userName
+	 *            user name
+	 * @param password
+	 *            encrypted password
+	 * @return lease on the session
+	 * @throws JSchException
+	 *             if the server can't be reached
+	 */
+	public SshLease lease(String host, int port, String userName, String password) throws JSchException {
+		SshConnection connection = getConnection(host, port, userName, password);
+		try {
+			return connection.lease();
+		} catch (JSchException e) {
+			if (connection.isConnected()) {
+				throw e;
+			}
+			return getConnection(host, port, userName, password).lease();
+		}
+	}
+
+	/**
+	 * Executes a command on several servers at the same time with the same
+	 * credentials. A server which can't be reached gets a result with exit
+	 * status -1 instead of failing the other servers.
+	 *
+	 * @param hosts
+	 *            server names or IP addresses
+	 * @param port
+	 *            ssh port
+	 * @param userName
+	 *            user name
+	 * @param password
+	 *            encrypted password
+	 * @param command
+	 *            command line to execute
+	 * @param threads
+	 *            maximum number of servers the command runs on at the same
+	 *            time
+	 * @return results in the order of the servers
+	 */
+	public Map<String, SshCommandResult> execOnHosts(Collection<String> hosts, final int port, final String userName,
+			final String password, final String command, int threads) {
+		Map<String, SshCommandResult> results = new LinkedHashMap<>();
+		if (hosts.isEmpty()) {
+			return results;
+		}
+
+		ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, Math.min(threads, hosts.size())),
+				new FanOutThreadFactory());
+		try {
+			Map<String, Future<SshCommandResult>> futures = new LinkedHashMap<>();
+			for (final String host : hosts) {
+				futures.put(host, executor.submit(new Callable<SshCommandResult>() {
+					@Override
+					public SshCommandResult call() {
+						long startTime = System.currentTimeMillis();
+						try {
+							return exec(host, port, userName, password, command);
+						} catch (JSchException | IOException e) {
+							return new SshCommandResult(host, command, -1, "", e.toString(),
+									System.currentTimeMillis() - startTime);
+						}
+					}
+				}));
+			}
+			for (Map.Entry<String, Future<SshCommandResult>> future : futures.entrySet()) {
+				try {
+					results.put(future.getKey(), future.getValue().get());
+				} catch (ExecutionException e) {
+					results.put(future.getKey(),
+							new SshCommandResult(future.getKey(), command, -1, "", e.getCause().toString(), 0));
+				}
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} finally {
+			executor.shutdownNow();
+		}
+		return results;
+	}
+
+	/**
+	 * Gets the number of cached sessions
+	 *
+	 * @return number of sessions
+	 */
+	public int size() {
+		return connections.size();
+	}
+
+	/**
+	 * Disconnects all cached sessions. The cache can be used again afterwards
+	 * and connects again on demand.
+	 */
+	public void close() {
+		List<SshConnection> closing = new ArrayList<>(connections.values());
+		connections.clear();
+		for (SshConnection connection : closing) {
+			connection.close();
+			Log.logDebugInfo("Disconnection from server: " + connection + " successful.");
+		}
+	}
+
+	private SshConnection connect(String host, int port, String userName, String password) throws JSchException {
+		Session session = new JSch().getSession(userName, host, port);
+		session.setPassword(Encrypt.decryptPassword(password));
+		session.setConfig("StrictHostKeyChecking", "no");
+		session.setConfig("PreferredAuthentications", "publickey,keyboard-interactive,password");
+		session.setServerAliveInterval((int) keepAlive);
+		session.setServerAliveCountMax(3);
+		session.connect(CONNECT_TIMEOUT);
+		Log.logScriptInfo("Connected to server : " + host + " successfully");
+		return new SshConnection(host, session, maxChannels);
+	}
+
+	private void housekeep() {
+		long now = System.currentTimeMillis();
+		for (Map.Entry<String, SshConnection> entry : connections.entrySet()) {
+			SshConnection connection = entry.getValue();
+			if (connection.closeIfIdle(idleTimeout > 0 ? idleTimeout : Long.MAX_VALUE, now)) {
+				connections.remove(entry.getKey(), connection);
+				Log.logDebugInfo("Disconnection from server: " + connection + " successful.");
+			}
+		}
+	}
+
+	/**
+	 * Housekeeping task which does not keep the cache from being garbage
+	 * collected
+	 */
+	private static class Housekeeping implements Runnable {
+		private final WeakReference<SshSessionCache> cache;
+
+		private Housekeeping(SshSessionCache cache) {
+			this.cache = new WeakReference<>(cache);
+		}
+
+		@Override
+		public void run() {
+			SshSessionCache sessionCache = cache.get();
+			if (sessionCache == null) {
+				// Cancels the scheduled housekeeping of the cache
+				throw new IllegalStateException("SSH session cache garbage collected");
+			}
+			try {
+				sessionCache.housekeep();
+			} catch (RuntimeException e) {
+				Log.logDebugInfo("Error in SSH session cache housekeeping: " + e.getMessage());
+			}
+		}
+	}
+
+	private static class FanOutThreadFactory implements ThreadFactory {
+		private final AtomicInteger count = new AtomicInteger();
+
+		@Override
+		public Thread newThread(Runnable runnable) {
+			Thread thread = new Thread(runnable, "ssh-fanout-" + count.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		}
+	}
+}
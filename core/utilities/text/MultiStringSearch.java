@@ -0,0 +1,304 @@
+package core.utilities.text;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+
+/**
+ * Searches a text for many strings in one pass with the Aho-Corasick
+ * algorithm. The search strings are compiled once into an automaton which
+ * reads every character of the text once, whatever the number of search
+ * strings, instead of scanning the text again for each string. The search
+ * stops as soon as every string was found.
+ * <p>
+ * The automaton has a transition table over the characters of the search
+ * strings, so its size grows with the total length of the search strings
+ * times the number of distinct characters in them. A search object can be
+ * reused and shared between threads.
+ *
+ * <pre>
+ * MultiStringSearch labels = new MultiStringSearch(expectedLabels, true);
+ * SearchResult result = labels.search(Browser.getPageText());
+ * if (!result.isAllFound()) {
+ * 	Log.errorHandler("Labels missing on page: " + result.getMissing());
+ * }
+ * </pre>
+ */
+public class MultiStringSearch {
+
+	private final List<String> needles;
+	private final Map<String, Integer> indexes = new HashMap<>();
+	private final boolean ignoreCase;
+	private final int[] lengths;
+	/** Index in the alphabet of each character up to the highest one used */
+	private final int[] alphabet;
+	private final int width;
+	/** Next state for each state and alphabet index */
+	private final int[] transitions;
+	/** Search string ending in each state, -1 for none */
+	private final int[] output;
+	/** Nearest shorter suffix state with an output, -1 for none */
+	private final int[] outputLink;
+	/** Search strings which fold to the same state as an earlier one */
+	private final Map<Integer, List<Integer>> aliases = new HashMap<>();
+	private final List<Integer> emptyNeedles = new ArrayList<>();
+
+	/**
+	 * Compiles search strings
+	 *
+	 * @param searchStrings
+	 *            strings to search for, duplicates are searched once
+	 * @param ignoreCase
+	 *            true to ignore the case of the strings and the text like
+	 *            {@link String#equalsIgnoreCase(String)}
+	 */
+	public MultiStringSearch(Collection<String> searchStrings, boolean ignoreCase) {
+		this.needles = new ArrayList<>(new LinkedHashSet<>(searchStrings));
+		this.ignoreCase = ignoreCase;
+		this.lengths = new int[needles.size()];
+
+		// Alphabet of the characters in the search strings, index 0 for all
+		// other characters
+		int maxChar = 0;
+		for (String needle : needles) {
+			for (int i = 0; i < needle.length(); i++) {
+				maxChar = Math.max(maxChar, fold(needle.charAt(i)));
+			}
+		}
+		alphabet = new int[maxChar + 1];
+		int symbols = 1;
+		for (String needle : needles) {
+			for (int i = 0; i < needle.length(); i++) {
+				char c = fold(needle.charAt(i));
+				if (alphabet[c] == 0) {
+					alphabet[c] = symbols++;
+				}
+			}
+		}
+		width = symbols;
+
+		// Trie of the search strings
+		List<int[]> trie = new ArrayList<>();
+		List<Integer> outputs = new ArrayList<>();
+		trie.add(new int[width]);
+		outputs.add(-1);
+		for (int n = 0; n < needles.size(); n++) {
+			String needle = needles.get(n);
+			indexes.put(needle, n);
+			lengths[n] = needle.length();
+			if (needle.isEmpty()) {
+				emptyNeedles.add(n);
+				continue;
+			}
+			int state = 0;
+			for (int i = 0; i < needle.length(); i++) {
+				int symbol = alphabet[fold(needle.charAt(i))];
+				if (trie.get(state)[symbol] == 0) {
+					trie.get(state)[symbol] = trie.size();
+					trie.add(new int[width]);
+					outputs.add(-1);
+				}
+				state = trie.get(state)[symbol];
+			}
+			// Different strings fold to the same state when the case is
+			// ignored, the first one is reported
+			if (outputs.get(state) < 0) {
+				outputs.set(state, n);
+			} else {
+				aliases(outputs.get(state)).add(n);
+			}
+		}
+
+		int states = trie.size();
+		transitions = new int[states * width];
+		output = new int[states];
+		outputLink = new int[states];
+		int[] fail = new int[states];
+		for (int s = 0; s < states; s++) {
+			output[s] = outputs.get(s);
+			outputLink[s] = -1;
+		}
+
+		// Breadth first: the failure state of a state is shorter, so it is
+		// complete before the state
+		Queue<Integer> queue = new ArrayDeque<>();
+		for (int symbol = 0; symbol < width; symbol++) {
+			int next = trie.get(0)[symbol];
+			transitions[symbol] = next;
+			if (next != 0) {
+				fail[next] = 0;
+				queue.add(next);
+			}
+		}
+		while (!queue.isEmpty()) {
+			int state = queue.poll();
+			int failState = fail[state];
+			outputLink[state] = output[failState] >= 0 ? failState : outputLink[failState];
+			for (int symbol = 0; symbol < width; symbol++) {
+				int next = trie.get(state)[symbol];
+				if (next != 0) {
+					fail[next] = transitions[failState * width + symbol];
+					transitions[state * width + symbol] = next;
+					queue.add(next);
+				} else {
+					transitions[state * width + symbol] = transitions[failState * width + symbol];
+				}
+			}
+		}
+	}
+
+	/**
+	 * Gets the distinct search strings
+	 *
+	 * @return search strings in the order they were given
+	 */
+	public List<String> getSearchStrings() {
+		return new ArrayList<>(needles);
+	}
+
+	/**
+	 * Searches a text. A string may span lines; lines end with \n, \r or
+	 * \r\n.
+	 *
+	 * @param text
+	 *            text to search in
+	 * @return first line, column and offset of every search string
+	 */
+	public SearchResult search(String text) {
+		SearchResult result = new SearchResult(needles, indexes);
+		if (text == null) {
+			return result;
+		}
+		int remaining = needles.size();
+		for (int n : emptyNeedles) {
+			remaining -= found(result, n, 0, 0, 0);
+		}
+
+		// Line starts are only looked up for the found strings
+		int[] lineStarts = new int[64];
+		int lines = 1;
+		int state = 0;
+		for (int i = 0; i < text.length() && remaining > 0; i++) {
+			char c = text.charAt(i);
+			if (c == '\n' && (i == 0 || text.charAt(i - 1) != '\r') || c == '\r') {
+				if (lines == lineStarts.length) {
+					lineStarts = Arrays.copyOf(lineStarts, lines * 2);
+				}
+				lineStarts[lines++] = c == '\r' && i + 1 < text.length() && text.charAt(i + 1) == '\n' ? i + 2
+						: i + 1;
+			}
+			state = transitions[state * width + symbol(c)];
+			for (int s = output[state] >= 0 ? state : outputLink[state]; s >= 0; s = outputLink[s]) {
+				int n = output[s];
+				if (!result.isFound(n)) {
+					int start = i - lengths[n] + 1;
+					int line = lineOf(lineStarts, lines, start);
+					remaining -= found(result, n, line, start - lineStarts[line], start);
+				}
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Searches lines, f.ex. screen contents. Strings don't span lines, like
+	 * {@link String#contains(CharSequence)} on each line.
+	 *
+	 * @param lines
+	 *            lines to search in, null lines are skipped
+	 * @return first line index, column and offset in the line of every search
+	 *         string
+	 */
+	public SearchResult search(String[] lines) {
+		return search(Arrays.asList(lines));
+	}
+
+	/**
+	 * Searches lines, f.ex. file contents. Strings don't span lines, like
+	 * {@link String#contains(CharSequence)} on each line.
+	 *
+	 * @param lines
+	 *            lines to search in, null lines are skipped
+	 * @return first line index, column and offset in the line of every search
+	 *         string
+	 */
+	public SearchResult search(List<String> lines) {
+		SearchResult result = new SearchResult(needles, indexes);
+		int remaining = needles.size();
+		int row = 0;
+		for (String line : lines) {
+			if (remaining == 0) {
+				break;
+			}
+			if (line != null) {
+				// the empty string is in the first line, like contains("")
+				for (int n : emptyNeedles) {
+					remaining -= found(result, n, row, 0, 0);
+				}
+				int state = 0;
+				for (int i = 0; i < line.length() && remaining > 0; i++) {
+					state = transitions[state * width + symbol(line.charAt(i))];
+					for (int s = output[state] >= 0 ? state : outputLink[state]; s >= 0; s = outputLink[s]) {
+						int n = output[s];
+						if (!result.isFound(n)) {
+							int start = i - lengths[n] + 1;
+							remaining -= found(result, n, row, start, start);
+						}
+					}
+				}
+			}
+			row++;
+		}
+		return result;
+	}
+
+	private List<Integer> aliases(int n) {
+		List<Integer> list = aliases.get(n);
+		if (list == null) {
+			list = new ArrayList<>();
+			aliases.put(n, list);
+		}
+		return list;
+	}
+
+	/**
+	 * Records a found string and the strings equal to it ignoring case
+	 *
+	 * @return number of strings found for the first time
+	 */
+	private int found(SearchResult result, int n, int line, int column, int offset) {
+		if (result.isFound(n)) {
+			return 0;
+		}
+		int count = 1;
+		result.setFound(n, line, column, offset);
+		List<Integer> equal = aliases.get(n);
+		if (equal != null) {
+			for (int alias : equal) {
+				result.setFound(alias, line, column, offset);
+				count++;
+			}
+		}
+		return count;
+	}
+
+	private int symbol(char c) {
+		char folded = fold(c);
+		return folded < alphabet.length ? alphabet[folded] : 0;
+	}
+
+	private char fold(char c) {
+		return ignoreCase ? Character.toLowerCase(Character.toUpperCase(c)) : c;
+	}
+
+	private static int lineOf(int[] lineStarts, int lines, int offset) {
+		int index = Arrays.binarySearch(lineStarts, 0, lines, offset);
+		return index >= 0 ? index : -index - 2;
+	}
+}
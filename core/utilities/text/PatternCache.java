@@ -0,0 +1,207 @@
+package core.utilities.text;
+
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
+
+/**
+ * Cache of compiled regular expressions. The string helpers are called in
+ * loops over screen contents and file lines with the same expression, which
+ * is compiled once and then taken from the cache. Compiled patterns are
+ * immutable and safe to share between threads.
+ * <p>
+ * The cache is bounded: when it is full, arbitrary patterns are removed and
+ * compiled again when they are used next. The counters show how often
+ * patterns were compiled and found in the cache.
+ */
+public class PatternCache {
+
+	/** Number of patterns kept by the shared cache */
+	public static final int DEFAULT_SIZE = 512;
+
+	/** Characters which make a one character delimiter a regular expression */
+	private static final String META_CHARACTERS = ".$|()[{^?*+\\";
+
+	private static final PatternCache shared = new PatternCache(DEFAULT_SIZE);
+
+	private final ConcurrentMap<Key, Pattern> patterns = new ConcurrentHashMap<>();
+	private final int maxSize;
+	private final AtomicLong compiles = new AtomicLong();
+	private final AtomicLong hits = new AtomicLong();
+	private final AtomicLong evictions = new AtomicLong();
+
+	/**
+	 * Creates a cache
+	 *
+	 * @param maxSize
+	 *            maximum number of patterns kept
+	 */
+	public PatternCache(int maxSize) {
+		this.maxSize = Math.max(1, maxSize);
+	}
+
+	/**
+	 * Gets the cache shared by the string, file and log helpers
+	 *
+	 * @return shared cache
+	 */
+	public static PatternCache getShared() {
+		return shared;
+	}
+
+	/**
+	 * Gets a compiled regular expression from the cache, compiles it if it is
+	 * not cached
+	 *
+	 * @param regex
+	 *            regular expression
+	 * @return compiled pattern
+	 */
+	public Pattern compile(String regex) {
+		return compile(regex, 0);
+	}
+
+	/**
+	 * Gets a compiled regular expression with flags from the cache, compiles
+	 * it if it is not cached
+	 *
+	 * @param regex
+	 *            regular expression
+	 * @param flags
+	 *            flags of {@link Pattern#compile(String, int)}
+	 * @return compiled pattern
+	 */
+	public Pattern compile(String regex, int flags) {
+		Key key = new Key(regex, flags);
+		Pattern pattern = patterns.get(key);
+		if (pattern != null) {
+			hits.incrementAndGet();
+			return pattern;
+		}
+
+		// Two threads may compile the same pattern, the first one is kept
+		pattern = Pattern.compile(regex, flags);
+		compiles.incrementAndGet();
+		Pattern cached = patterns.putIfAbsent(key, pattern);
+		if (cached != null) {
+			return cached;
+		}
+		if (patterns.size() > maxSize) {
+			evict(key);
+		}
+		return pattern;
+	}
+
+	/**
+	 * Splits a string around matches of a regular expression like
+	 * {@link String#split(String)}, with the compiled expression from the
+	 * cache. Plain one character delimiters are split without a regular
+	 * expression.
+	 *
+	 * @param input
+	 *            string to split
+	 * @param regex
+	 *            delimiting regular expression
+	 * @return the strings between the delimiters, trailing empty strings
+	 *         removed
+	 */
+	public String[] split(String input, String regex) {
+		if (regex.length() == 1 && META_CHARACTERS.indexOf(regex.charAt(0)) < 0) {
+			return input.split(regex);
+		}
+		return compile(regex).split(input);
+	}
+
+	/**
+	 * Gets the number of patterns compiled, a high number compared to the
+	 * hits means the cache is too small
+	 *
+	 * @return number of compiled patterns
+	 */
+	public long getCompileCount() {
+		return compiles.get();
+	}
+
+	/**
+	 * Gets the number of patterns taken from the cache without compiling
+	 *
+	 * @return number of cache hits
+	 */
+	public long getHitCount() {
+		return hits.get();
+	}
+
+	/**
+	 * Gets the number of patterns removed because the cache was full
+	 *
+	 * @return number of evicted patterns
+	 */
+	public long getEvictionCount() {
+		return evictions.get();
+	}
+
+	/**
+	 * Gets the number of cached patterns
+	 *
+	 * @return number of patterns
+	 */
+	public int size() {
+		return patterns.size();
+	}
+
+	/**
+	 * Removes all patterns, the counters are kept
+	 */
+	public void clear() {
+		patterns.clear();
+	}
+
+	@Override
+	public String toString() {
+		long total = hits.get() + compiles.get();
+		return String.format("%d pattern(s) cached of %d, %d compiled, %d hit(s) (%.1f%%), %d evicted",
+				patterns.size(), maxSize, compiles.get(), hits.get(), total == 0 ? 0.0 : hits.get() * 100.0 / total,
+				evictions.get());
+	}
+
+	/**
+	 * Removes patterns other than the one just added until the cache fits
+	 */
+	private void evict(Key added) {
+		Iterator<Key> keys = patterns.keySet().iterator();
+		while (patterns.size() > maxSize && keys.hasNext()) {
+			Key key = keys.next();
+			if (!key.equals(added) && patterns.remove(key) != null) {
+				evictions.incrementAndGet();
+			}
+		}
+	}
+
+	private static class Key {
+		private final String regex;
+		private final int flags;
+		private final int hash;
+
+		private Key(String regex, int flags) {
+			this.regex = regex;
+			this.flags = flags;
+			this.hash = regex.hashCode() * 31 + flags;
+		}
+
+		@Override
+		public boolean equals(Object other) {
+			if (!(other instanceof Key)) {
+				return false;
+			}
+			Key key = (Key) other;
+			return flags == key.flags && regex.equals(key.regex);
+		}
+
+		@Override
+		public int hashCode() {
+			return hash;
+		}
+	}
+}
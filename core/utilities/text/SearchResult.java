@@ -0,0 +1,139 @@
+package core.utilities.text;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Result of a {@link MultiStringSearch}: the first line, column and offset of
+ * every search string, or -1 for the strings which were not found.
+ */
+public class SearchResult {
+
+	private final List<String> searchStrings;
+	private final Map<String, Integer> indexes;
+	private final int[] lines;
+	private final int[] columns;
+	private final int[] offsets;
+	private int found = 0;
+
+	SearchResult(List<String> searchStrings, Map<String, Integer> indexes) {
+		this.searchStrings = searchStrings;
+		this.indexes = indexes;
+		this.lines = new int[searchStrings.size()];
+		this.columns = new int[searchStrings.size()];
+		this.offsets = new int[searchStrings.size()];
+		Arrays.fill(lines, -1);
+		Arrays.fill(columns, -1);
+		Arrays.fill(offsets, -1);
+	}
+
+	boolean isFound(int index) {
+		return lines[index] >= 0;
+	}
+
+	void setFound(int index, int line, int column, int offset) {
+		if (lines[index] < 0) {
+			found++;
+		}
+		lines[index] = line;
+		columns[index] = column;
+		offsets[index] = offset;
+	}
+
+	/**
+	 * Checks if a string was found
+	 *
+	 * @param searchString
+	 *            one of the search strings
+	 * @return true if the string was found
+	 */
+	public boolean isFound(String searchString) {
+		return getLine(searchString) >= 0;
+	}
+
+	/**
+	 * Checks if all strings were found
+	 *
+	 * @return true if every search string was found
+	 */
+	public boolean isAllFound() {
+		return found == searchStrings.size();
+	}
+
+	/**
+	 * Gets the line of the first occurrence of a string
+	 *
+	 * @param searchString
+	 *            one of the search strings
+	 * @return index of the line, starting at 0, or -1 if the string was not
+	 *         found
+	 */
+	public int getLine(String searchString) {
+		Integer index = indexes.get(searchString);
+		return index == null ? -1 : lines[index];
+	}
+
+	/**
+	 * Gets the position in its line of the first occurrence of a string
+	 *
+	 * @param searchString
+	 *            one of the search strings
+	 * @return index of the first character in the line, or -1 if the string
+	 *         was not found
+	 */
+	public int getColumn(String searchString) {
+		Integer index = indexes.get(searchString);
+		return index == null ? -1 : columns[index];
+	}
+
+	/**
+	 * Gets the position of the first occurrence of a string in the searched
+	 * text, for searched lines the position in the line
+	 *
+	 * @param searchString
+	 *            one of the search strings
+	 * @return index of the first character, or -1 if the string was not found
+	 */
+	public int getOffset(String searchString) {
+		Integer index = indexes.get(searchString);
+		return index == null ? -1 : offsets[index];
+	}
+
+	/**
+	 * Gets the strings which were found
+	 *
+	 * @return found strings in search order
+	 */
+	public List<String> getFound() {
+		List<String> result = new ArrayList<>();
+		for (int i = 0; i < searchStrings.size(); i++) {
+			if (lines[i] >= 0) {
+				result.add(searchStrings.get(i));
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Gets the strings which were not found
+	 *
+	 * @return missing strings in search order
+	 */
+	public List<String> getMissing() {
+		List<String> result = new ArrayList<>();
+		for (int i = 0; i < searchStrings.size(); i++) {
+			if (lines[i] < 0) {
+				result.add(searchStrings.get(i));
+			}
+		}
+		return result;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("%d of %d string(s) found%s", found, searchStrings.size(),
+				isAllFound() ? "" : ", missing: " + getMissing());
+	}
+}